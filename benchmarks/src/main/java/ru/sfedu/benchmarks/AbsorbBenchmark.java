@@ -0,0 +1,77 @@
+package ru.sfedu.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.sfedu.ConflictPolicy;
+import ru.sfedu.DynamicPriorityQueue;
+
+/**
+ * Перенос всех элементов очереди размера {@code size} в другую такую же:
+ * {@code absorb()} против извлечения и повторной вставки по одному.
+ * Замер однократный, очереди строятся заново перед каждой итерацией.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class AbsorbBenchmark {
+    @Param({"100000", "1000000"})
+    public int size;
+
+    private int[] priorities;
+    private Integer[] ids;
+    private DynamicPriorityQueue<Integer, Integer> target;
+    private DynamicPriorityQueue<Integer, Integer> source;
+
+    @Setup(Level.Trial)
+    public void setupTrial()
+    {
+        ids = Workload.boxedIds(2 * size);
+        priorities = Workload.randomKeys(2 * size, 42);
+    }
+
+    @Setup(Level.Iteration)
+    public void setupIteration()
+    {
+        target = new DynamicPriorityQueue<>();
+        source = new DynamicPriorityQueue<>();
+        for (int i = 0; i < size; i++)
+        {
+            target.offer(ids[i], ids[i], priorities[i]);
+            source.offer(ids[size + i], ids[size + i], priorities[size + i]);
+        }
+        // Обе кучи уже перестроены, как у работающих очередей
+        target.poll();
+        source.poll();
+    }
+
+    @Benchmark
+    public DynamicPriorityQueue<Integer, Integer> absorb()
+    {
+        target.absorb(source, ConflictPolicy.FAIL);
+        return target;
+    }
+
+    @Benchmark
+    public DynamicPriorityQueue<Integer, Integer> pollOffer()
+    {
+        for (var id = source.poll(); id != null; id = source.poll())
+            target.offer(id, id, priorities[id]);
+        return target;
+    }
+}
@@ -0,0 +1,99 @@
+package ru.sfedu.benchmarks;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.sfedu.DynamicPriorityQueue;
+
+/**
+ * Извлечение {@code k} наименьших элементов и их повторная вставка с новыми приоритетами:
+ * по одному через {@code poll()}/{@code offer()} и партией через {@code pollN()}/{@code offerAll()}.
+ * Размер очереди между операциями не меняется. Прогрев длинный: вершины, вставленные при подготовке, лежат в памяти
+ * в порядке идентификаторов, и на миллионе элементов время операций устанавливается только после того, как большая
+ * их часть заменена новыми.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 30, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class BatchBenchmark {
+    @Param({"100000", "1000000"})
+    public int size;
+    @Param({"256"})
+    public int k;
+
+    private int[] priorities;
+    private Integer[] ids;
+    private int[] newKeys;
+    private int cursor;
+    private DynamicPriorityQueue<Integer, Integer> dynamicQueue;
+    private ArrayList<Integer> buffer;
+
+    @Setup(Level.Trial)
+    public void setupTrial()
+    {
+        ids = Workload.boxedIds(size);
+        newKeys = Workload.randomKeys(Workload.SEQUENCE_LENGTH, 23);
+        priorities = Workload.randomKeys(size, 42);
+        dynamicQueue = new DynamicPriorityQueue<>();
+        buffer = new ArrayList<>(k);
+        for (int i = 0; i < size; i++)
+            dynamicQueue.offer(ids[i], ids[i], priorities[i]);
+    }
+
+    private int nextKey()
+    {
+        return newKeys[cursor++ & (Workload.SEQUENCE_LENGTH - 1)];
+    }
+
+    @Benchmark
+    public DynamicPriorityQueue<Integer, Integer> loopPollOffer()
+    {
+        for (int i = 0; i < k; i++)
+        {
+            var id = dynamicQueue.poll();
+            priorities[id] = nextKey();
+            buffer.add(id);
+        }
+        for (var id : buffer)
+            dynamicQueue.offer(id, id, priorities[id]);
+        buffer.clear();
+        return dynamicQueue;
+    }
+
+    @Benchmark
+    public DynamicPriorityQueue<Integer, Integer> batchPollOffer()
+    {
+        dynamicQueue.pollN(k, id -> {
+            priorities[id] = nextKey();
+            buffer.add(id);
+        });
+        dynamicQueue.offerAll(buffer, id -> id, id -> priorities[id]);
+        buffer.clear();
+        return dynamicQueue;
+    }
+
+    /**
+     * Чтение {@code k} наименьших элементов без изменения очереди.
+     */
+    @Benchmark
+    public Object peekN()
+    {
+        return dynamicQueue.peekN(k);
+    }
+}
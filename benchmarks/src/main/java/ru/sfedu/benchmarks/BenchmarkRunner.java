@@ -0,0 +1,37 @@
+package ru.sfedu.benchmarks;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Точка входа {@code benchmarks.jar}.
+ * Принимает те же аргументы, что и {@link org.openjdk.jmh.Main}, и всегда подключает {@link GCProfiler},
+ * чтобы в результатах была скорость выделения памяти ({@code gc.alloc.rate.norm} - байт на операцию).
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException
+    {
+        var commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp())
+        {
+            commandLine.showHelp();
+            return;
+        }
+        if (commandLine.shouldList())
+        {
+            new Runner(commandLine).list();
+            return;
+        }
+        var options = new OptionsBuilder()
+            .parent(commandLine)
+            .addProfiler(GCProfiler.class)
+            .build();
+        new Runner(options).run();
+    }
+}
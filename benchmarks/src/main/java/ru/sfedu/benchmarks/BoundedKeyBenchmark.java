@@ -0,0 +1,170 @@
+package ru.sfedu.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.sfedu.DynamicPriorityQueue;
+import ru.sfedu.HeapBackend;
+import ru.sfedu.PriorityUpdater;
+
+/**
+ * Малые целые приоритеты: очередь корзин и радиксная куча против сравнивающих куч.
+ * {@link Bounded} - ключи из диапазона 0..4095, {@link Monotone} - ключ снова вставляемого элемента
+ * не меньше извлеченного, как в алгоритме Дейкстры и очереди событий.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class BoundedKeyBenchmark {
+    private static final int RANGE = 4096;
+
+    @State(Scope.Thread)
+    public static class Bounded {
+        @Param({"1000", "100000", "1000000"})
+        public int size;
+        @Param({"PAIRING", "DARY", "BUCKET"})
+        public HeapBackend backend;
+
+        private int[] priorities;
+        private Integer[] ids;
+        private PriorityUpdater[] updaters;
+        private int[] indices;
+        private int[] newKeys;
+        private int cursor;
+        private DynamicPriorityQueue<Integer, Integer> queue;
+
+        @Setup(Level.Trial)
+        public void setupTrial()
+        {
+            ids = Workload.boxedIds(size);
+            indices = Workload.randomIndices(size, 17);
+            newKeys = Workload.randomKeys(Workload.SEQUENCE_LENGTH, 23);
+            updaters = new PriorityUpdater[size];
+            for (int i = 0; i < size; i++)
+            {
+                final int index = i;
+                updaters[i] = () -> priorities[index];
+            }
+        }
+
+        @Setup(Level.Iteration)
+        public void setupIteration()
+        {
+            priorities = Workload.randomKeys(size, 42);
+            for (int i = 0; i < size; i++)
+                priorities[i] &= RANGE - 1;
+            queue = backend == HeapBackend.BUCKET
+                    ? new DynamicPriorityQueue<>(0, RANGE - 1)
+                    : new DynamicPriorityQueue<>(backend);
+            for (int i = 0; i < size; i++)
+                queue.offer(ids[i], ids[i], updaters[i]);
+            var first = queue.poll();
+            queue.offer(first, first, updaters[first]);
+        }
+
+        private int nextIndex()
+        {
+            return indices[cursor++ & (Workload.SEQUENCE_LENGTH - 1)];
+        }
+
+        private int nextKey()
+        {
+            return newKeys[cursor++ & (Workload.SEQUENCE_LENGTH - 1)] & (RANGE - 1);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Monotone {
+        @Param({"1000", "100000", "1000000"})
+        public int size;
+        @Param({"PAIRING", "DARY", "RADIX"})
+        public HeapBackend backend;
+
+        private int[] priorities;
+        private Integer[] ids;
+        private PriorityUpdater[] updaters;
+        private int[] deltas;
+        private int cursor;
+        private DynamicPriorityQueue<Integer, Integer> queue;
+
+        @Setup(Level.Trial)
+        public void setupTrial()
+        {
+            ids = Workload.boxedIds(size);
+            deltas = Workload.randomKeys(Workload.SEQUENCE_LENGTH, 23);
+            for (int i = 0; i < deltas.length; i++)
+                deltas[i] &= RANGE - 1;
+            updaters = new PriorityUpdater[size];
+            for (int i = 0; i < size; i++)
+            {
+                final int index = i;
+                updaters[i] = () -> priorities[index];
+            }
+        }
+
+        @Setup(Level.Iteration)
+        public void setupIteration()
+        {
+            priorities = Workload.randomKeys(size, 42);
+            for (int i = 0; i < size; i++)
+                priorities[i] &= RANGE - 1;
+            queue = new DynamicPriorityQueue<>(backend);
+            for (int i = 0; i < size; i++)
+                queue.offer(ids[i], ids[i], updaters[i]);
+        }
+
+        private int nextDelta()
+        {
+            return deltas[cursor++ & (Workload.SEQUENCE_LENGTH - 1)];
+        }
+    }
+
+    /**
+     * Удаление корня и вставка его же со случайным ключом из диапазона.
+     */
+    @Benchmark
+    public Integer boundedPollOffer(Bounded state)
+    {
+        var value = state.queue.poll();
+        state.priorities[value] = state.nextKey();
+        state.queue.offer(value, value, state.updaters[value]);
+        return value;
+    }
+
+    /**
+     * Новый случайный ключ из диапазона у произвольной вершины.
+     */
+    @Benchmark
+    public boolean boundedRekey(Bounded state)
+    {
+        var index = state.nextIndex();
+        state.priorities[index] = state.nextKey();
+        return state.queue.update(state.ids[index]);
+    }
+
+    /**
+     * Удаление корня и вставка его же с ключом больше извлеченного на случайную величину до 4095.
+     */
+    @Benchmark
+    public Integer monotonePollOffer(Monotone state)
+    {
+        var value = state.queue.poll();
+        state.priorities[value] += state.nextDelta();
+        state.queue.offer(value, value, state.updaters[value]);
+        return value;
+    }
+}
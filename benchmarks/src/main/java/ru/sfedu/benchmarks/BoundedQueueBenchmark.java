@@ -0,0 +1,118 @@
+package ru.sfedu.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.sfedu.DynamicPriorityQueue;
+import ru.sfedu.OverflowPolicy;
+import ru.sfedu.PriorityUpdater;
+
+/**
+ * Заполненная очередь с вытеснением наихудшего элемента: {@link DynamicPriorityQueue#setCapacity} против поиска
+ * наихудшего перебором всех элементов. Параметр {@code bounded} выбирает способ; {@link #rekey()} показывает,
+ * во что обходится поддержка второй кучи при обновлениях.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class BoundedQueueBenchmark {
+    @Param({"1000", "100000"})
+    public int size;
+    @Param({"true", "false"})
+    public boolean bounded;
+
+    private int[] priorities;
+    private Integer[] ids;
+    private PriorityUpdater[] updaters;
+    private int[] indices;
+    private int[] newKeys;
+    private int cursor;
+    // Элемент вне очереди: вытесненный последним или не попавший в нее
+    private Integer spare;
+    private DynamicPriorityQueue<Integer, Integer> queue;
+
+    @Setup(Level.Trial)
+    public void setupTrial()
+    {
+        ids = Workload.boxedIds(size + 1);
+        indices = Workload.randomIndices(size + 1, 17);
+        newKeys = Workload.randomKeys(Workload.SEQUENCE_LENGTH, 23);
+        updaters = new PriorityUpdater[size + 1];
+        for (int i = 0; i <= size; i++)
+        {
+            final int index = i;
+            updaters[i] = () -> priorities[index];
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setupIteration()
+    {
+        priorities = Workload.randomKeys(size + 1, 42);
+        queue = new DynamicPriorityQueue<>();
+        for (int i = 0; i < size; i++)
+            queue.offer(ids[i], ids[i], updaters[i]);
+        if (bounded)
+            queue.setCapacity(size, OverflowPolicy.EVICT_WORST, value -> spare = value);
+        spare = ids[size];
+    }
+
+    private int nextKey()
+    {
+        return newKeys[cursor++ & (Workload.SEQUENCE_LENGTH - 1)];
+    }
+
+    /**
+     * Вставка в заполненную очередь элемента со случайным приоритетом: вытесняется наихудший из элементов очереди и нового.
+     */
+    @Benchmark
+    public Integer offerEvict()
+    {
+        var value = spare;
+        priorities[value] = nextKey();
+        if (bounded)
+        {
+            queue.offer(value, value, updaters[value]);
+            return spare;
+        }
+        // Перебор всех элементов в произвольном порядке
+        var worst = new Integer[1];
+        queue.spliterator().forEachRemaining(queued -> {
+            if (worst[0] == null || priorities[queued] > priorities[worst[0]])
+                worst[0] = queued;
+        });
+        if (priorities[value] < priorities[worst[0]])
+        {
+            queue.remove(worst[0]);
+            queue.offer(value, value, updaters[value]);
+            spare = worst[0];
+        }
+        return spare;
+    }
+
+    /**
+     * Новый случайный ключ произвольного элемента очереди.
+     */
+    @Benchmark
+    public boolean rekey()
+    {
+        var index = indices[cursor++ & (Workload.SEQUENCE_LENGTH - 1)];
+        priorities[index] = nextKey();
+        return queue.update(ids[index]);
+    }
+}
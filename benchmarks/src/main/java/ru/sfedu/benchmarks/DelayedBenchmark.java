@@ -0,0 +1,122 @@
+package ru.sfedu.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.sfedu.DynamicPriorityQueue;
+import ru.sfedu.PriorityUpdater;
+
+/**
+ * Элементы, которые становятся доступны через {@code delay} тактов после извлечения: {@link DynamicPriorityQueue#offerDelayed}
+ * против стоянки в куче с наибольшим приоритетом и {@code update()} в срок. Часы сдвигаются на такт за операцию,
+ * поэтому в очереди {@code size} доступных и {@code delay} ожидающих элементов.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class DelayedBenchmark {
+    @Param({"1000", "100000"})
+    public int size;
+    @Param({"1024", "65536"})
+    public int delay;
+
+    private int[] priorities;
+    private boolean[] parked;
+    private Integer[] ids;
+    private PriorityUpdater[] updaters;
+    private int[] newKeys;
+    // Элементы, извлеченные в каждый из последних delay тактов
+    private int[] waiting;
+    private long now;
+    private DynamicPriorityQueue<Integer, Integer> queue;
+
+    @Setup(Level.Trial)
+    public void setupTrial()
+    {
+        var count = size + delay;
+        ids = Workload.boxedIds(count);
+        newKeys = Workload.randomKeys(Workload.SEQUENCE_LENGTH, 23);
+        updaters = new PriorityUpdater[count];
+        for (int i = 0; i < count; i++)
+        {
+            final int index = i;
+            updaters[i] = () -> parked[index] ? Integer.MAX_VALUE : priorities[index];
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setupIteration()
+    {
+        var count = size + delay;
+        priorities = Workload.randomKeys(count, 42);
+        parked = new boolean[count];
+        waiting = new int[delay];
+        now = 0;
+        queue = new DynamicPriorityQueue<>();
+        queue.setClock(() -> now);
+        for (int i = 0; i < size; i++)
+            queue.offer(ids[i], ids[i], updaters[i]);
+        // Остальные элементы ждут по одному на каждый из следующих delay тактов
+        for (int i = 0; i < delay; i++)
+            waiting[i] = size + i;
+    }
+
+    private int nextKey()
+    {
+        return newKeys[(int)now & (Workload.SEQUENCE_LENGTH - 1)];
+    }
+
+    /**
+     * Отложенная вставка: элемент лежит в колесе таймеров и переходит в кучу в срок.
+     */
+    @Benchmark
+    public Integer offerDelayed()
+    {
+        var slot = (int)(now++ % delay);
+        var due = waiting[slot];
+        if (due >= 0)
+        {
+            // Начальные элементы еще не были в очереди
+            queue.offer(ids[due], ids[due], updaters[due]);
+            waiting[slot] = -1;
+        }
+        var value = queue.poll();
+        priorities[value] = nextKey();
+        queue.offerDelayed(value, value, updaters[value], delay);
+        return value;
+    }
+
+    /**
+     * Стоянка в куче: элемент вставляется с наибольшим приоритетом, в срок получает настоящий через {@code update()}.
+     */
+    @Benchmark
+    public Integer parkAndUpdate()
+    {
+        var slot = (int)(now++ % delay);
+        var due = waiting[slot];
+        parked[due] = false;
+        if (!queue.update(ids[due]))
+            queue.offer(ids[due], ids[due], updaters[due]);
+        var value = queue.poll();
+        priorities[value] = nextKey();
+        parked[value] = true;
+        queue.offer(value, value, updaters[value]);
+        waiting[slot] = value;
+        return value;
+    }
+}
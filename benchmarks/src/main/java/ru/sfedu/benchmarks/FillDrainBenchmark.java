@@ -0,0 +1,115 @@
+package ru.sfedu.benchmarks;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ru.sfedu.DynamicPriorityQueue;
+
+/**
+ * Заполнение пустой очереди {@code size} элементами и полное опустошение заполненной.
+ * Замер однократный, время на одну операцию равно результату, деленному на {@code size}.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class FillDrainBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private int[] priorities;
+    private Integer[] ids;
+    private List<Integer> idList;
+    private DynamicPriorityQueue<Integer, Integer> dynamicQueue;
+    private PriorityQueue<Integer> javaQueue;
+
+    @Setup(Level.Trial)
+    public void setupTrial()
+    {
+        ids = Workload.boxedIds(size);
+        priorities = Workload.randomKeys(size, 42);
+        idList = Arrays.asList(ids);
+    }
+
+    @Setup(Level.Iteration)
+    public void setupIteration()
+    {
+        dynamicQueue = new DynamicPriorityQueue<>();
+        javaQueue = new PriorityQueue<>(size, (i1, i2) -> Integer.compare(priorities[i1], priorities[i2]));
+    }
+
+    private void fillDynamic()
+    {
+        for (int i = 0; i < size; i++)
+            dynamicQueue.offer(ids[i], ids[i], priorities[i]);
+    }
+
+    private void fillJava()
+    {
+        for (int i = 0; i < size; i++)
+            javaQueue.offer(ids[i]);
+    }
+
+    @Benchmark
+    public DynamicPriorityQueue<Integer, Integer> dynamicFill()
+    {
+        fillDynamic();
+        return dynamicQueue;
+    }
+
+    /**
+     * Построение очереди из коллекции за линейное время.
+     */
+    @Benchmark
+    public DynamicPriorityQueue<Integer, Integer> dynamicBulkFill()
+    {
+        return new DynamicPriorityQueue<>(idList, v -> v, v -> () -> priorities[v]);
+    }
+
+    @Benchmark
+    public PriorityQueue<Integer> javaFill()
+    {
+        fillJava();
+        return javaQueue;
+    }
+
+    /**
+     * Включает заполнение; чистое время опустошения - разность с {@link #dynamicFill()}.
+     */
+    @Benchmark
+    public void dynamicFillDrain(Blackhole blackhole)
+    {
+        fillDynamic();
+        for (int i = 0; i < size; i++)
+            blackhole.consume(dynamicQueue.poll());
+    }
+
+    /**
+     * Включает заполнение; чистое время опустошения - разность с {@link #javaFill()}.
+     */
+    @Benchmark
+    public void javaFillDrain(Blackhole blackhole)
+    {
+        fillJava();
+        for (int i = 0; i < size; i++)
+            blackhole.consume(javaQueue.poll());
+    }
+}
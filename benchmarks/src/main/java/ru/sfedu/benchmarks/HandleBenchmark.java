@@ -0,0 +1,115 @@
+package ru.sfedu.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.sfedu.DynamicPriorityQueue;
+import ru.sfedu.HeapBackend;
+import ru.sfedu.PriorityUpdater;
+import ru.sfedu.QueueHandle;
+
+/**
+ * Изменение и удаление произвольного элемента с составным идентификатором (строка и число): по идентификатору
+ * ({@code ID}), по {@link QueueHandle дескриптору} в обычной очереди ({@code HANDLE}) и в очереди
+ * {@link DynamicPriorityQueue#handlesOnly} без индекса идентификаторов ({@code HANDLES_ONLY}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class HandleBenchmark {
+    @Param({"1000", "1000000"})
+    public int size;
+    @Param({"ID", "HANDLE", "HANDLES_ONLY"})
+    public String access;
+
+    /**
+     * Составной идентификатор: хеш и сравнение проходят по обоим полям
+     */
+    public record OrderKey(String tenant, long order) {}
+
+    private int[] priorities;
+    private OrderKey[] keys;
+    private PriorityUpdater[] updaters;
+    private QueueHandle<Integer>[] handles;
+    private int[] indices;
+    private int[] newKeys;
+    private int cursor;
+    private DynamicPriorityQueue<Integer, OrderKey> queue;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setupTrial()
+    {
+        indices = Workload.randomIndices(size, 17);
+        newKeys = Workload.randomKeys(Workload.SEQUENCE_LENGTH, 23);
+        keys = new OrderKey[size];
+        updaters = new PriorityUpdater[size];
+        handles = (QueueHandle<Integer>[])new QueueHandle<?>[size];
+        for (int i = 0; i < size; i++)
+        {
+            final int index = i;
+            keys[i] = new OrderKey("tenant-" + (i % 97), 1_000_000_000L + i);
+            updaters[i] = () -> priorities[index];
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setupIteration()
+    {
+        priorities = Workload.randomKeys(size, 42);
+        queue = access.equals("HANDLES_ONLY") ? DynamicPriorityQueue.handlesOnly(HeapBackend.PAIRING) : new DynamicPriorityQueue<>();
+        for (int i = 0; i < size; i++)
+            offer(i);
+    }
+
+    private void offer(int index)
+    {
+        if (access.equals("ID"))
+            queue.offer(index, keys[index], updaters[index]);
+        else
+            handles[index] = queue.offerHandle(index, keys[index], updaters[index]);
+    }
+
+    private int nextIndex()
+    {
+        return indices[cursor++ & (Workload.SEQUENCE_LENGTH - 1)];
+    }
+
+    /**
+     * Новый случайный ключ произвольного элемента.
+     */
+    @Benchmark
+    public boolean update()
+    {
+        var index = nextIndex();
+        priorities[index] = newKeys[cursor & (Workload.SEQUENCE_LENGTH - 1)];
+        return access.equals("ID") ? queue.update(keys[index]) : queue.update(handles[index]);
+    }
+
+    /**
+     * Удаление произвольного элемента и его повторная вставка.
+     */
+    @Benchmark
+    public boolean removeOffer()
+    {
+        var index = nextIndex();
+        var removed = access.equals("ID") ? queue.remove(keys[index]) : queue.remove(handles[index]);
+        offer(index);
+        return removed;
+    }
+}
@@ -0,0 +1,140 @@
+package ru.sfedu.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.sfedu.DynamicPriorityQueue;
+import ru.sfedu.HeapBackend;
+import ru.sfedu.PriorityUpdater;
+
+/**
+ * Одиночные операции {@link DynamicPriorityQueue} на кучах разного вида, см. {@link HeapBackend}.
+ * Операции те же, что в {@link DynamicPriorityQueueBenchmark}; спаривающаяся куча - с двухпроходным слиянием.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class HeapBackendBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+    @Param({"PAIRING", "DARY", "RANK_PAIRING"})
+    public HeapBackend backend;
+
+    private int[] priorities;
+    private Integer[] ids;
+    private PriorityUpdater[] updaters;
+    private int[] indices;
+    private int[] newKeys;
+    private int cursor;
+    private DynamicPriorityQueue<Integer, Integer> queue;
+
+    @Setup(Level.Trial)
+    public void setupTrial()
+    {
+        ids = Workload.boxedIds(size);
+        indices = Workload.randomIndices(size, 17);
+        newKeys = Workload.randomKeys(Workload.SEQUENCE_LENGTH, 23);
+        updaters = new PriorityUpdater[size];
+        for (int i = 0; i < size; i++)
+        {
+            final int index = i;
+            updaters[i] = () -> priorities[index];
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setupIteration()
+    {
+        priorities = Workload.randomKeys(size, 42);
+        queue = new DynamicPriorityQueue<>(backend);
+        for (int i = 0; i < size; i++)
+            queue.offer(ids[i], ids[i], updaters[i]);
+        // Первое удаление упорядочивает кучу после серии вставок
+        var first = queue.poll();
+        queue.offer(first, first, updaters[first]);
+    }
+
+    private int nextIndex()
+    {
+        return indices[cursor++ & (Workload.SEQUENCE_LENGTH - 1)];
+    }
+
+    private int nextKey()
+    {
+        return newKeys[cursor++ & (Workload.SEQUENCE_LENGTH - 1)];
+    }
+
+    /**
+     * Удаление корня и вставка его же с новым приоритетом.
+     */
+    @Benchmark
+    public Integer pollOffer()
+    {
+        var value = queue.poll();
+        priorities[value] = nextKey();
+        queue.offer(value, value, updaters[value]);
+        return value;
+    }
+
+    /**
+     * Уменьшение ключа произвольной вершины.
+     */
+    @Benchmark
+    public boolean decreaseKey()
+    {
+        var index = nextIndex();
+        priorities[index]--;
+        return queue.update(ids[index]);
+    }
+
+    /**
+     * Увеличение ключа произвольной вершины на случайную величину, кроме корня.
+     */
+    @Benchmark
+    public boolean increaseKey()
+    {
+        var index = nextIndex();
+        if (index == queue.peek())
+            index = (index + 1) % size;
+        priorities[index] += nextKey() >>> 20;
+        return queue.update(ids[index]);
+    }
+
+    /**
+     * Новый случайный ключ произвольной вершины.
+     */
+    @Benchmark
+    public boolean rekey()
+    {
+        var index = nextIndex();
+        priorities[index] = nextKey();
+        return queue.update(ids[index]);
+    }
+
+    /**
+     * Удаление произвольного элемента по идентификатору и его повторная вставка.
+     */
+    @Benchmark
+    public boolean removeOffer()
+    {
+        var index = nextIndex();
+        queue.remove(ids[index]);
+        priorities[index] = nextKey();
+        return queue.offer(ids[index], ids[index], updaters[index]);
+    }
+}
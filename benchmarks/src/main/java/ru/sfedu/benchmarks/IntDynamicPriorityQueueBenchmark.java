@@ -0,0 +1,126 @@
+package ru.sfedu.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.sfedu.IntDynamicPriorityQueue;
+import ru.sfedu.MergeStrategy;
+import ru.sfedu.PriorityUpdater;
+
+/**
+ * Те же операции, что и в {@link DynamicPriorityQueueBenchmark}, на {@link IntDynamicPriorityQueue}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class IntDynamicPriorityQueueBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+    @Param({"TWO_PASS", "MULTIPASS", "FRONT_TO_BACK"})
+    public MergeStrategy strategy;
+    @Param({"false", "true"})
+    public boolean offHeap;
+
+    private int[] priorities;
+    private Integer[] ids;
+    private PriorityUpdater[] updaters;
+    private int[] indices;
+    private int[] newKeys;
+    private int cursor;
+    private IntDynamicPriorityQueue<Integer> queue;
+
+    @Setup(Level.Trial)
+    public void setupTrial()
+    {
+        ids = Workload.boxedIds(size);
+        indices = Workload.randomIndices(size, 17);
+        newKeys = Workload.randomKeys(Workload.SEQUENCE_LENGTH, 23);
+        updaters = new PriorityUpdater[size];
+        for (int i = 0; i < size; i++)
+        {
+            final int index = i;
+            updaters[i] = () -> priorities[index];
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setupIteration()
+    {
+        priorities = Workload.randomKeys(size, 42);
+        queue = offHeap ? IntDynamicPriorityQueue.offHeap(strategy, 1 << 16, size) : new IntDynamicPriorityQueue<>(strategy, size);
+        for (int i = 0; i < size; i++)
+            queue.offer(ids[i], i, updaters[i]);
+        // Первое удаление сливает всех детей корня, после него форма кучи типична для установившегося режима
+        var first = queue.poll();
+        queue.offer(first, first, updaters[first]);
+    }
+
+    private int nextIndex()
+    {
+        return indices[cursor++ & (Workload.SEQUENCE_LENGTH - 1)];
+    }
+
+    private int nextKey()
+    {
+        return newKeys[cursor++ & (Workload.SEQUENCE_LENGTH - 1)];
+    }
+
+    @Benchmark
+    public Integer pollOffer()
+    {
+        var value = queue.poll();
+        priorities[value] = nextKey();
+        queue.offer(value, value, updaters[value]);
+        return value;
+    }
+
+    @Benchmark
+    public boolean decreaseKey()
+    {
+        var index = nextIndex();
+        priorities[index]--;
+        return queue.update(index);
+    }
+
+    @Benchmark
+    public boolean increaseKey()
+    {
+        var index = nextIndex();
+        if (index == queue.peek())
+            index = (index + 1) % size;
+        priorities[index]++;
+        return queue.update(index);
+    }
+
+    @Benchmark
+    public boolean updateRoot()
+    {
+        int index = queue.peek();
+        priorities[index] = nextKey();
+        return queue.update(index);
+    }
+
+    @Benchmark
+    public boolean removeOffer()
+    {
+        var index = nextIndex();
+        queue.remove(index);
+        priorities[index] = nextKey();
+        return queue.offer(ids[index], index, updaters[index]);
+    }
+}
@@ -0,0 +1,100 @@
+package ru.sfedu.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.sfedu.DynamicPriorityQueue;
+import ru.sfedu.QueueJournal;
+import ru.sfedu.SnapshotCodec;
+
+/**
+ * Пропускная способность {@code poll}+{@code offer} с журналом при разных политиках сброса на диск:
+ * {@code none} - без журнала, {@code never} - только запись в файл без fsync,
+ * {@code group} - групповой fsync каждые 64 КБ или 1 мс, {@code always} - fsync после каждой записи.
+ * Журнал пишется во временный каталог, который удаляется после итерации.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class JournalBenchmark {
+    @Param({"100000"})
+    public int size;
+    @Param({"none", "never", "group", "always"})
+    public String policy;
+
+    private int[] newKeys;
+    private int cursor;
+    private Integer[] ids;
+    private Path directory;
+    private QueueJournal<Integer, Integer> journal;
+    private DynamicPriorityQueue<Integer, Integer> queue;
+
+    @Setup(Level.Iteration)
+    public void setup() throws IOException
+    {
+        ids = Workload.boxedIds(size);
+        newKeys = Workload.randomKeys(Workload.SEQUENCE_LENGTH, 23);
+        var priorities = Workload.randomKeys(size, 42);
+        queue = new DynamicPriorityQueue<>();
+        for (int i = 0; i < size; i++)
+            queue.offer(ids[i], ids[i], priorities[i]);
+        directory = Files.createTempDirectory("journal");
+        switch (policy)
+        {
+            case "none":
+                journal = null;
+                return;
+            case "never":
+                journal = new QueueJournal<>(directory, SnapshotCodec.integers(), SnapshotCodec.integers(), 64L << 20, Long.MAX_VALUE, Long.MAX_VALUE);
+                break;
+            case "group":
+                journal = new QueueJournal<>(directory, SnapshotCodec.integers(), SnapshotCodec.integers(), 64L << 20, 64 << 10, 1_000_000L);
+                break;
+            case "always":
+                journal = new QueueJournal<>(directory, SnapshotCodec.integers(), SnapshotCodec.integers(), 64L << 20, 0, 0);
+                break;
+            default:
+                throw new IllegalArgumentException(policy);
+        }
+        journal.recover(queue, id -> null);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException
+    {
+        if (journal != null)
+            journal.close();
+        try (var files = Files.walk(directory)) {
+            for (var file : (Iterable<Path>)files.sorted(Comparator.reverseOrder())::iterator)
+                Files.delete(file);
+        }
+    }
+
+    @Benchmark
+    public DynamicPriorityQueue<Integer, Integer> pollOffer()
+    {
+        var id = queue.poll();
+        queue.offer(id, id, newKeys[cursor++ & (Workload.SEQUENCE_LENGTH - 1)]);
+        return queue;
+    }
+}
@@ -0,0 +1,113 @@
+package ru.sfedu.benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.sfedu.DoubleDynamicPriorityQueue;
+import ru.sfedu.DoublePriorityUpdater;
+import ru.sfedu.KineticPriorityQueue;
+
+/**
+ * Старение приоритетов {@code base - rate * time}: шаг времени, затем извлечение корня и его возврат в конец очереди.
+ * Доля {@code movers} элементов стареет в 16 раз быстрее остальных, только их пары и меняют порядок.
+ * {@link KineticPriorityQueue} исправляет нарушенные пары, {@link DoubleDynamicPriorityQueue} пересчитывает все элементы
+ * через {@code updateAll()}. Число исправлений на операцию печатается после итерации.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class KineticBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+    @Param({"0", "0.001", "0.01"})
+    public double movers;
+
+    private static final double FAST_RATE = 16;
+    private double[] bases;
+    private double[] rates;
+    private Integer[] ids;
+    private double time;
+    private long operations;
+    private KineticPriorityQueue<Integer, Integer> kineticQueue;
+    private DoubleDynamicPriorityQueue<Integer, Integer> dynamicQueue;
+
+    @Setup(Level.Iteration)
+    public void setup()
+    {
+        ids = Workload.boxedIds(size);
+        var keys = Workload.randomKeys(size, 42);
+        var random = new SplittableRandom(17);
+        bases = new double[size];
+        rates = new double[size];
+        time = 0;
+        operations = 0;
+        kineticQueue = new KineticPriorityQueue<>();
+        dynamicQueue = new DoubleDynamicPriorityQueue<>();
+        for (int i = 0; i < size; i++)
+        {
+            final int index = i;
+            // Базовые приоритеты плотностью один элемент на единицу времени
+            bases[i] = (double)keys[i] * size / Workload.KEY_BOUND;
+            rates[i] = random.nextDouble() < movers ? FAST_RATE : 1;
+            DoublePriorityUpdater updater = () -> bases[index] - rates[index] * time;
+            kineticQueue.offer(ids[i], ids[i], bases[i], rates[i]);
+            dynamicQueue.offer(ids[i], ids[i], updater);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void report()
+    {
+        if (operations > 0 && kineticQueue.repairs() > 0)
+            System.out.printf("%nrepairs/op: %.3f%n", (double)kineticQueue.repairs() / operations);
+    }
+
+    /**
+     *  Новый базовый приоритет корня: в текущий момент он оказывается в конце очереди
+     */
+    private double requeue(int id)
+    {
+        bases[id] = rates[id] * time + size;
+        return bases[id];
+    }
+
+    @Benchmark
+    public KineticPriorityQueue<Integer, Integer> kineticAdvance()
+    {
+        time += 1;
+        operations++;
+        kineticQueue.advanceTo(time);
+        var id = kineticQueue.poll();
+        kineticQueue.offer(id, id, requeue(id), rates[id]);
+        return kineticQueue;
+    }
+
+    @Benchmark
+    public DoubleDynamicPriorityQueue<Integer, Integer> dynamicUpdateAll()
+    {
+        time += 1;
+        dynamicQueue.updateAll();
+        var id = dynamicQueue.poll();
+        requeue(id);
+        final int index = id;
+        dynamicQueue.offer(id, id, () -> bases[index] - rates[index] * time);
+        return dynamicQueue;
+    }
+}
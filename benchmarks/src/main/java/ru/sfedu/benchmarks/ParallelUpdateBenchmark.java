@@ -0,0 +1,84 @@
+package ru.sfedu.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.sfedu.DynamicPriorityQueue;
+import ru.sfedu.PriorityUpdater;
+
+/**
+ * {@link DynamicPriorityQueue#updateAll()} с дорогими функциями приоритета, которые читают несколько счетчиков
+ * и считают оценку: последовательно и с {@link DynamicPriorityQueue#setParallelThreshold} в общем пуле.
+ * Между пересчетами счетчики меняются у всех элементов.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class ParallelUpdateBenchmark {
+    @Param({"100000", "2000000"})
+    public int size;
+    @Param({"true", "false"})
+    public boolean parallel;
+
+    private long[] hits;
+    private long[] misses;
+    private long[] age;
+    private int tick;
+    private DynamicPriorityQueue<Integer, Integer> queue;
+
+    @Setup(Level.Trial)
+    public void setupTrial()
+    {
+        var ids = Workload.boxedIds(size);
+        var keys = Workload.randomKeys(size, 42);
+        hits = new long[size];
+        misses = new long[size];
+        age = new long[size];
+        for (int i = 0; i < size; i++)
+        {
+            hits[i] = keys[i] & 0xffff;
+            misses[i] = keys[i] >>> 16 & 0xff;
+        }
+        queue = new DynamicPriorityQueue<>();
+        if (parallel)
+            queue.setParallelThreshold(10000, null);
+        for (int i = 0; i < size; i++)
+        {
+            final int index = i;
+            PriorityUpdater updater = () -> score(index);
+            queue.offer(ids[i], ids[i], updater);
+        }
+    }
+
+    private int score(int index)
+    {
+        var total = hits[index] + misses[index] + 1;
+        var ratio = (double)hits[index] / total;
+        return (int)(-1000 * Math.log1p(ratio) * Math.sqrt(total) / Math.exp(age[index] * 1e-3));
+    }
+
+    @Benchmark
+    public DynamicPriorityQueue<Integer, Integer> updateAll()
+    {
+        tick++;
+        for (int i = 0; i < size; i++)
+            age[i] = (age[i] + tick) & 1023;
+        queue.updateAll();
+        return queue;
+    }
+}
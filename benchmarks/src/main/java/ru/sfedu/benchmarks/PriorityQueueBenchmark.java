@@ -0,0 +1,111 @@
+package ru.sfedu.benchmarks;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Те же операции, что и в {@link DynamicPriorityQueueBenchmark}, на {@link PriorityQueue}.
+ * Изменение приоритета в {@link PriorityQueue} возможно только удалением элемента и повторной вставкой.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class PriorityQueueBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private int[] priorities;
+    private Integer[] ids;
+    private int[] indices;
+    private int[] newKeys;
+    private int cursor;
+    private PriorityQueue<Integer> queue;
+
+    @Setup(Level.Trial)
+    public void setupTrial()
+    {
+        ids = Workload.boxedIds(size);
+        indices = Workload.randomIndices(size, 17);
+        newKeys = Workload.randomKeys(Workload.SEQUENCE_LENGTH, 23);
+    }
+
+    @Setup(Level.Iteration)
+    public void setupIteration()
+    {
+        priorities = Workload.randomKeys(size, 42);
+        queue = new PriorityQueue<>(size, (i1, i2) -> Integer.compare(priorities[i1], priorities[i2]));
+        for (int i = 0; i < size; i++)
+            queue.offer(ids[i]);
+    }
+
+    private int nextIndex()
+    {
+        return indices[cursor++ & (Workload.SEQUENCE_LENGTH - 1)];
+    }
+
+    private int nextKey()
+    {
+        return newKeys[cursor++ & (Workload.SEQUENCE_LENGTH - 1)];
+    }
+
+    private boolean reinsert(int index, int newKey)
+    {
+        queue.remove(ids[index]);
+        priorities[index] = newKey;
+        return queue.offer(ids[index]);
+    }
+
+    @Benchmark
+    public Integer pollOffer()
+    {
+        var value = queue.poll();
+        priorities[value] = nextKey();
+        queue.offer(value);
+        return value;
+    }
+
+    @Benchmark
+    public boolean decreaseKey()
+    {
+        var index = nextIndex();
+        return reinsert(index, priorities[index] - 1);
+    }
+
+    @Benchmark
+    public boolean increaseKey()
+    {
+        var index = nextIndex();
+        if (index == queue.peek())
+            index = (index + 1) % size;
+        return reinsert(index, priorities[index] + 1);
+    }
+
+    @Benchmark
+    public boolean updateRoot()
+    {
+        return reinsert(queue.peek(), nextKey());
+    }
+
+    @Benchmark
+    public boolean removeOffer()
+    {
+        var index = nextIndex();
+        return reinsert(index, nextKey());
+    }
+}
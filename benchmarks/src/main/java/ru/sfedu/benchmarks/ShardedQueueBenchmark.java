@@ -0,0 +1,96 @@
+package ru.sfedu.benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.sfedu.DynamicPriorityQueue;
+import ru.sfedu.PollMode;
+import ru.sfedu.ShardedDynamicPriorityQueue;
+
+/**
+ * Пропускная способность {@link ShardedDynamicPriorityQueue} и {@link DynamicPriorityQueue} под одной блокировкой.
+ * Каждый поток извлекает корень и вставляет его обратно с новым приоритетом.
+ * Количество потоков задается ключом {@code -t}, например для масштабирования от 1 до 64 потоков:
+ * {@code for t in 1 2 4 8 16 32 64; do java -jar benchmarks.jar ShardedQueueBenchmark -t $t; done}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ShardedQueueBenchmark {
+    private static final int SIZE = 1000000;
+
+    @State(Scope.Benchmark)
+    public static class ShardedState {
+        @Param({"4", "16", "64", "256"})
+        public int shards;
+        @Param({"RELAXED", "EXACT"})
+        public PollMode mode;
+
+        private ShardedDynamicPriorityQueue<Integer, Integer> queue;
+
+        @Setup(Level.Trial)
+        public void setup()
+        {
+            queue = new ShardedDynamicPriorityQueue<>(shards, mode);
+            var keys = Workload.randomKeys(SIZE, 42);
+            var ids = Workload.boxedIds(SIZE);
+            for (int i = 0; i < SIZE; i++)
+                queue.offer(ids[i], ids[i], keys[i]);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class LockedState {
+        private final ReentrantLock lock = new ReentrantLock();
+        private DynamicPriorityQueue<Integer, Integer> queue;
+
+        @Setup(Level.Trial)
+        public void setup()
+        {
+            queue = new DynamicPriorityQueue<>();
+            var keys = Workload.randomKeys(SIZE, 42);
+            var ids = Workload.boxedIds(SIZE);
+            for (int i = 0; i < SIZE; i++)
+                queue.offer(ids[i], ids[i], keys[i]);
+        }
+    }
+
+    @Benchmark
+    public Integer shardedPollOffer(ShardedState state)
+    {
+        var value = state.queue.poll();
+        if (value != null)
+            state.queue.offer(value, value, ThreadLocalRandom.current().nextInt(Workload.KEY_BOUND));
+        return value;
+    }
+
+    @Benchmark
+    public Integer lockedPollOffer(LockedState state)
+    {
+        state.lock.lock();
+        try {
+            var value = state.queue.poll();
+            state.queue.offer(value, value, ThreadLocalRandom.current().nextInt(Workload.KEY_BOUND));
+            return value;
+        }
+        finally {
+            state.lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package ru.sfedu.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.sfedu.DynamicPriorityQueue;
+import ru.sfedu.SnapshotCodec;
+
+/**
+ * Запись снимка очереди из {@code size} элементов и восстановление из него
+ * в сравнении с заполнением очереди через {@code offer()}.
+ * Замер однократный, файл снимка лежит во временном каталоге.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class SnapshotBenchmark {
+    @Param({"100000", "1000000", "10000000"})
+    public int size;
+
+    private int[] priorities;
+    private Integer[] ids;
+    private Path file;
+    private DynamicPriorityQueue<Integer, Integer> queue;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws IOException
+    {
+        ids = Workload.boxedIds(size);
+        priorities = Workload.randomKeys(size, 42);
+        queue = new DynamicPriorityQueue<>();
+        for (int i = 0; i < size; i++)
+            queue.offer(ids[i], ids[i], priorities[i]);
+        file = Files.createTempFile("queue", ".snapshot");
+        queue.snapshot(file, SnapshotCodec.integers(), SnapshotCodec.integers());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException
+    {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Path snapshot() throws IOException
+    {
+        queue.snapshot(file, SnapshotCodec.integers(), SnapshotCodec.integers());
+        return file;
+    }
+
+    @Benchmark
+    public DynamicPriorityQueue<Integer, Integer> restore() throws IOException
+    {
+        return DynamicPriorityQueue.restore(file, SnapshotCodec.integers(), SnapshotCodec.integers(), id -> null, false);
+    }
+
+    @Benchmark
+    public DynamicPriorityQueue<Integer, Integer> restoreLazy() throws IOException
+    {
+        return DynamicPriorityQueue.restore(file, SnapshotCodec.integers(), SnapshotCodec.integers(), id -> null, true);
+    }
+
+    @Benchmark
+    public DynamicPriorityQueue<Integer, Integer> offerFill()
+    {
+        var filled = new DynamicPriorityQueue<Integer, Integer>();
+        for (int i = 0; i < size; i++)
+            filled.offer(ids[i], ids[i], priorities[i]);
+        return filled;
+    }
+}
@@ -0,0 +1,95 @@
+package ru.sfedu.benchmarks;
+
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.sfedu.DynamicPriorityQueue;
+import ru.sfedu.PriorityUpdater;
+
+/**
+ * Обновление всех приоритетов после изменения доли {@code changed} из них.
+ * Для {@link PriorityQueue} аналог - перестроение кучи из всех элементов.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class UpdateAllBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+    @Param({"0.001", "1"})
+    public double changed;
+
+    private int[] priorities;
+    private Integer[] ids;
+    private int[] indices;
+    private int[] newKeys;
+    private int cursor;
+    private DynamicPriorityQueue<Integer, Integer> dynamicQueue;
+    private PriorityQueue<Integer> javaQueue;
+    private ArrayList<Integer> javaBuffer;
+
+    @Setup(Level.Trial)
+    public void setupTrial()
+    {
+        ids = Workload.boxedIds(size);
+        indices = Workload.randomIndices(size, 17);
+        newKeys = Workload.randomKeys(Workload.SEQUENCE_LENGTH, 23);
+        priorities = Workload.randomKeys(size, 42);
+        dynamicQueue = new DynamicPriorityQueue<>();
+        javaQueue = new PriorityQueue<>(size, (i1, i2) -> Integer.compare(priorities[i1], priorities[i2]));
+        javaBuffer = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+        {
+            final int index = i;
+            PriorityUpdater updater = () -> priorities[index];
+            dynamicQueue.offer(ids[i], ids[i], updater);
+            javaQueue.offer(ids[i]);
+        }
+    }
+
+    private void changePriorities()
+    {
+        var count = Math.max(1, (int)(size * changed));
+        for (int i = 0; i < count; i++)
+        {
+            var position = cursor++ & (Workload.SEQUENCE_LENGTH - 1);
+            priorities[indices[position]] = newKeys[position];
+        }
+    }
+
+    @Benchmark
+    public DynamicPriorityQueue<Integer, Integer> dynamicUpdateAll()
+    {
+        changePriorities();
+        dynamicQueue.updateAll();
+        return dynamicQueue;
+    }
+
+    @Benchmark
+    public PriorityQueue<Integer> javaRebuild()
+    {
+        changePriorities();
+        javaBuffer.clear();
+        javaBuffer.addAll(javaQueue);
+        javaQueue.clear();
+        javaQueue.addAll(javaBuffer);
+        return javaQueue;
+    }
+}
@@ -0,0 +1,58 @@
+package ru.sfedu.benchmarks;
+
+import java.util.SplittableRandom;
+
+/**
+ * Генерация входных данных, общих для всех бенчмарков.
+ * Все массивы строятся заранее, чтобы в измерение не попадали генератор случайных чисел и упаковка чисел.
+ */
+public final class Workload {
+    /**
+     * Верхняя граница случайных приоритетов.
+     * Оставляет запас, чтобы уменьшение и увеличение ключа на единицу не переполняли {@code int}.
+     */
+    public static final int KEY_BOUND = 1 << 30;
+    /**
+     * Длина циклической последовательности случайных индексов и ключей.
+     */
+    public static final int SEQUENCE_LENGTH = 1 << 16;
+
+    private Workload()
+    {
+    }
+
+    /**
+     * Случайные приоритеты из {@code [0, KEY_BOUND)}.
+     */
+    public static int[] randomKeys(int count, long seed)
+    {
+        var random = new SplittableRandom(seed);
+        var keys = new int[count];
+        for (int i = 0; i < count; i++)
+            keys[i] = random.nextInt(KEY_BOUND);
+        return keys;
+    }
+
+    /**
+     * Случайные индексы из {@code [0, bound)}, длина последовательности - {@link #SEQUENCE_LENGTH}.
+     */
+    public static int[] randomIndices(int bound, long seed)
+    {
+        var random = new SplittableRandom(seed);
+        var indices = new int[SEQUENCE_LENGTH];
+        for (int i = 0; i < indices.length; i++)
+            indices[i] = random.nextInt(bound);
+        return indices;
+    }
+
+    /**
+     * Заранее упакованные идентификаторы {@code 0..count-1}.
+     */
+    public static Integer[] boxedIds(int count)
+    {
+        var ids = new Integer[count];
+        for (int i = 0; i < count; i++)
+            ids[i] = i;
+        return ids;
+    }
+}
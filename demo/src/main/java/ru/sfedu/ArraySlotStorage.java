@@ -0,0 +1,152 @@
+package ru.sfedu;
+
+import java.util.Arrays;
+
+/**
+ * Ячейки в параллельных массивах в куче Java.
+ * При росте массивы увеличиваются в полтора раза.
+ */
+class ArraySlotStorage extends SlotStorage {
+    ArraySlotStorage(int capacity)
+    {
+        keys = new int[capacity];
+        leftChild = new int[capacity];
+        rightChild = new int[capacity];
+        next = new int[capacity];
+        prev = new int[capacity];
+        flags = new byte[capacity];
+        ids = new int[capacity];
+        values = new Object[capacity];
+        updaters = new PriorityUpdater[capacity];
+    }
+
+    private int[] keys;
+    private int[] leftChild;
+    private int[] rightChild;
+    private int[] next;
+    private int[] prev;
+    private byte[] flags;
+    private int[] ids;
+    private Object[] values;
+    private PriorityUpdater[] updaters;
+
+    long capacity()
+    {
+        return keys.length;
+    }
+
+    void grow()
+    {
+        var capacity = keys.length + (keys.length >> 1);
+        keys = Arrays.copyOf(keys, capacity);
+        leftChild = Arrays.copyOf(leftChild, capacity);
+        rightChild = Arrays.copyOf(rightChild, capacity);
+        next = Arrays.copyOf(next, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        values = Arrays.copyOf(values, capacity);
+        updaters = Arrays.copyOf(updaters, capacity);
+    }
+
+    long offHeapBytes()
+    {
+        return 0;
+    }
+
+    int key(int slot)
+    {
+        return keys[slot];
+    }
+
+    void setKey(int slot, int value)
+    {
+        keys[slot] = value;
+    }
+
+    int leftChild(int slot)
+    {
+        return leftChild[slot];
+    }
+
+    void setLeftChild(int slot, int value)
+    {
+        leftChild[slot] = value;
+    }
+
+    int rightChild(int slot)
+    {
+        return rightChild[slot];
+    }
+
+    void setRightChild(int slot, int value)
+    {
+        rightChild[slot] = value;
+    }
+
+    int next(int slot)
+    {
+        return next[slot];
+    }
+
+    void setNext(int slot, int value)
+    {
+        next[slot] = value;
+    }
+
+    int prev(int slot)
+    {
+        return prev[slot];
+    }
+
+    void setPrev(int slot, int value)
+    {
+        prev[slot] = value;
+    }
+
+    int flags(int slot)
+    {
+        return flags[slot];
+    }
+
+    void setFlags(int slot, int value)
+    {
+        flags[slot] = (byte)value;
+    }
+
+    int id(int slot)
+    {
+        return ids[slot];
+    }
+
+    void setId(int slot, int value)
+    {
+        ids[slot] = value;
+    }
+
+    Object value(int slot)
+    {
+        return values[slot];
+    }
+
+    void setValue(int slot, Object value)
+    {
+        values[slot] = value;
+    }
+
+    PriorityUpdater updater(int slot)
+    {
+        return updaters[slot];
+    }
+
+    void setUpdater(int slot, PriorityUpdater updater)
+    {
+        updaters[slot] = updater;
+    }
+
+    void clearReferences()
+    {
+        Arrays.fill(values, null);
+        Arrays.fill(updaters, null);
+    }
+}
@@ -0,0 +1,214 @@
+package ru.sfedu;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Очередь корзин для ключей из ограниченного диапазона, см. {@link HeapBackend#BUCKET}.
+ * На каждый ключ своя корзина - двусвязный список вершин через {@code prevNode} и {@code nextNode}, номер корзины
+ * хранится в {@code slot}. Непустые корзины отмечены в битовой карте, а ее непустые слова - в карте второго уровня,
+ * поэтому следующая непустая корзина находится за несколько сравнений слов. Вставка, изменение ключа и удаление - O(1).
+ */
+final class BucketEngine<I> implements HeapEngine<I> {
+    static final int MAX_BUCKETS = 1 << 24;
+
+    private final long minKey;
+    private final long maxKey;
+    private final HeapNode<?>[] heads;
+    private final long[] bits;
+    private final long[] summary;
+    // Наименьшая непустая корзина или -1
+    private int minBucket = -1;
+
+    BucketEngine(long minKey, long maxKey)
+    {
+        if (maxKey < minKey || maxKey - minKey >= MAX_BUCKETS)
+            throw new IllegalArgumentException("Диапазон приоритетов должен быть непустым и не длиннее " + MAX_BUCKETS + ": " + minKey + ".." + maxKey);
+        this.minKey = minKey;
+        this.maxKey = maxKey;
+        var buckets = (int)(maxKey - minKey + 1);
+        heads = new HeapNode<?>[buckets];
+        bits = new long[(buckets + 63) >>> 6];
+        summary = new long[(bits.length + 63) >>> 6];
+    }
+
+    public String name()
+    {
+        return HeapBackend.BUCKET.name();
+    }
+
+    public boolean accepts(long key)
+    {
+        return key >= minKey && key <= maxKey;
+    }
+
+    public boolean isEmpty()
+    {
+        return minBucket < 0;
+    }
+
+    public HeapNode<I> min()
+    {
+        return minBucket < 0 ? null : head(minBucket);
+    }
+
+    public void flush()
+    {
+    }
+
+    public void insert(HeapNode<I> node)
+    {
+        var bucket = (int)(node.key - minKey);
+        var head = head(bucket);
+        node.slot = bucket;
+        node.prevNode = null;
+        node.nextNode = head;
+        if (head != null)
+            head.prevNode = node;
+        else
+        {
+            bits[bucket >>> 6] |= 1L << bucket;
+            summary[bucket >>> 12] |= 1L << (bucket >>> 6);
+            if (minBucket < 0 || bucket < minBucket)
+                minBucket = bucket;
+        }
+        heads[bucket] = node;
+    }
+
+    public void insertAll(HeapNode<I> list)
+    {
+        for (var node = list; node != null;)
+        {
+            var next = node.nextNode;
+            insert(node);
+            node = next;
+        }
+    }
+
+    public HeapNode<I> removeMin()
+    {
+        var node = head(minBucket);
+        remove(node);
+        return node;
+    }
+
+    public void remove(HeapNode<I> node)
+    {
+        var bucket = node.slot;
+        if (node.prevNode != null)
+            node.prevNode.nextNode = node.nextNode;
+        else
+            heads[bucket] = node.nextNode;
+        if (node.nextNode != null)
+            node.nextNode.prevNode = node.prevNode;
+        node.prevNode = null;
+        node.nextNode = null;
+        if (heads[bucket] != null)
+            return;
+        if ((bits[bucket >>> 6] &= ~(1L << bucket)) == 0)
+            summary[bucket >>> 12] &= ~(1L << (bucket >>> 6));
+        if (bucket == minBucket)
+            minBucket = nextBucket(bucket + 1);
+    }
+
+    public void decreaseKey(HeapNode<I> node, long newKey)
+    {
+        rekey(node, newKey);
+    }
+
+    public void increaseKey(HeapNode<I> node, long newKey)
+    {
+        rekey(node, newKey);
+    }
+
+    /**
+     * Переносит вершину в корзину нового ключа сразу, откладывать нечего
+     */
+    public void rekey(HeapNode<I> node, long newKey)
+    {
+        remove(node);
+        node.key = newKey;
+        insert(node);
+    }
+
+    public void absorb(HeapEngine<I> other)
+    {
+        var buckets = (BucketEngine<I>)other;
+        for (var bucket = buckets.minBucket; bucket >= 0; bucket = buckets.nextBucket(bucket + 1))
+            for (var node = buckets.head(bucket); node != null;)
+            {
+                var next = node.nextNode;
+                insert(node);
+                node = next;
+            }
+        buckets.clear();
+    }
+
+    public void clear()
+    {
+        for (var bucket = minBucket; bucket >= 0; bucket = nextBucket(bucket + 1))
+            heads[bucket] = null;
+        Arrays.fill(bits, 0);
+        Arrays.fill(summary, 0);
+        minBucket = -1;
+    }
+
+    public int children(HeapNode<I> node)
+    {
+        return 0;
+    }
+
+    public void forEachRoot(Consumer<HeapNode<I>> action)
+    {
+        if (minBucket >= 0)
+            action.accept(head(minBucket));
+    }
+
+    /**
+     * Ключи вершин одной корзины равны, поэтому следующая - соседняя по списку или первая в следующей корзине
+     */
+    public void forEachSuccessor(HeapNode<I> node, Consumer<HeapNode<I>> action)
+    {
+        if (node.nextNode != null)
+        {
+            action.accept(node.nextNode);
+            return;
+        }
+        var bucket = nextBucket(node.slot + 1);
+        if (bucket >= 0)
+            action.accept(head(bucket));
+    }
+
+    /**
+     *  Наименьшая непустая корзина, не меньшая {@code from}, или -1
+     */
+    private int nextBucket(int from)
+    {
+        var word = from >>> 6;
+        if (word >= bits.length)
+            return -1;
+        var masked = bits[word] & (-1L << from);
+        if (masked != 0)
+            return (word << 6) + Long.numberOfTrailingZeros(masked);
+        // Следующее непустое слово по карте второго уровня
+        var next = word + 1;
+        for (int index = next >>> 6; index < summary.length; index++)
+        {
+            var words = summary[index];
+            if (index == next >>> 6)
+                words &= -1L << next;
+            if (words != 0)
+            {
+                var found = (index << 6) + Long.numberOfTrailingZeros(words);
+                return (found << 6) + Long.numberOfTrailingZeros(bits[found]);
+            }
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private HeapNode<I> head(int bucket)
+    {
+        return (HeapNode<I>)heads[bucket];
+    }
+}
@@ -0,0 +1,25 @@
+package ru.sfedu;
+
+/**
+ * Что делать с элементами, идентификатор которых есть в обеих очередях при
+ * {@link DynamicPriorityQueue#absorb(DynamicPriorityQueue, ConflictPolicy)}.
+ * Проигравший элемент удаляется, как при {@link DynamicPriorityQueue#remove(Object)}.
+ */
+public enum ConflictPolicy {
+    /**
+     * Бросить {@link IllegalStateException}, не меняя ни одной очереди.
+     */
+    FAIL,
+    /**
+     * Оставить элемент принимающей очереди.
+     */
+    KEEP_EXISTING,
+    /**
+     * Оставить элемент поглощаемой очереди.
+     */
+    KEEP_INCOMING,
+    /**
+     * Оставить элемент с меньшим приоритетом, при равенстве - элемент принимающей очереди.
+     */
+    KEEP_MIN
+}
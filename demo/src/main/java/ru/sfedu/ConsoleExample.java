@@ -32,7 +32,8 @@ public class ConsoleExample {
         if (input.readLine().equals("y"))
             manualID = false;
         var queue = new DynamicPriorityQueue<String, String>();
-        var priorities = new HashMap<String, Integer>();
+        // Ячейки сами оповещают очередь об изменении приоритета
+        var priorities = new HashMap<String, PriorityCell>();
         help(manualID);
         while (true)
         {
@@ -85,17 +86,18 @@ public class ConsoleExample {
                         break;
                     }
                     var id = manualID ? line[2] : line[1];
-                    if (priorities.containsKey(id))
+                    if (queue.contains(id))
                     {
                         System.out.println("В очереди это значение уже есть.");
                         break;
                     }
-                    priorities.put(id, prio);
-                    queue.offer(line[1], id, () -> priorities.get(id));
+                    var cell = new PriorityCell(prio);
+                    priorities.put(id, cell);
+                    queue.offer(line[1], id, cell);
                     System.out.println("Значение добавлено.");
                     break;
                 case "update":
-                    if (line.length < 3 || !priorities.containsKey(line[1]))
+                    if (line.length < 3 || !queue.contains(line[1]))
                     {
                         errorMessage();
                         break;
@@ -109,8 +111,7 @@ public class ConsoleExample {
                         errorMessage();
                         break;
                     }
-                    priorities.replace(line[1], newPrio);
-                    queue.update(line[1]);
+                    priorities.get(line[1]).set(newPrio);
                     System.out.println("Значение обновлено.");
                     break;
                 case "exit":
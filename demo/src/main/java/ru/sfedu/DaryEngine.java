@@ -0,0 +1,209 @@
+package ru.sfedu;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Индексированная d-арная куча в массиве, см. {@link HeapBackend#DARY}.
+ * Дети ячейки {@code i} - ячейки от {@code d * i + 1} до {@code d * i + d}; вершина хранит свою ячейку в {@code slot},
+ * поэтому изменение ключа и удаление по идентификатору не ищут вершину в массиве.
+ */
+final class DaryEngine<I> implements HeapEngine<I> {
+    static final int ARITY = 4;
+
+    private HeapNode<?>[] heap = new HeapNode<?>[16];
+    private int size = 0;
+
+    public String name()
+    {
+        return HeapBackend.DARY.name();
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public HeapNode<I> min()
+    {
+        return size == 0 ? null : node(0);
+    }
+
+    public void flush()
+    {
+    }
+
+    public void insert(HeapNode<I> node)
+    {
+        append(node);
+        siftUp(node.slot);
+    }
+
+    public void insertAll(HeapNode<I> list)
+    {
+        var start = size;
+        for (var node = list; node != null;)
+        {
+            var next = node.nextNode;
+            node.nextNode = null;
+            append(node);
+            node = next;
+        }
+        restoreAfterAppend(start);
+    }
+
+    public HeapNode<I> removeMin()
+    {
+        var node = node(0);
+        removeAt(0);
+        return node;
+    }
+
+    public void remove(HeapNode<I> node)
+    {
+        removeAt(node.slot);
+    }
+
+    public void decreaseKey(HeapNode<I> node, long newKey)
+    {
+        node.key = newKey;
+        siftUp(node.slot);
+    }
+
+    public void increaseKey(HeapNode<I> node, long newKey)
+    {
+        node.key = newKey;
+        siftDown(node.slot);
+    }
+
+    /**
+     * Просеивает вершину сразу: куча в массиве должна оставаться упорядоченной, чтобы просеивать следующие
+     */
+    public void rekey(HeapNode<I> node, long newKey)
+    {
+        if (newKey < node.key)
+            decreaseKey(node, newKey);
+        else if (newKey > node.key)
+            increaseKey(node, newKey);
+    }
+
+    public void absorb(HeapEngine<I> other)
+    {
+        var dary = (DaryEngine<I>)other;
+        var start = size;
+        for (int i = 0; i < dary.size; i++)
+            append(dary.node(i));
+        dary.clear();
+        restoreAfterAppend(start);
+    }
+
+    public void clear()
+    {
+        Arrays.fill(heap, 0, size, null);
+        size = 0;
+    }
+
+    public int children(HeapNode<I> node)
+    {
+        var first = ARITY * node.slot + 1;
+        return Math.max(0, Math.min(size, first + ARITY) - first);
+    }
+
+    public void forEachRoot(Consumer<HeapNode<I>> action)
+    {
+        if (size > 0)
+            action.accept(node(0));
+    }
+
+    public void forEachSuccessor(HeapNode<I> node, Consumer<HeapNode<I>> action)
+    {
+        var first = ARITY * node.slot + 1;
+        var end = Math.min(size, first + ARITY);
+        for (int i = first; i < end; i++)
+            action.accept(node(i));
+    }
+
+    private void append(HeapNode<I> node)
+    {
+        if (size == heap.length)
+            heap = Arrays.copyOf(heap, size * 2);
+        heap[size] = node;
+        node.slot = size++;
+    }
+
+    /**
+     *  Упорядочивает вершины, добавленные в конец массива начиная с ячейки {@code start}:
+     *  немногие просеиваются вверх, а если их много, куча строится заново за линейное время
+     */
+    private void restoreAfterAppend(int start)
+    {
+        if (size - start > size >>> 2)
+        {
+            for (int i = (size - 2) / ARITY; i >= 0; i--)
+                siftDown(i);
+        }
+        else
+            for (int i = start; i < size; i++)
+                siftUp(i);
+    }
+
+    private void removeAt(int index)
+    {
+        var last = node(--size);
+        heap[size] = null;
+        if (index == size)
+            return;
+        heap[index] = last;
+        last.slot = index;
+        siftDown(index);
+        if (heap[index] == last)
+            siftUp(index);
+    }
+
+    private void siftUp(int index)
+    {
+        var node = node(index);
+        while (index > 0)
+        {
+            var parentIndex = (index - 1) / ARITY;
+            var parent = node(parentIndex);
+            if (parent.key <= node.key)
+                break;
+            heap[index] = parent;
+            parent.slot = index;
+            index = parentIndex;
+        }
+        heap[index] = node;
+        node.slot = index;
+    }
+
+    private void siftDown(int index)
+    {
+        var node = node(index);
+        while (true)
+        {
+            var first = ARITY * index + 1;
+            if (first >= size)
+                break;
+            var end = Math.min(size, first + ARITY);
+            var best = first;
+            for (int i = first + 1; i < end; i++)
+                if (node(i).key < node(best).key)
+                    best = i;
+            var child = node(best);
+            if (node.key <= child.key)
+                break;
+            heap[index] = child;
+            child.slot = index;
+            index = best;
+        }
+        heap[index] = node;
+        node.slot = index;
+    }
+
+    @SuppressWarnings("unchecked")
+    private HeapNode<I> node(int index)
+    {
+        return (HeapNode<I>)heap[index];
+    }
+}
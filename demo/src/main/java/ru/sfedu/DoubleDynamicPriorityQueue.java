@@ -0,0 +1,205 @@
+package ru.sfedu;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Динамическая очередь приоритета с приоритетом типа {@code double}, например взвешенной оценкой.
+ * Приоритет хранится в вершине как ключ {@code long} с тем же порядком, без упаковки.
+ * Порядок совпадает с {@link Double#compare(double, double)}: {@code -0.0} раньше {@code 0.0}, {@code NaN} позже бесконечности.
+ * Корнем очереди считается элемент с наименьшим приоритетом.
+ * Элемент не может быть добавлен в очередь, если он уже находится в ней.
+ */
+public class DoubleDynamicPriorityQueue<T, I> {
+    /**
+     * Создает пустую очередь
+     */
+    public DoubleDynamicPriorityQueue()
+    {
+        this(MergeStrategy.TWO_PASS);
+    }
+    /**
+     * Создает пустую очередь с указанным способом слияния детей корня при удалении
+     */
+    public DoubleDynamicPriorityQueue(MergeStrategy strategy)
+    {
+        queue = new DynamicPriorityQueue<>(strategy, HeapBackend.PAIRING, DynamicPriorityQueue.DOUBLE_KEYS);
+    }
+    /**
+     * Создает пустую очередь на куче указанного вида
+     */
+    public DoubleDynamicPriorityQueue(HeapBackend backend)
+    {
+        queue = new DynamicPriorityQueue<>(MergeStrategy.TWO_PASS, backend, DynamicPriorityQueue.DOUBLE_KEYS);
+    }
+
+
+    /**
+     * Добавляет элемент в очередь
+     * @return {@code true} если его еще нет, иначе {@code false}
+     */
+    public boolean offer(T value, I identifier, DoublePriorityUpdater updater) // PriorityQueue
+    {
+        return queue.offerKeyed(value, identifier, updater, PriorityKeys.fromDouble(updater.priority()));
+    }
+    /**
+     * Добавляет элемент в очередь
+     * @return {@code true} если его еще нет, иначе {@code false}
+     */
+    public boolean add(T value, I identifier, DoublePriorityUpdater updater) // AbstractQueue
+    {
+        return offer(value, identifier, updater);
+    }
+    /**
+     * Добавляет элемент в очередь, со статическим приоритетом.
+     * @return {@code true} если его еще нет, иначе {@code false}
+     */
+    public boolean offer(T value, I identifier, double priority) // PriorityQueue
+    {
+        return queue.offerKeyed(value, identifier, null, PriorityKeys.fromDouble(priority));
+    }
+    /**
+     * Добавляет элемент в очередь, со статическим приоритетом.
+     * @return {@code true} если его еще нет, иначе {@code false}
+     */
+    public boolean add(T value, I identifier, double priority) // PriorityQueue
+    {
+        return offer(value, identifier, priority);
+    }
+
+    /**
+     * Возвращает корень очереди, не удаляя его.
+     * Если очередь пуста, возвращает {@code null}
+     */
+    public T peek() // PriorityQueue
+    {
+        return queue.peek();
+    }
+    /**
+     * Возвращает корень очереди, не удаляя его.
+     * Если очередь пуста, возвращает {@code null}
+     */
+    public T element() // AbstractQueue
+    {
+        return peek();
+    }
+    /**
+     * Возвращает приоритет корня очереди.
+     * @throws NoSuchElementException если очередь пуста
+     */
+    public double peekPriority()
+    {
+        if (queue.isEmpty())
+            throw new NoSuchElementException();
+        return PriorityKeys.toDouble(queue.peekKey());
+    }
+
+    /**
+     * Возвращает корень очереди и удаляет его.
+     * Если очередь пуста, возвращает {@code null}
+     */
+    public T poll() // PriorityQueue
+    {
+        return queue.poll();
+    }
+    /**
+     * Возвращает корень очереди и удаляет его.
+     * Если очередь пуста, возвращает {@code null}
+     */
+    public T remove() // AbstractQueue
+    {
+        return poll();
+    }
+
+    /**
+     * Удаляет элемент из очереди.
+     * @return {@code true} если он был, иначе {@code false}
+     */
+    public boolean remove(Object o)
+    {
+        return queue.remove(o);
+    }
+
+    /**
+     * Упостушает очередь полностью
+     */
+    public void clear()
+    {
+        queue.clear();
+    }
+
+    /**
+     * Переносит все элементы очереди {@code other} в эту, см. {@link DynamicPriorityQueue#absorb(DynamicPriorityQueue, ConflictPolicy)}
+     * @return количество совпавших идентификаторов
+     */
+    public int absorb(DoubleDynamicPriorityQueue<T, I> other, ConflictPolicy policy)
+    {
+        return queue.absorb(other.queue, policy);
+    }
+
+    /**
+     * Проверяет, ести ли в очереди объект.
+     * @return {@code true} если он был, иначе {@code false}
+     */
+    public boolean contains(Object o)
+    {
+        return queue.contains(o);
+    }
+
+    /**
+     * Возвращает количество элементов в очереди.
+     */
+    public int size() {
+        return queue.size();
+    }
+
+    /**
+     * Проверяет, пуста ли очередь.
+     * @return {@code true} если в очереди нет элементов, иначе {@code false}
+     */
+    public boolean isEmpty()
+    {
+        return queue.isEmpty();
+    }
+
+    /**
+     * Обновляет приоритет определенного значения.
+     * @return {@code true} если в очереди он есть, иначе {@code false}
+     */
+    public boolean update(Object o)
+    {
+        return queue.update(o);
+    }
+
+    /**
+     * Обновляет приоритет всех значений.
+     */
+    public void updateAll()
+    {
+        queue.updateAll();
+    }
+
+    /**
+     * Помечает элемент как изменивший приоритет, не трогая кучу.
+     * Помеченные элементы пересчитываются при следующем чтении корня или при {@link #flush()}.
+     * @return {@code true} если в очереди он есть, иначе {@code false}
+     */
+    public boolean markDirty(Object o)
+    {
+        return queue.markDirty(o);
+    }
+
+    /**
+     * Пересчитывает приоритет помеченных элементов.
+     */
+    public void flush()
+    {
+        queue.flush();
+    }
+
+    private final DynamicPriorityQueue<T, I> queue;
+
+    public String toString()
+    {
+        return queue.toString();
+    }
+}
@@ -0,0 +1,15 @@
+package ru.sfedu;
+
+/**
+ * Представитель приоритета типа {@code double}, функциональный интерфейс.
+ * Для правильной работы, функция должна возвращать одно и то же число, если вызвана несколько раз подряд.
+ * Единственная функция: {@link #priority()}.
+ * Практически эквивалентно {@linkplain java.util.function.DoubleSupplier DoubleSupplier}.
+ */
+@FunctionalInterface
+public interface DoublePriorityUpdater {
+    /**
+     * Предоставление приоритета
+     */
+    double priority();
+}
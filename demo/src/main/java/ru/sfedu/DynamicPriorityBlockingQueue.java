@@ -0,0 +1,402 @@
+package ru.sfedu;
+
+import java.util.Collection;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Блокирующая обертка над {@link DynamicPriorityQueue}.
+ * Все операции выполняются под одной блокировкой; потребители, ожидающие в {@link #take()} или
+ * {@link #poll(long, TimeUnit)}, будятся только когда у пустой очереди появляется корень.
+ * Если в очереди есть {@linkplain #offerDelayed отложенные элементы}, потребитель ждет не дольше срока ближайшего из них;
+ * единицы {@linkplain DynamicPriorityQueue#setClock часов} очереди при этом считаются наносекундами.
+ * Функции приоритета вызываются под блокировкой очереди.
+ */
+public class DynamicPriorityBlockingQueue<T, I> {
+    /**
+     * Создает пустую очередь
+     */
+    public DynamicPriorityBlockingQueue()
+    {
+        this(new DynamicPriorityQueue<>());
+    }
+    /**
+     * Создает блокирующую очередь поверх существующей.
+     * После этого существующую очередь нельзя изменять напрямую.
+     */
+    public DynamicPriorityBlockingQueue(DynamicPriorityQueue<T, I> queue)
+    {
+        this.queue = queue;
+    }
+
+
+    /**
+     * Добавляет элемент в очередь
+     * @return {@code true} если его еще нет, иначе {@code false}
+     */
+    public boolean offer(T value, I identifier, PriorityUpdater updater) // PriorityQueue
+    {
+        lock.lock();
+        try {
+            var wasEmpty = queue.isEmpty();
+            var res = queue.offer(value, identifier, updater);
+            if (wasEmpty && res)
+                rootAppeared.signal();
+            return res;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+    /**
+     * Добавляет элемент в очередь. Очередь не ограничена, поэтому не блокирует.
+     * @return {@code true} если его еще нет, иначе {@code false}
+     */
+    public boolean put(T value, I identifier, PriorityUpdater updater) // BlockingQueue
+    {
+        return offer(value, identifier, updater);
+    }
+    /**
+     * Добавляет элемент, который станет доступен через {@code delay} наносекунд,
+     * см. {@link DynamicPriorityQueue#offerDelayed}
+     * @return {@code true} если его еще нет, иначе {@code false}
+     */
+    public boolean offerDelayed(T value, I identifier, PriorityUpdater updater, long delay)
+    {
+        lock.lock();
+        try {
+            var wasEmpty = queue.isEmpty();
+            var res = queue.offerDelayed(value, identifier, updater, delay);
+            // Ожидающий потребитель пересчитывает срок пробуждения с учетом нового элемента
+            if (wasEmpty && res)
+                rootAppeared.signal();
+            return res;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+    /**
+     * Добавляет элемент в очередь, со статическим приоритетом.
+     * @return {@code true} если его еще нет, иначе {@code false}
+     */
+    public boolean offer(T value, I identifier, int priority) // PriorityQueue
+    {
+        lock.lock();
+        try {
+            var wasEmpty = queue.isEmpty();
+            var res = queue.offer(value, identifier, priority);
+            if (wasEmpty && res)
+                rootAppeared.signal();
+            return res;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+    /**
+     * Добавляет элемент в очередь, со статическим приоритетом. Очередь не ограничена, поэтому не блокирует.
+     * @return {@code true} если его еще нет, иначе {@code false}
+     */
+    public boolean put(T value, I identifier, int priority) // BlockingQueue
+    {
+        return offer(value, identifier, priority);
+    }
+
+    /**
+     * Возвращает корень очереди, не удаляя его.
+     * Если очередь пуста, возвращает {@code null}
+     */
+    public T peek() // PriorityQueue
+    {
+        lock.lock();
+        try {
+            return queue.peek();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает корень очереди и удаляет его.
+     * Если очередь пуста, возвращает {@code null}
+     */
+    public T poll() // PriorityQueue
+    {
+        lock.lock();
+        try {
+            return queue.poll();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает корень очереди и удаляет его, ожидая его появления.
+     */
+    public T take() throws InterruptedException // BlockingQueue
+    {
+        lock.lockInterruptibly();
+        try {
+            while (queue.isEmpty())
+                awaitRoot();
+            return pollAndPass();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает корень очереди и удаляет его, ожидая его появления не дольше указанного времени.
+     * @return {@code null} если время вышло, а очередь пуста
+     */
+    public T poll(long timeout, TimeUnit unit) throws InterruptedException // BlockingQueue
+    {
+        var nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (queue.isEmpty())
+            {
+                if (nanos <= 0)
+                {
+                    // Срок отложенных элементов ждут другие потребители
+                    if (queue.nextDelay() >= 0)
+                        rootAppeared.signal();
+                    return null;
+                }
+                var delay = queue.nextDelay();
+                if (delay < 0 || delay >= nanos)
+                    nanos = rootAppeared.awaitNanos(nanos);
+                else
+                    nanos -= delay - rootAppeared.awaitNanos(delay);
+            }
+            return pollAndPass();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Перемещает все элементы в коллекцию в порядке приоритета.
+     * @return количество перемещенных элементов
+     */
+    public int drainTo(Collection<? super T> collection) // BlockingQueue
+    {
+        return drainTo(collection, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Перемещает не больше {@code maxElements} элементов в коллекцию в порядке приоритета.
+     * @return количество перемещенных элементов
+     */
+    public int drainTo(Collection<? super T> collection, int maxElements) // BlockingQueue
+    {
+        lock.lock();
+        try {
+            var count = 0;
+            while (count < maxElements && !queue.isEmpty())
+            {
+                collection.add(queue.poll());
+                count++;
+            }
+            return count;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Удаляет элемент из очереди.
+     * @return {@code true} если он был, иначе {@code false}
+     */
+    public boolean remove(Object o)
+    {
+        lock.lock();
+        try {
+            return queue.remove(o);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Упостушает очередь полностью
+     */
+    public void clear()
+    {
+        lock.lock();
+        try {
+            queue.clear();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Проверяет, ести ли в очереди объект.
+     * @return {@code true} если он был, иначе {@code false}
+     */
+    public boolean contains(Object o)
+    {
+        lock.lock();
+        try {
+            return queue.contains(o);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает количество элементов в очереди.
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return queue.size();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Проверяет, пуста ли очередь.
+     * @return {@code true} если в очереди нет элементов, иначе {@code false}
+     */
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    /**
+     * Обновляет приоритет определенного значения.
+     * @return {@code true} если в очереди он есть, иначе {@code false}
+     */
+    public boolean update(Object o)
+    {
+        lock.lock();
+        try {
+            return queue.update(o);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Обновляет приоритет всех значений.
+     */
+    public void updateAll()
+    {
+        lock.lock();
+        try {
+            queue.updateAll();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Как {@link #take()}, но возвращает {@code null}, если очередь пуста и {@code closed} истинно.
+     * Ожидающие потоки проверяют {@code closed} после {@link #wakeAll()}.
+     */
+    T take(BooleanSupplier closed) throws InterruptedException
+    {
+        lock.lockInterruptibly();
+        try {
+            while (queue.isEmpty())
+            {
+                if (closed.getAsBoolean())
+                    return null;
+                awaitRoot();
+            }
+            return pollAndPass();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Как {@link #offer(Object, Object, PriorityUpdater)}, но проверяет {@code closed} под той же блокировкой,
+     * что и {@link #take(BooleanSupplier)}: элемент не может попасть в очередь после того, как потребители ее покинули.
+     * @throws RejectedExecutionException если {@code closed} истинно
+     */
+    boolean offer(T value, I identifier, PriorityUpdater updater, BooleanSupplier closed)
+    {
+        lock.lock();
+        try {
+            if (closed.getAsBoolean())
+                throw new RejectedExecutionException("Очередь закрыта");
+            return offer(value, identifier, updater);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Будит всех ожидающих потребителей
+     */
+    void wakeAll()
+    {
+        lock.lock();
+        try {
+            rootAppeared.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private final DynamicPriorityQueue<T, I> queue;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Сигнал, что у пустой очереди появился корень
+    private final Condition rootAppeared = lock.newCondition();
+
+    /**
+     *  Ждет появления корня; при отложенных элементах - не дольше, чем до срока ближайшего из них
+     */
+    private void awaitRoot() throws InterruptedException
+    {
+        var delay = queue.nextDelay();
+        if (delay < 0)
+            rootAppeared.await();
+        else
+            rootAppeared.awaitNanos(delay);
+    }
+
+    /**
+     *  Извлекает корень под блокировкой и, если очередь не опустела, передает сигнал следующему потребителю
+     */
+    private T pollAndPass()
+    {
+        var res = queue.poll();
+        if (!queue.isEmpty())
+            rootAppeared.signal();
+        return res;
+    }
+
+    public String toString()
+    {
+        lock.lock();
+        try {
+            return queue.toString();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package ru.sfedu;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Исполнитель, запускающий задачи в порядке {@link PriorityUpdater}: первой запускается задача с наименьшим приоритетом.
+ * Ожидающие задачи хранятся в {@link DynamicPriorityBlockingQueue}, свободные потоки ждут в {@code take()}, не опрашивая очередь.
+ * Приоритет ожидающей задачи можно пересчитать по ее идентификатору через {@link #update(Object)}.
+ * Задачи, переданные без идентификатора через {@link #execute(Runnable)} и {@code submit()},
+ * получают уникальный идентификатор и приоритет, указанный в конструкторе.
+ */
+public class DynamicPriorityExecutor extends AbstractExecutorService {
+    /**
+     * Создает исполнитель с {@code threads} потоками платформы и приоритетом 0 для задач без идентификатора
+     */
+    public DynamicPriorityExecutor(int threads)
+    {
+        this(threads, Executors.defaultThreadFactory(), 0);
+    }
+    /**
+     * Создает исполнитель с {@code threads} потоками из фабрики и приоритетом {@code defaultPriority}
+     * для задач без идентификатора. Для виртуальных потоков см. {@link #virtualThreadFactory()}.
+     */
+    public DynamicPriorityExecutor(int threads, ThreadFactory threadFactory, int defaultPriority)
+    {
+        if (threads <= 0)
+            throw new IllegalArgumentException("Количество потоков должно быть положительным: " + threads);
+        this.defaultPriority = defaultPriority;
+        terminated = new CountDownLatch(threads);
+        workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++)
+        {
+            var worker = threadFactory.newThread(this::work);
+            if (worker == null)
+                throw new IllegalStateException("Фабрика не создала поток");
+            workers.add(worker);
+        }
+        for (var worker : workers)
+            worker.start();
+    }
+
+    /**
+     * Фабрика виртуальных потоков. Требует JDK 21 или новее.
+     * @throws UnsupportedOperationException если виртуальные потоки недоступны
+     */
+    public static ThreadFactory virtualThreadFactory()
+    {
+        try {
+            var lookup = MethodHandles.publicLookup();
+            var builderClass = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            var builder = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(builderClass)).invoke();
+            return (ThreadFactory)lookup.findVirtual(builderClass, "factory", MethodType.methodType(ThreadFactory.class)).invoke(builder);
+        }
+        catch (ReflectiveOperationException ex) {
+            throw new UnsupportedOperationException("Виртуальные потоки требуют JDK 21", ex);
+        }
+        catch (Throwable ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+
+    /**
+     * Ставит задачу в очередь с идентификатором и функцией приоритета.
+     * @throws RejectedExecutionException если исполнитель остановлен или задача с таким идентификатором уже ожидает
+     */
+    public <V> Future<V> submit(Callable<V> task, Object identifier, PriorityUpdater updater)
+    {
+        var future = new FutureTask<>(task);
+        enqueue(future, identifier, updater);
+        return future;
+    }
+    /**
+     * Ставит задачу в очередь с идентификатором и функцией приоритета.
+     * @throws RejectedExecutionException если исполнитель остановлен или задача с таким идентификатором уже ожидает
+     */
+    public Future<?> submit(Runnable task, Object identifier, PriorityUpdater updater)
+    {
+        var future = new FutureTask<>(task, null);
+        enqueue(future, identifier, updater);
+        return future;
+    }
+
+    /**
+     * Пересчитывает приоритет ожидающей задачи.
+     * @return {@code true} если задача еще ожидает, иначе {@code false}
+     */
+    public boolean update(Object identifier)
+    {
+        return queue.update(identifier);
+    }
+
+    /**
+     * Пересчитывает приоритет всех ожидающих задач.
+     */
+    public void updateAll()
+    {
+        queue.updateAll();
+    }
+
+    /**
+     * Убирает ожидающую задачу из очереди, не запуская ее.
+     * @return {@code true} если задача еще ожидала, иначе {@code false}
+     */
+    public boolean remove(Object identifier)
+    {
+        return queue.remove(identifier);
+    }
+
+    /**
+     * Возвращает количество ожидающих задач.
+     */
+    public int getQueueSize()
+    {
+        return queue.size();
+    }
+
+    public void execute(Runnable command)
+    {
+        enqueue(command, new Object(), () -> defaultPriority);
+    }
+
+    public void shutdown()
+    {
+        shutdown = true;
+        queue.wakeAll();
+    }
+
+    public List<Runnable> shutdownNow()
+    {
+        shutdown = true;
+        var pending = new ArrayList<Runnable>();
+        queue.drainTo(pending);
+        for (var worker : workers)
+            worker.interrupt();
+        queue.wakeAll();
+        return pending;
+    }
+
+    public boolean isShutdown()
+    {
+        return shutdown;
+    }
+
+    public boolean isTerminated()
+    {
+        return terminated.getCount() == 0;
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        return terminated.await(timeout, unit);
+    }
+
+    private final DynamicPriorityBlockingQueue<Runnable, Object> queue = new DynamicPriorityBlockingQueue<>();
+    private final List<Thread> workers;
+    private final CountDownLatch terminated;
+    private final int defaultPriority;
+    private volatile boolean shutdown = false;
+
+    private void enqueue(Runnable task, Object identifier, PriorityUpdater updater)
+    {
+        if (shutdown)
+            throw new RejectedExecutionException("Исполнитель остановлен");
+        // Проверка остановки повторяется под блокировкой очереди, атомарно с вставкой относительно потоков, покидающих take()
+        if (!queue.offer(task, identifier, updater, () -> shutdown))
+            throw new RejectedExecutionException("Задача с идентификатором " + identifier + " уже ожидает");
+    }
+
+    /**
+     *  Цикл потока: берет задачи, пока исполнитель не остановлен и очередь не пуста.
+     *  Прерывание не завершает поток, пока в очереди есть задачи: после {@link #shutdown()} они дорабатываются,
+     *  а {@link #shutdownNow()} забирает их до того, как прерывает потоки
+     */
+    private void work()
+    {
+        try {
+            while (true)
+            {
+                Runnable task;
+                try {
+                    task = queue.take(() -> shutdown);
+                }
+                catch (InterruptedException ex) {
+                    continue;
+                }
+                if (task == null)
+                    break;
+                // Прерывание, оставшееся от shutdownNow или от задачи, не переходит на следующую задачу
+                Thread.interrupted();
+                task.run();
+            }
+        }
+        finally {
+            terminated.countDown();
+        }
+    }
+}
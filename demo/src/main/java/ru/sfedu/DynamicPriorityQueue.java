@@ -1,23 +1,128 @@
 package ru.sfedu;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.stream.Collector;
-import java.util.stream.Collectors;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToIntFunction;
 
 /**
  * Имплементация динамической {@linkplain java.util.PriorityQueue очереди приоритета}. 
  * Для приоритета используется {@linkplain PriorityUpdater функция, возвращающая целое число}.
+ * Для приоритетов {@code long} и {@code double} есть {@link LongDynamicPriorityQueue} и {@link DoubleDynamicPriorityQueue}.
  * Корнем очереди считается элемент с наименьшим приоритетом.
  * Элемент не может быть добавлен в очередь, если он уже находится в ней.
+ * Если приоритет задан {@link PriorityCell}, очередь сама узнает о его изменении, без вызова {@link #update(Object)}.
+ * Изменения очереди можно записывать в {@link QueueJournal}, чтобы восстановить ее после сбоя.
+ * Итератор обходит элементы в порядке приоритета, {@link #spliterator()} - в произвольном порядке с разбиением для параллельных потоков.
+ * Число элементов можно {@linkplain #setCapacity(int, OverflowPolicy, Consumer) ограничить} с вытеснением наихудших.
+ * Элементы, которые станут доступны позже, {@linkplain #offerDelayed добавляются с задержкой} и до срока в куче не лежат.
+ * {@linkplain #offerHandle(Object, Object, PriorityUpdater) Дескрипторы} элементов позволяют менять и удалять их без поиска
+ * идентификатора, а очередь {@link #handlesOnly(HeapBackend)} обходится без индекса идентификаторов.
  */
-public class DynamicPriorityQueue<T, I> {
+public class DynamicPriorityQueue<T, I> implements Iterable<T> {
     /**
      * Создает пустую очередь
      */
     public DynamicPriorityQueue()
     {
+        this(MergeStrategy.TWO_PASS);
+    }
+    /**
+     * Создает пустую очередь с указанным способом слияния детей корня при удалении
+     */
+    public DynamicPriorityQueue(MergeStrategy strategy)
+    {
+        this(strategy, HeapBackend.PAIRING, INT_KEYS);
+    }
+    /**
+     * Создает пустую очередь на куче указанного вида
+     * @throws IllegalArgumentException для {@link HeapBackend#BUCKET}: ему нужен диапазон, см. {@link #DynamicPriorityQueue(int, int)}
+     */
+    public DynamicPriorityQueue(HeapBackend backend)
+    {
+        this(MergeStrategy.TWO_PASS, backend, INT_KEYS);
+    }
+    /**
+     * Создает пустую очередь для приоритетов от {@code minPriority} до {@code maxPriority} включительно
+     * на {@linkplain HeapBackend#BUCKET очереди корзин}: вставка, изменение приоритета и извлечение не сравнивают ключи.
+     * Добавление или обновление с приоритетом вне диапазона бросает {@link IllegalArgumentException} и не меняет очередь;
+     * для {@link PriorityCell} это происходит при следующем чтении корня.
+     * @throws IllegalArgumentException если диапазон пуст или длиннее 2<sup>24</sup>
+     */
+    public DynamicPriorityQueue(int minPriority, int maxPriority)
+    {
+        this(MergeStrategy.TWO_PASS, HeapBackend.BUCKET, INT_KEYS, minPriority, maxPriority);
+    }
+    /**
+     * Создает пустую очередь без индекса идентификаторов: элементы меняются и удаляются только
+     * {@linkplain #offerHandle(Object, Object, PriorityUpdater) через дескрипторы}. Идентификаторы хранятся в элементах,
+     * но не проверяются на совпадение; {@link #contains(Object)}, {@link #update(Object)}, {@link #remove(Object)},
+     * {@link #markDirty(Object)}, снимок и журнал бросают {@link UnsupportedOperationException}.
+     * Вставка не вычисляет хеш идентификатора, а вместо хеш-таблицы очередь хранит только массив вершин.
+     * @throws IllegalArgumentException для {@link HeapBackend#BUCKET}: ему нужен диапазон
+     */
+    public static <T, I> DynamicPriorityQueue<T, I> handlesOnly(HeapBackend backend)
+    {
+        var queue = new DynamicPriorityQueue<T, I>(backend);
+        queue.elements = IdentifierIndex.unkeyed();
+        return queue;
+    }
+    /**
+     * Создает пустую очередь, ключи которой получаются из функций приоритета вида {@code keyKind}.
+     * Используется {@link LongDynamicPriorityQueue} и {@link DoubleDynamicPriorityQueue}.
+     * Способ слияния учитывается только спаривающейся кучей.
+     */
+    DynamicPriorityQueue(MergeStrategy strategy, HeapBackend backend, int keyKind)
+    {
+        this(strategy, backend, keyKind, 0, -1);
+    }
+    /**
+     * Создает пустую очередь; {@code minKey} и {@code maxKey} задают диапазон ключей {@link HeapBackend#BUCKET}
+     */
+    DynamicPriorityQueue(MergeStrategy strategy, HeapBackend backend, int keyKind, long minKey, long maxKey)
+    {
+        this.strategy = strategy;
+        this.backend = backend;
+        this.keyKind = keyKind;
+        switch (backend)
+        {
+            case DARY:
+                engine = new DaryEngine<>();
+                break;
+            case RANK_PAIRING:
+                engine = new RankPairingEngine<>();
+                break;
+            case BUCKET:
+                engine = new BucketEngine<>(minKey, maxKey);
+                break;
+            case RADIX:
+                engine = new RadixEngine<>();
+                break;
+            default:
+                engine = new PairingEngine<>(strategy, metrics);
+        }
+    }
+    /**
+     * Создает очередь из коллекции значений за линейное время.
+     * Идентификатор и функция приоритета получаются из значения; значения с повторяющимся идентификатором пропускаются.
+     */
+    public DynamicPriorityQueue(Collection<? extends T> values, Function<? super T, ? extends I> identifier, Function<? super T, ? extends PriorityUpdater> updater)
+    {
+        this(MergeStrategy.TWO_PASS);
+        elements = new IdentifierIndex<>(values.size());
+        addAll(values, identifier, updater);
     }
 
 
@@ -29,8 +134,7 @@ public class DynamicPriorityQueue<T, I> {
     {
         if (elements.containsKey(identifier))
             return false;
-        insertNode(value, identifier, updater, updater.priority());
-        return true;
+        return offerNode(value, identifier, updater, updater.priority()) != null;
     }
     /**
      * Добавляет элемент в очередь
@@ -48,8 +152,7 @@ public class DynamicPriorityQueue<T, I> {
     {
         if (elements.containsKey(identifier))
             return false;
-        insertNode(value, identifier, null, priority);
-        return true;
+        return offerNode(value, identifier, null, priority) != null;
     }
     /**
      * Добавляет элемент в очередь, со статическим приоритетом.
@@ -59,6 +162,82 @@ public class DynamicPriorityQueue<T, I> {
     {
         return offer(value, identifier, priority);
     }
+    /**
+     * Добавляет элемент в очередь и возвращает его дескриптор.
+     * @return дескриптор или {@code null}, если элемент с таким идентификатором уже есть или не поместился в очередь
+     */
+    public QueueHandle<T> offerHandle(T value, I identifier, PriorityUpdater updater)
+    {
+        if (elements.containsKey(identifier))
+            return null;
+        return handle(offerNode(value, identifier, updater, updater.priority()));
+    }
+    /**
+     * Добавляет элемент со статическим приоритетом и возвращает его дескриптор.
+     * @return дескриптор или {@code null}, если элемент с таким идентификатором уже есть или не поместился в очередь
+     */
+    public QueueHandle<T> offerHandle(T value, I identifier, int priority)
+    {
+        if (elements.containsKey(identifier))
+            return null;
+        return handle(offerNode(value, identifier, null, priority));
+    }
+    /**
+     * Добавляет элемент, который станет доступен через {@code delay} единиц {@linkplain #setClock(LongSupplier) часов},
+     * по умолчанию наносекунд. До срока элемент лежит в колесе таймеров, а не в куче: его не видят {@link #peek()},
+     * {@link #poll()}, {@link #size()}, обход, снимок и ограничение числа элементов, а {@link #contains(Object)},
+     * {@link #remove(Object)}, {@link #update(Object)} и {@link #markDirty(Object)} работают с ним как обычно.
+     * Наступившие элементы переходят в кучу одной партией при следующем чтении корня и тогда же записываются в журнал.
+     * При {@code delay <= 0} равносильно {@link #offer(Object, Object, PriorityUpdater)}.
+     * @return {@code true} если его еще нет, иначе {@code false}
+     * @throws IllegalStateException для {@link HeapBackend#RADIX}: к сроку ключ может оказаться меньше допустимого
+     */
+    public boolean offerDelayed(T value, I identifier, PriorityUpdater updater, long delay)
+    {
+        if (delay <= 0)
+            return offer(value, identifier, updater);
+        if (backend == HeapBackend.RADIX)
+            throw new IllegalStateException("Радиксная куча не принимает отложенные элементы");
+        if (elements.containsKey(identifier))
+            return false;
+        var key = updater.priority();
+        checkKey(key);
+        checkCell(updater);
+        if (wheel == null)
+        {
+            wheel = new TimerWheel<>();
+            clockOrigin = clock.getAsLong();
+        }
+        var elapsed = clock.getAsLong() - clockOrigin;
+        var node = newNode(value, identifier, updater, key);
+        node.delayed = true;
+        node.due = delay > Long.MAX_VALUE - elapsed ? Long.MAX_VALUE : elapsed + delay;
+        if (updater instanceof PriorityCell)
+            ((PriorityCell)updater).attach(inbox, node);
+        wheel.add(node);
+        elements.put(node);
+        return true;
+    }
+    /**
+     * Задает часы для {@link #offerDelayed}: любая неубывающая величина, задержки измеряются в ее единицах.
+     * По умолчанию - {@link System#nanoTime()}.
+     * @throws IllegalStateException если в очереди есть отложенные элементы
+     */
+    public void setClock(LongSupplier clock)
+    {
+        if (delayedSize() > 0)
+            throw new IllegalStateException("В очереди есть отложенные элементы");
+        this.clock = clock;
+        wheel = null;
+    }
+    /**
+     * Возвращает количество отложенных элементов, срок которых еще не наступил.
+     */
+    public int delayedSize()
+    {
+        settleDelayed();
+        return wheel == null ? 0 : wheel.size();
+    }
 
     /**
      * Возвращает корень очереди, не удаляя его.
@@ -66,10 +245,12 @@ public class DynamicPriorityQueue<T, I> {
      */
     public T peek() // PriorityQueue
     {
+        settle();
+        var head = engine.min();
         // Возвращает null если пусто, как и PriorityQueue.
-        if (root == null)
+        if (head == null)
             return null;
-        return root.value;
+        return valueOf(head);
     }
     /**
      * Возвращает корень очереди, не удаляя его.
@@ -79,6 +260,82 @@ public class DynamicPriorityQueue<T, I> {
     {
         return peek();
     }
+    /**
+     * Возвращает ключ корня. Очередь не должна быть пустой.
+     */
+    long peekKey()
+    {
+        settle();
+        return engine.min().key;
+    }
+    /**
+     * Добавляет элемент с уже вычисленным ключом. Функция приоритета должна соответствовать виду ключей очереди.
+     * @return {@code true} если его еще нет, иначе {@code false}
+     */
+    boolean offerKeyed(T value, I identifier, Object updater, long key)
+    {
+        if (elements.containsKey(identifier))
+            return false;
+        checkKey(key);
+        if (!makeRoom(value, key))
+            return false;
+        insertNode(value, identifier, updater, key);
+        return true;
+    }
+
+    /**
+     * Присваивает элементу ключ, не вызывая его функцию приоритета. Используется при воспроизведении журнала.
+     * @return {@code true} если в очереди он есть, иначе {@code false}
+     */
+    boolean setKey(Object o, long key)
+    {
+        settle();
+        var node = find(o);
+        if (node == null)
+            return false;
+        if (node.delayed)
+        {
+            rekey(node, key);
+            return true;
+        }
+        checkKey(key);
+        checkJournal();
+        var oldKey = node.key;
+        if (key < oldKey)
+            decreaseKey(node, key);
+        else if (key > oldKey)
+            increaseKey(node, key);
+        if (journal != null && key != oldKey)
+            journal.update(node.identifier, key);
+        return true;
+    }
+    /**
+     * Время по {@linkplain #setClock(LongSupplier) часам} очереди до момента, раньше которого не наступит
+     * ни один отложенный элемент, или {@code -1}, если отложенных элементов нет
+     */
+    long nextDelay()
+    {
+        if (wheel == null || wheel.size() == 0)
+            return -1;
+        return Math.max(0, wheel.nextTick() - (clock.getAsLong() - clockOrigin));
+    }
+    /**
+     * Номер последней записи журнала, уже отраженной в очереди
+     */
+    long sequence()
+    {
+        return sequence;
+    }
+    /**
+     * Подключает журнал или отключает его, если {@code journal} равен {@code null}
+     */
+    void journal(QueueJournal<T, I> journal, long sequence)
+    {
+        if (journal != null)
+            checkKeyed();
+        this.journal = journal;
+        this.sequence = sequence;
+    }
 
     /**
      * Возвращает корень очереди и удаляет его.
@@ -86,12 +343,22 @@ public class DynamicPriorityQueue<T, I> {
      */
     public T poll() // PriorityQueue
     {
+        var event = QueueMetrics.ENABLED ? metrics.startPoll() : null;
+        settle();
+        var head = engine.min();
         // Возвращает null если пусто, как и PriorityQueue.
-        if (root == null)
+        if (head == null)
             return null;
-        var res = root.value;
-        elements.remove(root.identifier);
-        root = mergePairs(root.leftChild);
+        checkJournal();
+        var identifier = head.identifier;
+        var children = QueueMetrics.ENABLED ? engine.children(head) : 0;
+        var res = valueOf(head);
+        removeRoot();
+        // Журнал пишется после изменения очереди: в нем нет операций, которые не состоялись
+        if (journal != null)
+            journal.poll(identifier);
+        if (QueueMetrics.ENABLED)
+            metrics.endPoll(event, children, queued(), engine.name());
         return res;
     }
     /**
@@ -109,28 +376,63 @@ public class DynamicPriorityQueue<T, I> {
      */
     public boolean remove(Object o)
     {
-        var node = elements.get(o);
+        // Помеченная вершина не должна остаться в списке после удаления
+        settle();
+        var node = find(o);
+        if (node == null)
+            return false;
+        removeNode(node);
+        return true;
+    }
+
+    /**
+     * Удаляет элемент по дескриптору.
+     * @return {@code true} если дескриптор действителен, иначе {@code false}
+     */
+    public boolean remove(QueueHandle<T> handle)
+    {
+        settle();
+        var node = nodeOf(handle);
         if (node == null)
             return false;
-        decreaseKey(node, Integer.MIN_VALUE);
-        poll();
+        removeNode(node);
         return true;
     }
 
+    /**
+     * Проверяет, что дескриптор выдан этой очередью и его элемент все еще в ней.
+     * Дескрипторы очереди, поглощенной {@link #absorb(DynamicPriorityQueue, ConflictPolicy)}, недействительны.
+     */
+    public boolean isValid(QueueHandle<T> handle)
+    {
+        return handle.queue == this && handle.epoch == handleEpoch && handle.node.generation == handle.generation;
+    }
+
     /**
      * Упостушает очередь полностью
      */
     public void clear()
     {
-        root = null;
+        checkJournal();
+        modCount++;
+        engine.clear();
+        if (worst != null)
+            worst.clear();
+        dirty = null;
+        if (wheel != null)
+            wheel.clear();
         for (var node : elements.values())
         {
-            node.leftChild = null;
-            node.rightChild = null;
-            node.nextNode = null;
-            node.prevNode = null; 
+            unlink(node);
+            node.generation++;
+            node.nextDirty = null;
+            node.dirty = false;
+            node.delayed = false;
+            detachCell(node);
         }
         elements.clear();
+        if (journal != null)
+            journal.clear();
     }
 
     /**
@@ -139,14 +441,15 @@ public class DynamicPriorityQueue<T, I> {
      */
     public boolean contains(Object o)
     {
-        return elements.keySet().contains(o);
+        return find(o) != null;
     }
 
     /**
      * Возвращает количество элементов в очереди.
      */
     public int size() {
-        return elements.size();
+        settleDelayed();
+        return queued();
     }
 
     /**
@@ -155,7 +458,8 @@ public class DynamicPriorityQueue<T, I> {
      */
     public boolean isEmpty()
     {
-        return root == null;
+        settleDelayed();
+        return engine.isEmpty();
     }
 
     /**
@@ -164,221 +468,1343 @@ public class DynamicPriorityQueue<T, I> {
      */
     public boolean update(Object o)
     {
-        var node = elements.get(o);
+        settle();
+        var node = find(o);
         if (node == null)
             return false;
+        updateNode(node);
+        return true;
+    }
+
+    /**
+     * Обновляет приоритет элемента по дескриптору.
+     * @return {@code true} если дескриптор действителен, иначе {@code false}
+     */
+    public boolean update(QueueHandle<T> handle)
+    {
+        settle();
+        var node = nodeOf(handle);
+        if (node == null)
+            return false;
+        updateNode(node);
+        return true;
+    }
+
+    private void updateNode(HeapNode<I> node)
+    {
         if (node.updater == null)
-            return true;
-        var newKey = node.updater.priority();
-        if (newKey < node.key)
+            return;
+        if (node.delayed)
+        {
+            rekey(node, evaluate(node.updater));
+            return;
+        }
+        var newKey = evaluate(node.updater);
+        checkKey(newKey);
+        checkJournal();
+        if (QueueMetrics.ENABLED)
+            metrics.updated(node.key, newKey);
+        var oldKey = node.key;
+        if (newKey < oldKey)
             decreaseKey(node, newKey);
-        else if (newKey > node.key)
+        else if (newKey > oldKey)
             increaseKey(node, newKey);
-        return true;
+        if (journal != null && newKey != oldKey)
+            journal.update(node.identifier, newKey);
     }
 
     /**
      * Обновляет приоритет всех значений.
+     * Вершины, приоритет которых не изменился, остаются на месте;
+     * в спаривающейся куче изменившиеся вырезаются и сливаются с кучей одной многопроходной партией.
+     * В очереди не меньше {@link #setParallelThreshold(int, ForkJoinPool) порога} элементов функции приоритета
+     * вычисляются параллельно, а куча меняется после того, как получены все ключи.
      */
     public void updateAll()
     {
-        var nodeList = elements.values().stream().map(node -> new SimpleNode(node.value, node.identifier, node.updater, node.key)).collect(Collectors.toList());
-        clear();
-        for (var node : nodeList)
-            insertNode(node.value, node.identifier, node.updater, node.updater == null ? node.key : node.updater.priority());
+        settle();
+        checkJournal();
+        var event = QueueMetrics.ENABLED ? metrics.startSweep() : null;
+        var changes = QueueMetrics.ENABLED ? metrics.changes() : 0;
+        if (parallelThreshold > 0 && elements.size() >= parallelThreshold)
+        {
+            updateAllParallel();
+            engine.flush();
+        }
+        else
+        {
+            try {
+                for (var node : elements.values())
+                    if (node.updater != null)
+                        rekey(node, evaluate(node.updater));
+            }
+            finally {
+                // Уже измененные ключи доводятся до порядка кучи, даже если пересчет прерван
+                engine.flush();
+            }
+        }
+        if (QueueMetrics.ENABLED)
+            metrics.endSweep(event, "updateAll", elements.size(), metrics.changes() - changes);
+    }
+
+    /**
+     * Включает параллельный {@link #updateAll()} для очередей из {@code threshold} и более элементов.
+     * Пересчет идет в две фазы: задачи {@code pool} (при {@code null} - общего пула) вычисляют функции приоритета
+     * по частям массива вершин и складывают ключи в отдельный массив, затем вызывающий поток применяет изменения к куче.
+     * <p>
+     * В параллельной фазе функции приоритета разных элементов вызываются одновременно из потоков пула, каждая - один раз
+     * и не параллельно самой себе. Функции, которые читают или меняют общее изменяемое состояние без синхронизации,
+     * с этим режимом использовать нельзя; данные, записанные вызывающим потоком до {@code updateAll()}, потокам пула видны.
+     * Функция не должна обращаться к самой очереди. Если функция бросает исключение или возвращает недопустимый
+     * для очереди приоритет, исключение передается из {@code updateAll()}, а куча остается нетронутой. По умолчанию режим выключен; 0 выключает его.
+     */
+    public void setParallelThreshold(int threshold, ForkJoinPool pool)
+    {
+        if (threshold < 0)
+            throw new IllegalArgumentException("Порог параллельного пересчета не может быть отрицательным: " + threshold);
+        parallelThreshold = threshold;
+        parallelPool = pool;
+    }
+
+    /**
+     * Помечает элемент как изменивший приоритет, не трогая кучу.
+     * Помеченные элементы пересчитываются по одному разу при следующем чтении корня или при {@link #flush()}.
+     * @return {@code true} если в очереди он есть, иначе {@code false}
+     */
+    public boolean markDirty(Object o)
+    {
+        var node = find(o);
+        if (node == null)
+            return false;
+        if (node.updater != null)
+            markDirty(node);
+        return true;
     }
-    private class SimpleNode
+
+    /**
+     * Пересчитывает приоритет помеченных элементов.
+     * В спаривающейся куче изменившиеся вырезаются и сливаются с кучей одной многопроходной партией.
+     */
+    public void flush()
     {
-        private T value;
-        private int key;
-        private PriorityUpdater updater;
-        private I identifier;
-        public SimpleNode(T value, I identifier, PriorityUpdater updater, int key)
+        engine.flush();
+        if (dirty == null)
+            return;
+        checkJournal();
+        var event = QueueMetrics.ENABLED ? metrics.startSweep() : null;
+        var changes = QueueMetrics.ENABLED ? metrics.changes() : 0;
+        // Список снимается по одной вершине, чтобы после отвергнутого ключа остальные пометки сохранились
+        while (dirty != null)
         {
-            this.value = value;
-            this.updater = updater;
-            this.key = key;
-            this.identifier = identifier;
+            var node = dirty;
+            dirty = node.nextDirty;
+            node.nextDirty = null;
+            node.dirty = false;
+            rekey(node, evaluate(node.updater));
         }
+        engine.flush();
+        if (QueueMetrics.ENABLED)
+            metrics.endSweep(event, "flush", elements.size(), metrics.changes() - changes);
     }
 
-    private class Node
+    /**
+     * Возвращает количество пометок {@link #markDirty(Object)}, пришедшихся на уже помеченные элементы.
+     */
+    public long coalescedUpdates()
     {
-        private T value;
-        private int key;
-        private PriorityUpdater updater;
-        private Node leftChild;
-        private Node rightChild;
-        private Node nextNode;
-        private Node prevNode;
-        private boolean leftmost = true;
-        private boolean rightmost = true;
-        private I identifier;
-        public Node(T value, I identifier, PriorityUpdater updater, int key)
+        return coalescedUpdates;
+    }
+
+    /**
+     * Задает размер пула вершин: до {@code capacity} вершин удаленных элементов хранятся и используются при вставке
+     * вместо новых, так что при постоянном размере очереди вставки и извлечения не выделяют память.
+     * По умолчанию пул выключен; 0 выключает его и освобождает накопленные вершины.
+     */
+    public void setPoolCapacity(int capacity)
+    {
+        if (capacity < 0)
+            throw new IllegalArgumentException("Размер пула не может быть отрицательным: " + capacity);
+        poolCapacity = capacity;
+        while (freeCount > capacity)
         {
-            this.value = value;
-            this.updater = updater;
-            this.key = key;
-            this.identifier = identifier;
+            var node = free;
+            free = node.nextNode;
+            node.nextNode = null;
+            freeCount--;
         }
-        public String toString()
+    }
+
+    /**
+     * Возвращает счетчики очереди или {@code null}, если {@linkplain QueueMetrics#isEnabled() метрики выключены}.
+     */
+    public QueueMetrics metrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * Ограничивает число элементов очереди. Элемент, добавляемый в заполненную очередь, отвергается или вытесняет
+     * наихудший по {@code policy}; не попавший в очередь или вытесненный элемент передается в {@code overflow}, если он задан.
+     * Очередь ведет вторую кучу над теми же вершинами, упорядоченную по убыванию приоритета, поэтому наихудший элемент
+     * находится за O(1) и вытесняется за O(log n), в том числе после {@link #update(Object)} и пересчетов.
+     * Если элементов уже больше, наихудшие вытесняются сразу. Вытеснение записывается в журнал как удаление;
+     * само ограничение не сохраняется ни в журнале, ни в снимке, поэтому задается после их восстановления.
+     * @param overflow обработчик элементов, не поместившихся в очередь, или {@code null}
+     * @throws IllegalArgumentException если {@code maxCapacity} меньше 1
+     */
+    public void setCapacity(int maxCapacity, OverflowPolicy policy, Consumer<? super T> overflow)
+    {
+        if (maxCapacity < 1)
+            throw new IllegalArgumentException("Наибольшее число элементов должно быть положительным: " + maxCapacity);
+        settle();
+        if (worst == null)
         {
-            return String.format("v: %s, k: %d", value, key);
+            worst = new WorstIndex<>();
+            for (var node : elements.values())
+                if (!node.delayed)
+                    worst.add(node);
         }
+        capacity = maxCapacity;
+        overflowPolicy = policy;
+        this.overflow = overflow;
+        trim();
     }
-    private HashMap<I, Node> elements = new HashMap<>();
-    private Node root = null;
 
-    // Вспомогательные методы
+    /**
+     * Возвращает наибольшее число элементов или {@link Integer#MAX_VALUE}, если оно не задано.
+     */
+    public int capacity()
+    {
+        return capacity;
+    }
 
     /**
-     *  Слияние деревьев
+     * Возвращает элемент с наибольшим приоритетом, не удаляя его.
+     * Если очередь пуста, возвращает {@code null}
+     * @throws IllegalStateException если число элементов не {@linkplain #setCapacity(int, OverflowPolicy, Consumer) ограничено}
      */
-    private Node meld(Node elem1, Node elem2)
+    public T peekLast()
     {
-        // Если одно пустое, возвращаем другое
-        if (elem1 == null)
-            return elem2;
-        if (elem2 == null)
-            return elem1;
-        // Иначе, добавляем более крупное как элемент меньшего
-        if (elem2.key < elem1.key)
+        checkBounded();
+        settle();
+        var node = worst.max();
+        return node == null ? null : valueOf(node);
+    }
+
+    /**
+     * Возвращает элемент с наибольшим приоритетом и удаляет его, как {@link #remove(Object)}.
+     * Если очередь пуста, возвращает {@code null}
+     * @throws IllegalStateException если число элементов не {@linkplain #setCapacity(int, OverflowPolicy, Consumer) ограничено}
+     */
+    public T pollLast()
+    {
+        checkBounded();
+        settle();
+        var node = worst.max();
+        if (node == null)
+            return null;
+        var value = valueOf(node);
+        removeNode(node);
+        return value;
+    }
+
+    /**
+     * Добавляет коллекцию значений в очередь за линейное время, без вставки по одному.
+     * Идентификатор и функция приоритета получаются из значения; значения с уже занятым идентификатором пропускаются.
+     * В заполненной {@linkplain #setCapacity(int, OverflowPolicy, Consumer) ограниченной очереди} лишние значения отвергаются
+     * или, при {@link OverflowPolicy#EVICT_WORST}, после вставки вытесняются наихудшие элементы.
+     * @return {@code true} если добавлено хотя бы одно значение, иначе {@code false}
+     */
+    public boolean addAll(Collection<? extends T> values, Function<? super T, ? extends I> identifier, Function<? super T, ? extends PriorityUpdater> updater) // AbstractQueue
+    {
+        checkJournal();
+        HeapNode<I> list = null;
+        try {
+            for (T value : values)
+            {
+                var id = identifier.apply(value);
+                if (elements.containsKey(id))
+                    continue;
+                PriorityUpdater prio = updater.apply(value);
+                var key = prio.priority();
+                checkKey(key);
+                checkCell(prio);
+                if (queued() >= capacity && overflowPolicy == OverflowPolicy.REJECT)
+                {
+                    overflowed(value);
+                    continue;
+                }
+                var node = newNode(value, id, prio, key);
+                if (prio instanceof PriorityCell)
+                    ((PriorityCell)prio).attach(inbox, node);
+                elements.put(node);
+                if (journal != null)
+                    journal.offer(value, id, true, node.key);
+                node.nextNode = list;
+                list = node;
+            }
+        }
+        finally {
+            // Уже добавленные в индекс вершины попадают в кучу, даже если функция бросила исключение
+            meldBatch(list);
+        }
+        return list != null;
+    }
+
+    /**
+     * Добавляет коллекцию значений со статическими приоритетами за линейное время, без вставки по одному.
+     * Вершины сначала сливаются друг с другом в отдельную кучу, которая затем сливается с очередью за одно слияние.
+     * Идентификатор и приоритет получаются из значения; значения с уже занятым идентификатором пропускаются.
+     * Ограничение числа элементов соблюдается так же, как в {@link #addAll(Collection, Function, Function)}.
+     * @return {@code true} если добавлено хотя бы одно значение, иначе {@code false}
+     */
+    public boolean offerAll(Collection<? extends T> values, Function<? super T, ? extends I> identifier, ToIntFunction<? super T> priority)
+    {
+        checkJournal();
+        HeapNode<I> list = null;
+        try {
+            for (T value : values)
+            {
+                var id = identifier.apply(value);
+                if (elements.containsKey(id))
+                    continue;
+                var key = priority.applyAsInt(value);
+                checkKey(key);
+                if (queued() >= capacity && overflowPolicy == OverflowPolicy.REJECT)
+                {
+                    overflowed(value);
+                    continue;
+                }
+                var node = newNode(value, id, null, key);
+                elements.put(node);
+                if (journal != null)
+                    journal.offer(value, id, false, key);
+                node.nextNode = list;
+                list = node;
+            }
+        }
+        finally {
+            meldBatch(list);
+        }
+        return list != null;
+    }
+
+    /**
+     * Переносит все элементы очереди {@code other} в эту. Кучи одного вида сливаются без перестроения
+     * (у спаривающихся куч - одним слиянием корней), кучи разного вида - вставкой партии. Сегменты индекса
+     * идентификаторов переносятся без перехеширования; совпадающие идентификаторы ищутся перебором меньшей
+     * из очередей и разрешаются по {@code policy}. После вызова {@code other} пуста, а ячейки {@link PriorityCell}
+     * ее элементов оповещают эту очередь.
+     * Если к этой очереди подключен {@linkplain QueueJournal журнал}, в него записывается вставка каждого перенесенного элемента,
+     * в журнал {@code other} - очистка.
+     * @return количество совпавших идентификаторов
+     * @throws IllegalArgumentException если {@code other} - эта же очередь, ее ключи другого вида или только у одной
+     *         из очередей нет {@linkplain #handlesOnly(HeapBackend) индекса идентификаторов}
+     * @throws IllegalStateException если в одной из очередей есть {@linkplain #offerDelayed отложенные элементы}
+     * @throws IllegalStateException если идентификаторы совпадают при {@link ConflictPolicy#FAIL}; очереди при этом не меняются
+     * @throws IllegalArgumentException если ключ элемента {@code other} не подходит куче этой очереди; очереди при этом не меняются
+     * @throws IllegalStateException если эта очередь {@linkplain #setCapacity(int, OverflowPolicy, Consumer) ограничена}
+     *         с {@link OverflowPolicy#REJECT} и не вмещает элементы {@code other}; очереди при этом не меняются.
+     *         При {@link OverflowPolicy#EVICT_WORST} после переноса вытесняются наихудшие элементы
+     */
+    public int absorb(DynamicPriorityQueue<T, I> other, ConflictPolicy policy)
+    {
+        if (other == this)
+            throw new IllegalArgumentException("Очередь не может поглотить саму себя");
+        if (other.keyKind != keyKind)
+            throw new IllegalArgumentException("Ключи очередей разного вида");
+        if (other.elements.keyed() != elements.keyed())
+            throw new IllegalArgumentException("Очередь без индекса идентификаторов сливается только с такой же");
+        settle();
+        other.settle();
+        checkJournal();
+        if (delayedSize() > 0 || other.delayedSize() > 0)
+            throw new IllegalStateException("Очереди с отложенными элементами не сливаются");
+        if (backend == HeapBackend.BUCKET || backend == HeapBackend.RADIX)
         {
-            var temp = elem1;
-            elem1 = elem2;
-            elem2 = temp;
+            engine.min();
+            for (var node : other.elements.values())
+                checkKey(node.key);
         }
-        if (elem1.leftChild != null)
+        var smaller = elements.size() <= other.elements.size() ? elements : other.elements;
+        var larger = smaller == elements ? other.elements : elements;
+        var conflicts = new ArrayList<I>();
+        if (elements.keyed())
+            for (var id : smaller.keys())
+                if (larger.containsKey(id))
+                    conflicts.add(id);
+        if (policy == ConflictPolicy.FAIL && !conflicts.isEmpty())
+            throw new IllegalStateException("Идентификатор есть в обеих очередях: " + conflicts.get(0));
+        if (overflowPolicy == OverflowPolicy.REJECT && (long)elements.size() + other.elements.size() - conflicts.size() > capacity)
+            throw new IllegalStateException("Очередь не вмещает элементы поглощаемой очереди: " + capacity);
+        for (var id : conflicts)
         {
-            elem2.nextNode = elem1.leftChild;
-            elem2.nextNode.prevNode = elem2;
-            elem2.nextNode.leftmost = false;
-            elem2.rightmost = false;
+            if (policy == ConflictPolicy.KEEP_EXISTING
+                    || policy == ConflictPolicy.KEEP_MIN && elements.get(id).key <= other.elements.get(id).key)
+                other.remove(id);
+            else
+                remove(id);
         }
+        if (journal != null)
+            for (var node : other.elements.values())
+                journal.offer(other.valueOf(node), node.identifier, node.updater != null, node.key);
+        if (other.journal != null)
+            other.journal.clear();
+        // Ячейки остаются привязанными к ящику other, он пересылает оповещения сюда; у other новый ящик
+        other.inbox.forwardTo(inbox);
+        other.inbox = new PriorityInbox();
+        modCount++;
+        other.modCount++;
+        other.handleEpoch++;
+        if (other.backend == backend)
+            engine.absorb(other.engine);
         else
         {
-            elem1.rightChild = elem2;
-            elem2.nextNode = elem1;
-            elem2.rightmost = true;
+            HeapNode<I> list = null;
+            for (var node : other.elements.values())
+            {
+                unlink(node);
+                node.nextNode = list;
+                list = node;
+            }
+            other.engine.clear();
+            if (list != null)
+                engine.insertAll(list);
         }
-        elem2.prevNode = elem1;
-        elem1.leftChild = elem2;
-        elem2.leftmost = true;
-        return elem1;
+        if (other.worst != null)
+            other.worst.clear();
+        if (worst != null)
+            for (var node : other.elements.values())
+                worst.add(node);
+        elements.absorb(other.elements);
+        trim();
+        return conflicts.size();
     }
 
     /**
-     *  Слияние деревьев парами
+     * Извлекает не больше {@code k} наименьших элементов и передает их в {@code sink} в порядке приоритета.
+     * Вершины сначала извлекаются из кучи, затем одной партией удаляются из индекса идентификаторов: по сохраненному хешу,
+     * без повторного вычисления и сравнения идентификаторов. Очередь проверяется и перестраивается один раз на партию.
+     * Элемент, на котором {@code sink} бросил исключение, уже извлечен, а еще не переданные возвращаются в очередь.
+     * @return количество извлеченных элементов
      */
-    private Node mergePairs(Node node)
+    @SuppressWarnings("unchecked")
+    public int pollN(int k, Consumer<? super T> sink)
     {
-        if (node == null)
-            return null;
-        node.prevNode = null;
-        Node nextNode = node.rightmost ? null : node.nextNode;
-        node.nextNode = null;
-        node.leftmost = true;
-        node.rightmost = true;
-        return mergePairs(node, nextNode);
+        if (k < 0)
+            throw new IllegalArgumentException("Количество элементов не может быть отрицательным: " + k);
+        settle();
+        checkJournal();
+        var nodes = (HeapNode<I>[])new HeapNode<?>[Math.min(k, queued())];
+        var count = engine.removeMins(nodes);
+        if (count == 0)
+            return 0;
+        modCount++;
+        if (worst != null)
+            for (int i = 0; i < count; i++)
+                worst.remove(nodes[i]);
+        elements.removeAll(nodes, count);
+        var delivered = 0;
+        try {
+            while (delivered < count)
+            {
+                var node = nodes[delivered++];
+                detachCell(node);
+                if (journal != null)
+                    journal.poll(node.identifier);
+                var value = valueOf(node);
+                release(node);
+                sink.accept(value);
+            }
+        }
+        finally {
+            if (delivered < count)
+                restore(nodes, delivered, count);
+        }
+        return count;
     }
-    private Node mergePairs(Node node1, Node node2)
+
+    /**
+     * Перемещает все элементы в коллекцию в порядке приоритета.
+     * @return количество перемещенных элементов
+     */
+    public int drainTo(Collection<? super T> collection)
     {
-        if (node2 == null)
-            return node1;
-        node2.prevNode = null;
-        Node nextNode = node2.rightmost ? null : node2.nextNode;
-        node2.nextNode = null;
-        node2.leftmost = true;
-        node2.rightmost = true;
-        return meld(meld(node1, node2), mergePairs(nextNode));
+        return drainTo(collection, Integer.MAX_VALUE);
     }
 
     /**
-     *  Уменьшает ключ вершины
+     * Перемещает не больше {@code maxElements} элементов в коллекцию в порядке приоритета, см. {@link #pollN(int, Consumer)}.
+     * @return количество перемещенных элементов
      */
-    private void decreaseKey(Node node, int newVal)
+    public int drainTo(Collection<? super T> collection, int maxElements)
     {
-        node.key = newVal;
-        if (node == root)
-            return;
-        if (!node.leftmost && !node.rightmost)
+        return pollN(maxElements, collection::add);
+    }
+
+    /**
+     * Возвращает не больше {@code k} наименьших элементов в порядке приоритета, не удаляя их.
+     * Содержимое очереди не меняется, спаривающаяся куча перестраивается так же, как при {@link #iterator()}.
+     */
+    public List<T> peekN(int k)
+    {
+        if (k < 0)
+            throw new IllegalArgumentException("Количество элементов не может быть отрицательным: " + k);
+        var res = new ArrayList<T>(Math.min(k, elements.size()));
+        for (var it = iterator(); res.size() < k && it.hasNext();)
+            res.add(it.next());
+        return res;
+    }
+
+    /**
+     * Возвращает итератор по элементам в порядке приоритета. Элементы не удаляются; следующий элемент находится
+     * во вспомогательной двоичной куче вершин, дети которых еще не пройдены, поэтому первые {@code k} элементов
+     * обходятся за O(k log k) в куче ограниченной степени. В спаривающейся куче дети каждой пройденной вершины сливаются
+     * в одно дерево, как при {@link #poll()}, и остаются под ней: после серии вставок у корня почти все вершины, а так
+     * в очередь обхода попадает одна. Первые {@code k} элементов тогда обходятся за амортизированное время {@code k}
+     * вызовов {@code poll()}, то есть O(k log n). Содержимое очереди не меняется, и уже начатые обходы остаются верными.
+     * Изменение очереди во время обхода приводит к {@link ConcurrentModificationException}.
+     */
+    public Iterator<T> iterator()
+    {
+        return new PriorityIterator();
+    }
+
+    /**
+     * Возвращает разбиваемый {@link Spliterator} по всем элементам в произвольном порядке,
+     * например для {@code StreamSupport.stream(queue.spliterator(), true)}. Куча не обходится и не меняется,
+     * поэтому части можно обрабатывать в разных потоках, пока очередь не изменяется.
+     */
+    @Override
+    public Spliterator<T> spliterator()
+    {
+        settle();
+        return new ValueSpliterator(elements.values().spliterator(), wheel != null && wheel.size() > 0);
+    }
+
+    /**
+     * Записывает очередь в файл снимка: идентификаторы, ключи и значения в двоичном виде вместе с формой кучи
+     * и ее видом. Форма сохраняется только у спаривающейся кучи, остальные записываются деревом из корня и остальных вершин.
+     * Диапазон {@link HeapBackend#BUCKET} в снимок не помещается, такая очередь восстанавливается на спаривающейся куче.
+     * Функции приоритета не сохраняются, сохраняется только их последний результат.
+     * {@linkplain #offerDelayed Отложенные элементы}, срок которых не наступил, в снимок не попадают.
+     * Файл пишется через отображение в память и защищен CRC32C.
+     */
+    public void snapshot(Path file, SnapshotCodec<? super T> values, SnapshotCodec<? super I> identifiers) throws IOException
+    {
+        checkKeyed();
+        settle();
+        try (var writer = new SnapshotFile.Writer(file)) {
+            if (engine instanceof PairingEngine)
+            {
+                // Прямой обход: сначала поддерево ребенка, затем следующий брат
+                var root = ((PairingEngine<I>)engine).root();
+                var pending = new ArrayDeque<HeapNode<I>>();
+                var node = root;
+                while (node != null)
+                {
+                    var hasNext = node != root && !node.rightmost;
+                    writeRecord(writer, node, node.leftChild != null, hasNext, values, identifiers);
+                    if (hasNext)
+                        pending.push(node.nextNode);
+                    node = node.leftChild != null ? node.leftChild : pending.poll();
+                }
+            }
+            else if (!engine.isEmpty())
+            {
+                var root = engine.min();
+                writeRecord(writer, root, queued() > 1, false, values, identifiers);
+                var left = queued() - 1;
+                for (var node : elements.values())
+                    if (node != root && !node.delayed)
+                        writeRecord(writer, node, false, --left > 0, values, identifiers);
+            }
+            var stored = backend == HeapBackend.BUCKET ? HeapBackend.PAIRING : backend;
+            writer.finish(strategy.ordinal(), stored.ordinal(), queued(), journal != null ? journal.sequence() : sequence);
+        }
+    }
+
+    /**
+     * Восстанавливает очередь из снимка за линейное время: форма кучи берется из файла, ключи не сравниваются.
+     * Для элементов, у которых была функция приоритета, она получается по идентификатору из {@code updaters};
+     * если та возвращает {@code null}, сохраненный ключ становится статическим приоритетом.
+     * Ключи остаются такими, какими были при записи; при необходимости после восстановления вызывается {@link #updateAll()}.
+     * @param lazyValues если {@code true}, значения разбираются только когда их возвращает {@link #peek()} или {@link #poll()},
+     *                   и до этого файл остается отображенным в память
+     * @throws IOException если файл не читается или поврежден
+     */
+    public static <T, I> DynamicPriorityQueue<T, I> restore(Path file, SnapshotCodec<T> values, SnapshotCodec<I> identifiers,
+                                                           Function<? super I, ? extends PriorityUpdater> updaters, boolean lazyValues) throws IOException
+    {
+        try (var reader = new SnapshotFile.Reader(file)) {
+            var queue = new DynamicPriorityQueue<T, I>(reader.strategy(), reader.backend(), INT_KEYS);
+            queue.sequence = reader.sequence();
+            queue.elements = new IdentifierIndex<>((int)Math.min(Integer.MAX_VALUE, reader.count()));
+            queue.restoreTree(reader, values, identifiers, updaters, lazyValues);
+            return queue;
+        }
+    }
+
+    private IdentifierIndex<I, HeapNode<I>> elements = new IdentifierIndex<>();
+    private final HeapEngine<I> engine;
+    // Помеченные markDirty вершины, связанные через nextDirty
+    private HeapNode<I> dirty = null;
+    private long coalescedUpdates = 0;
+    // Число изменений состава и ключей очереди, для проверки итераторов
+    private int modCount = 0;
+    // Вершины удаленных элементов для повторного использования, связанные через nextNode
+    private HeapNode<I> free = null;
+    private int freeCount = 0;
+    private int poolCapacity = 0;
+    private final QueueMetrics metrics = QueueMetrics.ENABLED ? new QueueMetrics() : null;
+    // Ограничение числа элементов: куча наихудших элементов существует, только если оно задано
+    private WorstIndex<I> worst = null;
+    private int capacity = Integer.MAX_VALUE;
+    private OverflowPolicy overflowPolicy = null;
+    private Consumer<? super T> overflow = null;
+    // Колесо таймеров отложенных элементов существует после первого offerDelayed, его время отсчитывается от clockOrigin
+    private TimerWheel<I> wheel = null;
+    private LongSupplier clock = System::nanoTime;
+    private long clockOrigin;
+    // Меняется, когда очередь поглощена другой: ее вершины ушли, не меняя поколения
+    private int handleEpoch = 0;
+    // Параллельный пересчет updateAll: с какого размера очереди и в каком пуле, 0 - выключен
+    private int parallelThreshold = 0;
+    private ForkJoinPool parallelPool = null;
+    // Журнал изменений и номер последней записи журнала, отраженной в очереди без него
+    private QueueJournal<T, I> journal = null;
+    private long sequence = 0;
+    // Оповещения ячеек приоритета из любых потоков
+    private PriorityInbox inbox = new PriorityInbox();
+    private final MergeStrategy strategy;
+    private final HeapBackend backend;
+    // Вид ключей: от него зависит, как вызывается функция приоритета
+    static final int INT_KEYS = 0;
+    static final int LONG_KEYS = 1;
+    static final int DOUBLE_KEYS = 2;
+    private final int keyKind;
+
+    /**
+     *  Обход в порядке приоритета, см. {@link #iterator()}
+     */
+    private class PriorityIterator implements Iterator<T>
+    {
+        private final NodeFrontier<I> frontier = new NodeFrontier<>();
+        private final Consumer<HeapNode<I>> push = frontier::push;
+        private final int expectedModCount;
+
+        private PriorityIterator()
+        {
+            settle();
+            expectedModCount = modCount;
+            engine.forEachRoot(push);
+        }
+
+        public boolean hasNext()
+        {
+            return !frontier.isEmpty();
+        }
+
+        public T next()
+        {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (frontier.isEmpty())
+                throw new NoSuchElementException();
+            var node = frontier.pop();
+            engine.forEachSuccessor(node, push);
+            return valueOf(node);
+        }
+    }
+
+    /**
+     *  Значения вершин индекса, см. {@link #spliterator()}
+     */
+    private class ValueSpliterator implements Spliterator<T>
+    {
+        private final Spliterator<HeapNode<I>> nodes;
+        // Индекс содержит отложенные вершины, их нужно пропускать
+        private final boolean skipDelayed;
+        private HeapNode<I> current;
+
+        private ValueSpliterator(Spliterator<HeapNode<I>> nodes, boolean skipDelayed)
+        {
+            this.nodes = nodes;
+            this.skipDelayed = skipDelayed;
+        }
+
+        public boolean tryAdvance(Consumer<? super T> action)
+        {
+            while (nodes.tryAdvance(node -> current = node))
+                if (!current.delayed)
+                {
+                    action.accept(peekValue(current));
+                    return true;
+                }
+            return false;
+        }
+
+        public void forEachRemaining(Consumer<? super T> action)
+        {
+            nodes.forEachRemaining(node -> {
+                if (!node.delayed)
+                    action.accept(peekValue(node));
+            });
+        }
+
+        public Spliterator<T> trySplit()
         {
-            node.prevNode.nextNode = node.nextNode;
-            node.nextNode.prevNode = node.prevNode;
+            var prefix = nodes.trySplit();
+            return prefix == null ? null : new ValueSpliterator(prefix, skipDelayed);
         }
-        else if (!node.leftmost)
+
+        public long estimateSize()
         {
-            node.prevNode.nextNode = node.nextNode;
-            node.prevNode.rightmost = true;
-            node.nextNode.rightChild = node.prevNode;
+            return nodes.estimateSize();
         }
-        else if (!node.rightmost)
+
+        public int characteristics()
         {
-            node.nextNode.prevNode = node.prevNode;
-            node.nextNode.leftmost = true;
-            node.prevNode.leftChild = node.nextNode;
+            return skipDelayed ? nodes.characteristics() & ~(SIZED | SUBSIZED) : nodes.characteristics();
         }
+    }
+
+    /**
+     *  Вычисление ключей части массива вершин, см. {@link #updateAllParallel()}
+     */
+    private class KeyEvaluation extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final HeapNode<I>[] nodes;
+        private final long[] keys;
+        private final int from;
+        private final int to;
+        private final int chunk;
+
+        private KeyEvaluation(HeapNode<I>[] nodes, long[] keys, int from, int to, int chunk)
+        {
+            this.nodes = nodes;
+            this.keys = keys;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        protected void compute()
+        {
+            if (to - from > chunk)
+            {
+                var middle = (from + to) >>> 1;
+                invokeAll(new KeyEvaluation(nodes, keys, from, middle, chunk), new KeyEvaluation(nodes, keys, middle, to, chunk));
+                return;
+            }
+            // Недопустимый ключ обнаруживается здесь, до того как куча начала меняться
+            for (int i = from; i < to; i++)
+                if (nodes[i].updater != null)
+                {
+                    keys[i] = evaluate(nodes[i].updater);
+                    checkKey(keys[i]);
+                }
+        }
+    }
+
+    /**
+     *  Пересчет всех ключей в две фазы: параллельное вычисление в отдельный массив, затем изменение кучи
+     */
+    @SuppressWarnings("unchecked")
+    private void updateAllParallel()
+    {
+        var nodes = (HeapNode<I>[])elements.values().toArray(new HeapNode<?>[0]);
+        var keys = new long[nodes.length];
+        var pool = parallelPool != null ? parallelPool : ForkJoinPool.commonPool();
+        // Частей в несколько раз больше, чем потоков, чтобы дорогие функции не собрались в одной
+        var chunk = Math.max(256, nodes.length / (pool.getParallelism() * 8));
+        pool.invoke(new KeyEvaluation(nodes, keys, 0, nodes.length, chunk));
+        for (int i = 0; i < nodes.length; i++)
+            if (nodes[i].updater != null)
+                rekey(nodes[i], keys[i]);
+    }
+
+    /**
+     *  Сливает список одиночных вершин с кучей
+     */
+    private void meldBatch(HeapNode<I> list)
+    {
+        if (list == null)
+            return;
+        modCount++;
+        if (worst != null)
+            for (var node = list; node != null; node = node.nextNode)
+                worst.add(node);
+        engine.insertAll(list);
+        trim();
+    }
+
+    /**
+     *  Возвращает в очередь вершины [from, to), извлеченные {@link #pollN(int, Consumer)}, но не переданные приемнику
+     */
+    private void restore(HeapNode<I>[] nodes, int from, int to)
+    {
+        HeapNode<I> list = null;
+        for (int i = to - 1; i >= from; i--)
+        {
+            var node = nodes[i];
+            unlink(node);
+            elements.put(node);
+            node.nextNode = list;
+            list = node;
+        }
+        meldBatch(list);
+    }
+
+    /**
+     *  Удаляет корень
+     */
+    private void removeRoot()
+    {
+        modCount++;
+        var node = engine.removeMin();
+        if (worst != null)
+            worst.remove(node);
+        elements.remove(node);
+        detachCell(node);
+        release(node);
+    }
+
+    /**
+     *  Вычисляет ключ функцией приоритета вида, выбранного при создании очереди
+     */
+    private long evaluate(Object updater)
+    {
+        switch (keyKind)
+        {
+            case LONG_KEYS:
+                return ((LongPriorityUpdater)updater).priority();
+            case DOUBLE_KEYS:
+                return PriorityKeys.fromDouble(((DoublePriorityUpdater)updater).priority());
+            default:
+                return ((PriorityUpdater)updater).priority();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T valueOf(HeapNode<I> node)
+    {
+        if (node.value instanceof LazyValue)
+            node.value = ((LazyValue)node.value).decode();
+        return (T)node.value;
+    }
+
+    /**
+     *  Значение вершины без сохранения разобранного, для чтения из нескольких потоков
+     */
+    @SuppressWarnings("unchecked")
+    private T peekValue(HeapNode<I> node)
+    {
+        var value = node.value;
+        return (T)(value instanceof LazyValue ? ((LazyValue)value).decode() : value);
+    }
+
+    /**
+     *  Записывает одну вершину снимка
+     */
+    @SuppressWarnings("unchecked")
+    private void writeRecord(SnapshotFile.Writer writer, HeapNode<I> node, boolean hasChild, boolean hasNext,
+                             SnapshotCodec<? super T> values, SnapshotCodec<? super I> identifiers) throws IOException
+    {
+        // Неразобранное значение того же представления копируется без разбора
+        var raw = node.value instanceof LazyValue ? ((LazyValue)node.value).bytes(values) : null;
+        var value = raw == null ? valueOf(node) : null;
+        var idSize = identifiers.size(node.identifier);
+        var valueSize = raw != null ? raw.remaining() : values.size(value);
+        var length = 1 + Long.BYTES + Integer.BYTES + idSize + valueSize;
+        var buffer = writer.reserve(Integer.BYTES + length);
+        var start = buffer.position();
+        var flags = (node.updater != null ? SnapshotFile.DYNAMIC : 0)
+                | (hasChild ? SnapshotFile.HAS_CHILD : 0)
+                | (hasNext ? SnapshotFile.HAS_NEXT : 0);
+        buffer.putInt(length).put((byte)flags).putLong(node.key).putInt(idSize);
+        identifiers.write(node.identifier, buffer);
+        if (raw != null)
+            buffer.put(raw);
         else
+            values.write(value, buffer);
+        if (buffer.position() != start + Integer.BYTES + length)
+            throw new IllegalStateException("Представление записало не столько байт, сколько вернуло size()");
+    }
+
+    /**
+     *  Строит кучу по записям снимка, связывая вершины в том порядке, в котором они были записаны.
+     *  Куча другого вида получает вершины вставкой партии
+     */
+    private void restoreTree(SnapshotFile.Reader reader, SnapshotCodec<T> values, SnapshotCodec<I> identifiers,
+                             Function<? super I, ? extends PriorityUpdater> updaters, boolean lazyValues) throws IOException
+    {
+        // Вершины, за поддеревом которых следует их брат, и родители этих вершин
+        var siblings = new ArrayDeque<HeapNode<I>>();
+        var parents = new ArrayDeque<HeapNode<I>>();
+        // Вершина, чей первый ребенок - следующая запись
+        HeapNode<I> pendingParent = null;
+        HeapNode<I> root = null;
+        for (long i = 0; i < reader.count(); i++)
         {
-            node.prevNode.leftChild = null;
-            node.nextNode.rightChild = null;
+            var start = reader.next();
+            var window = reader.window();
+            var length = reader.recordLength();
+            var headerBytes = 1 + Long.BYTES + Integer.BYTES;
+            if (length < headerBytes)
+                throw new IOException("Данные снимка повреждены");
+            var flags = window.get(start);
+            var key = window.getLong(start + 1);
+            var idSize = window.getInt(start + 1 + Long.BYTES);
+            if (idSize < 0 || idSize > length - headerBytes)
+                throw new IOException("Данные снимка повреждены");
+            var id = identifiers.read(reader.field(start + headerBytes, idSize));
+            var valueStart = start + headerBytes + idSize;
+            var valueSize = length - headerBytes - idSize;
+            Object value = lazyValues
+                    ? new LazyValue(window, valueStart, valueSize, values)
+                    : values.read(reader.field(valueStart, valueSize));
+            PriorityUpdater updater = (flags & SnapshotFile.DYNAMIC) != 0 ? updaters.apply(id) : null;
+            var node = new HeapNode<>(value, id, updater, key);
+            if (elements.put(node) != null)
+                throw new IOException("Идентификатор повторяется в снимке: " + id);
+            if (updater instanceof PriorityCell)
+                ((PriorityCell)updater).attach(inbox, node);
+
+            HeapNode<I> parent;
+            if (root == null)
+            {
+                root = node;
+                parent = null;
+            }
+            else if (pendingParent != null)
+            {
+                parent = pendingParent;
+                parent.leftChild = node;
+                node.prevNode = parent;
+            }
+            else
+            {
+                if (siblings.isEmpty())
+                    throw new IOException("Данные снимка повреждены");
+                var previous = siblings.pop();
+                parent = parents.pop();
+                previous.nextNode = node;
+                previous.rightmost = false;
+                node.prevNode = previous;
+                node.leftmost = false;
+            }
+            if ((flags & SnapshotFile.HAS_NEXT) != 0)
+            {
+                if (parent == null)
+                    throw new IOException("Данные снимка повреждены");
+                siblings.push(node);
+                parents.push(parent);
+            }
+            else if (parent != null)
+            {
+                node.nextNode = parent;
+                parent.rightChild = node;
+            }
+            pendingParent = (flags & SnapshotFile.HAS_CHILD) != 0 ? node : null;
         }
-        node.prevNode = null;
-        node.nextNode = null;
-        node.leftmost = true;
-        node.rightmost = true;
-        root = meld(root, node);
+        if (pendingParent != null || !siblings.isEmpty())
+            throw new IOException("Данные снимка повреждены");
+        if (engine instanceof PairingEngine)
+        {
+            ((PairingEngine<I>)engine).restore(root);
+            return;
+        }
+        HeapNode<I> list = null;
+        for (var node : elements.values())
+        {
+            unlink(node);
+            node.nextNode = list;
+            list = node;
+        }
+        if (list != null)
+            engine.insertAll(list);
     }
 
-    private void increaseKey(Node node, int newKey)
+    private void markDirty(HeapNode<I> node)
     {
-        if (node == root)
+        if (node.dirty)
         {
-            var prio = node.updater;
-            var val = node.value;
-            var id = node.identifier;
-            poll();
-            insertNode(val, id, prio, newKey);
+            coalescedUpdates++;
             return;
         }
-        node.key = newKey;
-        if (node.leftChild == null)
+        node.dirty = true;
+        node.nextDirty = dirty;
+        dirty = node;
+    }
+
+    /**
+     *  Доводит отложенные вставки, оповещения ячеек приоритета и пересчеты до кучи
+     */
+    private void settle()
+    {
+        engine.flush();
+        if (!inbox.isEmpty())
+            drainInbox();
+        if (dirty != null)
+            flush();
+        // Пометки уже разобраны, поэтому отвергнутая при переходе вершина не остается в их списке
+        if (wheel != null && wheel.size() > 0)
+        {
+            promote();
+            engine.flush();
+        }
+    }
+
+    /**
+     *  Помечает вершины, ячейки приоритета которых изменились
+     */
+    @SuppressWarnings("unchecked")
+    private void drainInbox()
+    {
+        for (var cell = inbox.drain(); cell != null;)
+        {
+            var next = cell.nextInInbox;
+            cell.nextInInbox = null;
+            var node = (HeapNode<I>)cell.take(inbox);
+            if (node != null)
+                markDirty(node);
+            cell = next;
+        }
+    }
+
+    /**
+     *  Отвязывает ячейку приоритета от удаляемой вершины
+     */
+    private void detachCell(HeapNode<I> node)
+    {
+        if (node.updater instanceof PriorityCell)
+            ((PriorityCell)node.updater).detach();
+    }
+
+    /**
+     *  Присваивает вершине новый ключ в составе пересчета, куча доводит порядок при {@link HeapEngine#flush()}
+     */
+    private void rekey(HeapNode<I> node, long newKey)
+    {
+        checkKey(newKey);
+        if (QueueMetrics.ENABLED)
+            metrics.updated(node.key, newKey);
+        if (newKey == node.key)
             return;
-        node.leftChild.prevNode = node.prevNode;
-        node.rightChild.nextNode = node.nextNode;
-        if (node.leftmost)
-            node.prevNode.leftChild = node.leftChild;
-        else
+        if (node.delayed)
         {
-            node.leftChild.leftmost = false;
-            node.prevNode.nextNode = node.leftChild;
-            node.leftmost = true;
+            // Вершина не в куче, журнал получит ее ключ при переходе в кучу
+            node.key = newKey;
+            return;
         }
-        if (node.rightmost)
-            node.nextNode.rightChild = node.rightChild;
-        else
+        checkJournal();
+        modCount++;
+        engine.rekey(node, newKey);
+        if (worst != null)
+            worst.changed(node);
+        if (journal != null)
+            journal.update(node.identifier, newKey);
+    }
+
+    /**
+     *  Доводит до кучи наступившие отложенные элементы, если они есть
+     */
+    private void settleDelayed()
+    {
+        if (wheel != null && wheel.size() > 0)
+            settle();
+    }
+
+    /**
+     *  Переводит колесо таймеров на текущий момент и переносит наступившие отложенные вершины в кучу одной партией
+     */
+    private void promote()
+    {
+        var waiting = wheel.size();
+        var expired = wheel.advanceTo(clock.getAsLong() - clockOrigin);
+        // Наступившие вершины уже не в колесе, но еще не в куче
+        var accepted = queued() - (waiting - wheel.size());
+        HeapNode<I> list = null;
+        while (expired != null)
         {
-            node.rightChild.rightmost = false;
-            node.nextNode.prevNode = node.rightChild;
-            node.rightmost = true;
+            var node = expired;
+            expired = node.nextNode;
+            node.nextNode = null;
+            node.delayed = false;
+            if (accepted >= capacity && overflowPolicy == OverflowPolicy.REJECT)
+            {
+                var value = valueOf(node);
+                elements.remove(node);
+                detachCell(node);
+                release(node);
+                overflowed(value);
+                continue;
+            }
+            accepted++;
+            node.nextNode = list;
+            list = node;
         }
-        node.prevNode = null;
+        try {
+            if (journal != null)
+                for (var node = list; node != null; node = node.nextNode)
+                    journal.offer(valueOf(node), node.identifier, true, node.key);
+        }
+        finally {
+            // Вершины уже вынуты из колеса и попадают в кучу, даже если журнал не принял запись
+            meldBatch(list);
+        }
+    }
+
+    /**
+     *  Количество элементов в куче: отложенные вершины лежат в индексе, но не в куче
+     */
+    private int queued()
+    {
+        return wheel == null ? elements.size() : elements.size() - wheel.size();
+    }
+
+    /**
+     *  Удаляет отложенный элемент из колеса таймеров
+     */
+    private void removeDelayed(HeapNode<I> node)
+    {
+        wheel.remove(node);
+        elements.remove(node);
+        node.delayed = false;
+        detachCell(node);
+        release(node);
+    }
+
+    private void checkBounded()
+    {
+        if (worst == null)
+            throw new IllegalStateException("Число элементов очереди не ограничено");
+    }
+
+    /**
+     *  Освобождает место для элемента с ключом {@code key}, если очередь заполнена
+     *  @return {@code false} если элемент не должен добавляться
+     */
+    private boolean makeRoom(T value, long key)
+    {
+        if (queued() < capacity)
+            return true;
+        // Ключи помеченных вершин должны быть пересчитаны, прежде чем выбирать наихудшую
+        settle();
+        if (overflowPolicy == OverflowPolicy.EVICT_WORST && key < worst.max().key)
+        {
+            evict(worst.max());
+            return true;
+        }
+        overflowed(value);
+        return false;
+    }
+
+    /**
+     *  Вытесняет наихудшие элементы, пока их больше наибольшего числа
+     */
+    private void trim()
+    {
+        if (queued() <= capacity)
+            return;
+        settle();
+        while (queued() > capacity)
+            evict(worst.max());
+    }
+
+    private void evict(HeapNode<I> node)
+    {
+        var value = valueOf(node);
+        removeNode(node);
+        overflowed(value);
+    }
+
+    private void overflowed(T value)
+    {
+        if (overflow != null)
+            overflow.accept(value);
+    }
+
+    /**
+     *  Отвергает ключ, который куча не может хранить
+     */
+    private void checkKey(long key)
+    {
+        if (!engine.accepts(key))
+            throw new IllegalArgumentException("Приоритет вне допустимого для очереди диапазона: " + key);
+    }
+
+    /**
+     *  Уменьшает ключ вершины
+     */
+    private void decreaseKey(HeapNode<I> node, long newVal)
+    {
+        modCount++;
+        engine.decreaseKey(node, newVal);
+        if (worst != null)
+            worst.changed(node);
+    }
+
+    private void increaseKey(HeapNode<I> node, long newKey)
+    {
+        modCount++;
+        engine.increaseKey(node, newKey);
+        if (worst != null)
+            worst.changed(node);
+    }
+
+    /**
+     *  Берет вершину из пула или создает новую
+     */
+    private HeapNode<I> newNode(Object value, I identifier, Object updater, long key)
+    {
+        var node = free;
+        if (node == null)
+            return new HeapNode<>(value, identifier, updater, key);
+        free = node.nextNode;
+        freeCount--;
         node.nextNode = null;
-        node.leftChild = null;
-        node.rightChild = null;
-        root = meld(node, root);
+        node.value = value;
+        node.identifier = identifier;
+        node.updater = updater;
+        node.key = key;
+        return node;
+    }
+
+    /**
+     *  Делает недействительными дескрипторы удаленного элемента и возвращает его вершину в пул, если он включен и не заполнен
+     */
+    private void release(HeapNode<I> node)
+    {
+        node.generation++;
+        if (freeCount >= poolCapacity)
+            return;
+        // Вершина в пуле не должна удерживать значение, идентификатор и функцию приоритета
+        node.value = null;
+        node.identifier = null;
+        node.updater = null;
+        unlink(node);
+        node.nextNode = free;
+        free = node;
+        freeCount++;
+    }
+
+    /**
+     *  Вставляет элемент, идентификатора которого нет в очереди
+     *  @return вершина или {@code null}, если элемент не поместился в очередь
+     */
+    private HeapNode<I> offerNode(T value, I identifier, PriorityUpdater updater, long key)
+    {
+        // Все проверки - до вытеснения: отвергнутая вставка не должна менять очередь
+        checkKey(key);
+        checkCell(updater);
+        checkJournal();
+        if (!makeRoom(value, key))
+            return null;
+        var node = insertNode(value, identifier, updater, key);
+        if (journal != null)
+            journal.offer(value, identifier, updater != null, key);
+        return node;
+    }
+
+    private QueueHandle<T> handle(HeapNode<I> node)
+    {
+        return node == null ? null : new QueueHandle<>(this, handleEpoch, node);
+    }
+
+    /**
+     *  Вершина действительного дескриптора этой очереди или {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    private HeapNode<I> nodeOf(QueueHandle<T> handle)
+    {
+        return isValid(handle) ? (HeapNode<I>)handle.node : null;
+    }
+
+    /**
+     *  Ищет вершину по идентификатору
+     */
+    private HeapNode<I> find(Object o)
+    {
+        checkKeyed();
+        return elements.get(o);
+    }
+
+    private static void checkCell(Object updater)
+    {
+        if (updater instanceof PriorityCell && ((PriorityCell)updater).isAttached())
+            throw new IllegalArgumentException("Ячейка приоритета уже находится в очереди");
+    }
+
+    /**
+     *  Отвергает изменение, если журнал остановлен после ошибки записи, см. {@link QueueJournal}
+     */
+    private void checkJournal()
+    {
+        if (journal != null)
+            journal.checkWritable();
+    }
+
+    private void checkKeyed()
+    {
+        if (!elements.keyed())
+            throw new UnsupportedOperationException("Очередь без индекса идентификаторов, элементы доступны только через дескрипторы");
     }
 
-    private Node insertNode(T value, I identifier, PriorityUpdater updater, int key)
+    /**
+     *  Удаляет элемент очереди
+     */
+    private void removeNode(HeapNode<I> node)
     {
-        var newNode = new Node(value, identifier, updater, key);
-        root = meld(newNode, root);
-        elements.put(identifier, newNode);
+        if (node.delayed)
+        {
+            removeDelayed(node);
+            return;
+        }
+        checkJournal();
+        modCount++;
+        engine.remove(node);
+        if (worst != null)
+            worst.remove(node);
+        elements.remove(node);
+        detachCell(node);
+        if (journal != null)
+            journal.remove(node.identifier);
+        release(node);
+    }
+
+    private HeapNode<I> insertNode(Object value, I identifier, Object updater, long key)
+    {
+        modCount++;
+        var newNode = newNode(value, identifier, updater, key);
+        if (updater instanceof PriorityCell)
+            ((PriorityCell)updater).attach(inbox, newNode);
+        engine.insert(newNode);
+        if (worst != null)
+            worst.add(newNode);
+        elements.put(newNode);
         return newNode;
     }
 
+    /**
+     *  Сбрасывает ссылки кучи, вершина становится одиночной
+     */
+    private void unlink(HeapNode<I> node)
+    {
+        node.leftChild = null;
+        node.rightChild = null;
+        node.nextNode = null;
+        node.prevNode = null;
+        node.leftmost = true;
+        node.rightmost = true;
+    }
+
     public String toString()
     {
-        return String.format("head: %s, elements: %s", root, elements);
+        settle();
+        return String.format("head: %s, elements: %s", engine.min(), elements);
     }
 }
@@ -0,0 +1,35 @@
+package ru.sfedu;
+
+/**
+ * Вид кучи, на которой построена {@link DynamicPriorityQueue}. Поведение очереди от него не зависит, меняется только скорость операций.
+ */
+public enum HeapBackend {
+    /**
+     * Спаривающаяся куча с выбираемым {@link MergeStrategy способом слияния}. Дешевые вставка, слияние очередей
+     * и уменьшение ключа, пересчеты многих элементов собираются в одно слияние.
+     */
+    PAIRING,
+    /**
+     * Индексированная 4-арная куча в массиве: вершина знает свою ячейку, изменение ключа - просеивание на месте.
+     * Меньше переходов по ссылкам, выгодна при частых увеличениях ключей; слияние очередей - вставка по одной.
+     */
+    DARY,
+    /**
+     * Ранговая спаривающаяся куча (rank-pairing heap): уменьшение ключа за O(1) амортизированно
+     * без долгих цепочек вырезаний, удаление корня - однопроходное связывание по рангам.
+     */
+    RANK_PAIRING,
+    /**
+     * Очередь корзин для целых ключей из диапазона, заданного при создании очереди:
+     * корзина на каждый ключ и битовая карта непустых корзин. Вставка, изменение ключа и извлечение - O(1).
+     * Ключ вне диапазона отвергается {@link IllegalArgumentException}. Создается конструктором
+     * {@link DynamicPriorityQueue#DynamicPriorityQueue(int, int)}.
+     */
+    BUCKET,
+    /**
+     * Радиксная куча для монотонных ключей, например сроков: вставка и изменение ключа - O(1), извлечение -
+     * O(log C) амортизированно, где C - разброс ключей. Ключ не может быть меньше ключа корня, последним
+     * возвращенного {@code peek()} или {@code poll()}, иначе бросается {@link IllegalArgumentException}.
+     */
+    RADIX
+}
@@ -0,0 +1,98 @@
+package ru.sfedu;
+
+import java.util.function.Consumer;
+
+/**
+ * Куча, в которой {@link DynamicPriorityQueue} хранит свои вершины.
+ * Очередь ведет индекс идентификаторов, журнал, ячейки приоритета и пул вершин, а куча только упорядочивает вершины по ключу.
+ * Вершина попадает в кучу через {@link #insert(HeapNode)} или {@link #insertAll(HeapNode)} и покидает ее
+ * через {@link #removeMin()} или {@link #remove(HeapNode)}; между этим ее ссылками распоряжается только куча.
+ */
+interface HeapEngine<I> {
+    /**
+     * Название для событий и счетчиков
+     */
+    String name();
+
+    /**
+     * Проверяет, может ли куча хранить ключ. Очередь проверяет ключ до любых изменений
+     */
+    default boolean accepts(long key)
+    {
+        return true;
+    }
+
+    boolean isEmpty();
+
+    /**
+     * Вершина с наименьшим ключом. Отложенные вставки и пересчеты должны быть доведены {@link #flush()}
+     */
+    HeapNode<I> min();
+
+    /**
+     * Доводит до кучи отложенные вставки и пересчеты {@link #rekey(HeapNode, long)}
+     */
+    void flush();
+
+    void insert(HeapNode<I> node);
+
+    /**
+     * Добавляет одиночные вершины, связанные через {@code nextNode}
+     */
+    void insertAll(HeapNode<I> list);
+
+    /**
+     * Удаляет и возвращает вершину с наименьшим ключом
+     */
+    HeapNode<I> removeMin();
+
+    void remove(HeapNode<I> node);
+
+    void decreaseKey(HeapNode<I> node, long newKey);
+
+    void increaseKey(HeapNode<I> node, long newKey);
+
+    /**
+     * Присваивает вершине другой ключ в составе пересчета многих вершин.
+     * Куча может отложить восстановление порядка до {@link #flush()}
+     */
+    void rekey(HeapNode<I> node, long newKey);
+
+    /**
+     * Забирает все вершины кучи того же вида, та становится пустой
+     */
+    void absorb(HeapEngine<I> other);
+
+    /**
+     * Забывает все вершины, не трогая их ссылки
+     */
+    void clear();
+
+    /**
+     * Количество детей, с которыми имеет дело удаление вершины, для {@link QueueMetrics}
+     */
+    int children(HeapNode<I> node);
+
+    /**
+     * Передает вершины, с которых начинается обход в порядке приоритета
+     */
+    void forEachRoot(Consumer<HeapNode<I>> action);
+
+    /**
+     * Передает вершины, которые становятся доступны обходу после {@code node}: их ключи не меньше ключа {@code node}.
+     * Состав кучи и поддерева {@code node} при этом не меняется, но поддерево может перестраиваться
+     */
+    void forEachSuccessor(HeapNode<I> node, Consumer<HeapNode<I>> action);
+
+    /**
+     * Удаляет не больше {@code removed.length} наименьших вершин и складывает их в {@code removed} в порядке приоритета.
+     * @return количество удаленных вершин
+     */
+    default int removeMins(HeapNode<I>[] removed)
+    {
+        var count = 0;
+        while (count < removed.length && !isEmpty())
+            removed[count++] = removeMin();
+        return count;
+    }
+}
@@ -0,0 +1,43 @@
+package ru.sfedu;
+
+/**
+ * Вершина {@link DynamicPriorityQueue}: элемент очереди вместе со ссылками кучи.
+ * Смысл ссылок зависит от {@link HeapEngine}, в котором лежит вершина.
+ */
+class HeapNode<I> extends IndexedNode<I> {
+    // Значение или LazyValue, если очередь восстановлена из снимка без разбора значений
+    Object value;
+    long key;
+    // PriorityUpdater, LongPriorityUpdater или DoublePriorityUpdater, по виду ключей очереди
+    Object updater;
+    HeapNode<I> leftChild;
+    HeapNode<I> rightChild;
+    HeapNode<I> nextNode;
+    HeapNode<I> prevNode;
+    boolean leftmost = true;
+    boolean rightmost = true;
+    // Номер ячейки в массиве кучи или ранг вершины
+    int slot;
+    // Номер ячейки в куче наихудших элементов ограниченной очереди
+    int worstSlot;
+    // Отложенная вершина лежит в колесе таймеров до срока due, а не в куче
+    boolean delayed = false;
+    long due;
+    boolean dirty = false;
+    HeapNode<I> nextDirty;
+    // Меняется, когда элемент покидает очередь: дескрипторы с прежним номером недействительны
+    int generation = 0;
+
+    HeapNode(Object value, I identifier, Object updater, long key)
+    {
+        super(identifier);
+        this.value = value;
+        this.updater = updater;
+        this.key = key;
+    }
+
+    public String toString()
+    {
+        return String.format("v: %s, k: %d", value, key);
+    }
+}
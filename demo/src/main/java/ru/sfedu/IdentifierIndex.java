@@ -0,0 +1,584 @@
+package ru.sfedu;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * Индекс вершин очереди по идентификатору из нескольких хеш-таблиц (сегментов).
+ * Таблицы с цепочками, звенья цепочек - сами вершины ({@link IndexedNode}), поэтому вставка не выделяет память.
+ * Поглощение другого индекса добавляет его сегменты без перехеширования; когда сегментов больше
+ * {@value #MAX_SEGMENTS}, меньший из двух наименьших переносится в больший. Каждый идентификатор при этом
+ * переносится только в сегмент хотя бы вдвое больше прежнего, то есть не больше log n раз.
+ * Новые идентификаторы кладутся в первый сегмент; поиск просматривает все сегменты.
+ * <p>
+ * Индекс без идентификаторов (см. {@link #unkeyed()}) только перечисляет вершины: они лежат в плотном массиве,
+ * номер ячейки хранится в {@link IndexedNode#hash}, поиска по идентификатору нет, и хеш не вычисляется.
+ */
+final class IdentifierIndex<I, N extends IndexedNode<I>> {
+    static final int MAX_SEGMENTS = 4;
+
+    private final ArrayList<Segment<I>> segments = new ArrayList<>(MAX_SEGMENTS + 1);
+    // Вершины индекса без идентификаторов, null у индекса с ними
+    private IndexedNode<?>[] dense = null;
+    private int size = 0;
+
+    IdentifierIndex()
+    {
+        this(0);
+    }
+
+    /**
+     * Создает индекс, первый сегмент которого вмещает {@code expected} вершин без перехеширования
+     */
+    IdentifierIndex(int expected)
+    {
+        segments.add(new Segment<>(expected));
+    }
+
+    /**
+     * Создает индекс без поиска по идентификатору
+     */
+    static <I, N extends IndexedNode<I>> IdentifierIndex<I, N> unkeyed()
+    {
+        var index = new IdentifierIndex<I, N>();
+        index.segments.clear();
+        index.dense = new IndexedNode<?>[16];
+        return index;
+    }
+
+    boolean keyed()
+    {
+        return dense == null;
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    N get(Object id)
+    {
+        if (dense != null)
+            return null;
+        var hash = hash(id);
+        for (int i = 0; i < segments.size(); i++)
+        {
+            var node = segments.get(i).find(id, hash);
+            if (node != null)
+                return (N)node;
+        }
+        return null;
+    }
+
+    boolean containsKey(Object id)
+    {
+        return get(id) != null;
+    }
+
+    /**
+     * Добавляет вершину по ее идентификатору и возвращает вытесненную вершину с тем же идентификатором.
+     * Идентификатор ищется только в первом сегменте, отсутствие в остальных проверяет вызывающий
+     */
+    @SuppressWarnings("unchecked")
+    N put(N node)
+    {
+        if (dense != null)
+        {
+            if (size == dense.length)
+                dense = Arrays.copyOf(dense, size * 2);
+            node.hash = size;
+            dense[size++] = node;
+            return null;
+        }
+        node.hash = hash(node.identifier);
+        var previous = segments.get(0).put(node);
+        if (previous == null)
+            size++;
+        return (N)previous;
+    }
+
+    @SuppressWarnings("unchecked")
+    N remove(Object id)
+    {
+        if (dense != null)
+            return null;
+        var hash = hash(id);
+        for (int i = 0; i < segments.size(); i++)
+        {
+            var segment = segments.get(i);
+            var node = segment.remove(id, hash);
+            if (node == null)
+                continue;
+            size--;
+            if (i > 0 && segment.size == 0)
+                segments.remove(i);
+            return (N)node;
+        }
+        return null;
+    }
+
+    /**
+     * Удаляет вершину, которая есть в индексе
+     */
+    void remove(N node)
+    {
+        if (dense == null)
+        {
+            remove(node.identifier);
+            return;
+        }
+        // На место вершины переносится последняя
+        var last = dense[--size];
+        dense[node.hash] = last;
+        last.hash = node.hash;
+        dense[size] = null;
+    }
+
+    /**
+     * Удаляет первые {@code count} вершин массива, все они есть в индексе. Вершина ищется по сохраненному хешу
+     * и по ссылке, без повторного вычисления хеша и сравнения идентификаторов
+     */
+    void removeAll(N[] nodes, int count)
+    {
+        if (dense != null)
+        {
+            for (int i = 0; i < count; i++)
+                remove(nodes[i]);
+            return;
+        }
+        for (int i = 0; i < count; i++)
+        {
+            var node = nodes[i];
+            for (int j = 0; j < segments.size(); j++)
+            {
+                var segment = segments.get(j);
+                if (!segment.unlink(node))
+                    continue;
+                if (j > 0 && segment.size == 0)
+                    segments.remove(j);
+                break;
+            }
+        }
+        size -= count;
+    }
+
+    void clear()
+    {
+        if (dense != null)
+        {
+            dense = new IndexedNode<?>[16];
+            size = 0;
+            return;
+        }
+        segments.clear();
+        segments.add(new Segment<>(0));
+        size = 0;
+    }
+
+    /**
+     * Переносит сегменты другого индекса в этот, другой индекс становится пустым
+     */
+    void absorb(IdentifierIndex<I, N> other)
+    {
+        if (dense != null)
+        {
+            if (size + other.size > dense.length)
+                dense = Arrays.copyOf(dense, Math.max(size + other.size, size * 2));
+            for (int i = 0; i < other.size; i++)
+            {
+                var node = other.dense[i];
+                node.hash = size;
+                dense[size++] = node;
+            }
+            other.clear();
+            return;
+        }
+        for (var segment : other.segments)
+            if (segment.size > 0)
+                segments.add(segment);
+        size += other.size;
+        other.clear();
+        while (segments.size() > MAX_SEGMENTS)
+        {
+            // Два наименьших сегмента, меньший переносится в больший
+            int first = 0;
+            int second = 1;
+            for (int i = 1; i < segments.size(); i++)
+            {
+                if (segments.get(i).size < segments.get(first).size)
+                {
+                    second = first;
+                    first = i;
+                }
+                else if (i != second && segments.get(i).size < segments.get(second).size)
+                    second = i;
+            }
+            segments.get(second).moveFrom(segments.get(first));
+            // Первый сегмент остается на месте, чтобы вставки шли в самый старый
+            if (first == 0)
+                segments.set(0, segments.get(second));
+            segments.remove(first == 0 ? second : first);
+        }
+    }
+
+    Iterable<I> keys()
+    {
+        return () -> {
+            var nodes = values().iterator();
+            return new Iterator<I>() {
+                public boolean hasNext()
+                {
+                    return nodes.hasNext();
+                }
+
+                public I next()
+                {
+                    return nodes.next().identifier;
+                }
+            };
+        };
+    }
+
+    /**
+     * Вершины всех сегментов. {@link Collection#spliterator()} разбивается сначала по сегментам, затем по корзинам
+     */
+    Collection<N> values()
+    {
+        if (dense != null)
+        {
+            return new AbstractCollection<N>() {
+                public Iterator<N> iterator()
+                {
+                    return Spliterators.iterator(spliterator());
+                }
+
+                public int size()
+                {
+                    return size;
+                }
+
+                public Spliterator<N> spliterator()
+                {
+                    return Spliterators.<N>spliterator(dense, 0, size, 0);
+                }
+            };
+        }
+        return new AbstractCollection<N>() {
+            public Iterator<N> iterator()
+            {
+                return new NodeIterator<>(segments);
+            }
+
+            public int size()
+            {
+                return size;
+            }
+
+            public Spliterator<N> spliterator()
+            {
+                return new NodeSpliterator<>(new ArrayList<>(segments), 0, segments.size());
+            }
+        };
+    }
+
+    private static int hash(Object id)
+    {
+        var h = id == null ? 0 : id.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean matches(IndexedNode<?> node, Object id, int hash)
+    {
+        var key = node.identifier;
+        return node.hash == hash && (key == id || id != null && id.equals(key));
+    }
+
+    /**
+     *  Цепочка корзины: в таблицах индекса лежат только его вершины
+     */
+    @SuppressWarnings("unchecked")
+    private static <I> IndexedNode<I> head(IndexedNode<?>[] table, int index)
+    {
+        return (IndexedNode<I>)table[index];
+    }
+
+    /**
+     *  Хеш-таблица с цепочками через {@link IndexedNode#nextInBucket}, длина таблицы - степень двойки
+     */
+    private static final class Segment<I>
+    {
+        private IndexedNode<?>[] table;
+        private int size = 0;
+
+        private Segment(int expected)
+        {
+            var capacity = 16;
+            while (capacity - (capacity >>> 2) < expected && capacity < 1 << 30)
+                capacity <<= 1;
+            table = new IndexedNode<?>[capacity];
+        }
+
+        private IndexedNode<I> find(Object id, int hash)
+        {
+            for (IndexedNode<I> node = head(table, hash & (table.length - 1)); node != null; node = node.nextInBucket)
+                if (matches(node, id, hash))
+                    return node;
+            return null;
+        }
+
+        private IndexedNode<I> put(IndexedNode<I> node)
+        {
+            var index = node.hash & (table.length - 1);
+            IndexedNode<I> previous = null;
+            for (IndexedNode<I> current = head(table, index); current != null; previous = current, current = current.nextInBucket)
+            {
+                if (!matches(current, node.identifier, node.hash))
+                    continue;
+                node.nextInBucket = current.nextInBucket;
+                if (previous == null)
+                    table[index] = node;
+                else
+                    previous.nextInBucket = node;
+                current.nextInBucket = null;
+                return current;
+            }
+            link(node);
+            return null;
+        }
+
+        private IndexedNode<I> remove(Object id, int hash)
+        {
+            var index = hash & (table.length - 1);
+            IndexedNode<I> previous = null;
+            for (IndexedNode<I> current = head(table, index); current != null; previous = current, current = current.nextInBucket)
+            {
+                if (!matches(current, id, hash))
+                    continue;
+                if (previous == null)
+                    table[index] = current.nextInBucket;
+                else
+                    previous.nextInBucket = current.nextInBucket;
+                current.nextInBucket = null;
+                size--;
+                return current;
+            }
+            return null;
+        }
+
+        private boolean unlink(IndexedNode<?> node)
+        {
+            var index = node.hash & (table.length - 1);
+            IndexedNode<I> previous = null;
+            for (IndexedNode<I> current = head(table, index); current != null; previous = current, current = current.nextInBucket)
+            {
+                if (current != node)
+                    continue;
+                if (previous == null)
+                    table[index] = current.nextInBucket;
+                else
+                    previous.nextInBucket = current.nextInBucket;
+                current.nextInBucket = null;
+                size--;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         *  Переносит вершины другого сегмента, их идентификаторов здесь нет
+         */
+        private void moveFrom(Segment<I> other)
+        {
+            for (int i = 0; i < other.table.length; i++)
+                for (IndexedNode<I> node = head(other.table, i); node != null;)
+                {
+                    var next = node.nextInBucket;
+                    link(node);
+                    node = next;
+                }
+            other.table = new IndexedNode<?>[16];
+            other.size = 0;
+        }
+
+        private void link(IndexedNode<I> node)
+        {
+            var index = node.hash & (table.length - 1);
+            node.nextInBucket = head(table, index);
+            table[index] = node;
+            if (++size > table.length - (table.length >>> 2) && table.length < 1 << 30)
+                resize();
+        }
+
+        private void resize()
+        {
+            var old = table;
+            table = new IndexedNode<?>[old.length * 2];
+            for (int i = 0; i < old.length; i++)
+                for (IndexedNode<I> node = head(old, i); node != null;)
+                {
+                    var next = node.nextInBucket;
+                    var index = node.hash & (table.length - 1);
+                    node.nextInBucket = head(table, index);
+                    table[index] = node;
+                    node = next;
+                }
+        }
+    }
+
+    /**
+     *  Последовательный обход вершин всех сегментов
+     */
+    private static final class NodeIterator<I, N> implements Iterator<N>
+    {
+        private final ArrayList<Segment<I>> segments;
+        private int segment = 0;
+        private IndexedNode<?>[] table;
+        private int bucket = 0;
+        private IndexedNode<I> next;
+
+        private NodeIterator(ArrayList<Segment<I>> segments)
+        {
+            this.segments = segments;
+        }
+
+        public boolean hasNext()
+        {
+            while (next == null)
+            {
+                if (table != null && bucket < table.length)
+                    next = head(table, bucket++);
+                else if (segment < segments.size())
+                {
+                    table = segments.get(segment++).table;
+                    bucket = 0;
+                }
+                else
+                    return false;
+            }
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        public N next()
+        {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            var node = next;
+            next = node.nextInBucket;
+            return (N)node;
+        }
+    }
+
+    /**
+     *  Обход сегментов [segment, segmentEnd). Когда остается один сегмент, он разбивается по диапазонам корзин
+     */
+    private static final class NodeSpliterator<I, N> implements Spliterator<N>
+    {
+        private final ArrayList<Segment<I>> segments;
+        private int segment;
+        private int segmentEnd;
+        // Текущий сегмент, число вершин в нем и диапазон его корзин [bucket, bucketEnd)
+        private IndexedNode<?>[] table;
+        private int tableSize;
+        private int bucket;
+        private int bucketEnd;
+        private IndexedNode<I> chain;
+
+        private NodeSpliterator(ArrayList<Segment<I>> segments, int segment, int segmentEnd)
+        {
+            this.segments = segments;
+            this.segment = segment;
+            this.segmentEnd = segmentEnd;
+        }
+
+        private NodeSpliterator(IndexedNode<?>[] table, int tableSize, int bucket, int bucketEnd)
+        {
+            this(null, 0, 0);
+            this.table = table;
+            this.tableSize = tableSize;
+            this.bucket = bucket;
+            this.bucketEnd = bucketEnd;
+        }
+
+        private void nextSegment()
+        {
+            var next = segments.get(segment++);
+            table = next.table;
+            tableSize = next.size;
+            bucket = 0;
+            bucketEnd = table.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super N> action)
+        {
+            while (chain == null)
+            {
+                if (table != null && bucket < bucketEnd)
+                    chain = head(table, bucket++);
+                else if (segment < segmentEnd)
+                    nextSegment();
+                else
+                    return false;
+            }
+            var node = chain;
+            chain = node.nextInBucket;
+            action.accept((N)node);
+            return true;
+        }
+
+        public Spliterator<N> trySplit()
+        {
+            if (table == null && segmentEnd - segment > 1)
+            {
+                var middle = (segment + segmentEnd) >>> 1;
+                var prefix = new NodeSpliterator<I, N>(segments, segment, middle);
+                segment = middle;
+                return prefix;
+            }
+            if (table == null)
+            {
+                if (segment == segmentEnd)
+                    return null;
+                nextSegment();
+            }
+            if (segment < segmentEnd)
+            {
+                // Остальные сегменты отдаются целиком, здесь остается текущий
+                var rest = new NodeSpliterator<I, N>(segments, segment, segmentEnd);
+                segmentEnd = segment;
+                return rest;
+            }
+            if (bucketEnd - bucket < 2)
+                return null;
+            var middle = (bucket + bucketEnd) >>> 1;
+            var prefix = new NodeSpliterator<I, N>(table, tableSize, bucket, middle);
+            bucket = middle;
+            return prefix;
+        }
+
+        public long estimateSize()
+        {
+            var estimate = 0L;
+            for (int i = segment; i < segmentEnd; i++)
+                estimate += segments.get(i).size;
+            // Для части сегмента - доля его размера по числу корзин
+            if (table != null)
+                estimate += (long)tableSize * (bucketEnd - bucket) / table.length;
+            return estimate;
+        }
+
+        public int characteristics()
+        {
+            return table == null ? SIZED : 0;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package ru.sfedu;
+
+/**
+ * Вершина, которая сама является записью {@link IdentifierIndex}: идентификатор, его хеш
+ * и следующая вершина в корзине. Индекс поэтому не выделяет память на вставку.
+ */
+class IndexedNode<I> {
+    I identifier;
+    int hash;
+    IndexedNode<I> nextInBucket;
+
+    IndexedNode(I identifier)
+    {
+        this.identifier = identifier;
+    }
+}
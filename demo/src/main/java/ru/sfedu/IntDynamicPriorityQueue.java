@@ -0,0 +1,690 @@
+package ru.sfedu;
+
+import java.util.Arrays;
+
+/**
+ * Вариант {@link DynamicPriorityQueue} с идентификаторами типа {@code int}.
+ * Вершины хранятся не объектами, а ячейками параллельных массивов (ключ, дети, братья, флаги),
+ * индекс идентификатор-ячейка - открытая адресация по массиву {@code int}.
+ * Освобожденные ячейки используются повторно.
+ * Ячейки могут храниться и вне кучи Java, см. {@link #offHeap(MergeStrategy, int, int)}.
+ * <p>
+ * Расход памяти на элемент: 33 байта в массивах ячеек (шесть {@code int}, флаги, ссылки на значение и функцию приоритета
+ * при сжатых указателях) и 4 байта на позицию индекса при его заполнении до 0.75.
+ * При размере, заданном в конструкторе, это меньше 40 байт; при росте массивы увеличиваются в полтора раза и имеют запас.
+ * Сами значения и функции приоритета в этот расход не входят.
+ */
+public class IntDynamicPriorityQueue<T> {
+    /**
+     * Создает пустую очередь
+     */
+    public IntDynamicPriorityQueue()
+    {
+        this(MergeStrategy.TWO_PASS);
+    }
+    /**
+     * Создает пустую очередь с указанным способом слияния детей корня при удалении
+     */
+    public IntDynamicPriorityQueue(MergeStrategy strategy)
+    {
+        this(strategy, INITIAL_CAPACITY);
+    }
+    /**
+     * Создает пустую очередь с местом под {@code capacity} элементов.
+     * При заранее известном размере массивы не растут и не имеют запаса.
+     */
+    public IntDynamicPriorityQueue(MergeStrategy strategy, int capacity)
+    {
+        this(strategy, new ArraySlotStorage(Math.max(capacity, INITIAL_CAPACITY)), capacity);
+    }
+    private IntDynamicPriorityQueue(MergeStrategy strategy, SlotStorage slots, int expectedSize)
+    {
+        this.strategy = strategy;
+        this.slots = slots;
+        // Наименьшая степень двойки, при которой expectedSize элементов заполняют индекс не больше чем на 0.75
+        index = new int[Integer.highestOneBit((int)Math.min((Math.max(expectedSize, INITIAL_CAPACITY) * 4L + 2) / 3, 1 << 30) - 1) << 1];
+        indexShift = 32 - Integer.numberOfTrailingZeros(index.length);
+    }
+
+    /**
+     * Создает пустую очередь, вершины которой хранятся вне кучи Java.
+     * Память добавляется блоками по {@code chunkSlots} ячеек (не больше 2<sup>26</sup> после округления до степени двойки),
+     * уже выделенные блоки не копируются.
+     * В куче Java остаются значения, функции приоритета и индекс идентификаторов. Индекс - единственная структура,
+     * которая при росте копируется целиком: он перехешируется в таблицу вдвое больше, поэтому при известном размере
+     * его стоит задать в {@code expectedSize}.
+     * Память блоков освобождается вместе с очередью сборщиком мусора.
+     */
+    public static <T> IntDynamicPriorityQueue<T> offHeap(MergeStrategy strategy, int chunkSlots, int expectedSize)
+    {
+        return new IntDynamicPriorityQueue<>(strategy, new OffHeapSlotStorage(chunkSlots), expectedSize);
+    }
+
+
+    /**
+     * Добавляет элемент в очередь
+     * @return {@code true} если его еще нет, иначе {@code false}
+     */
+    public boolean offer(T value, int identifier, PriorityUpdater updater) // PriorityQueue
+    {
+        if (find(identifier) >= 0)
+            return false;
+        insertNode(value, identifier, updater, updater.priority());
+        return true;
+    }
+    /**
+     * Добавляет элемент в очередь
+     * @return {@code true} если его еще нет, иначе {@code false}
+     */
+    public boolean add(T value, int identifier, PriorityUpdater updater) // AbstractQueue
+    {
+        return offer(value, identifier, updater);
+    }
+    /**
+     * Добавляет элемент в очередь, со статическим приоритетом.
+     * @return {@code true} если его еще нет, иначе {@code false}
+     */
+    public boolean offer(T value, int identifier, int priority) // PriorityQueue
+    {
+        if (find(identifier) >= 0)
+            return false;
+        insertNode(value, identifier, null, priority);
+        return true;
+    }
+    /**
+     * Добавляет элемент в очередь, со статическим приоритетом.
+     * @return {@code true} если его еще нет, иначе {@code false}
+     */
+    public boolean add(T value, int identifier, int priority) // PriorityQueue
+    {
+        return offer(value, identifier, priority);
+    }
+
+    /**
+     * Возвращает корень очереди, не удаляя его.
+     * Если очередь пуста, возвращает {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public T peek() // PriorityQueue
+    {
+        flushBuffer();
+        if (root == NIL)
+            return null;
+        return (T)slots.value(root);
+    }
+    /**
+     * Возвращает корень очереди, не удаляя его.
+     * Если очередь пуста, возвращает {@code null}
+     */
+    public T element() // AbstractQueue
+    {
+        return peek();
+    }
+
+    /**
+     * Возвращает корень очереди и удаляет его.
+     * Если очередь пуста, возвращает {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public T poll() // PriorityQueue
+    {
+        flushBuffer();
+        if (root == NIL)
+            return null;
+        var slot = root;
+        var res = (T)slots.value(slot);
+        root = consolidate(detachChildren(slot));
+        release(slot);
+        return res;
+    }
+    /**
+     * Возвращает корень очереди и удаляет его.
+     * Если очередь пуста, возвращает {@code null}
+     */
+    public T remove() // AbstractQueue
+    {
+        return poll();
+    }
+
+    /**
+     * Удаляет элемент из очереди.
+     * @return {@code true} если он был, иначе {@code false}
+     */
+    public boolean remove(int identifier)
+    {
+        var position = find(identifier);
+        if (position < 0)
+            return false;
+        flushBuffer();
+        var slot = index[position] - 1;
+        if (slot == root)
+        {
+            poll();
+            return true;
+        }
+        cut(slot);
+        root = meld(root, consolidate(detachChildren(slot)));
+        release(slot);
+        return true;
+    }
+
+    /**
+     * Упостушает очередь полностью
+     */
+    public void clear()
+    {
+        root = NIL;
+        buffer = NIL;
+        size = 0;
+        used = 0;
+        freeList = NIL;
+        slots.clearReferences();
+        Arrays.fill(index, 0);
+    }
+
+    /**
+     * Проверяет, ести ли в очереди элемент с идентификатором.
+     * @return {@code true} если он был, иначе {@code false}
+     */
+    public boolean contains(int identifier)
+    {
+        return find(identifier) >= 0;
+    }
+
+    /**
+     * Возвращает объем памяти вне кучи Java, занятый вершинами, в байтах.
+     * Для очереди в куче Java это 0.
+     */
+    public long offHeapBytes()
+    {
+        return slots.offHeapBytes();
+    }
+
+    /**
+     * Возвращает количество элементов в очереди.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Проверяет, пуста ли очередь.
+     * @return {@code true} если в очереди нет элементов, иначе {@code false}
+     */
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * Обновляет приоритет определенного значения.
+     * @return {@code true} если в очереди он есть, иначе {@code false}
+     */
+    public boolean update(int identifier)
+    {
+        var position = find(identifier);
+        if (position < 0)
+            return false;
+        var slot = index[position] - 1;
+        if (slots.updater(slot) == null)
+            return true;
+        flushBuffer();
+        var newKey = slots.updater(slot).priority();
+        if (newKey < slots.key(slot))
+            decreaseKey(slot, newKey);
+        else if (newKey > slots.key(slot))
+            increaseKey(slot, newKey);
+        return true;
+    }
+
+    /**
+     * Обновляет приоритет всех значений.
+     * Вершины, приоритет которых не изменился, остаются на месте;
+     * изменившиеся вырезаются и сливаются с кучей одной многопроходной партией.
+     */
+    public void updateAll()
+    {
+        flushBuffer();
+        var batch = NIL;
+        for (int slot = 0; slot < used; slot++)
+        {
+            // Свободные ячейки и статические приоритеты не имеют функции
+            var updater = slots.updater(slot);
+            if (updater == null)
+                continue;
+            var newKey = updater.priority();
+            if (newKey < slots.key(slot))
+            {
+                slots.setKey(slot, newKey);
+                if (slots.prev(slot) != NIL)
+                {
+                    cut(slot);
+                    slots.setNext(slot, batch);
+                    batch = slot;
+                }
+            }
+            else if (newKey > slots.key(slot))
+            {
+                slots.setKey(slot, newKey);
+                if (slots.leftChild(slot) == NIL)
+                    continue;
+                if (slots.prev(slot) == NIL)
+                    batch = prepend(detachChildren(slot), batch);
+                else
+                {
+                    spliceOut(slot);
+                    slots.setNext(slot, batch);
+                    batch = slot;
+                }
+            }
+        }
+        if (batch != NIL)
+            root = meld(root, multipass(batch));
+    }
+
+    private static final int NIL = -1;
+    private static final int LEFTMOST = 1;
+    private static final int RIGHTMOST = 2;
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Ячейки вершин
+    private final SlotStorage slots;
+    // Индекс: номер ячейки + 1, 0 - пустая позиция
+    private int[] index;
+    private int indexShift;
+
+    private int root = NIL;
+    // Буфер вставки для MergeStrategy.FRONT_TO_BACK: список корней, связанных через next
+    private int buffer = NIL;
+    private int size = 0;
+    // Ячейки с номером не меньше used ни разу не выдавались
+    private int used = 0;
+    // Список освобожденных ячеек, связанных через next
+    private int freeList = NIL;
+    private final MergeStrategy strategy;
+
+    // Вспомогательные методы
+
+    /**
+     *  Хэш Фибоначчи, старшие биты произведения
+     */
+    private int hash(int identifier)
+    {
+        return (identifier * 0x9E3779B9) >>> indexShift;
+    }
+
+    /**
+     *  Позиция идентификатора в индексе или -1
+     */
+    private int find(int identifier)
+    {
+        var mask = index.length - 1;
+        for (int i = hash(identifier);; i = (i + 1) & mask)
+        {
+            var entry = index[i];
+            if (entry == 0)
+                return -1;
+            if (slots.id(entry - 1) == identifier)
+                return i;
+        }
+    }
+
+    private void indexInsert(int slot)
+    {
+        if ((size + 1) * 4 > index.length * 3)
+            rehash(index.length * 2);
+        var mask = index.length - 1;
+        var i = hash(slots.id(slot));
+        while (index[i] != 0)
+            i = (i + 1) & mask;
+        index[i] = slot + 1;
+    }
+
+    /**
+     *  Удаление из индекса со сдвигом следующих записей назад, без пометок удаления
+     */
+    private void indexRemove(int position)
+    {
+        var mask = index.length - 1;
+        var gap = position;
+        for (int i = (position + 1) & mask;; i = (i + 1) & mask)
+        {
+            var entry = index[i];
+            if (entry == 0)
+                break;
+            var home = hash(slots.id(entry - 1));
+            // Запись можно сдвинуть в пропуск, если ее исходная позиция не лежит между пропуском и ней
+            if (((i - home) & mask) >= ((i - gap) & mask))
+            {
+                index[gap] = entry;
+                gap = i;
+            }
+        }
+        index[gap] = 0;
+    }
+
+    private void rehash(int length)
+    {
+        var old = index;
+        index = new int[length];
+        indexShift = 32 - Integer.numberOfTrailingZeros(length);
+        var mask = length - 1;
+        for (var entry : old)
+        {
+            if (entry == 0)
+                continue;
+            var i = hash(slots.id(entry - 1));
+            while (index[i] != 0)
+                i = (i + 1) & mask;
+            index[i] = entry;
+        }
+    }
+
+    private int allocateSlot()
+    {
+        if (freeList != NIL)
+        {
+            var slot = freeList;
+            freeList = slots.next(slot);
+            return slot;
+        }
+        if (used == slots.capacity())
+            slots.grow();
+        return used++;
+    }
+
+    private void release(int slot)
+    {
+        indexRemove(find(slots.id(slot)));
+        slots.setValue(slot, null);
+        slots.setUpdater(slot, null);
+        slots.setNext(slot, freeList);
+        freeList = slot;
+        size--;
+    }
+
+    /**
+     *  Слияние деревьев
+     */
+    private int meld(int elem1, int elem2)
+    {
+        if (elem1 == NIL)
+            return elem2;
+        if (elem2 == NIL)
+            return elem1;
+        if (slots.key(elem2) < slots.key(elem1))
+        {
+            var temp = elem1;
+            elem1 = elem2;
+            elem2 = temp;
+        }
+        var first = slots.leftChild(elem1);
+        if (first != NIL)
+        {
+            slots.setNext(elem2, first);
+            slots.setPrev(first, elem2);
+            slots.setFlags(first, slots.flags(first) & ~LEFTMOST);
+            slots.setFlags(elem2, LEFTMOST);
+        }
+        else
+        {
+            slots.setRightChild(elem1, elem2);
+            slots.setNext(elem2, elem1);
+            slots.setFlags(elem2, LEFTMOST | RIGHTMOST);
+        }
+        slots.setPrev(elem2, elem1);
+        slots.setLeftChild(elem1, elem2);
+        return elem1;
+    }
+
+    /**
+     *  Отсоединяет детей вершины.
+     *  Возвращает список корней, связанных через next и заканчивающийся NIL
+     */
+    private int detachChildren(int parent)
+    {
+        var first = slots.leftChild(parent);
+        for (int node = first; node != NIL;)
+        {
+            var following = (slots.flags(node) & RIGHTMOST) != 0 ? NIL : slots.next(node);
+            slots.setPrev(node, NIL);
+            slots.setNext(node, following);
+            slots.setFlags(node, LEFTMOST | RIGHTMOST);
+            node = following;
+        }
+        slots.setLeftChild(parent, NIL);
+        slots.setRightChild(parent, NIL);
+        return first;
+    }
+
+    /**
+     *  Присоединяет список корней перед другим списком
+     */
+    private int prepend(int list, int other)
+    {
+        var tail = list;
+        while (slots.next(tail) != NIL)
+            tail = slots.next(tail);
+        slots.setNext(tail, other);
+        return list;
+    }
+
+    /**
+     *  Слияние списка корней в одно дерево выбранным способом
+     */
+    private int consolidate(int list)
+    {
+        if (list == NIL)
+            return NIL;
+        switch (strategy)
+        {
+            case MULTIPASS:
+                return multipass(list);
+            case FRONT_TO_BACK:
+                return frontToBack(list);
+            default:
+                return twoPass(list);
+        }
+    }
+
+    private int twoPass(int list)
+    {
+        var stack = NIL;
+        var node = list;
+        while (node != NIL)
+        {
+            var second = slots.next(node);
+            if (second == NIL)
+            {
+                slots.setNext(node, stack);
+                stack = node;
+                break;
+            }
+            var rest = slots.next(second);
+            slots.setNext(node, NIL);
+            slots.setNext(second, NIL);
+            var pair = meld(node, second);
+            slots.setNext(pair, stack);
+            stack = pair;
+            node = rest;
+        }
+        var result = stack;
+        stack = slots.next(stack);
+        slots.setNext(result, NIL);
+        while (stack != NIL)
+        {
+            var tree = stack;
+            stack = slots.next(tree);
+            slots.setNext(tree, NIL);
+            result = meld(tree, result);
+        }
+        return result;
+    }
+
+    private int multipass(int list)
+    {
+        var head = list;
+        var tail = list;
+        while (slots.next(tail) != NIL)
+            tail = slots.next(tail);
+        while (head != tail)
+        {
+            var first = head;
+            var second = slots.next(first);
+            head = slots.next(second);
+            slots.setNext(first, NIL);
+            slots.setNext(second, NIL);
+            var pair = meld(first, second);
+            if (head == NIL)
+                return pair;
+            slots.setNext(tail, pair);
+            tail = pair;
+        }
+        return head;
+    }
+
+    private int frontToBack(int list)
+    {
+        var result = list;
+        var node = slots.next(list);
+        slots.setNext(result, NIL);
+        while (node != NIL)
+        {
+            var following = slots.next(node);
+            slots.setNext(node, NIL);
+            result = meld(result, node);
+            node = following;
+        }
+        return result;
+    }
+
+    private void flushBuffer()
+    {
+        if (buffer == NIL)
+            return;
+        root = meld(root, multipass(buffer));
+        buffer = NIL;
+    }
+
+    /**
+     *  Вырезает вершину вместе с поддеревом из списка братьев
+     */
+    private void cut(int node)
+    {
+        var leftmost = (slots.flags(node) & LEFTMOST) != 0;
+        var rightmost = (slots.flags(node) & RIGHTMOST) != 0;
+        var before = slots.prev(node);
+        var after = slots.next(node);
+        if (!leftmost && !rightmost)
+        {
+            slots.setNext(before, after);
+            slots.setPrev(after, before);
+        }
+        else if (!leftmost)
+        {
+            slots.setNext(before, after);
+            slots.setFlags(before, slots.flags(before) | RIGHTMOST);
+            slots.setRightChild(after, before);
+        }
+        else if (!rightmost)
+        {
+            slots.setPrev(after, before);
+            slots.setFlags(after, slots.flags(after) | LEFTMOST);
+            slots.setLeftChild(before, after);
+        }
+        else
+        {
+            slots.setLeftChild(before, NIL);
+            slots.setRightChild(after, NIL);
+        }
+        slots.setPrev(node, NIL);
+        slots.setNext(node, NIL);
+        slots.setFlags(node, LEFTMOST | RIGHTMOST);
+    }
+
+    /**
+     *  Вырезает вершину, ставя ее детей на ее место в списке братьев
+     */
+    private void spliceOut(int node)
+    {
+        var first = slots.leftChild(node);
+        var last = slots.rightChild(node);
+        var before = slots.prev(node);
+        var after = slots.next(node);
+        slots.setPrev(first, before);
+        slots.setNext(last, after);
+        if ((slots.flags(node) & LEFTMOST) != 0)
+            slots.setLeftChild(before, first);
+        else
+        {
+            slots.setFlags(first, slots.flags(first) & ~LEFTMOST);
+            slots.setNext(before, first);
+        }
+        if ((slots.flags(node) & RIGHTMOST) != 0)
+            slots.setRightChild(after, last);
+        else
+        {
+            slots.setFlags(last, slots.flags(last) & ~RIGHTMOST);
+            slots.setPrev(after, last);
+        }
+        slots.setPrev(node, NIL);
+        slots.setNext(node, NIL);
+        slots.setLeftChild(node, NIL);
+        slots.setRightChild(node, NIL);
+        slots.setFlags(node, LEFTMOST | RIGHTMOST);
+    }
+
+    private void decreaseKey(int node, int newKey)
+    {
+        slots.setKey(node, newKey);
+        if (node == root)
+            return;
+        cut(node);
+        root = meld(root, node);
+    }
+
+    private void increaseKey(int node, int newKey)
+    {
+        slots.setKey(node, newKey);
+        if (slots.leftChild(node) == NIL)
+            return;
+        if (node == root)
+        {
+            // Корень остается той же ячейкой, его дети сливаются без него
+            root = meld(node, consolidate(detachChildren(node)));
+            return;
+        }
+        spliceOut(node);
+        root = meld(node, root);
+    }
+
+    private int insertNode(T value, int identifier, PriorityUpdater updater, int key)
+    {
+        var slot = allocateSlot();
+        slots.setKey(slot, key);
+        slots.setLeftChild(slot, NIL);
+        slots.setRightChild(slot, NIL);
+        slots.setNext(slot, NIL);
+        slots.setPrev(slot, NIL);
+        slots.setFlags(slot, LEFTMOST | RIGHTMOST);
+        slots.setId(slot, identifier);
+        slots.setValue(slot, value);
+        slots.setUpdater(slot, updater);
+        indexInsert(slot);
+        size++;
+        if (strategy == MergeStrategy.FRONT_TO_BACK)
+        {
+            slots.setNext(slot, buffer);
+            buffer = slot;
+        }
+        else
+            root = meld(slot, root);
+        return slot;
+    }
+
+    public String toString()
+    {
+        flushBuffer();
+        return String.format("head: %s, size: %d", root == NIL ? null : String.format("v: %s, k: %d", slots.value(root), slots.key(root)), size);
+    }
+}
@@ -0,0 +1,494 @@
+package ru.sfedu;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.NoSuchElementException;
+
+/**
+ * Кинетическая очередь приоритета: приоритет элемента линейно зависит от времени, {@code base - rate * time}.
+ * Корнем очереди считается элемент с наименьшим приоритетом в текущий момент {@link #now()}.
+ * <p>
+ * Для каждой пары родитель-ребенок спаривающей кучи хранится сертификат - момент, когда ребенок обгонит родителя.
+ * Сертификаты лежат в отдельной двоичной куче событий. {@link #advanceTo(double)} обрабатывает только наступившие события:
+ * обогнавший родителя ребенок вырезается вместе с поддеревом и сливается с корнем. Поэтому ход времени стоит
+ * пропорционально числу нарушенных пар, а не числу элементов, и функции приоритета не вызываются вовсе.
+ * Каждое слияние ставит новый сертификат, так что извлечение корня дороже, чем в {@link DynamicPriorityQueue},
+ * в логарифм раз.
+ * <p>
+ * При равных приоритетах раньше идет элемент с большей скоростью {@code rate}: он будет меньше сразу после текущего момента.
+ * Элемент не может быть добавлен в очередь, если он уже находится в ней.
+ */
+public class KineticPriorityQueue<T, I> {
+    /**
+     * Создает пустую очередь с моментом времени 0
+     */
+    public KineticPriorityQueue()
+    {
+        this(0);
+    }
+    /**
+     * Создает пустую очередь с указанным начальным моментом времени
+     */
+    public KineticPriorityQueue(double startTime)
+    {
+        checkFinite(startTime, "Время");
+        now = startTime;
+    }
+
+
+    /**
+     * Добавляет элемент с приоритетом {@code base - rate * time}
+     * @return {@code true} если его еще нет, иначе {@code false}
+     */
+    public boolean offer(T value, I identifier, double base, double rate) // PriorityQueue
+    {
+        checkFinite(base, "Приоритет");
+        checkFinite(rate, "Скорость");
+        if (elements.containsKey(identifier))
+            return false;
+        var node = new Node(value, identifier, base, rate);
+        elements.put(identifier, node);
+        root = meld(root, node);
+        return true;
+    }
+    /**
+     * Добавляет элемент с приоритетом {@code base - rate * time}
+     * @return {@code true} если его еще нет, иначе {@code false}
+     */
+    public boolean add(T value, I identifier, double base, double rate) // AbstractQueue
+    {
+        return offer(value, identifier, base, rate);
+    }
+
+    /**
+     * Возвращает корень очереди, не удаляя его.
+     * Если очередь пуста, возвращает {@code null}
+     */
+    public T peek() // PriorityQueue
+    {
+        return root == null ? null : root.value;
+    }
+    /**
+     * Возвращает корень очереди, не удаляя его.
+     * Если очередь пуста, возвращает {@code null}
+     */
+    public T element() // AbstractQueue
+    {
+        return peek();
+    }
+    /**
+     * Возвращает приоритет корня в текущий момент.
+     * @throws NoSuchElementException если очередь пуста
+     */
+    public double peekPriority()
+    {
+        if (root == null)
+            throw new NoSuchElementException();
+        return root.valueAt(now);
+    }
+
+    /**
+     * Возвращает корень очереди и удаляет его.
+     * Если очередь пуста, возвращает {@code null}
+     */
+    public T poll() // PriorityQueue
+    {
+        if (root == null)
+            return null;
+        var res = root.value;
+        elements.remove(root.identifier);
+        root = twoPass(detachChildren(root));
+        return res;
+    }
+    /**
+     * Возвращает корень очереди и удаляет его.
+     * Если очередь пуста, возвращает {@code null}
+     */
+    public T remove() // AbstractQueue
+    {
+        return poll();
+    }
+
+    /**
+     * Удаляет элемент из очереди.
+     * @return {@code true} если он был, иначе {@code false}
+     */
+    public boolean remove(Object o)
+    {
+        var node = elements.remove(o);
+        if (node == null)
+            return false;
+        unlink(node);
+        return true;
+    }
+
+    /**
+     * Задает элементу новую линейную функцию приоритета.
+     * @return {@code true} если в очереди он есть, иначе {@code false}
+     */
+    public boolean update(Object o, double base, double rate)
+    {
+        checkFinite(base, "Приоритет");
+        checkFinite(rate, "Скорость");
+        var node = elements.get(o);
+        if (node == null)
+            return false;
+        unlink(node);
+        node.base = base;
+        node.rate = rate;
+        root = meld(root, node);
+        return true;
+    }
+
+    /**
+     * Переводит очередь в момент {@code time}, исправляя пары, порядок которых изменился.
+     * @throws IllegalArgumentException если {@code time} раньше текущего момента
+     */
+    public void advanceTo(double time)
+    {
+        checkFinite(time, "Время");
+        if (time < now)
+            throw new IllegalArgumentException("Время не может идти назад: " + time + " < " + now);
+        while (eventCount > 0 && events[0].failTime <= time)
+        {
+            var child = events[0];
+            now = Math.max(now, child.failTime);
+            if (before(child, child.parent))
+            {
+                repairs++;
+                cut(child);
+                root = meld(root, child);
+            }
+            else
+                // Момент был вычислен с округлением, и ребенок еще не обогнал родителя
+                schedule(child);
+        }
+        now = time;
+    }
+
+    /**
+     * Возвращает текущий момент времени.
+     */
+    public double now()
+    {
+        return now;
+    }
+
+    /**
+     * Возвращает количество пар, исправленных при ходе времени.
+     */
+    public long repairs()
+    {
+        return repairs;
+    }
+
+    /**
+     * Упостушает очередь полностью
+     */
+    public void clear()
+    {
+        root = null;
+        for (var node : elements.values())
+        {
+            node.parent = null;
+            node.leftChild = null;
+            node.nextNode = null;
+            node.prevNode = null;
+            node.eventIndex = -1;
+        }
+        elements.clear();
+        Arrays.fill(events, 0, eventCount, null);
+        eventCount = 0;
+    }
+
+    /**
+     * Проверяет, ести ли в очереди объект.
+     * @return {@code true} если он был, иначе {@code false}
+     */
+    public boolean contains(Object o)
+    {
+        return elements.containsKey(o);
+    }
+
+    /**
+     * Возвращает количество элементов в очереди.
+     */
+    public int size() {
+        return elements.size();
+    }
+
+    /**
+     * Проверяет, пуста ли очередь.
+     * @return {@code true} если в очереди нет элементов, иначе {@code false}
+     */
+    public boolean isEmpty()
+    {
+        return root == null;
+    }
+
+    private class Node
+    {
+        private T value;
+        private I identifier;
+        private double base;
+        private double rate;
+        private Node parent;
+        private Node leftChild;
+        // Братья, список заканчивается null с обеих сторон
+        private Node nextNode;
+        private Node prevNode;
+        // Момент нарушения порядка с родителем и позиция в куче событий, -1 если сертификата нет
+        private double failTime;
+        private int eventIndex = -1;
+        public Node(T value, I identifier, double base, double rate)
+        {
+            this.value = value;
+            this.identifier = identifier;
+            this.base = base;
+            this.rate = rate;
+        }
+        private double valueAt(double time)
+        {
+            return base - rate * time;
+        }
+        public String toString()
+        {
+            return String.format("v: %s, base: %s, rate: %s", value, base, rate);
+        }
+    }
+    private final HashMap<I, Node> elements = new HashMap<>();
+    private Node root = null;
+    private double now;
+    private long repairs = 0;
+    // Двоичная куча сертификатов по failTime
+    @SuppressWarnings("unchecked")
+    private Node[] events = (Node[])new KineticPriorityQueue<?, ?>.Node[16];
+    private int eventCount = 0;
+
+    // Вспомогательные методы
+
+    private static void checkFinite(double number, String name)
+    {
+        if (!Double.isFinite(number))
+            throw new IllegalArgumentException(name + " должно быть конечным числом: " + number);
+    }
+
+    /**
+     *  Идет ли первая вершина строго раньше второй в текущий момент
+     */
+    private boolean before(Node first, Node second)
+    {
+        var firstValue = first.valueAt(now);
+        var secondValue = second.valueAt(now);
+        return firstValue < secondValue || (firstValue == secondValue && first.rate > second.rate);
+    }
+
+    /**
+     *  Слияние деревьев, ребенок получает сертификат
+     */
+    private Node meld(Node elem1, Node elem2)
+    {
+        if (elem1 == null)
+            return elem2;
+        if (elem2 == null)
+            return elem1;
+        if (before(elem2, elem1))
+        {
+            var temp = elem1;
+            elem1 = elem2;
+            elem2 = temp;
+        }
+        elem2.parent = elem1;
+        elem2.prevNode = null;
+        elem2.nextNode = elem1.leftChild;
+        if (elem1.leftChild != null)
+            elem1.leftChild.prevNode = elem2;
+        elem1.leftChild = elem2;
+        schedule(elem2);
+        return elem1;
+    }
+
+    /**
+     *  Отсоединяет детей вершины вместе с их сертификатами.
+     *  Возвращает список корней, связанных через nextNode и заканчивающийся null
+     */
+    private Node detachChildren(Node node)
+    {
+        var first = node.leftChild;
+        for (var child = first; child != null; child = child.nextNode)
+        {
+            child.parent = null;
+            child.prevNode = null;
+            unschedule(child);
+        }
+        node.leftChild = null;
+        return first;
+    }
+
+    /**
+     *  Вырезает вершину вместе с поддеревом
+     */
+    private void cut(Node node)
+    {
+        if (node.prevNode != null)
+            node.prevNode.nextNode = node.nextNode;
+        else
+            node.parent.leftChild = node.nextNode;
+        if (node.nextNode != null)
+            node.nextNode.prevNode = node.prevNode;
+        node.parent = null;
+        node.prevNode = null;
+        node.nextNode = null;
+        unschedule(node);
+    }
+
+    /**
+     *  Убирает вершину из кучи, ее дети сливаются с корнем
+     */
+    private void unlink(Node node)
+    {
+        if (node == root)
+        {
+            root = twoPass(detachChildren(node));
+            return;
+        }
+        cut(node);
+        root = meld(root, twoPass(detachChildren(node)));
+    }
+
+    /**
+     *  Слияние деревьев парами слева направо, затем результатов справа налево
+     */
+    private Node twoPass(Node list)
+    {
+        if (list == null)
+            return null;
+        Node stack = null;
+        var node = list;
+        while (node != null)
+        {
+            var second = node.nextNode;
+            if (second == null)
+            {
+                node.nextNode = stack;
+                stack = node;
+                break;
+            }
+            var rest = second.nextNode;
+            node.nextNode = null;
+            second.nextNode = null;
+            var pair = meld(node, second);
+            pair.nextNode = stack;
+            stack = pair;
+            node = rest;
+        }
+        var result = stack;
+        stack = stack.nextNode;
+        result.nextNode = null;
+        while (stack != null)
+        {
+            var tree = stack;
+            stack = tree.nextNode;
+            tree.nextNode = null;
+            result = meld(tree, result);
+        }
+        return result;
+    }
+
+    /**
+     *  Вычисляет момент, когда вершина обгонит родителя, и ставит сертификат в кучу событий
+     */
+    private void schedule(Node child)
+    {
+        var parent = child.parent;
+        double failTime;
+        if (before(child, parent))
+            failTime = now;
+        // Родитель уменьшается не медленнее ребенка и не будет обогнан
+        else if (parent.rate >= child.rate)
+            failTime = Double.POSITIVE_INFINITY;
+        else
+        {
+            failTime = (child.base - parent.base) / (child.rate - parent.rate);
+            // Округление не должно вернуть событие в прошлое
+            if (!(failTime > now))
+                failTime = Math.nextUp(now);
+        }
+        if (failTime == Double.POSITIVE_INFINITY)
+        {
+            unschedule(child);
+            return;
+        }
+        child.failTime = failTime;
+        if (child.eventIndex < 0)
+        {
+            if (eventCount == events.length)
+                events = Arrays.copyOf(events, eventCount * 2);
+            child.eventIndex = eventCount;
+            events[eventCount++] = child;
+        }
+        siftDown(siftUp(child.eventIndex));
+    }
+
+    private void unschedule(Node node)
+    {
+        var index = node.eventIndex;
+        if (index < 0)
+            return;
+        node.eventIndex = -1;
+        var last = events[--eventCount];
+        events[eventCount] = null;
+        if (last == node)
+            return;
+        events[index] = last;
+        last.eventIndex = index;
+        siftDown(siftUp(index));
+    }
+
+    /**
+     *  Поднимает событие в куче, возвращает его новую позицию
+     */
+    private int siftUp(int index)
+    {
+        var node = events[index];
+        while (index > 0)
+        {
+            var parentIndex = (index - 1) >>> 1;
+            var parent = events[parentIndex];
+            if (parent.failTime <= node.failTime)
+                break;
+            events[index] = parent;
+            parent.eventIndex = index;
+            index = parentIndex;
+        }
+        events[index] = node;
+        node.eventIndex = index;
+        return index;
+    }
+
+    private void siftDown(int index)
+    {
+        var node = events[index];
+        while (true)
+        {
+            var childIndex = 2 * index + 1;
+            if (childIndex >= eventCount)
+                break;
+            if (childIndex + 1 < eventCount && events[childIndex + 1].failTime < events[childIndex].failTime)
+                childIndex++;
+            var child = events[childIndex];
+            if (node.failTime <= child.failTime)
+                break;
+            events[index] = child;
+            child.eventIndex = index;
+            index = childIndex;
+        }
+        events[index] = node;
+        node.eventIndex = index;
+    }
+
+    public String toString()
+    {
+        return String.format("now: %s, head: %s, elements: %s", now, root, elements);
+    }
+}
@@ -0,0 +1,86 @@
+package ru.sfedu;
+
+/**
+ * Гистограмма задержек в наносекундах с логарифмически-линейными корзинами, как в HdrHistogram.
+ * Значения меньше {@code 2 * }{@value #SUB_BUCKETS} хранятся точно, каждая следующая степень двойки делится на
+ * {@value #SUB_BUCKETS} равных корзин, поэтому относительная ошибка процентиля не больше 1/{@value #SUB_BUCKETS}.
+ * Запись - O(1) без выделения памяти, весь диапазон {@code long} помещается в 3776 счетчиков.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count = 0;
+    private long total = 0;
+    private long max = 0;
+
+    /**
+     * Записывает значение, отрицательные считаются нулем
+     */
+    public void record(long value)
+    {
+        if (value < 0)
+            value = 0;
+        counts[index(value)]++;
+        count++;
+        total += value;
+        if (value > max)
+            max = value;
+    }
+
+    public long count()
+    {
+        return count;
+    }
+
+    public long max()
+    {
+        return max;
+    }
+
+    public double mean()
+    {
+        return count == 0 ? 0 : (double)total / count;
+    }
+
+    /**
+     * Возвращает значение, не меньше которого {@code percentile} процентов записей: верхнюю границу
+     * корзины, но не больше наибольшего записанного значения. Для пустой гистограммы - 0.
+     */
+    public long percentile(double percentile)
+    {
+        if (percentile < 0 || percentile > 100)
+            throw new IllegalArgumentException("Процентиль вне диапазона 0..100: " + percentile);
+        if (count == 0)
+            return 0;
+        var rank = Math.max(1, (long)Math.ceil(percentile / 100 * count));
+        var seen = 0L;
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            seen += counts[i];
+            if (seen >= rank)
+                return Math.min(max, highest(i));
+        }
+        return max;
+    }
+
+    private static int index(long value)
+    {
+        if (value < 2 * SUB_BUCKETS)
+            return (int)value;
+        // Сдвиг, после которого в значении остается SUB_BITS + 1 значащих бит
+        var shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int)(value >>> shift) - SUB_BUCKETS;
+    }
+
+    private static long highest(int index)
+    {
+        if (index < 2 * SUB_BUCKETS)
+            return index;
+        var shift = index / SUB_BUCKETS - 1;
+        var lowest = (long)(index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
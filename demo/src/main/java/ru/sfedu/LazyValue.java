@@ -0,0 +1,45 @@
+package ru.sfedu;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Значение, восстановленное из снимка без разбора: байты остаются в отображенном файле
+ * и разбираются при первом обращении к значению.
+ */
+final class LazyValue {
+    private final ByteBuffer window;
+    private final int offset;
+    private final int length;
+    private final SnapshotCodec<?> codec;
+
+    LazyValue(ByteBuffer window, int offset, int length, SnapshotCodec<?> codec)
+    {
+        this.window = window;
+        this.offset = offset;
+        this.length = length;
+        this.codec = codec;
+    }
+
+    Object decode()
+    {
+        return codec.read(bytes());
+    }
+
+    /**
+     *  Байты значения, если они записаны тем же представлением, иначе null
+     */
+    ByteBuffer bytes(SnapshotCodec<?> other)
+    {
+        return codec == other ? bytes() : null;
+    }
+
+    private ByteBuffer bytes()
+    {
+        return window.slice(offset, length);
+    }
+
+    public String toString()
+    {
+        return String.valueOf(decode());
+    }
+}
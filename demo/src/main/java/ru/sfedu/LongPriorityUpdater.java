@@ -0,0 +1,15 @@
+package ru.sfedu;
+
+/**
+ * Представитель приоритета типа {@code long}, функциональный интерфейс.
+ * Для правильной работы, функция должна возвращать одно и то же число, если вызвана несколько раз подряд.
+ * Единственная функция: {@link #priority()}.
+ * Практически эквивалентно {@linkplain java.util.function.LongSupplier LongSupplier}.
+ */
+@FunctionalInterface
+public interface LongPriorityUpdater {
+    /**
+     * Предоставление приоритета
+     */
+    long priority();
+}
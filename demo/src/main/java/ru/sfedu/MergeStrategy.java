@@ -0,0 +1,21 @@
+package ru.sfedu;
+
+/**
+ * Способ слияния детей удаляемого корня в {@link DynamicPriorityQueue}.
+ * Все способы итеративные и не выделяют память, глубина стека не зависит от числа детей.
+ */
+public enum MergeStrategy {
+    /**
+     * Классический двухпроходный: соседние пары сливаются слева направо, затем результаты сливаются справа налево.
+     */
+    TWO_PASS,
+    /**
+     * Многопроходный: деревья сливаются парами по очереди, пока не останется одно.
+     */
+    MULTIPASS,
+    /**
+     * Однопроходный слева направо, со вспомогательным буфером вставки.
+     * Новые элементы копятся в буфере и сливаются многопроходно с кучей при следующем обращении к корню.
+     */
+    FRONT_TO_BACK
+}
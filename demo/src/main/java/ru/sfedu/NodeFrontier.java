@@ -0,0 +1,83 @@
+package ru.sfedu;
+
+import java.util.Arrays;
+
+/**
+ * Двоичная куча вершин по ключу для обхода очереди в порядке приоритета.
+ * В ней лежат вершины, предки которых уже пройдены, а сами они - еще нет.
+ */
+final class NodeFrontier<I> {
+    private Object[] heap = new Object[16];
+    private int size = 0;
+
+    boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    void push(HeapNode<I> node)
+    {
+        if (size == heap.length)
+            heap = Arrays.copyOf(heap, size * 2);
+        var index = size++;
+        while (index > 0)
+        {
+            var parentIndex = (index - 1) >>> 1;
+            var parent = node(parentIndex);
+            if (parent.key <= node.key)
+                break;
+            heap[index] = parent;
+            index = parentIndex;
+        }
+        heap[index] = node;
+    }
+
+    HeapNode<I> pop()
+    {
+        var res = node(0);
+        var last = node(--size);
+        heap[size] = null;
+        if (size > 0)
+        {
+            var index = 0;
+            while (true)
+            {
+                var childIndex = 2 * index + 1;
+                if (childIndex >= size)
+                    break;
+                if (childIndex + 1 < size && node(childIndex + 1).key < node(childIndex).key)
+                    childIndex++;
+                var child = node(childIndex);
+                if (last.key <= child.key)
+                    break;
+                heap[index] = child;
+                index = childIndex;
+            }
+            heap[index] = last;
+        }
+        return res;
+    }
+
+    /**
+     *  Забирает оставшиеся вершины списком, связанным через nextNode
+     */
+    HeapNode<I> drain()
+    {
+        HeapNode<I> list = null;
+        for (int i = 0; i < size; i++)
+        {
+            var node = node(i);
+            node.nextNode = list;
+            list = node;
+            heap[i] = null;
+        }
+        size = 0;
+        return list;
+    }
+
+    @SuppressWarnings("unchecked")
+    private HeapNode<I> node(int index)
+    {
+        return (HeapNode<I>)heap[index];
+    }
+}
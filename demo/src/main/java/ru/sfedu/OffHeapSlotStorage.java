@@ -0,0 +1,180 @@
+package ru.sfedu;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Ячейки вне кучи Java, в прямых {@link ByteBuffer} фиксированного размера.
+ * Память добавляется блоками, уже выделенные блоки никогда не копируются.
+ * В куче Java остаются только таблица блоков и блоки ссылок на значения и функции приоритета.
+ */
+class OffHeapSlotStorage extends SlotStorage {
+    /**
+     * Размер ячейки в байтах: шесть {@code int} и флаги, с выравниванием до 4 байт
+     */
+    static final int SLOT_BYTES = 28;
+    private static final int KEY = 0;
+    private static final int LEFT_CHILD = 4;
+    private static final int RIGHT_CHILD = 8;
+    private static final int NEXT = 12;
+    private static final int PREV = 16;
+    private static final int ID = 20;
+    private static final int FLAGS = 24;
+
+    /**
+     * @param chunkSlots количество ячеек в блоке, округляется вверх до степени двойки;
+     *                   округленный блок должен помещаться в один {@link ByteBuffer}
+     */
+    OffHeapSlotStorage(int chunkSlots)
+    {
+        if (chunkSlots <= 0)
+            throw new IllegalArgumentException("Недопустимый размер блока: " + chunkSlots);
+        chunkShift = 32 - Integer.numberOfLeadingZeros(chunkSlots - 1);
+        // Проверяется уже округленный размер: 76M ячеек округляются до 2^27 и не помещаются в буфер
+        if ((1L << chunkShift) * SLOT_BYTES > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Блок из " + chunkSlots + " ячеек, округленный до " + (1L << chunkShift)
+                    + ", не помещается в буфер: " + (1L << chunkShift) * SLOT_BYTES + " байт");
+        chunkMask = (1 << chunkShift) - 1;
+        grow();
+    }
+
+    private final int chunkShift;
+    private final int chunkMask;
+    private ByteBuffer[] chunks = new ByteBuffer[0];
+    private Object[][] values = new Object[0][];
+    private PriorityUpdater[][] updaters = new PriorityUpdater[0][];
+
+    long capacity()
+    {
+        return (long)chunks.length << chunkShift;
+    }
+
+    void grow()
+    {
+        // Номер ячейки - int, блок, выходящий за его пределы, не выделяется
+        if (capacity() + (1L << chunkShift) > Integer.MAX_VALUE)
+            throw new IllegalStateException("Исчерпаны номера ячеек: " + capacity());
+        var count = chunks.length;
+        // Копируется только таблица ссылок на блоки
+        chunks = Arrays.copyOf(chunks, count + 1);
+        values = Arrays.copyOf(values, count + 1);
+        updaters = Arrays.copyOf(updaters, count + 1);
+        chunks[count] = ByteBuffer.allocateDirect(SLOT_BYTES << chunkShift).order(ByteOrder.nativeOrder());
+        values[count] = new Object[1 << chunkShift];
+        updaters[count] = new PriorityUpdater[1 << chunkShift];
+    }
+
+    long offHeapBytes()
+    {
+        return capacity() * SLOT_BYTES;
+    }
+
+    private int getInt(int slot, int field)
+    {
+        return chunks[slot >>> chunkShift].getInt((slot & chunkMask) * SLOT_BYTES + field);
+    }
+
+    private void putInt(int slot, int field, int value)
+    {
+        chunks[slot >>> chunkShift].putInt((slot & chunkMask) * SLOT_BYTES + field, value);
+    }
+
+    int key(int slot)
+    {
+        return getInt(slot, KEY);
+    }
+
+    void setKey(int slot, int value)
+    {
+        putInt(slot, KEY, value);
+    }
+
+    int leftChild(int slot)
+    {
+        return getInt(slot, LEFT_CHILD);
+    }
+
+    void setLeftChild(int slot, int value)
+    {
+        putInt(slot, LEFT_CHILD, value);
+    }
+
+    int rightChild(int slot)
+    {
+        return getInt(slot, RIGHT_CHILD);
+    }
+
+    void setRightChild(int slot, int value)
+    {
+        putInt(slot, RIGHT_CHILD, value);
+    }
+
+    int next(int slot)
+    {
+        return getInt(slot, NEXT);
+    }
+
+    void setNext(int slot, int value)
+    {
+        putInt(slot, NEXT, value);
+    }
+
+    int prev(int slot)
+    {
+        return getInt(slot, PREV);
+    }
+
+    void setPrev(int slot, int value)
+    {
+        putInt(slot, PREV, value);
+    }
+
+    int id(int slot)
+    {
+        return getInt(slot, ID);
+    }
+
+    void setId(int slot, int value)
+    {
+        putInt(slot, ID, value);
+    }
+
+    int flags(int slot)
+    {
+        return chunks[slot >>> chunkShift].get((slot & chunkMask) * SLOT_BYTES + FLAGS);
+    }
+
+    void setFlags(int slot, int value)
+    {
+        chunks[slot >>> chunkShift].put((slot & chunkMask) * SLOT_BYTES + FLAGS, (byte)value);
+    }
+
+    Object value(int slot)
+    {
+        return values[slot >>> chunkShift][slot & chunkMask];
+    }
+
+    void setValue(int slot, Object value)
+    {
+        values[slot >>> chunkShift][slot & chunkMask] = value;
+    }
+
+    PriorityUpdater updater(int slot)
+    {
+        return updaters[slot >>> chunkShift][slot & chunkMask];
+    }
+
+    void setUpdater(int slot, PriorityUpdater updater)
+    {
+        updaters[slot >>> chunkShift][slot & chunkMask] = updater;
+    }
+
+    void clearReferences()
+    {
+        for (var chunk : values)
+            Arrays.fill(chunk, null);
+        for (var chunk : updaters)
+            Arrays.fill(chunk, null);
+    }
+}
@@ -0,0 +1,17 @@
+package ru.sfedu;
+
+/**
+ * Что делать с новым элементом, когда в очереди уже {@linkplain DynamicPriorityQueue#setCapacity(int, OverflowPolicy, java.util.function.Consumer) наибольшее число элементов}.
+ * Элемент, не попавший в очередь или вытесненный из нее, передается обработчику переполнения, если он задан.
+ */
+public enum OverflowPolicy {
+    /**
+     * Не добавлять новый элемент, {@code offer()} возвращает {@code false}.
+     */
+    REJECT,
+    /**
+     * Вытеснить элемент с наибольшим приоритетом, как при {@link DynamicPriorityQueue#remove(Object)}.
+     * Если приоритет нового элемента не меньше наибольшего, не добавляется он сам.
+     */
+    EVICT_WORST
+}
@@ -0,0 +1,443 @@
+package ru.sfedu;
+
+import java.util.function.Consumer;
+
+/**
+ * Спаривающаяся куча, см. {@link HeapBackend#PAIRING}.
+ * Дети вершины - двусвязный список от {@code leftChild} до {@code rightChild}: {@code prevNode} - предыдущий брат
+ * или родитель у самого левого, {@code nextNode} - следующий брат или родитель у самого правого.
+ * Списки корней (буфер вставки, партия пересчета) связаны через {@code nextNode} и заканчиваются {@code null}.
+ */
+final class PairingEngine<I> implements HeapEngine<I> {
+    private HeapNode<I> root = null;
+    // Буфер вставки для MergeStrategy.FRONT_TO_BACK
+    private HeapNode<I> buffer = null;
+    // Деревья, вырезанные пересчетом, до слияния с корнем
+    private HeapNode<I> pending = null;
+    private final MergeStrategy strategy;
+    private final QueueMetrics metrics;
+
+    PairingEngine(MergeStrategy strategy, QueueMetrics metrics)
+    {
+        this.strategy = strategy;
+        this.metrics = metrics;
+    }
+
+    public String name()
+    {
+        return strategy.name();
+    }
+
+    public boolean isEmpty()
+    {
+        return root == null && buffer == null;
+    }
+
+    public HeapNode<I> min()
+    {
+        return root;
+    }
+
+    public void flush()
+    {
+        if (buffer != null)
+        {
+            root = meld(root, multipass(buffer));
+            buffer = null;
+        }
+        if (pending != null)
+        {
+            root = meld(root, multipass(pending));
+            pending = null;
+        }
+    }
+
+    public void insert(HeapNode<I> node)
+    {
+        if (strategy == MergeStrategy.FRONT_TO_BACK)
+        {
+            node.nextNode = buffer;
+            buffer = node;
+        }
+        else
+            root = meld(node, root);
+    }
+
+    public void insertAll(HeapNode<I> list)
+    {
+        flush();
+        // Многопроходное слияние одиночных вершин делает n - 1 слияние и дает сбалансированное дерево
+        root = meld(root, multipass(list));
+    }
+
+    public HeapNode<I> removeMin()
+    {
+        var node = root;
+        root = consolidate(detachChildren(node));
+        return node;
+    }
+
+    public void remove(HeapNode<I> node)
+    {
+        if (node == root)
+        {
+            removeMin();
+            return;
+        }
+        // Вершина вырезается напрямую, без ключа меньше всех остальных: у long такого ключа нет
+        cut(node);
+        root = meld(root, consolidate(detachChildren(node)));
+    }
+
+    public void decreaseKey(HeapNode<I> node, long newKey)
+    {
+        node.key = newKey;
+        if (node == root)
+            return;
+        cut(node);
+        root = meld(root, node);
+    }
+
+    public void increaseKey(HeapNode<I> node, long newKey)
+    {
+        if (node == root)
+        {
+            // Дети корня сливаются, как при удалении, а сам корень с новым ключом сливается с ними без новой вершины
+            if (QueueMetrics.ENABLED)
+                metrics.rootReinserts++;
+            node.key = newKey;
+            root = meld(node, consolidate(detachChildren(node)));
+            return;
+        }
+        node.key = newKey;
+        if (node.leftChild == null)
+            return;
+        spliceOut(node);
+        root = meld(node, root);
+    }
+
+    /**
+     * Присваивает вершине новый ключ, не сливая ее с корнем. Вырезанные деревья копятся до {@link #flush()}
+     * и сливаются одной многопроходной партией
+     */
+    public void rekey(HeapNode<I> node, long newKey)
+    {
+        if (newKey < node.key)
+        {
+            node.key = newKey;
+            // Корень и деревья партии не имеют родителя, их поддерево остается упорядоченным
+            if (node.prevNode != null)
+            {
+                cut(node);
+                node.nextNode = pending;
+                pending = node;
+            }
+        }
+        else if (newKey > node.key)
+        {
+            node.key = newKey;
+            if (node.leftChild == null)
+                return;
+            if (node.prevNode == null)
+                pending = prepend(detachChildren(node), pending);
+            else
+            {
+                spliceOut(node);
+                node.nextNode = pending;
+                pending = node;
+            }
+        }
+    }
+
+    public void absorb(HeapEngine<I> other)
+    {
+        var pairing = (PairingEngine<I>)other;
+        flush();
+        pairing.flush();
+        root = meld(root, pairing.root);
+        pairing.root = null;
+    }
+
+    public void clear()
+    {
+        root = null;
+        buffer = null;
+        pending = null;
+    }
+
+    public int children(HeapNode<I> node)
+    {
+        var count = 0;
+        for (var child = node.leftChild; child != null; child = child.rightmost ? null : child.nextNode)
+            count++;
+        return count;
+    }
+
+    public void forEachRoot(Consumer<HeapNode<I>> action)
+    {
+        if (root != null)
+            action.accept(root);
+    }
+
+    public void forEachSuccessor(HeapNode<I> node, Consumer<HeapNode<I>> action)
+    {
+        // Дети сливаются в одно дерево, как при removeMin(), но остаются под вершиной. После серии вставок
+        // у корня почти все вершины кучи, а так обход передает одну. Состав поддерева вершины не меняется,
+        // а у пройденных вершин остается не больше одного ребенка, поэтому начатые обходы не ломаются
+        if (node.leftChild == null)
+            return;
+        if (!node.leftChild.rightmost)
+            meld(node, consolidate(detachChildren(node)));
+        action.accept(node.leftChild);
+    }
+
+    /**
+     * Корень кучи, для записи снимка в форме дерева
+     */
+    HeapNode<I> root()
+    {
+        return root;
+    }
+
+    /**
+     * Заменяет кучу деревом, построенным из снимка
+     */
+    void restore(HeapNode<I> tree)
+    {
+        clear();
+        root = tree;
+    }
+
+    /**
+     *  Слияние деревьев
+     */
+    private HeapNode<I> meld(HeapNode<I> elem1, HeapNode<I> elem2)
+    {
+        // Если одно пустое, возвращаем другое
+        if (elem1 == null)
+            return elem2;
+        if (elem2 == null)
+            return elem1;
+        if (QueueMetrics.ENABLED)
+            metrics.melds++;
+        // Иначе, добавляем более крупное как элемент меньшего
+        if (elem2.key < elem1.key)
+        {
+            var temp = elem1;
+            elem1 = elem2;
+            elem2 = temp;
+        }
+        if (elem1.leftChild != null)
+        {
+            elem2.nextNode = elem1.leftChild;
+            elem2.nextNode.prevNode = elem2;
+            elem2.nextNode.leftmost = false;
+            elem2.rightmost = false;
+        }
+        else
+        {
+            elem1.rightChild = elem2;
+            elem2.nextNode = elem1;
+            elem2.rightmost = true;
+        }
+        elem2.prevNode = elem1;
+        elem1.leftChild = elem2;
+        elem2.leftmost = true;
+        return elem1;
+    }
+
+    /**
+     *  Отсоединяет детей вершины.
+     *  Возвращает список корней, связанных через nextNode и заканчивающийся null
+     */
+    private HeapNode<I> detachChildren(HeapNode<I> parent)
+    {
+        var first = parent.leftChild;
+        for (var node = first; node != null;)
+        {
+            HeapNode<I> next = node.rightmost ? null : node.nextNode;
+            node.prevNode = null;
+            node.nextNode = next;
+            node.leftmost = true;
+            node.rightmost = true;
+            node = next;
+        }
+        parent.leftChild = null;
+        parent.rightChild = null;
+        return first;
+    }
+
+    /**
+     *  Присоединяет список корней перед другим списком
+     */
+    private HeapNode<I> prepend(HeapNode<I> list, HeapNode<I> other)
+    {
+        var tail = list;
+        while (tail.nextNode != null)
+            tail = tail.nextNode;
+        tail.nextNode = other;
+        return list;
+    }
+
+    /**
+     *  Слияние списка корней в одно дерево выбранным способом
+     */
+    private HeapNode<I> consolidate(HeapNode<I> list)
+    {
+        if (list == null)
+            return null;
+        switch (strategy)
+        {
+            case MULTIPASS:
+                return multipass(list);
+            case FRONT_TO_BACK:
+                return frontToBack(list);
+            default:
+                return twoPass(list);
+        }
+    }
+
+    /**
+     *  Слияние деревьев парами слева направо, затем результатов справа налево
+     */
+    private HeapNode<I> twoPass(HeapNode<I> list)
+    {
+        // Первый проход, результаты складываются в стек через nextNode
+        HeapNode<I> stack = null;
+        var node = list;
+        while (node != null)
+        {
+            var second = node.nextNode;
+            if (second == null)
+            {
+                node.nextNode = stack;
+                stack = node;
+                break;
+            }
+            var rest = second.nextNode;
+            node.nextNode = null;
+            second.nextNode = null;
+            var pair = meld(node, second);
+            pair.nextNode = stack;
+            stack = pair;
+            node = rest;
+        }
+        // Второй проход, стек снимается начиная с самой правой пары
+        var result = stack;
+        stack = stack.nextNode;
+        result.nextNode = null;
+        while (stack != null)
+        {
+            var tree = stack;
+            stack = tree.nextNode;
+            tree.nextNode = null;
+            result = meld(tree, result);
+        }
+        return result;
+    }
+
+    /**
+     *  Слияние деревьев парами по кругу, пока не останется одно
+     */
+    private HeapNode<I> multipass(HeapNode<I> list)
+    {
+        var head = list;
+        var tail = list;
+        while (tail.nextNode != null)
+            tail = tail.nextNode;
+        while (head != tail)
+        {
+            var first = head;
+            var second = first.nextNode;
+            head = second.nextNode;
+            first.nextNode = null;
+            second.nextNode = null;
+            var pair = meld(first, second);
+            if (head == null)
+                return pair;
+            tail.nextNode = pair;
+            tail = pair;
+        }
+        return head;
+    }
+
+    /**
+     *  Последовательное слияние деревьев слева направо
+     */
+    private HeapNode<I> frontToBack(HeapNode<I> list)
+    {
+        var result = list;
+        var node = list.nextNode;
+        result.nextNode = null;
+        while (node != null)
+        {
+            var next = node.nextNode;
+            node.nextNode = null;
+            result = meld(result, node);
+            node = next;
+        }
+        return result;
+    }
+
+    /**
+     *  Вырезает вершину вместе с поддеревом из списка братьев
+     */
+    private void cut(HeapNode<I> node)
+    {
+        if (!node.leftmost && !node.rightmost)
+        {
+            node.prevNode.nextNode = node.nextNode;
+            node.nextNode.prevNode = node.prevNode;
+        }
+        else if (!node.leftmost)
+        {
+            node.prevNode.nextNode = node.nextNode;
+            node.prevNode.rightmost = true;
+            node.nextNode.rightChild = node.prevNode;
+        }
+        else if (!node.rightmost)
+        {
+            node.nextNode.prevNode = node.prevNode;
+            node.nextNode.leftmost = true;
+            node.prevNode.leftChild = node.nextNode;
+        }
+        else
+        {
+            node.prevNode.leftChild = null;
+            node.nextNode.rightChild = null;
+        }
+        node.prevNode = null;
+        node.nextNode = null;
+        node.leftmost = true;
+        node.rightmost = true;
+    }
+
+    /**
+     *  Вырезает вершину, ставя ее детей на ее место в списке братьев
+     */
+    private void spliceOut(HeapNode<I> node)
+    {
+        node.leftChild.prevNode = node.prevNode;
+        node.rightChild.nextNode = node.nextNode;
+        if (node.leftmost)
+            node.prevNode.leftChild = node.leftChild;
+        else
+        {
+            node.leftChild.leftmost = false;
+            node.prevNode.nextNode = node.leftChild;
+            node.leftmost = true;
+        }
+        if (node.rightmost)
+            node.nextNode.rightChild = node.rightChild;
+        else
+        {
+            node.rightChild.rightmost = false;
+            node.nextNode.prevNode = node.rightChild;
+            node.rightmost = true;
+        }
+        node.prevNode = null;
+        node.nextNode = null;
+        node.leftChild = null;
+        node.rightChild = null;
+    }
+}
@@ -0,0 +1,29 @@
+package ru.sfedu;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Событие JFR о долгом извлечении корня, пишется при включенных {@link QueueMetrics}
+ */
+@Name("ru.sfedu.Poll")
+@Label("Queue Poll")
+@Category("Dynamic Priority Queue")
+@Description("Извлечение корня, длительность которого превысила порог")
+@Threshold("1 ms")
+@StackTrace(false)
+class PollEvent extends jdk.jfr.Event {
+    @Label("Children")
+    @Description("Количество детей корня, слитых при извлечении")
+    int children;
+
+    @Label("Size")
+    int size;
+
+    @Label("Strategy")
+    String strategy;
+}
@@ -0,0 +1,17 @@
+package ru.sfedu;
+
+/**
+ * Способ извлечения корня из {@link ShardedDynamicPriorityQueue}.
+ */
+public enum PollMode {
+    /**
+     * Сравниваются корни двух случайных шардов, извлекается лучший из них.
+     * Блокируется только один шард, но извлеченный элемент может быть не наименьшим в очереди.
+     */
+    RELAXED,
+    /**
+     * Блокируются все шарды по порядку, извлекается наименьший корень.
+     * Результат совпадает с однопоточной очередью, но извлечения выполняются по одному.
+     */
+    EXACT
+}
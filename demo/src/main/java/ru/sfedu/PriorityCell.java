@@ -0,0 +1,109 @@
+package ru.sfedu;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Изменяемый приоритет, который сам оповещает очередь об изменении.
+ * После добавления в {@link DynamicPriorityQueue} каждое {@link #set(int)} кладет ячейку во входящий ящик очереди;
+ * очередь разбирает ящик при следующей операции с корнем и пересчитывает только вершину этой ячейки,
+ * без {@link DynamicPriorityQueue#update(Object)} и {@link DynamicPriorityQueue#updateAll()}.
+ * <p>
+ * {@link #set(int)} можно вызывать из любого потока, ящик не использует блокировок.
+ * Ячейка принадлежит не больше чем одному элементу одной очереди одновременно.
+ */
+public class PriorityCell implements PriorityUpdater {
+    /**
+     * Создает ячейку с начальным приоритетом
+     */
+    public PriorityCell(int priority)
+    {
+        this.value = priority;
+    }
+
+    /**
+     * Предоставление приоритета
+     */
+    public int priority()
+    {
+        return value;
+    }
+
+    /**
+     * Возвращает текущий приоритет
+     */
+    public int get()
+    {
+        return value;
+    }
+
+    /**
+     * Меняет приоритет и оповещает очередь, в которой находится ячейка
+     */
+    public void set(int priority)
+    {
+        value = priority;
+        var target = inbox;
+        // Ячейка, уже лежащая в ящике, будет прочитана с новым значением
+        if (target != null && QUEUED.compareAndSet(this, 0, 1))
+            target.push(this);
+    }
+
+    /**
+     * Проверяет, находится ли ячейка в очереди
+     */
+    public boolean isAttached()
+    {
+        return inbox != null;
+    }
+
+    public String toString()
+    {
+        return Integer.toString(value);
+    }
+
+    private static final AtomicIntegerFieldUpdater<PriorityCell> QUEUED = AtomicIntegerFieldUpdater.newUpdater(PriorityCell.class, "queued");
+    private volatile int value;
+    private volatile PriorityInbox inbox;
+    private volatile int queued;
+    // Вершина очереди; читается и пишется только потоком, работающим с очередью
+    private Object node;
+    // Следующая ячейка в ящике
+    PriorityCell nextInInbox;
+
+    void attach(PriorityInbox inbox, Object node)
+    {
+        if (this.inbox != null)
+            throw new IllegalArgumentException("Ячейка приоритета уже находится в очереди");
+        this.node = node;
+        this.inbox = inbox;
+    }
+
+    void detach()
+    {
+        inbox = null;
+        node = null;
+    }
+
+    /**
+     * Снимает отметку о нахождении в ящике {@code from} и возвращает вершину,
+     * или {@code null} если ячейка уже не в очереди этого ящика
+     */
+    Object take(PriorityInbox from)
+    {
+        var current = inbox;
+        // Ячейка поглощенной очереди остается привязанной к ее ящику, который пересылает оповещения
+        if (current != null)
+            current = current.resolve();
+        if (current != from)
+        {
+            // Ячейка перешла в другую очередь, пока лежала в ящике прежней, оповещение передается новой
+            if (current != null)
+                current.push(this);
+            else
+                queued = 0;
+            return null;
+        }
+        queued = 0;
+        return node;
+    }
+}
@@ -0,0 +1,72 @@
+package ru.sfedu;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Входящий ящик оповещений {@link PriorityCell} - стек Трайбера без блокировок.
+ * Класть может любой поток, разбирает поток, работающий с очередью.
+ * Ящик поглощенной очереди {@linkplain #forwardTo(PriorityInbox) пересылает} оповещения ящику принявшей.
+ */
+class PriorityInbox {
+    private final AtomicReference<PriorityCell> head = new AtomicReference<>();
+    private volatile PriorityInbox forward;
+
+    void push(PriorityCell cell)
+    {
+        PriorityCell current;
+        do {
+            current = head.get();
+            cell.nextInInbox = current;
+        } while (!head.compareAndSet(current, cell));
+        // Положившего до пересылки, но после ее разбора, подбирает он сам
+        if (forward != null)
+            forwardPending();
+    }
+
+    /**
+     * Перенаправляет этот ящик и все оповещения в нем в {@code target}.
+     * Вызывается потоком, работающим с очередью этого ящика
+     */
+    void forwardTo(PriorityInbox target)
+    {
+        forward = target;
+        forwardPending();
+    }
+
+    /**
+     * Ящик, в который в итоге попадают оповещения этого
+     */
+    PriorityInbox resolve()
+    {
+        var inbox = this;
+        while (inbox.forward != null)
+            inbox = inbox.forward;
+        return inbox;
+    }
+
+    private void forwardPending()
+    {
+        for (var cell = head.getAndSet(null); cell != null;)
+        {
+            var next = cell.nextInInbox;
+            forward.push(cell);
+            cell = next;
+        }
+    }
+
+    /**
+     * Проверяет, есть ли оповещения, без блокировок и записи
+     */
+    boolean isEmpty()
+    {
+        return head.get() == null;
+    }
+
+    /**
+     * Забирает все оповещения разом, возвращает их список, связанный через {@code nextInInbox}
+     */
+    PriorityCell drain()
+    {
+        return head.getAndSet(null);
+    }
+}
@@ -0,0 +1,25 @@
+package ru.sfedu;
+
+/**
+ * Преобразование приоритетов {@code double} в ключи {@code long} с тем же порядком.
+ * Порядок совпадает с {@link Double#compare(double, double)}: {@code -0.0} меньше {@code 0.0},
+ * все {@code NaN} равны между собой и больше положительной бесконечности.
+ */
+final class PriorityKeys {
+    private PriorityKeys()
+    {
+    }
+
+    static long fromDouble(double priority)
+    {
+        // doubleToLongBits приводит все NaN к одному значению
+        var bits = Double.doubleToLongBits(priority);
+        // У отрицательных чисел биты, кроме знакового, инвертируются: чем больше модуль, тем меньше ключ
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    static double toDouble(long key)
+    {
+        return Double.longBitsToDouble(key ^ ((key >> 63) & Long.MAX_VALUE));
+    }
+}
@@ -0,0 +1,23 @@
+package ru.sfedu;
+
+/**
+ * Дескриптор элемента {@link DynamicPriorityQueue}, возвращаемый {@link DynamicPriorityQueue#offerHandle}.
+ * Указывает прямо на вершину элемента, поэтому {@link DynamicPriorityQueue#update(QueueHandle)} и
+ * {@link DynamicPriorityQueue#remove(QueueHandle)} не ищут идентификатор. Вместе с вершиной хранится номер ее поколения:
+ * после извлечения, удаления, вытеснения или очистки дескриптор становится недействительным, даже если вершина
+ * из пула досталась другому элементу. Дескрипторы очереди, поглощенной другой, недействительны в обеих.
+ */
+public final class QueueHandle<T> {
+    final DynamicPriorityQueue<T, ?> queue;
+    final int epoch;
+    final HeapNode<?> node;
+    final int generation;
+
+    QueueHandle(DynamicPriorityQueue<T, ?> queue, int epoch, HeapNode<?> node)
+    {
+        this.queue = queue;
+        this.epoch = epoch;
+        this.node = node;
+        this.generation = node.generation;
+    }
+}
@@ -0,0 +1,513 @@
+package ru.sfedu;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.zip.CRC32C;
+
+/**
+ * Журнал изменений для {@link DynamicPriorityQueue}.
+ * Подключенная очередь после каждого изменения дописывает в журнал запись: вставку (идентификатор, ключ, значение),
+ * извлечение, удаление, новый ключ или очистку. Записи нумеруются подряд; номер последней попадает в
+ * {@linkplain DynamicPriorityQueue#snapshot(Path, SnapshotCodec, SnapshotCodec) снимок}, поэтому после сбоя очередь
+ * восстанавливается из последнего снимка и воспроизводит только более поздние записи, см. {@link #recover(DynamicPriorityQueue, Function)}.
+ * <p>
+ * Записи копятся в буфере и сбрасываются на диск группами: {@code fsync} выполняется, когда несброшенных байт
+ * набирается {@code syncBytes} или самой старой несброшенной записи исполняется {@code syncIntervalNanos}.
+ * Время проверяется при добавлении записи, поэтому последняя группа простаивающей очереди сбрасывается
+ * при следующей записи, {@link #commit()} или {@link #close()}.
+ * Журнал делится на сегменты не длиннее {@code segmentBytes}; сегменты, целиком отраженные в снимке,
+ * удаляются {@link #discard(long)}.
+ * <p>
+ * Добавление записи не выделяет память, если этого не делают представления значений и идентификаторов.
+ * Запись добавляется, когда изменение очереди уже выполнено. Если добавить ее не удалось, исключение (ошибки ввода-вывода -
+ * как {@link UncheckedIOException}) выбрасывается из изменившей очередь операции, а журнал останавливается: в нем нет
+ * этого изменения, поэтому следующие изменения очереди и {@link #commit()} отвергаются до {@link #close()} и нового
+ * {@link #recover}. На диске остается начало истории изменений, которое воспроизводится без пропусков.
+ * Функции приоритета в журнал не пишутся: записывается новый ключ, а функция получается по идентификатору при воспроизведении.
+ */
+public class QueueJournal<T, I> implements Closeable {
+    /**
+     * Создает журнал в каталоге с сегментами по 64 МБ и групповым сбросом каждый мегабайт или 10 мс
+     */
+    public QueueJournal(Path directory, SnapshotCodec<T> values, SnapshotCodec<I> identifiers)
+    {
+        this(directory, values, identifiers, 64L << 20, 1 << 20, 10_000_000L);
+    }
+    /**
+     * Создает журнал в каталоге.
+     * {@code syncBytes} равное 0 означает сброс после каждой записи;
+     * {@link Long#MAX_VALUE} в обоих порогах - сброс только при смене сегмента, {@link #commit()} и {@link #close()}.
+     */
+    public QueueJournal(Path directory, SnapshotCodec<T> values, SnapshotCodec<I> identifiers,
+                        long segmentBytes, long syncBytes, long syncIntervalNanos)
+    {
+        if (segmentBytes <= 0 || segmentBytes > MAX_SEGMENT_BYTES)
+            throw new IllegalArgumentException("Размер сегмента должен быть от 1 до " + MAX_SEGMENT_BYTES + ": " + segmentBytes);
+        if (syncBytes < 0 || syncIntervalNanos < 0)
+            throw new IllegalArgumentException("Пороги сброса не могут быть отрицательными");
+        this.directory = directory;
+        this.values = values;
+        this.identifiers = identifiers;
+        this.segmentBytes = segmentBytes;
+        this.syncBytes = syncBytes;
+        this.syncIntervalNanos = syncIntervalNanos;
+    }
+
+
+    /**
+     * Воспроизводит в очереди записи журнала, более поздние, чем ее состояние,
+     * и подключает журнал к очереди для новых записей.
+     * Очередь должна быть новой или {@linkplain DynamicPriorityQueue#restore восстановленной из снимка}.
+     * Для вставок с функцией приоритета она получается по идентификатору из {@code updaters};
+     * если та возвращает {@code null}, ключ становится статическим приоритетом.
+     * Оборванная при сбое последняя запись отбрасывается.
+     * @return количество воспроизведенных записей
+     * @throws IOException если журнал поврежден или не продолжает состояние очереди
+     */
+    public long recover(DynamicPriorityQueue<T, I> queue, Function<? super I, ? extends PriorityUpdater> updaters) throws IOException
+    {
+        if (this.queue != null)
+            throw new IllegalStateException("Журнал уже подключен к очереди");
+        // Недописанные записи остановленного журнала не продолжают восстановленное состояние
+        failure = null;
+        bufferLost = false;
+        recordStart = -1;
+        buffer.clear();
+        unsyncedBytes = 0;
+        Files.createDirectories(directory);
+        sequence = queue.sequence();
+        var replayed = 0L;
+        var segments = segments();
+        for (int i = 0; i < segments.size(); i++)
+            replayed += replay(segments.get(i), i == segments.size() - 1, queue, updaters);
+        openSegment();
+        queue.journal(this, sequence);
+        this.queue = queue;
+        return replayed;
+    }
+
+    /**
+     * Сбрасывает все записи на диск.
+     */
+    public void commit() throws IOException
+    {
+        // Записи до остановленного журнала - начало истории без пропусков, они сбрасываются, если буфер цел
+        if (channel != null && !bufferLost)
+        {
+            try {
+                drain();
+                if (unsyncedBytes > 0)
+                {
+                    channel.force(false);
+                    unsyncedBytes = 0;
+                }
+            }
+            catch (IOException | RuntimeException ex) {
+                if (failure == null)
+                    failure = ex;
+                bufferLost = true;
+                throw ex;
+            }
+        }
+        if (failure != null)
+            throw stopped();
+    }
+
+    /**
+     * Возвращает номер последней записи.
+     */
+    public long sequence()
+    {
+        return sequence;
+    }
+
+    /**
+     * Удаляет сегменты, все записи которых имеют номер не больше {@code sequence}, например уже отраженные в снимке.
+     * Текущий сегмент не удаляется.
+     */
+    public void discard(long sequence) throws IOException
+    {
+        var segments = segments();
+        for (int i = 0; i + 1 < segments.size(); i++)
+        {
+            // Последняя запись сегмента предшествует первой записи следующего
+            if (firstSequence(segments.get(i + 1)) - 1 > sequence)
+                break;
+            Files.delete(segments.get(i));
+        }
+    }
+
+    /**
+     * Сбрасывает записи на диск и отключает журнал от очереди.
+     */
+    public void close() throws IOException
+    {
+        try {
+            commit();
+        }
+        finally {
+            if (queue != null)
+                queue.journal(null, sequence);
+            queue = null;
+            if (channel != null)
+                channel.close();
+            channel = null;
+        }
+    }
+
+    // Добавление записей, вызывается очередью
+
+    /**
+     *  Отвергает изменение очереди, если журнал остановлен после ошибки записи
+     */
+    void checkWritable()
+    {
+        if (failure != null)
+            throw new UncheckedIOException(stopped());
+    }
+
+    void offer(T value, I identifier, boolean dynamic, long key)
+    {
+        checkWritable();
+        try {
+            writeOffer(value, identifier, dynamic, key);
+        }
+        catch (RuntimeException ex) {
+            fail(ex);
+            throw ex;
+        }
+    }
+
+    void poll(I identifier)
+    {
+        append(POLL, identifier, 0);
+    }
+
+    void remove(I identifier)
+    {
+        append(REMOVE, identifier, 0);
+    }
+
+    void update(I identifier, long key)
+    {
+        append(UPDATE, identifier, key);
+    }
+
+    void clear()
+    {
+        checkWritable();
+        try {
+            var start = begin(CLEAR, 0);
+            end(start);
+        }
+        catch (RuntimeException ex) {
+            fail(ex);
+            throw ex;
+        }
+    }
+
+    private void writeOffer(T value, I identifier, boolean dynamic, long key)
+    {
+        var start = begin(dynamic ? OFFER_DYNAMIC : OFFER_STATIC, key);
+        try {
+            buffer.putInt(0);
+            var idStart = buffer.position();
+            identifiers.write(identifier, buffer);
+            buffer.putInt(idStart - Integer.BYTES, buffer.position() - idStart);
+            values.write(value, buffer);
+        }
+        catch (BufferOverflowException ex) {
+            // Запись не поместилась в буфер: буфер сбрасывается или растет, и запись повторяется
+            retry(start);
+            writeOffer(value, identifier, dynamic, key);
+            return;
+        }
+        end(start);
+    }
+
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    // Длина и CRC32C записи, затем тип, номер и ключ
+    private static final int RECORD_HEADER = Integer.BYTES * 2;
+    private static final int RECORD_FIXED = 1 + Long.BYTES * 2;
+    private static final byte OFFER_STATIC = 1;
+    private static final byte OFFER_DYNAMIC = 2;
+    private static final byte POLL = 3;
+    private static final byte REMOVE = 4;
+    private static final byte UPDATE = 5;
+    private static final byte CLEAR = 6;
+
+    private final Path directory;
+    private final SnapshotCodec<T> values;
+    private final SnapshotCodec<I> identifiers;
+    private final long segmentBytes;
+    private final long syncBytes;
+    private final long syncIntervalNanos;
+    private final CRC32C crc = new CRC32C();
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+    private DynamicPriorityQueue<T, I> queue;
+    private FileChannel channel;
+    private long segmentSize;
+    private long sequence;
+    private long unsyncedBytes;
+    // Время первой несброшенной записи
+    private long unsyncedSince;
+    // Ошибка, после которой журнал не продолжается до восстановления
+    private Exception failure;
+    // Буфер испорчен неудачной записью в файл, его содержимое нельзя сбрасывать
+    private boolean bufferLost;
+    // Начало незаконченной записи в буфере или -1
+    private int recordStart = -1;
+
+    private void append(byte type, I identifier, long key)
+    {
+        checkWritable();
+        try {
+            record(type, identifier, key);
+        }
+        catch (RuntimeException ex) {
+            fail(ex);
+            throw ex;
+        }
+    }
+
+    /**
+     *  Останавливает журнал и убирает из буфера незаконченную запись
+     */
+    private void fail(RuntimeException ex)
+    {
+        if (failure == null)
+            failure = ex;
+        if (recordStart >= 0 && !bufferLost)
+            buffer.position(recordStart);
+        recordStart = -1;
+    }
+
+    private IOException stopped()
+    {
+        return new IOException("Журнал остановлен после ошибки записи, очередь нужно восстановить", failure);
+    }
+
+    private void record(byte type, I identifier, long key)
+    {
+        var start = begin(type, key);
+        try {
+            identifiers.write(identifier, buffer);
+        }
+        catch (BufferOverflowException ex) {
+            retry(start);
+            record(type, identifier, key);
+            return;
+        }
+        end(start);
+    }
+
+    /**
+     *  Начинает запись: место под длину и CRC, тип, номер и ключ. Возвращает начало записи в буфере
+     */
+    private int begin(byte type, long key)
+    {
+        if (buffer.remaining() < RECORD_HEADER + RECORD_FIXED)
+            drainUnchecked();
+        var start = buffer.position();
+        recordStart = start;
+        buffer.position(start + RECORD_HEADER);
+        buffer.put(type).putLong(sequence + 1).putLong(key);
+        return start;
+    }
+
+    /**
+     *  Заканчивает запись: заполняет длину и CRC, сбрасывает буфер по порогам
+     */
+    private void end(int start)
+    {
+        var end = buffer.position();
+        var length = end - start - RECORD_HEADER;
+        buffer.limit(end).position(start + RECORD_HEADER);
+        crc.reset();
+        crc.update(buffer);
+        buffer.limit(buffer.capacity());
+        buffer.putInt(start, length).putInt(start + Integer.BYTES, (int)crc.getValue());
+        recordStart = -1;
+        sequence++;
+        var now = System.nanoTime();
+        // Запись открывает новую группу
+        if (unsyncedBytes + start == 0)
+            unsyncedSince = now;
+        try {
+            if (unsyncedBytes + end >= syncBytes || now - unsyncedSince >= syncIntervalNanos)
+                commit();
+            if (segmentSize + buffer.position() >= segmentBytes)
+                rotate();
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     *  Откатывает начатую запись и освобождает для нее место
+     */
+    private void retry(int start)
+    {
+        buffer.position(start);
+        if (start > 0)
+            drainUnchecked();
+        else
+            buffer = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+    }
+
+    private void drainUnchecked()
+    {
+        try {
+            drain();
+        }
+        catch (IOException ex) {
+            bufferLost = true;
+            throw new UncheckedIOException(ex);
+        }
+        catch (RuntimeException ex) {
+            bufferLost = true;
+            throw ex;
+        }
+    }
+
+    /**
+     *  Записывает буфер в текущий сегмент без fsync
+     */
+    private void drain() throws IOException
+    {
+        buffer.flip();
+        var bytes = buffer.remaining();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+        segmentSize += bytes;
+        unsyncedBytes += bytes;
+    }
+
+    private void rotate() throws IOException
+    {
+        commit();
+        channel.close();
+        openSegment();
+    }
+
+    /**
+     *  Открывает новый сегмент, названный номером его первой записи
+     */
+    private void openSegment() throws IOException
+    {
+        var file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, sequence + 1, SEGMENT_SUFFIX));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        segmentSize = 0;
+    }
+
+    /**
+     *  Сегменты журнала по возрастанию номера первой записи
+     */
+    private List<Path> segments() throws IOException
+    {
+        var res = new ArrayList<Path>();
+        try (var files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (var file : files)
+                res.add(file);
+        }
+        // Номер дополнен нулями, поэтому порядок имен совпадает с порядком номеров
+        res.sort(null);
+        return res;
+    }
+
+    private static long firstSequence(Path segment)
+    {
+        var name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     *  Воспроизводит записи сегмента с номером больше текущего. Оборванный хвост последнего сегмента обрезается
+     */
+    private long replay(Path segment, boolean last, DynamicPriorityQueue<T, I> queue,
+                        Function<? super I, ? extends PriorityUpdater> updaters) throws IOException
+    {
+        var replayed = 0L;
+        try (var file = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            var data = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+            var valid = 0;
+            while (data.remaining() >= RECORD_HEADER)
+            {
+                var start = data.position();
+                var length = data.getInt();
+                var checksum = data.getInt();
+                if (length < RECORD_FIXED || length > data.remaining())
+                    break;
+                crc.reset();
+                crc.update(data.slice(start + RECORD_HEADER, length));
+                if ((int)crc.getValue() != checksum)
+                    break;
+                var type = data.get();
+                var recordSequence = data.getLong();
+                var key = data.getLong();
+                var body = data.slice(data.position(), length - RECORD_FIXED);
+                data.position(start + RECORD_HEADER + length);
+                valid = data.position();
+                if (recordSequence <= sequence)
+                    continue;
+                if (recordSequence != sequence + 1)
+                    throw new IOException("Пропуск в журнале: ожидалась запись " + (sequence + 1) + ", найдена " + recordSequence);
+                apply(type, key, body, queue, updaters);
+                sequence = recordSequence;
+                replayed++;
+            }
+            if (valid < file.size())
+            {
+                if (!last)
+                    throw new IOException("Сегмент журнала поврежден: " + segment);
+                file.truncate(valid);
+            }
+        }
+        return replayed;
+    }
+
+    private void apply(byte type, long key, ByteBuffer body, DynamicPriorityQueue<T, I> queue,
+                       Function<? super I, ? extends PriorityUpdater> updaters) throws IOException
+    {
+        if (type == CLEAR)
+        {
+            queue.clear();
+            return;
+        }
+        I identifier;
+        if (type == OFFER_STATIC || type == OFFER_DYNAMIC)
+        {
+            var idSize = body.getInt();
+            identifier = identifiers.read(body.slice(body.position(), idSize));
+            var value = values.read(body.slice(body.position() + idSize, body.remaining() - idSize));
+            PriorityUpdater updater = type == OFFER_DYNAMIC ? updaters.apply(identifier) : null;
+            if (!queue.offerKeyed(value, identifier, updater, key))
+                throw new IOException("Журнал вставляет уже имеющийся элемент: " + identifier);
+            return;
+        }
+        identifier = identifiers.read(body);
+        boolean found;
+        if (type == POLL || type == REMOVE)
+            found = queue.remove(identifier);
+        else if (type == UPDATE)
+            found = queue.setKey(identifier, key);
+        else
+            throw new IOException("Неизвестный тип записи журнала: " + type);
+        if (!found)
+            throw new IOException("Журнал ссылается на отсутствующий элемент: " + identifier);
+    }
+}
@@ -0,0 +1,220 @@
+package ru.sfedu;
+
+/**
+ * Счетчики работы {@link DynamicPriorityQueue}: слияния, дети корня при извлечении, изменения ключей и пересчеты.
+ * Включаются свойством {@code -Dru.sfedu.metrics=true} при запуске JVM. Флаг - статическая константа,
+ * поэтому в выключенном состоянии JIT убирает проверки из горячих методов, и очередь работает как без счетчиков.
+ * Вместе со счетчиками пишутся события JDK Flight Recorder {@code ru.sfedu.Poll} и {@code ru.sfedu.Sweep}
+ * для извлечений и пересчетов дольше порога события (по умолчанию 1 мс).
+ * <p>
+ * Счетчики не потокобезопасны и изменяются там же, где и очередь.
+ */
+public final class QueueMetrics {
+    static final boolean ENABLED = Boolean.getBoolean("ru.sfedu.metrics");
+
+    QueueMetrics()
+    {
+    }
+
+    /**
+     * Проверяет, включены ли метрики в этой JVM.
+     */
+    public static boolean isEnabled()
+    {
+        return ENABLED;
+    }
+
+    /**
+     * Количество слияний двух деревьев.
+     */
+    public long melds()
+    {
+        return melds;
+    }
+
+    /**
+     * Количество извлечений корня.
+     */
+    public long polls()
+    {
+        return polls;
+    }
+
+    /**
+     * Суммарное количество детей корня, слитых при извлечениях.
+     */
+    public long consolidatedChildren()
+    {
+        return consolidatedChildren;
+    }
+
+    /**
+     * Наибольшее количество детей корня, слитых при одном извлечении.
+     */
+    public long maxConsolidatedChildren()
+    {
+        return maxConsolidatedChildren;
+    }
+
+    /**
+     * Количество обновлений, уменьшивших ключ.
+     */
+    public long decreases()
+    {
+        return decreases;
+    }
+
+    /**
+     * Количество обновлений, увеличивших ключ.
+     */
+    public long increases()
+    {
+        return increases;
+    }
+
+    /**
+     * Количество обновлений, не изменивших ключ.
+     */
+    public long unchangedUpdates()
+    {
+        return unchangedUpdates;
+    }
+
+    /**
+     * Количество увеличений ключа корня, при которых дети корня сливаются, как при удалении, и корень сливается с ними заново.
+     */
+    public long rootReinserts()
+    {
+        return rootReinserts;
+    }
+
+    /**
+     * Количество пересчетов {@code updateAll()} и {@code flush()}.
+     */
+    public long sweeps()
+    {
+        return sweeps;
+    }
+
+    /**
+     * Суммарная длительность пересчетов в наносекундах.
+     */
+    public long sweepNanos()
+    {
+        return sweepNanos;
+    }
+
+    /**
+     * Наибольшая длительность одного пересчета в наносекундах.
+     */
+    public long maxSweepNanos()
+    {
+        return maxSweepNanos;
+    }
+
+    /**
+     * Обнуляет счетчики.
+     */
+    public void reset()
+    {
+        melds = 0;
+        polls = 0;
+        consolidatedChildren = 0;
+        maxConsolidatedChildren = 0;
+        decreases = 0;
+        increases = 0;
+        unchangedUpdates = 0;
+        rootReinserts = 0;
+        sweeps = 0;
+        sweepNanos = 0;
+        maxSweepNanos = 0;
+    }
+
+    // Изменяются очередью напрямую
+    long melds;
+    long rootReinserts;
+    private long decreases;
+    private long increases;
+    private long unchangedUpdates;
+    private long polls;
+    private long consolidatedChildren;
+    private long maxConsolidatedChildren;
+    private long sweeps;
+    private long sweepNanos;
+    private long maxSweepNanos;
+
+    /**
+     * Учитывает изменение ключа с {@code oldKey} на {@code newKey}
+     */
+    void updated(long oldKey, long newKey)
+    {
+        if (newKey < oldKey)
+            decreases++;
+        else if (newKey > oldKey)
+            increases++;
+        else
+            unchangedUpdates++;
+    }
+
+    /**
+     * Количество изменившихся ключей за все время, для подсчета изменений за пересчет
+     */
+    long changes()
+    {
+        return decreases + increases;
+    }
+
+    PollEvent startPoll()
+    {
+        var event = new PollEvent();
+        event.begin();
+        return event;
+    }
+
+    void endPoll(PollEvent event, int children, int size, String strategy)
+    {
+        polls++;
+        consolidatedChildren += children;
+        maxConsolidatedChildren = Math.max(maxConsolidatedChildren, children);
+        event.end();
+        if (event.shouldCommit())
+        {
+            event.children = children;
+            event.size = size;
+            event.strategy = strategy;
+            event.commit();
+        }
+    }
+
+    SweepEvent startSweep()
+    {
+        var event = new SweepEvent();
+        event.begin();
+        event.startNanos = System.nanoTime();
+        return event;
+    }
+
+    void endSweep(SweepEvent event, String kind, int size, long changed)
+    {
+        var nanos = System.nanoTime() - event.startNanos;
+        sweeps++;
+        sweepNanos += nanos;
+        maxSweepNanos = Math.max(maxSweepNanos, nanos);
+        event.end();
+        if (event.shouldCommit())
+        {
+            event.kind = kind;
+            event.size = size;
+            event.changed = changed;
+            event.commit();
+        }
+    }
+
+    public String toString()
+    {
+        return String.format("melds: %d, polls: %d, children: %d (max %d), decreases: %d, increases: %d, unchanged: %d, " +
+                        "root reinserts: %d, sweeps: %d (%d ns, max %d ns)",
+                melds, polls, consolidatedChildren, maxConsolidatedChildren, decreases, increases, unchangedUpdates,
+                rootReinserts, sweeps, sweepNanos, maxSweepNanos);
+    }
+}
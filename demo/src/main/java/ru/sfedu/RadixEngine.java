@@ -0,0 +1,219 @@
+package ru.sfedu;
+
+import java.util.function.Consumer;
+
+/**
+ * Радиксная куча для монотонных ключей, см. {@link HeapBackend#RADIX}.
+ * Вершина лежит в корзине по старшему биту, которым ее ключ отличается от {@code last} - ключа последнего найденного
+ * минимума; в корзине 0 ключи равны {@code last}. Корзины - двусвязные списки через {@code prevNode} и {@code nextNode},
+ * номер корзины хранится в {@code slot}. Когда корзина 0 пуста, минимум ищется в первой непустой корзине,
+ * и ее вершины раскладываются по младшим корзинам; каждая вершина опускается не больше 64 раз.
+ * Ключи меньше {@code last} не принимаются.
+ */
+final class RadixEngine<I> implements HeapEngine<I> {
+    private static final int BUCKETS = Long.SIZE + 1;
+
+    private final HeapNode<?>[] heads = new HeapNode<?>[BUCKETS];
+    private long last = Long.MIN_VALUE;
+    private int size = 0;
+
+    public String name()
+    {
+        return HeapBackend.RADIX.name();
+    }
+
+    public boolean accepts(long key)
+    {
+        return key >= last;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public HeapNode<I> min()
+    {
+        if (size == 0)
+            return null;
+        if (heads[0] == null)
+            redistribute();
+        return head(0);
+    }
+
+    public void flush()
+    {
+    }
+
+    public void insert(HeapNode<I> node)
+    {
+        link(node);
+        size++;
+    }
+
+    public void insertAll(HeapNode<I> list)
+    {
+        for (var node = list; node != null;)
+        {
+            var next = node.nextNode;
+            insert(node);
+            node = next;
+        }
+    }
+
+    public HeapNode<I> removeMin()
+    {
+        var node = min();
+        remove(node);
+        return node;
+    }
+
+    public void remove(HeapNode<I> node)
+    {
+        unlink(node);
+        size--;
+    }
+
+    public void decreaseKey(HeapNode<I> node, long newKey)
+    {
+        rekey(node, newKey);
+    }
+
+    public void increaseKey(HeapNode<I> node, long newKey)
+    {
+        rekey(node, newKey);
+    }
+
+    /**
+     * Переносит вершину в корзину нового ключа сразу, откладывать нечего
+     */
+    public void rekey(HeapNode<I> node, long newKey)
+    {
+        unlink(node);
+        node.key = newKey;
+        link(node);
+    }
+
+    public void absorb(HeapEngine<I> other)
+    {
+        var radix = (RadixEngine<I>)other;
+        for (int bucket = 0; bucket < BUCKETS; bucket++)
+            for (var node = radix.head(bucket); node != null;)
+            {
+                var next = node.nextNode;
+                insert(node);
+                node = next;
+            }
+        radix.clear();
+    }
+
+    /**
+     * Пустая куча снова принимает любые ключи
+     */
+    public void clear()
+    {
+        for (int bucket = 0; bucket < BUCKETS; bucket++)
+            heads[bucket] = null;
+        last = Long.MIN_VALUE;
+        size = 0;
+    }
+
+    public int children(HeapNode<I> node)
+    {
+        return 0;
+    }
+
+    /**
+     * Ключи корзины 0 равны, они передаются по одному по списку
+     */
+    public void forEachRoot(Consumer<HeapNode<I>> action)
+    {
+        var min = min();
+        if (min != null)
+            action.accept(min);
+    }
+
+    /**
+     * В корзине 0 следующая вершина - соседняя по списку, после последней передаются все вершины следующей
+     * непустой корзины. Корзины дальше не упорядочены внутри, но все их ключи больше ключей предыдущих корзин,
+     * поэтому следующая корзина передается, когда обход доходит до первой вершины текущей
+     */
+    public void forEachSuccessor(HeapNode<I> node, Consumer<HeapNode<I>> action)
+    {
+        if (node.slot == 0)
+        {
+            if (node.nextNode != null)
+            {
+                action.accept(node.nextNode);
+                return;
+            }
+        }
+        else if (node.prevNode != null)
+            return;
+        for (int bucket = node.slot + 1; bucket < BUCKETS; bucket++)
+            if (heads[bucket] != null)
+            {
+                for (var next = head(bucket); next != null; next = next.nextNode)
+                    action.accept(next);
+                return;
+            }
+    }
+
+    private int bucket(long key)
+    {
+        return key == last ? 0 : Long.SIZE - Long.numberOfLeadingZeros(key ^ last);
+    }
+
+    private void link(HeapNode<I> node)
+    {
+        var bucket = bucket(node.key);
+        var head = head(bucket);
+        node.slot = bucket;
+        node.prevNode = null;
+        node.nextNode = head;
+        if (head != null)
+            head.prevNode = node;
+        heads[bucket] = node;
+    }
+
+    private void unlink(HeapNode<I> node)
+    {
+        if (node.prevNode != null)
+            node.prevNode.nextNode = node.nextNode;
+        else
+            heads[node.slot] = node.nextNode;
+        if (node.nextNode != null)
+            node.nextNode.prevNode = node.prevNode;
+        node.prevNode = null;
+        node.nextNode = null;
+    }
+
+    /**
+     *  Делает наименьший ключ первой непустой корзины новым {@code last} и раскладывает ее вершины по младшим корзинам.
+     *  Вершины старших корзин отличаются от нового {@code last} тем же старшим битом, что и от прежнего
+     */
+    private void redistribute()
+    {
+        var bucket = 1;
+        while (heads[bucket] == null)
+            bucket++;
+        var list = head(bucket);
+        heads[bucket] = null;
+        var min = list.key;
+        for (var node = list.nextNode; node != null; node = node.nextNode)
+            min = Math.min(min, node.key);
+        last = min;
+        for (var node = list; node != null;)
+        {
+            var next = node.nextNode;
+            link(node);
+            node = next;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private HeapNode<I> head(int bucket)
+    {
+        return (HeapNode<I>)heads[bucket];
+    }
+}
@@ -0,0 +1,296 @@
+package ru.sfedu;
+
+import java.util.function.Consumer;
+
+/**
+ * Ранговая спаривающаяся куча первого типа (Haeupler, Sen, Tarjan), см. {@link HeapBackend#RANK_PAIRING}.
+ * Куча - список полудеревьев: ключ вершины не больше ключей ее левого поддерева, у корня нет правого ребенка.
+ * Ранг вершины хранится в {@code slot}, ранг отсутствующего ребенка равен -1.
+ * Корни отмечены {@code leftmost} и связаны в двусвязный список через {@code prevNode} и {@code nextNode};
+ * у остальных вершин {@code prevNode} - родитель.
+ */
+final class RankPairingEngine<I> implements HeapEngine<I> {
+    // Ранг не превосходит log по основанию золотого сечения от размера кучи
+    private static final int MAX_RANK = 64;
+
+    private HeapNode<I> roots = null;
+    private HeapNode<I> min = null;
+    // Корни по рангам при связывании, между связываниями пуст
+    private final HeapNode<?>[] buckets = new HeapNode<?>[MAX_RANK];
+
+    public String name()
+    {
+        return HeapBackend.RANK_PAIRING.name();
+    }
+
+    public boolean isEmpty()
+    {
+        return roots == null;
+    }
+
+    public HeapNode<I> min()
+    {
+        return min;
+    }
+
+    public void flush()
+    {
+    }
+
+    public void insert(HeapNode<I> node)
+    {
+        node.slot = 0;
+        addRoot(node);
+    }
+
+    public void insertAll(HeapNode<I> list)
+    {
+        for (var node = list; node != null;)
+        {
+            var next = node.nextNode;
+            insert(node);
+            node = next;
+        }
+    }
+
+    public HeapNode<I> removeMin()
+    {
+        var node = min;
+        spillChildren(node);
+        unlinkRoot(node);
+        link();
+        return node;
+    }
+
+    public void remove(HeapNode<I> node)
+    {
+        if (!node.leftmost)
+            cut(node);
+        if (node == min)
+        {
+            removeMin();
+            return;
+        }
+        spillChildren(node);
+        unlinkRoot(node);
+    }
+
+    public void decreaseKey(HeapNode<I> node, long newKey)
+    {
+        node.key = newKey;
+        if (node.leftmost)
+        {
+            if (newKey < min.key)
+                min = node;
+        }
+        else
+            cut(node);
+    }
+
+    public void increaseKey(HeapNode<I> node, long newKey)
+    {
+        var wasMin = node == min;
+        node.key = newKey;
+        if (!node.leftmost)
+            cut(node);
+        // Левое поддерево могло стать меньше вершины, его полудеревья становятся корнями
+        spillChildren(node);
+        node.slot = 0;
+        if (wasMin)
+            link();
+    }
+
+    public void rekey(HeapNode<I> node, long newKey)
+    {
+        if (newKey < node.key)
+            decreaseKey(node, newKey);
+        else if (newKey > node.key)
+            increaseKey(node, newKey);
+    }
+
+    public void absorb(HeapEngine<I> other)
+    {
+        var rankPairing = (RankPairingEngine<I>)other;
+        for (var node = rankPairing.roots; node != null;)
+        {
+            var next = node.nextNode;
+            addRoot(node);
+            node = next;
+        }
+        rankPairing.clear();
+    }
+
+    public void clear()
+    {
+        roots = null;
+        min = null;
+    }
+
+    public int children(HeapNode<I> node)
+    {
+        var count = 0;
+        for (var child = node.leftChild; child != null; child = child.rightChild)
+            count++;
+        return count;
+    }
+
+    public void forEachRoot(Consumer<HeapNode<I>> action)
+    {
+        for (var node = roots; node != null; node = node.nextNode)
+            action.accept(node);
+    }
+
+    /**
+     * Дети вершины в обычном дереве - правый путь ее левого ребенка. Братья не упорядочены между собой,
+     * поэтому передаются все сразу
+     */
+    public void forEachSuccessor(HeapNode<I> node, Consumer<HeapNode<I>> action)
+    {
+        for (var child = node.leftChild; child != null; child = child.rightChild)
+            action.accept(child);
+    }
+
+    private static int rank(HeapNode<?> node)
+    {
+        return node == null ? -1 : node.slot;
+    }
+
+    private void addRoot(HeapNode<I> node)
+    {
+        node.leftmost = true;
+        node.prevNode = null;
+        node.nextNode = roots;
+        if (roots != null)
+            roots.prevNode = node;
+        roots = node;
+        if (min == null || node.key < min.key)
+            min = node;
+    }
+
+    private void unlinkRoot(HeapNode<I> node)
+    {
+        if (node.prevNode != null)
+            node.prevNode.nextNode = node.nextNode;
+        else
+            roots = node.nextNode;
+        if (node.nextNode != null)
+            node.nextNode.prevNode = node.prevNode;
+        node.prevNode = null;
+        node.nextNode = null;
+    }
+
+    /**
+     *  Делает корнями полудеревья правого пути левого ребенка
+     */
+    private void spillChildren(HeapNode<I> node)
+    {
+        for (var child = node.leftChild; child != null;)
+        {
+            var next = child.rightChild;
+            child.rightChild = null;
+            child.slot = rank(child.leftChild) + 1;
+            addRoot(child);
+            child = next;
+        }
+        node.leftChild = null;
+    }
+
+    /**
+     *  Вырезает вершину с ее левым поддеревом в отдельное полудерево, правое поддерево занимает ее место.
+     *  Ранги предков пересчитываются по правилу первого типа
+     */
+    private void cut(HeapNode<I> node)
+    {
+        var parent = node.prevNode;
+        var right = node.rightChild;
+        if (parent.leftChild == node)
+            parent.leftChild = right;
+        else
+            parent.rightChild = right;
+        if (right != null)
+            right.prevNode = parent;
+        node.rightChild = null;
+        node.slot = rank(node.leftChild) + 1;
+        addRoot(node);
+        for (var ancestor = parent; ; ancestor = ancestor.prevNode)
+        {
+            if (ancestor.leftmost)
+            {
+                ancestor.slot = rank(ancestor.leftChild) + 1;
+                break;
+            }
+            var r1 = rank(ancestor.leftChild);
+            var r2 = rank(ancestor.rightChild);
+            var newRank = r1 == r2 ? r1 + 1 : Math.max(r1, r2);
+            if (newRank >= ancestor.slot)
+                break;
+            ancestor.slot = newRank;
+        }
+    }
+
+    /**
+     *  Однопроходное связывание: корень связывается с первым встреченным корнем того же ранга,
+     *  результат больше не связывается. Находит новый минимум
+     */
+    private void link()
+    {
+        var list = roots;
+        roots = null;
+        min = null;
+        var maxRank = -1;
+        for (var node = list; node != null;)
+        {
+            var next = node.nextNode;
+            var rank = node.slot;
+            var other = bucket(rank);
+            if (other == null)
+            {
+                buckets[rank] = node;
+                maxRank = Math.max(maxRank, rank);
+            }
+            else
+            {
+                buckets[rank] = null;
+                addRoot(join(node, other));
+            }
+            node = next;
+        }
+        for (int i = 0; i <= maxRank; i++)
+        {
+            var node = bucket(i);
+            if (node != null)
+            {
+                buckets[i] = null;
+                addRoot(node);
+            }
+        }
+    }
+
+    /**
+     *  Связывает два корня одного ранга: больший становится левым ребенком меньшего
+     */
+    private HeapNode<I> join(HeapNode<I> first, HeapNode<I> second)
+    {
+        if (second.key < first.key)
+        {
+            var temp = first;
+            first = second;
+            second = temp;
+        }
+        second.rightChild = first.leftChild;
+        if (second.rightChild != null)
+            second.rightChild.prevNode = second;
+        second.prevNode = first;
+        second.nextNode = null;
+        second.leftmost = false;
+        first.leftChild = second;
+        first.slot = second.slot + 1;
+        return first;
+    }
+
+    @SuppressWarnings("unchecked")
+    private HeapNode<I> bucket(int rank)
+    {
+        return (HeapNode<I>)buckets[rank];
+    }
+}
@@ -0,0 +1,402 @@
+package ru.sfedu;
+
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Потокобезопасная {@linkplain DynamicPriorityQueue динамическая очередь приоритета} из нескольких шардов.
+ * Каждый шард - отдельная {@link DynamicPriorityQueue} со своей блокировкой.
+ * Шард элемента определяется хэшем идентификатора, поэтому {@link #update(Object)}, {@link #remove(Object)}
+ * и {@link #contains(Object)} блокируют только шард, которому принадлежит элемент.
+ * <p>
+ * Извлечение корня зависит от {@link PollMode}:
+ * <ul>
+ * <li>{@link PollMode#RELAXED} - как в MultiQueue: сравниваются корни двух случайных шардов и извлекается лучший.
+ * Если идентификаторы распределяются по шардам равномерно и независимо от приоритета, то при {@code n} шардах
+ * ожидаемый ранг извлеченного элемента (0 - наименьший в очереди) есть {@code O(n)}, а с высокой вероятностью
+ * не превышает {@code O(n log n)}. Ни один элемент не задерживается бесконечно: его ранг со временем становится нулевым.</li>
+ * <li>{@link PollMode#EXACT} - блокируются все шарды и извлекается наименьший корень, ошибка ранга равна нулю.</li>
+ * </ul>
+ * Функции приоритета вызываются под блокировкой шарда своего элемента.
+ * {@link #size()} и {@link #isEmpty()} при одновременных изменениях дают приблизительный результат.
+ */
+public class ShardedDynamicPriorityQueue<T, I> {
+    /**
+     * Создает пустую очередь из {@code shardCount} шардов с ослабленным извлечением
+     */
+    public ShardedDynamicPriorityQueue(int shardCount)
+    {
+        this(shardCount, PollMode.RELAXED);
+    }
+    /**
+     * Создает пустую очередь из {@code shardCount} шардов с указанным способом извлечения
+     */
+    public ShardedDynamicPriorityQueue(int shardCount, PollMode mode)
+    {
+        if (shardCount <= 0)
+            throw new IllegalArgumentException("Количество шардов должно быть положительным: " + shardCount);
+        this.mode = mode;
+        shards = newShards(shardCount);
+        for (int i = 0; i < shardCount; i++)
+            shards[i] = new Shard<>();
+    }
+
+
+    /**
+     * Добавляет элемент в очередь
+     * @return {@code true} если его еще нет, иначе {@code false}
+     */
+    public boolean offer(T value, I identifier, PriorityUpdater updater) // PriorityQueue
+    {
+        var shard = shardFor(identifier);
+        shard.lock.lock();
+        try {
+            var res = shard.queue.offer(value, identifier, updater);
+            shard.publish();
+            return res;
+        }
+        finally {
+            shard.lock.unlock();
+        }
+    }
+    /**
+     * Добавляет элемент в очередь
+     * @return {@code true} если его еще нет, иначе {@code false}
+     */
+    public boolean add(T value, I identifier, PriorityUpdater updater) // AbstractQueue
+    {
+        return offer(value, identifier, updater);
+    }
+    /**
+     * Добавляет элемент в очередь, со статическим приоритетом.
+     * @return {@code true} если его еще нет, иначе {@code false}
+     */
+    public boolean offer(T value, I identifier, int priority) // PriorityQueue
+    {
+        var shard = shardFor(identifier);
+        shard.lock.lock();
+        try {
+            var res = shard.queue.offer(value, identifier, priority);
+            shard.publish();
+            return res;
+        }
+        finally {
+            shard.lock.unlock();
+        }
+    }
+    /**
+     * Добавляет элемент в очередь, со статическим приоритетом.
+     * @return {@code true} если его еще нет, иначе {@code false}
+     */
+    public boolean add(T value, I identifier, int priority) // PriorityQueue
+    {
+        return offer(value, identifier, priority);
+    }
+
+    /**
+     * Возвращает корень шарда с наименьшим корнем, не удаляя его.
+     * Если очередь пуста, возвращает {@code null}
+     */
+    public T peek() // PriorityQueue
+    {
+        if (mode == PollMode.EXACT)
+        {
+            lockAll();
+            try {
+                var shard = bestLocked();
+                return shard == null ? null : shard.queue.peek();
+            }
+            finally {
+                unlockAll();
+            }
+        }
+        while (true)
+        {
+            var shard = bestUnlocked();
+            if (shard == null)
+                return null;
+            shard.lock.lock();
+            try {
+                if (!shard.queue.isEmpty())
+                    return shard.queue.peek();
+            }
+            finally {
+                shard.lock.unlock();
+            }
+        }
+    }
+    /**
+     * Возвращает корень шарда с наименьшим корнем, не удаляя его.
+     * Если очередь пуста, возвращает {@code null}
+     */
+    public T element() // AbstractQueue
+    {
+        return peek();
+    }
+
+    /**
+     * Извлекает корень одного из шардов способом {@link PollMode}.
+     * Если очередь пуста, возвращает {@code null}
+     */
+    public T poll() // PriorityQueue
+    {
+        return mode == PollMode.EXACT ? pollExact() : pollRelaxed();
+    }
+    /**
+     * Извлекает корень одного из шардов способом {@link PollMode}.
+     * Если очередь пуста, возвращает {@code null}
+     */
+    public T remove() // AbstractQueue
+    {
+        return poll();
+    }
+
+    /**
+     * Удаляет элемент из очереди.
+     * @return {@code true} если он был, иначе {@code false}
+     */
+    public boolean remove(Object o)
+    {
+        var shard = shardFor(o);
+        shard.lock.lock();
+        try {
+            var res = shard.queue.remove(o);
+            shard.publish();
+            return res;
+        }
+        finally {
+            shard.lock.unlock();
+        }
+    }
+
+    /**
+     * Упостушает очередь полностью
+     */
+    public void clear()
+    {
+        lockAll();
+        try {
+            for (var shard : shards)
+            {
+                shard.queue.clear();
+                shard.publish();
+            }
+        }
+        finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Проверяет, ести ли в очереди объект.
+     * @return {@code true} если он был, иначе {@code false}
+     */
+    public boolean contains(Object o)
+    {
+        var shard = shardFor(o);
+        shard.lock.lock();
+        try {
+            return shard.queue.contains(o);
+        }
+        finally {
+            shard.lock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает количество элементов в очереди.
+     */
+    public int size() {
+        var res = 0;
+        for (var shard : shards)
+            res += shard.size;
+        return res;
+    }
+
+    /**
+     * Проверяет, пуста ли очередь.
+     * @return {@code true} если в очереди нет элементов, иначе {@code false}
+     */
+    public boolean isEmpty()
+    {
+        return bestUnlocked() == null;
+    }
+
+    /**
+     * Обновляет приоритет определенного значения.
+     * @return {@code true} если в очереди он есть, иначе {@code false}
+     */
+    public boolean update(Object o)
+    {
+        var shard = shardFor(o);
+        shard.lock.lock();
+        try {
+            var res = shard.queue.update(o);
+            shard.publish();
+            return res;
+        }
+        finally {
+            shard.lock.unlock();
+        }
+    }
+
+    /**
+     * Обновляет приоритет всех значений, блокируя шарды по одному.
+     */
+    public void updateAll()
+    {
+        for (var shard : shards)
+        {
+            shard.lock.lock();
+            try {
+                shard.queue.updateAll();
+                shard.publish();
+            }
+            finally {
+                shard.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Возвращает количество шардов.
+     */
+    public int shardCount()
+    {
+        return shards.length;
+    }
+
+    private static class Shard<T, I>
+    {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final DynamicPriorityQueue<T, I> queue = new DynamicPriorityQueue<>();
+        // Ключ корня и размер для чтения без блокировки, обновляются под блокировкой
+        private volatile long top = EMPTY;
+        private volatile int size;
+
+        private void publish()
+        {
+            size = queue.size();
+            top = queue.isEmpty() ? EMPTY : queue.peekKey();
+        }
+    }
+    // Больше любого ключа int
+    private static final long EMPTY = Long.MAX_VALUE;
+    private final Shard<T, I>[] shards;
+    private final PollMode mode;
+
+    // Вспомогательные методы
+
+    @SuppressWarnings("unchecked")
+    private static <T, I> Shard<T, I>[] newShards(int count)
+    {
+        return (Shard<T, I>[])new Shard<?, ?>[count];
+    }
+
+    private Shard<T, I> shardFor(Object identifier)
+    {
+        var hash = Objects.hashCode(identifier);
+        hash ^= hash >>> 16;
+        return shards[(hash & Integer.MAX_VALUE) % shards.length];
+    }
+
+    /**
+     *  Извлечение лучшего корня из двух случайных шардов
+     */
+    private T pollRelaxed()
+    {
+        var random = ThreadLocalRandom.current();
+        while (true)
+        {
+            var first = shards[random.nextInt(shards.length)];
+            var second = shards[random.nextInt(shards.length)];
+            var shard = second.top < first.top ? second : first;
+            if (shard.top == EMPTY)
+            {
+                // Оба шарда пусты, берется любой непустой, ожидая его блокировку
+                shard = bestUnlocked();
+                if (shard == null)
+                    return null;
+                shard.lock.lock();
+            }
+            // Занятый шард не ждем, выбираем другую пару
+            else if (!shard.lock.tryLock())
+                continue;
+            try {
+                if (shard.queue.isEmpty())
+                    continue;
+                var res = shard.queue.poll();
+                shard.publish();
+                return res;
+            }
+            finally {
+                shard.lock.unlock();
+            }
+        }
+    }
+
+    private T pollExact()
+    {
+        lockAll();
+        try {
+            var shard = bestLocked();
+            if (shard == null)
+                return null;
+            var res = shard.queue.poll();
+            shard.publish();
+            return res;
+        }
+        finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     *  Шард с наименьшим опубликованным корнем или null, если все пусты
+     */
+    private Shard<T, I> bestUnlocked()
+    {
+        Shard<T, I> best = null;
+        var bestTop = EMPTY;
+        for (var shard : shards)
+        {
+            var top = shard.top;
+            if (top < bestTop)
+            {
+                best = shard;
+                bestTop = top;
+            }
+        }
+        return best;
+    }
+
+    /**
+     *  Шард с наименьшим корнем при заблокированных шардах или null, если все пусты
+     */
+    private Shard<T, I> bestLocked()
+    {
+        Shard<T, I> best = null;
+        for (var shard : shards)
+            if (!shard.queue.isEmpty() && (best == null || shard.queue.peekKey() < best.queue.peekKey()))
+                best = shard;
+        return best;
+    }
+
+    private void lockAll()
+    {
+        for (var shard : shards)
+            shard.lock.lock();
+    }
+
+    private void unlockAll()
+    {
+        for (int i = shards.length - 1; i >= 0; i--)
+            shards[i].lock.unlock();
+    }
+
+    public String toString()
+    {
+        return String.format("shards: %d, mode: %s, size: %d", shards.length, mode, size());
+    }
+}
@@ -0,0 +1,44 @@
+package ru.sfedu;
+
+/**
+ * Хранилище ячеек вершин {@link IntDynamicPriorityQueue}.
+ * Ячейка - ключ, первый и последний ребенок, соседние вершины, флаги, идентификатор,
+ * а также ссылки на значение и функцию приоритета, которые всегда остаются в куче Java.
+ */
+abstract class SlotStorage {
+    /**
+     * Количество ячеек, под которые уже выделена память
+     */
+    abstract long capacity();
+    /**
+     * Увеличивает вместимость хотя бы на одну ячейку
+     */
+    abstract void grow();
+    /**
+     * Объем памяти вне кучи Java в байтах
+     */
+    abstract long offHeapBytes();
+
+    abstract int key(int slot);
+    abstract void setKey(int slot, int value);
+    abstract int leftChild(int slot);
+    abstract void setLeftChild(int slot, int value);
+    abstract int rightChild(int slot);
+    abstract void setRightChild(int slot, int value);
+    abstract int next(int slot);
+    abstract void setNext(int slot, int value);
+    abstract int prev(int slot);
+    abstract void setPrev(int slot, int value);
+    abstract int flags(int slot);
+    abstract void setFlags(int slot, int value);
+    abstract int id(int slot);
+    abstract void setId(int slot, int value);
+    abstract Object value(int slot);
+    abstract void setValue(int slot, Object value);
+    abstract PriorityUpdater updater(int slot);
+    abstract void setUpdater(int slot, PriorityUpdater updater);
+    /**
+     * Забывает все значения и функции приоритета, не освобождая ячейки
+     */
+    abstract void clearReferences();
+}
@@ -0,0 +1,49 @@
+package ru.sfedu;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Двоичное представление значений или идентификаторов в снимке очереди,
+ * см. {@link DynamicPriorityQueue#snapshot(java.nio.file.Path, SnapshotCodec, SnapshotCodec)}.
+ * Готовые представления: {@link #strings()}, {@link #integers()}, {@link #longs()}.
+ */
+public interface SnapshotCodec<V> {
+    /**
+     * Количество байт, которое {@link #write(Object, ByteBuffer)} запишет для значения
+     */
+    int size(V value);
+
+    /**
+     * Записывает ровно {@link #size(Object)} байт начиная с текущей позиции буфера
+     */
+    void write(V value, ByteBuffer buffer);
+
+    /**
+     * Читает значение из буфера, содержащего только его байты. Буфер нельзя сохранять после возврата
+     */
+    V read(ByteBuffer buffer);
+
+    /**
+     * Строки в UTF-8
+     */
+    static SnapshotCodec<String> strings()
+    {
+        return StandardCodecs.STRINGS;
+    }
+
+    /**
+     * Целые числа, 4 байта
+     */
+    static SnapshotCodec<Integer> integers()
+    {
+        return StandardCodecs.INTEGERS;
+    }
+
+    /**
+     * Целые числа {@code long}, 8 байт
+     */
+    static SnapshotCodec<Long> longs()
+    {
+        return StandardCodecs.LONGS;
+    }
+}
@@ -0,0 +1,278 @@
+package ru.sfedu;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Формат файла снимка очереди.
+ * <p>
+ * Заголовок, {@value #HEADER_BYTES} байт: сигнатура, версия, способ слияния, вид кучи, количество записей, номер последней
+ * записи {@link QueueJournal журнала}, отраженной в снимке, длина данных, CRC32C данных и CRC32C предыдущих полей заголовка. Далее записи вершин в прямом порядке обхода
+ * (ребенок, затем следующий брат): длина записи, флаги, ключ, длина идентификатора, идентификатор, значение.
+ * Файл читается и пишется через отображенные в память окна не длиннее {@value #WINDOW_BYTES} байт;
+ * запись никогда не пересекает границу окна.
+ */
+final class SnapshotFile {
+    static final int MAGIC = 0x44505153;
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 48;
+    static final int WINDOW_BYTES = 1 << 30;
+    // Флаги записи
+    static final byte DYNAMIC = 1;
+    static final byte HAS_CHILD = 2;
+    static final byte HAS_NEXT = 4;
+
+    private SnapshotFile()
+    {
+    }
+
+    /**
+     * Последовательная запись снимка. Данные пишутся во временный файл рядом с целевым, который после
+     * {@link #finish(int, int, long, long)} сбрасывается на диск и при закрытии атомарно заменяет целевой.
+     * Прерванная запись оставляет прежний снимок нетронутым.
+     */
+    static final class Writer implements Closeable {
+        private final Path file;
+        private final Path temporary;
+        private final FileChannel channel;
+        private boolean finished = false;
+        private final CRC32C crc = new CRC32C();
+        private MappedByteBuffer window;
+        // Смещение окна в файле
+        private long windowStart = HEADER_BYTES;
+        // Сколько байт окна уже учтено в CRC
+        private int checked = 0;
+
+        Writer(Path file) throws IOException
+        {
+            this.file = file;
+            temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        /**
+         * Возвращает окно, в котором с текущей позиции свободно не меньше {@code bytes} байт
+         */
+        ByteBuffer reserve(int bytes) throws IOException
+        {
+            if (window != null && window.remaining() >= bytes)
+                return window;
+            // Окна растут вдвое, начиная с мегабайта, чтобы маленький снимок не занимал гигабайт адресов
+            var size = Math.max(bytes, 1 << 20);
+            if (window != null)
+            {
+                checksum();
+                windowStart += window.position();
+                size = Math.max(bytes, (int)Math.min(WINDOW_BYTES, window.capacity() * 2L));
+            }
+            window = null;
+            window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, size);
+            checked = 0;
+            return window;
+        }
+
+        /**
+         * Записывает заголовок и обрезает файл по концу данных
+         */
+        void finish(int strategy, int backend, long count, long sequence) throws IOException
+        {
+            var dataLength = 0L;
+            if (window != null)
+            {
+                checksum();
+                window.force();
+                dataLength = windowStart + window.position() - HEADER_BYTES;
+                window = null;
+            }
+            var header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(strategy).putInt(backend).putLong(count).putLong(sequence).putLong(dataLength).putInt((int)crc.getValue());
+            var headerCrc = new CRC32C();
+            headerCrc.update(header.array(), 0, header.position());
+            header.putInt((int)headerCrc.getValue());
+            header.flip();
+            while (header.hasRemaining())
+                channel.write(header, header.position());
+            channel.truncate(HEADER_BYTES + dataLength);
+            channel.force(true);
+            finished = true;
+        }
+
+        private void checksum()
+        {
+            crc.update(window.slice(checked, window.position() - checked));
+            checked = window.position();
+        }
+
+        /**
+         * Закрывает временный файл. Законченный снимок заменяет целевой файл, незаконченный удаляется
+         */
+        public void close() throws IOException
+        {
+            window = null;
+            channel.close();
+            if (!finished)
+            {
+                Files.deleteIfExists(temporary);
+                return;
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            syncDirectory(file.toAbsolutePath().getParent());
+        }
+    }
+
+    /**
+     * Сбрасывает на диск каталог, чтобы переименование пережило сбой. Где каталог нельзя открыть, ничего не делает
+     */
+    private static void syncDirectory(Path directory)
+    {
+        try (var channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+        catch (IOException ex) {
+            // Например, Windows не открывает каталоги как файлы
+        }
+    }
+
+    /**
+     * Последовательное чтение снимка. Заголовок и CRC данных проверяются при открытии.
+     */
+    static final class Reader implements Closeable {
+        private final FileChannel channel;
+        private final int strategy;
+        private final int backend;
+        private final long count;
+        private final long sequence;
+        private final long end;
+        private MappedByteBuffer window;
+        // Копия окна для разбора полей, ее границы меняются на каждом поле
+        private ByteBuffer view;
+        private long windowStart = HEADER_BYTES;
+        private int recordLength;
+
+        Reader(Path file) throws IOException
+        {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                var header = ByteBuffer.allocate(HEADER_BYTES);
+                while (header.hasRemaining())
+                    if (channel.read(header, header.position()) < 0)
+                        throw new IOException("Снимок короче заголовка: " + file);
+                header.flip();
+                if (header.getInt() != MAGIC)
+                    throw new IOException("Файл не является снимком очереди: " + file);
+                var version = header.getInt();
+                if (version != VERSION)
+                    throw new IOException("Неподдерживаемая версия снимка: " + version);
+                strategy = header.getInt();
+                backend = header.getInt();
+                count = header.getLong();
+                sequence = header.getLong();
+                var dataLength = header.getLong();
+                var dataCrc = header.getInt();
+                var headerCrc = new CRC32C();
+                headerCrc.update(header.array(), 0, header.position());
+                if (header.getInt() != (int)headerCrc.getValue())
+                    throw new IOException("Заголовок снимка поврежден: " + file);
+                if (strategy < 0 || strategy >= MergeStrategy.values().length || backend < 0 || backend >= HeapBackend.values().length || count < 0 || dataLength != channel.size() - HEADER_BYTES)
+                    throw new IOException("Заголовок снимка не соответствует файлу: " + file);
+                end = HEADER_BYTES + dataLength;
+                if (checksumData() != dataCrc)
+                    throw new IOException("Данные снимка повреждены: " + file);
+            }
+            catch (IOException | RuntimeException ex) {
+                channel.close();
+                throw ex;
+            }
+        }
+
+        MergeStrategy strategy()
+        {
+            return MergeStrategy.values()[strategy];
+        }
+
+        HeapBackend backend()
+        {
+            return HeapBackend.values()[backend];
+        }
+
+        long count()
+        {
+            return count;
+        }
+
+        long sequence()
+        {
+            return sequence;
+        }
+
+        /**
+         * Переходит к следующей записи. Возвращает ее начало в {@link #window()}, длина - {@link #recordLength()}
+         */
+        int next() throws IOException
+        {
+            ensure(Integer.BYTES);
+            recordLength = window.getInt();
+            if (recordLength < 0)
+                throw new IOException("Данные снимка повреждены");
+            ensure(recordLength);
+            var start = window.position();
+            window.position(start + recordLength);
+            return start;
+        }
+
+        ByteBuffer window()
+        {
+            return window;
+        }
+
+        int recordLength()
+        {
+            return recordLength;
+        }
+
+        /**
+         * Возвращает байты окна {@code [offset, offset + length)} без выделения памяти.
+         * Буфер действителен до следующего вызова.
+         */
+        ByteBuffer field(int offset, int length)
+        {
+            view.limit(offset + length).position(offset);
+            return view;
+        }
+
+        private void ensure(int bytes) throws IOException
+        {
+            if (window != null && window.remaining() >= bytes)
+                return;
+            if (window != null)
+                windowStart += window.position();
+            var size = Math.min(Math.max(WINDOW_BYTES, bytes), end - windowStart);
+            if (size < bytes)
+                throw new IOException("Данные снимка обрываются");
+            window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, size);
+            view = window.duplicate();
+        }
+
+        private int checksumData() throws IOException
+        {
+            var crc = new CRC32C();
+            for (var position = (long)HEADER_BYTES; position < end; position += WINDOW_BYTES)
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_BYTES, end - position)));
+            return (int)crc.getValue();
+        }
+
+        public void close() throws IOException
+        {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package ru.sfedu;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Представления, возвращаемые статическими методами {@link SnapshotCodec}
+ */
+final class StandardCodecs {
+    private StandardCodecs()
+    {
+    }
+
+    static final SnapshotCodec<String> STRINGS = new SnapshotCodec<>() {
+        public int size(String value)
+        {
+            return value.getBytes(StandardCharsets.UTF_8).length;
+        }
+        public void write(String value, ByteBuffer buffer)
+        {
+            buffer.put(value.getBytes(StandardCharsets.UTF_8));
+        }
+        public String read(ByteBuffer buffer)
+        {
+            return StandardCharsets.UTF_8.decode(buffer).toString();
+        }
+    };
+
+    static final SnapshotCodec<Integer> INTEGERS = new SnapshotCodec<>() {
+        public int size(Integer value)
+        {
+            return Integer.BYTES;
+        }
+        public void write(Integer value, ByteBuffer buffer)
+        {
+            buffer.putInt(value);
+        }
+        public Integer read(ByteBuffer buffer)
+        {
+            return buffer.getInt();
+        }
+    };
+
+    static final SnapshotCodec<Long> LONGS = new SnapshotCodec<>() {
+        public int size(Long value)
+        {
+            return Long.BYTES;
+        }
+        public void write(Long value, ByteBuffer buffer)
+        {
+            buffer.putLong(value);
+        }
+        public Long read(ByteBuffer buffer)
+        {
+            return buffer.getLong();
+        }
+    };
+}
@@ -0,0 +1,32 @@
+package ru.sfedu;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Событие JFR о долгом пересчете {@code updateAll()} или {@code flush()}, пишется при включенных {@link QueueMetrics}
+ */
+@Name("ru.sfedu.Sweep")
+@Label("Queue Sweep")
+@Category("Dynamic Priority Queue")
+@Description("Пересчет приоритетов, длительность которого превысила порог")
+@Threshold("1 ms")
+@StackTrace(false)
+class SweepEvent extends jdk.jfr.Event {
+    @Label("Kind")
+    String kind;
+
+    @Label("Size")
+    int size;
+
+    @Label("Changed")
+    @Description("Количество элементов, ключ которых изменился")
+    long changed;
+
+    // Начало для счетчиков, в событие не пишется
+    transient long startNanos;
+}
@@ -0,0 +1,156 @@
+package ru.sfedu;
+
+import java.util.Arrays;
+
+/**
+ * Иерархическое колесо таймеров для отложенных элементов {@link DynamicPriorityQueue}.
+ * Время - неотрицательное число тактов. Уровень {@code k} из 64 ячеек делит время на отрезки по 64<sup>k</sup> тактов:
+ * вершина лежит на уровне старшей шестибитной цифры, в которой ее срок {@code due} отличается от текущего момента,
+ * в ячейке по значению этой цифры. Ячейки - двусвязные списки через {@code prevNode} и {@code nextNode},
+ * уровень и ячейка хранятся в {@code slot}, непустые ячейки уровня отмечены битами одного слова.
+ * При переводе часов первая непустая ячейка нижнего непустого уровня разбирается: наступившие вершины
+ * выдаются, остальные опускаются на младшие уровни. Вставка и удаление - O(1), каждая вершина опускается
+ * не больше 11 раз, пустые отрезки времени пропускаются по битам без обхода.
+ */
+final class TimerWheel<I> {
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int LEVELS = (Long.SIZE + BITS - 1) / BITS;
+
+    private final HeapNode<?>[] slots = new HeapNode<?>[LEVELS * SLOTS];
+    private final long[] occupied = new long[LEVELS];
+    private long now = 0;
+    private int size = 0;
+
+    long now()
+    {
+        return now;
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Добавляет вершину со сроком {@code due} позже текущего момента
+     */
+    void add(HeapNode<I> node)
+    {
+        size++;
+        place(node);
+    }
+
+    void remove(HeapNode<I> node)
+    {
+        size--;
+        if (node.prevNode != null)
+            node.prevNode.nextNode = node.nextNode;
+        else
+        {
+            slots[node.slot] = node.nextNode;
+            if (node.nextNode == null)
+                occupied[node.slot >>> BITS] &= ~(1L << node.slot);
+        }
+        if (node.nextNode != null)
+            node.nextNode.prevNode = node.prevNode;
+        node.prevNode = null;
+        node.nextNode = null;
+    }
+
+    /**
+     * Начало ближайшей непустой ячейки: раньше этого момента не наступит ни одна вершина.
+     * Если вершин нет, {@link Long#MAX_VALUE}
+     */
+    long nextTick()
+    {
+        if (size == 0)
+            return Long.MAX_VALUE;
+        var level = 0;
+        while (occupied[level] == 0)
+            level++;
+        return start(level, Long.numberOfTrailingZeros(occupied[level]));
+    }
+
+    /**
+     * Переводит часы на момент {@code time}, если он не раньше текущего
+     * @return вершины, срок которых наступил, связанные через {@code nextNode}
+     */
+    HeapNode<I> advanceTo(long time)
+    {
+        HeapNode<I> expired = null;
+        while (size > 0)
+        {
+            var level = 0;
+            while (occupied[level] == 0)
+                level++;
+            var index = Long.numberOfTrailingZeros(occupied[level]);
+            var start = start(level, index);
+            if (start > time)
+                break;
+            now = start;
+            var slot = level * SLOTS + index;
+            var node = head(slot);
+            slots[slot] = null;
+            occupied[level] &= ~(1L << index);
+            while (node != null)
+            {
+                var next = node.nextNode;
+                if (node.due <= now)
+                {
+                    size--;
+                    node.prevNode = null;
+                    node.nextNode = expired;
+                    expired = node;
+                }
+                else
+                    place(node);
+                node = next;
+            }
+        }
+        if (time > now)
+            now = time;
+        return expired;
+    }
+
+    /**
+     * Забывает все вершины, не трогая их ссылки
+     */
+    void clear()
+    {
+        Arrays.fill(slots, null);
+        Arrays.fill(occupied, 0);
+        size = 0;
+    }
+
+    /**
+     * Начало отрезка ячейки: старшие цифры текущего момента, цифра уровня - номер ячейки, младшие - нули
+     */
+    private long start(int level, int index)
+    {
+        var shift = BITS * level;
+        return ((now >>> shift >>> BITS << BITS) | index) << shift;
+    }
+
+    private void place(HeapNode<I> node)
+    {
+        var level = (Long.SIZE - 1 - Long.numberOfLeadingZeros(node.due ^ now)) / BITS;
+        var index = (int)(node.due >>> (BITS * level)) & (SLOTS - 1);
+        var slot = level * SLOTS + index;
+        var head = head(slot);
+        node.slot = slot;
+        node.prevNode = null;
+        node.nextNode = head;
+        if (head != null)
+            head.prevNode = node;
+        else
+            occupied[level] |= 1L << index;
+        slots[slot] = node;
+    }
+
+    @SuppressWarnings("unchecked")
+    private HeapNode<I> head(int slot)
+    {
+        return (HeapNode<I>)slots[slot];
+    }
+}
@@ -0,0 +1,274 @@
+package ru.sfedu;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+
+/**
+ * Форматы трассы операций для {@link TraceReplay}.
+ * <p>
+ * Текстовая трасса - команды {@link ConsoleExample} по одной на строку: {@code insert <value> <id> <priority>}
+ * (или {@code insert <value> <priority>} после {@code manual off}), {@code peek}, {@code poll}, {@code update <id> <priority>},
+ * {@code remove <id>}, {@code manual (on|off)} и {@code exit}. Пустые строки, строки с {@code #} и {@code help} пропускаются.
+ * Значения не влияют на работу очереди и не сохраняются; идентификаторы нумеруются подряд в порядке первого появления.
+ * <p>
+ * Двоичная трасса: заголовок {@value #HEADER_BYTES} байт (сигнатура, версия, число идентификаторов, число операций),
+ * далее записи: код операции, номер идентификатора и приоритет в кодировке переменной длины (приоритет - zigzag).
+ * Чтение идет через отображенные в память окна не длиннее {@value #WINDOW_BYTES} байт.
+ */
+final class TraceFile {
+    static final int MAGIC = 0x44505154;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 20;
+    static final int WINDOW_BYTES = 1 << 30;
+    // Наибольшая длина записи: код и два числа по 5 байт
+    static final int MAX_RECORD_BYTES = 11;
+
+    /**
+     * Получатель операций трассы. Номер идентификатора и приоритет не определены для операций без них.
+     */
+    interface Visitor {
+        void accept(int operation, int id, int priority) throws IOException;
+    }
+
+    private TraceFile()
+    {
+    }
+
+    /**
+     * Проверяет по сигнатуре, записан ли файл в двоичном формате
+     */
+    static boolean isBinary(Path file) throws IOException
+    {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var head = ByteBuffer.allocate(Integer.BYTES);
+            while (head.hasRemaining())
+                if (channel.read(head, head.position()) < 0)
+                    return false;
+            return head.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Разбирает текстовую трассу
+     * @return число различных идентификаторов
+     */
+    static int readText(Path file, Visitor visitor) throws IOException
+    {
+        var ids = new HashMap<String, Integer>();
+        var manualID = true;
+        try (var input = new BufferedReader(new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8), 1 << 20)) {
+            var lineNumber = 0L;
+            String line;
+            while ((line = input.readLine()) != null)
+            {
+                lineNumber++;
+                var tokens = line.trim().split(" +");
+                if (tokens[0].isEmpty() || tokens[0].startsWith("#"))
+                    continue;
+                try {
+                    switch (tokens[0])
+                    {
+                        case "help":
+                            break;
+                        case "exit":
+                            return ids.size();
+                        case "manual":
+                            expect(tokens, 2);
+                            if (tokens[1].equals("on"))
+                                manualID = true;
+                            else if (tokens[1].equals("off"))
+                                manualID = false;
+                            else
+                                throw new IllegalArgumentException("ожидается on или off");
+                            break;
+                        case "peek":
+                            visitor.accept(TraceReplay.Operation.PEEK.ordinal(), 0, 0);
+                            break;
+                        case "poll":
+                            visitor.accept(TraceReplay.Operation.POLL.ordinal(), 0, 0);
+                            break;
+                        case "insert":
+                            expect(tokens, manualID ? 4 : 3);
+                            visitor.accept(TraceReplay.Operation.INSERT.ordinal(), id(ids, tokens[manualID ? 2 : 1]), Integer.parseInt(tokens[manualID ? 3 : 2]));
+                            break;
+                        case "update":
+                            expect(tokens, 3);
+                            visitor.accept(TraceReplay.Operation.UPDATE.ordinal(), id(ids, tokens[1]), Integer.parseInt(tokens[2]));
+                            break;
+                        case "remove":
+                            expect(tokens, 2);
+                            visitor.accept(TraceReplay.Operation.REMOVE.ordinal(), id(ids, tokens[1]), 0);
+                            break;
+                        default:
+                            throw new IllegalArgumentException("неизвестная команда");
+                    }
+                }
+                catch (IllegalArgumentException ex) {
+                    throw new IOException("Строка " + lineNumber + " трассы " + file + ": " + ex.getMessage() + ": " + line, ex);
+                }
+            }
+        }
+        return ids.size();
+    }
+
+    private static void expect(String[] tokens, int count)
+    {
+        if (tokens.length != count)
+            throw new IllegalArgumentException("ожидается аргументов: " + (count - 1));
+    }
+
+    private static int id(HashMap<String, Integer> ids, String id)
+    {
+        var next = ids.size();
+        var existing = ids.putIfAbsent(id, next);
+        return existing != null ? existing : next;
+    }
+
+    /**
+     * Читает двоичную трассу
+     * @return число различных идентификаторов
+     */
+    static int readBinary(Path file, Visitor visitor) throws IOException
+    {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining())
+                if (channel.read(header, header.position()) < 0)
+                    throw new IOException("Трасса короче заголовка: " + file);
+            header.flip();
+            if (header.getInt() != MAGIC)
+                throw new IOException("Файл не является двоичной трассой: " + file);
+            var version = header.getInt();
+            if (version != VERSION)
+                throw new IOException("Неподдерживаемая версия трассы: " + version);
+            var identifiers = header.getInt();
+            var operations = header.getLong();
+            var end = channel.size();
+            var windowStart = (long)HEADER_BYTES;
+            MappedByteBuffer window = null;
+            for (long i = 0; i < operations; i++)
+            {
+                // Окно сдвигается, когда в нем может не поместиться следующая запись
+                if (window == null || window.remaining() < MAX_RECORD_BYTES && windowStart + window.capacity() < end)
+                {
+                    if (window != null)
+                        windowStart += window.position();
+                    window = null;
+                    window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(WINDOW_BYTES, end - windowStart));
+                }
+                try {
+                    var operation = window.get();
+                    if (operation < 0 || operation >= TraceReplay.Operation.values().length)
+                        throw new IOException("Неизвестная операция в трассе: " + operation);
+                    int id = 0;
+                    int priority = 0;
+                    if (operation != TraceReplay.Operation.PEEK.ordinal() && operation != TraceReplay.Operation.POLL.ordinal())
+                    {
+                        id = readVarint(window);
+                        if (id < 0 || id >= identifiers)
+                            throw new IOException("Номер идентификатора вне заголовка трассы: " + id);
+                        if (operation != TraceReplay.Operation.REMOVE.ordinal())
+                        {
+                            var zigzag = readVarint(window);
+                            priority = (zigzag >>> 1) ^ -(zigzag & 1);
+                        }
+                    }
+                    visitor.accept(operation, id, priority);
+                }
+                catch (BufferUnderflowException ex) {
+                    throw new IOException("Трасса обрезана: прочитано операций " + i + " из " + operations, ex);
+                }
+            }
+            return identifiers;
+        }
+    }
+
+    private static int readVarint(ByteBuffer buffer)
+    {
+        int result = 0;
+        for (int shift = 0; ; shift += 7)
+        {
+            var b = buffer.get();
+            result |= (b & 0x7f) << shift;
+            if (b >= 0)
+                return result;
+        }
+    }
+
+    /**
+     * Последовательная запись двоичной трассы. Файл становится корректным только после {@link #finish(int)}.
+     */
+    static final class Writer implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+        private long position = HEADER_BYTES;
+        private long operations = 0;
+
+        Writer(Path file) throws IOException
+        {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        }
+
+        void write(int operation, int id, int priority) throws IOException
+        {
+            if (buffer.remaining() < MAX_RECORD_BYTES)
+                drain();
+            buffer.put((byte)operation);
+            if (operation != TraceReplay.Operation.PEEK.ordinal() && operation != TraceReplay.Operation.POLL.ordinal())
+            {
+                writeVarint(id);
+                if (operation != TraceReplay.Operation.REMOVE.ordinal())
+                    writeVarint((priority << 1) ^ (priority >> 31));
+            }
+            operations++;
+        }
+
+        /**
+         * Дописывает буфер и заголовок
+         */
+        void finish(int identifiers) throws IOException
+        {
+            drain();
+            var header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(identifiers).putLong(operations);
+            header.flip();
+            while (header.hasRemaining())
+                channel.write(header, header.position());
+            channel.truncate(position);
+        }
+
+        private void writeVarint(int value)
+        {
+            while ((value & ~0x7f) != 0)
+            {
+                buffer.put((byte)(value & 0x7f | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte)value);
+        }
+
+        private void drain() throws IOException
+        {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                position += channel.write(buffer, position);
+            buffer.clear();
+        }
+
+        public void close() throws IOException
+        {
+            channel.close();
+        }
+    }
+}
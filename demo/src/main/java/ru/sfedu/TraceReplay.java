@@ -0,0 +1,258 @@
+package ru.sfedu;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Воспроизведение записанной трассы операций на {@link DynamicPriorityQueue} с замером задержек.
+ * <p>
+ * Трасса - текст в грамматике {@link ConsoleExample} или ее сжатое двоичное представление (см. {@link #convert(Path, Path)}),
+ * формат определяется по сигнатуре файла. Идентификаторы трассы становятся числами {@code Integer} от нуля, значение
+ * элемента равно идентификатору, приоритет хранится в массиве, и {@code update} меняет его перед вызовом
+ * {@link DynamicPriorityQueue#update(Object)}.
+ * <p>
+ * Без ограничения частоты операции идут подряд, задержка операции - время ее вызова. С частотой {@code rate} операция
+ * {@code i} начинается не раньше {@code i / rate} секунд от начала, и задержка отсчитывается от этого назначенного момента,
+ * а не от фактического начала: иначе операции, отставшие из-за долгой предыдущей, не попали бы в хвост распределения.
+ * Разбор текста входит в общее время, но не в задержки; для точной пропускной способности трассу стоит перевести
+ * в двоичный вид.
+ * <pre>
+ * java ru.sfedu.TraceReplay trace.txt [--rate opsPerSecond] [--backend PAIRING|DARY|RANK_PAIRING|RADIX]
+ * java ru.sfedu.TraceReplay --convert trace.txt trace.bin
+ * </pre>
+ */
+public final class TraceReplay {
+    /**
+     * Виды операций трассы; порядковый номер - код операции в двоичной трассе
+     */
+    public enum Operation {
+        INSERT, PEEK, POLL, UPDATE, REMOVE
+    }
+
+    private TraceReplay()
+    {
+    }
+
+    /**
+     * Переводит текстовую трассу в двоичную
+     */
+    public static void convert(Path text, Path binary) throws IOException
+    {
+        try (var writer = new TraceFile.Writer(binary)) {
+            writer.finish(TraceFile.readText(text, writer::write));
+        }
+    }
+
+    /**
+     * Воспроизводит трассу на пустой очереди
+     * @param rate операций в секунду, 0 - без ограничения
+     */
+    public static Report replay(Path trace, DynamicPriorityQueue<Integer, Integer> queue, long rate) throws IOException
+    {
+        if (rate < 0)
+            throw new IllegalArgumentException("Отрицательная частота операций: " + rate);
+        if (!queue.isEmpty() || queue.delayedSize() != 0)
+            throw new IllegalArgumentException("Трасса воспроизводится только на пустой очереди");
+        var replayer = new Replayer(queue, rate);
+        replayer.start = System.nanoTime();
+        if (TraceFile.isBinary(trace))
+            TraceFile.readBinary(trace, replayer);
+        else
+            TraceFile.readText(trace, replayer);
+        return new Report(replayer.operations, System.nanoTime() - replayer.start, replayer.latency);
+    }
+
+    /**
+     * Итог воспроизведения: общее время и гистограммы задержек по видам операций
+     */
+    public static final class Report {
+        private final long operations;
+        private final long nanos;
+        private final LatencyHistogram[] latency;
+
+        private Report(long operations, long nanos, LatencyHistogram[] latency)
+        {
+            this.operations = operations;
+            this.nanos = nanos;
+            this.latency = latency;
+        }
+
+        public long operations()
+        {
+            return operations;
+        }
+
+        public long nanos()
+        {
+            return nanos;
+        }
+
+        /**
+         * Операций в секунду
+         */
+        public double throughput()
+        {
+            return nanos == 0 ? 0 : operations * 1e9 / nanos;
+        }
+
+        /**
+         * Задержки операций вида {@code operation} в наносекундах
+         */
+        public LatencyHistogram latency(Operation operation)
+        {
+            return latency[operation.ordinal()];
+        }
+
+        @Override
+        public String toString()
+        {
+            var text = new StringBuilder();
+            text.append(String.format("Операций: %d за %.1f мс, %.0f оп/с%n", operations, nanos / 1e6, throughput()));
+            text.append(String.format("%-8s %12s %10s %10s %10s %10s %12s%n", "", "число", "p50, нс", "p99, нс", "p999, нс", "среднее", "макс, нс"));
+            for (var operation : Operation.values())
+            {
+                var histogram = latency(operation);
+                if (histogram.count() == 0)
+                    continue;
+                text.append(String.format("%-8s %12d %10d %10d %10d %10.0f %12d%n", operation.name().toLowerCase(), histogram.count(),
+                        histogram.percentile(50), histogram.percentile(99), histogram.percentile(99.9), histogram.mean(), histogram.max()));
+            }
+            return text.toString();
+        }
+    }
+
+    private static final class Replayer implements TraceFile.Visitor {
+        private static final Operation[] OPERATIONS = Operation.values();
+
+        private final DynamicPriorityQueue<Integer, Integer> queue;
+        // Промежуток между назначенными началами операций, 0 - без ограничения частоты
+        private final double interval;
+        private final LatencyHistogram[] latency = new LatencyHistogram[Operation.values().length];
+        private int[] priorities = new int[0];
+        private boolean[] queued = new boolean[0];
+        private Integer[] ids = new Integer[0];
+        private PriorityUpdater[] updaters = new PriorityUpdater[0];
+        private long start;
+        private long operations = 0;
+
+        Replayer(DynamicPriorityQueue<Integer, Integer> queue, long rate)
+        {
+            this.queue = queue;
+            interval = rate == 0 ? 0 : 1e9 / rate;
+            for (int i = 0; i < latency.length; i++)
+                latency[i] = new LatencyHistogram();
+        }
+
+        public void accept(int operation, int id, int priority)
+        {
+            if (id >= ids.length)
+                grow(id);
+            // Приоритет уже стоящего в очереди элемента меняет только update
+            if (operation == Operation.UPDATE.ordinal() || operation == Operation.INSERT.ordinal() && !queued[id])
+                priorities[id] = priority;
+            long begin;
+            if (interval > 0)
+            {
+                begin = start + (long)(operations * interval);
+                waitUntil(begin);
+            }
+            else
+                begin = System.nanoTime();
+            switch (OPERATIONS[operation])
+            {
+                case INSERT:
+                    if (queue.offer(ids[id], ids[id], updaters[id]))
+                        queued[id] = true;
+                    break;
+                case PEEK:
+                    queue.peek();
+                    break;
+                case POLL:
+                    var value = queue.poll();
+                    if (value != null)
+                        queued[value] = false;
+                    break;
+                case UPDATE:
+                    queue.update(ids[id]);
+                    break;
+                default:
+                    if (queue.remove(ids[id]))
+                        queued[id] = false;
+                    break;
+            }
+            latency[operation].record(System.nanoTime() - begin);
+            operations++;
+        }
+
+        private void grow(int id)
+        {
+            var length = Math.max(id + 1, ids.length * 2);
+            var from = ids.length;
+            priorities = Arrays.copyOf(priorities, length);
+            queued = Arrays.copyOf(queued, length);
+            ids = Arrays.copyOf(ids, length);
+            updaters = Arrays.copyOf(updaters, length);
+            for (int i = from; i < length; i++)
+            {
+                final int index = i;
+                ids[i] = i;
+                updaters[i] = () -> priorities[index];
+            }
+        }
+
+        private static void waitUntil(long time)
+        {
+            // Долгое ожидание - сном, последние микросекунды - активно, чтобы не опоздать из-за планировщика
+            long left;
+            while ((left = time - System.nanoTime()) > 0)
+            {
+                if (left > TimeUnit.MICROSECONDS.toNanos(200))
+                    LockSupport.parkNanos(left - TimeUnit.MICROSECONDS.toNanos(100));
+                else
+                    Thread.onSpinWait();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length == 3 && args[0].equals("--convert"))
+        {
+            convert(Path.of(args[1]), Path.of(args[2]));
+            return;
+        }
+        if (args.length == 0 || args.length % 2 == 0)
+        {
+            usage();
+            return;
+        }
+        long rate = 0;
+        var backend = HeapBackend.PAIRING;
+        for (int i = 1; i < args.length; i += 2)
+        {
+            switch (args[i])
+            {
+                case "--rate":
+                    rate = Long.parseLong(args[i + 1]);
+                    break;
+                case "--backend":
+                    backend = HeapBackend.valueOf(args[i + 1]);
+                    break;
+                default:
+                    usage();
+                    return;
+            }
+        }
+        System.out.print(replay(Path.of(args[0]), new DynamicPriorityQueue<>(backend), rate));
+    }
+
+    private static void usage()
+    {
+        System.out.println("Использование:");
+        System.out.println("TraceReplay <trace> [--rate <операций в секунду>] [--backend PAIRING|DARY|RANK_PAIRING|RADIX]: воспроизводит трассу.");
+        System.out.println("TraceReplay --convert <text> <binary>: переводит текстовую трассу в двоичную.");
+    }
+}
@@ -0,0 +1,103 @@
+package ru.sfedu;
+
+import java.util.Arrays;
+
+/**
+ * Двоичная куча по убыванию ключа над теми же вершинами, что и основная куча очереди:
+ * дает наихудший элемент ограниченной {@link DynamicPriorityQueue} за O(1), а его удаление и перестановку
+ * при изменении ключа - за O(log n). Вершина хранит свою ячейку в {@code worstSlot}, ссылки основной кучи не трогаются.
+ */
+final class WorstIndex<I> {
+    private HeapNode<?>[] heap = new HeapNode<?>[16];
+    private int size = 0;
+
+    /**
+     * Вершина с наибольшим ключом или {@code null}
+     */
+    HeapNode<I> max()
+    {
+        return size == 0 ? null : node(0);
+    }
+
+    void add(HeapNode<I> node)
+    {
+        if (size == heap.length)
+            heap = Arrays.copyOf(heap, size * 2);
+        heap[size] = node;
+        node.worstSlot = size++;
+        siftUp(node.worstSlot);
+    }
+
+    void remove(HeapNode<I> node)
+    {
+        var index = node.worstSlot;
+        var last = node(--size);
+        heap[size] = null;
+        if (index == size)
+            return;
+        heap[index] = last;
+        last.worstSlot = index;
+        changed(last);
+    }
+
+    /**
+     * Переставляет вершину после изменения ее ключа
+     */
+    void changed(HeapNode<I> node)
+    {
+        var index = node.worstSlot;
+        siftUp(index);
+        if (heap[index] == node)
+            siftDown(index);
+    }
+
+    void clear()
+    {
+        Arrays.fill(heap, 0, size, null);
+        size = 0;
+    }
+
+    private void siftUp(int index)
+    {
+        var node = node(index);
+        while (index > 0)
+        {
+            var parentIndex = (index - 1) >>> 1;
+            var parent = node(parentIndex);
+            if (parent.key >= node.key)
+                break;
+            heap[index] = parent;
+            parent.worstSlot = index;
+            index = parentIndex;
+        }
+        heap[index] = node;
+        node.worstSlot = index;
+    }
+
+    private void siftDown(int index)
+    {
+        var node = node(index);
+        while (true)
+        {
+            var child = 2 * index + 1;
+            if (child >= size)
+                break;
+            if (child + 1 < size && node(child + 1).key > node(child).key)
+                child++;
+            var larger = node(child);
+            if (node.key >= larger.key)
+                break;
+            heap[index] = larger;
+            larger.worstSlot = index;
+            index = child;
+        }
+        heap[index] = node;
+        node.worstSlot = index;
+    }
+
+    @SuppressWarnings("unchecked")
+    private HeapNode<I> node(int index)
+    {
+        return (HeapNode<I>)heap[index];
+    }
+}
@@ -0,0 +1,158 @@
+
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import ru.sfedu.ConflictPolicy;
+import ru.sfedu.DynamicPriorityQueue;
+import ru.sfedu.MergeStrategy;
+import ru.sfedu.PriorityCell;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AbsorbTests {
+    @Test
+    public void AbsorbRandomOperationsTest()
+    {
+        for (var strategy : MergeStrategy.values())
+        {
+            var rnd = new Random(17);
+            var priorityArr = new int[4000];
+            for (int i = 0; i < priorityArr.length; i++)
+                priorityArr[i] = rnd.nextInt(100) * priorityArr.length + i;
+            var testQueue = new DynamicPriorityQueue<Integer, Integer>(strategy);
+            var safeQueue = new PriorityQueue<Integer>((i1, i2) -> Integer.compare(priorityArr[i1], priorityArr[i2]));
+            for (int i = 0; i < 20000; i++)
+            {
+                int val = rnd.nextInt(priorityArr.length);
+                switch (rnd.nextInt(8))
+                {
+                    case 0:
+                        // Поглощаемая очередь не пересекается с принимающей, индекс копит сегменты
+                        var other = new DynamicPriorityQueue<Integer, Integer>(strategy);
+                        for (int j = rnd.nextInt(50); j > 0; j--)
+                        {
+                            int id = rnd.nextInt(priorityArr.length);
+                            if (!safeQueue.contains(id))
+                            {
+                                final int key = id;
+                                other.offer(id, id, () -> priorityArr[key]);
+                            }
+                        }
+                        other.forEach(safeQueue::add);
+                        assertEquals(0, testQueue.absorb(other, ConflictPolicy.FAIL), strategy.name());
+                        assertTrue(other.isEmpty(), strategy.name());
+                        break;
+                    case 1:
+                        assertEquals(safeQueue.poll(), testQueue.poll(), strategy.name());
+                        break;
+                    case 2:
+                        assertEquals(safeQueue.remove(val), testQueue.remove(val), strategy.name());
+                        break;
+                    case 3:
+                        if (safeQueue.contains(val))
+                        {
+                            safeQueue.remove(val);
+                            priorityArr[val] = rnd.nextInt(100) * priorityArr.length + val;
+                            safeQueue.add(val);
+                            assertTrue(testQueue.update(val));
+                        }
+                        break;
+                    default:
+                        if (!safeQueue.contains(val))
+                            safeQueue.add(val);
+                        testQueue.offer(val, val, () -> priorityArr[val]);
+                }
+                assertEquals(safeQueue.size(), testQueue.size(), strategy.name());
+                assertEquals(safeQueue.peek(), testQueue.peek(), strategy.name());
+                assertEquals(safeQueue.contains(val), testQueue.contains(val), strategy.name());
+            }
+            var res = new ArrayList<Integer>();
+            testQueue.drainTo(res);
+            var expected = new ArrayList<Integer>();
+            while (!safeQueue.isEmpty())
+                expected.add(safeQueue.poll());
+            assertEquals(expected, res, strategy.name());
+        }
+    }
+
+    @Test
+    public void ConflictPolicyTest()
+    {
+        for (var policy : ConflictPolicy.values())
+        {
+            var testQueue = new DynamicPriorityQueue<String, Integer>();
+            var other = new DynamicPriorityQueue<String, Integer>();
+            testQueue.offer("a1", 1, 10);
+            testQueue.offer("a2", 2, 20);
+            testQueue.offer("a3", 3, 30);
+            other.offer("b2", 2, 5);
+            other.offer("b3", 3, 35);
+            other.offer("b4", 4, 40);
+            if (policy == ConflictPolicy.FAIL)
+            {
+                assertThrows(IllegalStateException.class, () -> testQueue.absorb(other, policy));
+                assertEquals(3, testQueue.size());
+                assertEquals(3, other.size());
+                assertEquals("b2", other.peek());
+                continue;
+            }
+            assertEquals(2, testQueue.absorb(other, policy), policy.name());
+            assertTrue(other.isEmpty(), policy.name());
+            var res = new ArrayList<String>();
+            testQueue.drainTo(res);
+            switch (policy)
+            {
+                case KEEP_EXISTING:
+                    assertEquals(List.of("a1", "a2", "a3", "b4"), res);
+                    break;
+                case KEEP_INCOMING:
+                    assertEquals(List.of("b2", "a1", "b3", "b4"), res);
+                    break;
+                default:
+                    assertEquals(List.of("b2", "a1", "a3", "b4"), res);
+            }
+        }
+        var queue = new DynamicPriorityQueue<String, Integer>();
+        assertThrows(IllegalArgumentException.class, () -> queue.absorb(queue, ConflictPolicy.FAIL));
+    }
+
+    @Test
+    public void AbsorbedCellsTest()
+    {
+        var cells = new PriorityCell[100];
+        var first = new DynamicPriorityQueue<Integer, Integer>();
+        var second = new DynamicPriorityQueue<Integer, Integer>();
+        var third = new DynamicPriorityQueue<Integer, Integer>();
+        for (int i = 0; i < cells.length; i++)
+        {
+            cells[i] = new PriorityCell(1000 + i);
+            (i % 2 == 0 ? first : second).offer(i, i, cells[i]);
+        }
+        // Оповещение, пришедшее до поглощения, учитывается
+        cells[51].set(0);
+        second.absorb(first, ConflictPolicy.FAIL);
+        third.absorb(second, ConflictPolicy.FAIL);
+        assertEquals(51, third.peek());
+        // Ячейки поглощенных очередей оповещают третью очередь через цепочку ящиков
+        cells[50].set(-1);
+        assertEquals(50, third.poll());
+        assertFalse(cells[50].isAttached());
+        cells[7].set(-2);
+        assertEquals(7, third.peek());
+        // Новые элементы первой очереди с ее новым ящиком не затрагивают третью
+        var cell = new PriorityCell(5);
+        first.offer(-1, -1, cell);
+        cell.set(-10);
+        assertEquals(-1, first.peek());
+        assertEquals(7, third.peek());
+        var seen = new HashSet<Integer>();
+        third.forEach(seen::add);
+        assertEquals(99, seen.size());
+    }
+}
@@ -0,0 +1,122 @@
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import ru.sfedu.DynamicPriorityQueue;
+import ru.sfedu.HeapBackend;
+import ru.sfedu.MergeStrategy;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchTests {
+    @Test
+    public void PollNRandomOperationsTest()
+    {
+        for (var strategy : MergeStrategy.values())
+        {
+            var rnd = new Random(2026);
+            // Приоритеты различны, чтобы порядок извлечения был однозначным
+            var priorityArr = new int[5000];
+            for (int i = 0; i < priorityArr.length; i++)
+                priorityArr[i] = rnd.nextInt(1000) * priorityArr.length + i;
+            var testQueue = new DynamicPriorityQueue<Integer, Integer>(strategy);
+            var safeQueue = new PriorityQueue<Integer>((i1, i2) -> Integer.compare(priorityArr[i1], priorityArr[i2]));
+            for (int i = 0; i < 3000; i++)
+            {
+                int k = rnd.nextInt(40);
+                switch (rnd.nextInt(5))
+                {
+                    case 0:
+                        var expected = new ArrayList<Integer>();
+                        for (int j = 0; j < k && !safeQueue.isEmpty(); j++)
+                            expected.add(safeQueue.poll());
+                        var actual = new ArrayList<Integer>();
+                        assertEquals(expected.size(), testQueue.pollN(k, actual::add), strategy.name());
+                        assertEquals(expected, actual, strategy.name());
+                        break;
+                    case 1:
+                        var sorted = new ArrayList<>(safeQueue);
+                        sorted.sort((i1, i2) -> Integer.compare(priorityArr[i1], priorityArr[i2]));
+                        assertEquals(sorted.subList(0, Math.min(k, sorted.size())), testQueue.peekN(k), strategy.name());
+                        break;
+                    case 2:
+                        var batch = new ArrayList<Integer>();
+                        for (int j = 0; j < k; j++)
+                        {
+                            int val = rnd.nextInt(priorityArr.length);
+                            batch.add(val);
+                            if (!safeQueue.contains(val))
+                                safeQueue.add(val);
+                        }
+                        testQueue.offerAll(batch, v -> v, v -> priorityArr[v]);
+                        break;
+                    default:
+                        int val = rnd.nextInt(priorityArr.length);
+                        if (!safeQueue.contains(val))
+                            safeQueue.add(val);
+                        testQueue.offer(val, val, priorityArr[val]);
+                }
+                assertEquals(safeQueue.size(), testQueue.size(), strategy.name());
+                assertEquals(safeQueue.peek(), testQueue.peek(), strategy.name());
+            }
+        }
+    }
+
+    @Test
+    public void DrainToTest()
+    {
+        var priorityArr = new int[] { 5, 3, 8, 1, 9, 2, 7 };
+        var testQueue = new DynamicPriorityQueue<Integer, Integer>();
+        for (int i = 0; i < priorityArr.length; i++)
+        {
+            final int val = i;
+            testQueue.offer(val, val, () -> priorityArr[val]);
+        }
+        // Измененный приоритет учитывается при извлечении партии
+        priorityArr[4] = 0;
+        testQueue.markDirty(4);
+        var res = new ArrayList<Integer>();
+        assertEquals(3, testQueue.drainTo(res, 3));
+        assertEquals(List.of(4, 3, 5), res);
+        assertEquals(4, testQueue.size());
+        assertFalse(testQueue.contains(4));
+        assertTrue(testQueue.update(0));
+        assertEquals(4, testQueue.drainTo(res));
+        assertEquals(List.of(4, 3, 5, 1, 0, 6, 2), res);
+        assertTrue(testQueue.isEmpty());
+        assertEquals(0, testQueue.drainTo(res));
+        assertThrows(IllegalArgumentException.class, () -> testQueue.pollN(-1, res::add));
+    }
+
+    @Test
+    public void PollNSinkFailureTest()
+    {
+        // Ведерная очередь создается с диапазоном приоритетов
+        for (var backend : new HeapBackend[] {HeapBackend.PAIRING, HeapBackend.DARY, HeapBackend.RANK_PAIRING, null})
+        {
+            var testQueue = backend == null ? new DynamicPriorityQueue<Integer, Integer>(0, 100) : new DynamicPriorityQueue<Integer, Integer>(backend);
+            for (int i = 0; i < 100; i++)
+                testQueue.offer(i, i, 100 - i);
+            var res = new ArrayList<Integer>();
+            // Элемент, на котором приемник бросил исключение, уже извлечен; остальные возвращаются в очередь
+            assertThrows(IllegalStateException.class, () -> testQueue.pollN(10, v -> {
+                if (res.size() == 5)
+                    throw new IllegalStateException();
+                res.add(v);
+            }), String.valueOf(backend));
+            assertEquals(List.of(99, 98, 97, 96, 95), res, String.valueOf(backend));
+            assertEquals(94, testQueue.size(), String.valueOf(backend));
+            assertEquals(93, testQueue.peek(), String.valueOf(backend));
+            assertTrue(testQueue.contains(90), String.valueOf(backend));
+            assertEquals(94, testQueue.drainTo(res), String.valueOf(backend));
+            assertEquals(99, res.size(), String.valueOf(backend));
+            for (int i = 5; i < res.size(); i++)
+                assertEquals(99 - i - 1, res.get(i), String.valueOf(backend));
+        }
+    }
+}
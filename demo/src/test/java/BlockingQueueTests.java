@@ -0,0 +1,169 @@
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import ru.sfedu.DynamicPriorityBlockingQueue;
+import ru.sfedu.DynamicPriorityExecutor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BlockingQueueTests {
+    @Test
+    public void TakeWaitsForRootTest() throws InterruptedException
+    {
+        var testQueue = new DynamicPriorityBlockingQueue<String, String>();
+        var taken = new ArrayList<String>();
+        var consumer = new Thread(() -> {
+            try {
+                taken.add(testQueue.take());
+                taken.add(testQueue.take());
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        consumer.start();
+        Thread.sleep(50);
+        assertTrue(consumer.isAlive());
+        testQueue.offer("b", "b", 2);
+        testQueue.offer("a", "a", 1);
+        consumer.join(5000);
+        assertFalse(consumer.isAlive());
+        assertEquals(2, taken.size());
+        assertNull(testQueue.poll(10, TimeUnit.MILLISECONDS));
+    }
+    @Test
+    public void DrainToTest()
+    {
+        var testQueue = new DynamicPriorityBlockingQueue<Integer, Integer>();
+        for (int i = 0; i < 10; i++)
+            testQueue.offer(i, i, 10 - i);
+        var drained = new ArrayList<Integer>();
+        assertEquals(3, testQueue.drainTo(drained, 3));
+        assertEquals(List.of(9, 8, 7), drained);
+        assertEquals(7, testQueue.drainTo(drained));
+        assertTrue(testQueue.isEmpty());
+    }
+    @Test
+    public void ExecutorPriorityOrderTest() throws Exception
+    {
+        var executor = new DynamicPriorityExecutor(1);
+        var gate = new CountDownLatch(1);
+        // Единственный поток занят, пока задачи копятся в очереди
+        executor.execute(() -> {
+            try {
+                gate.await();
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        var order = Collections.synchronizedList(new ArrayList<String>());
+        int[] priorities = {3, 1, 2};
+        String[] names = {"a", "b", "c"};
+        for (int i = 0; i < 3; i++)
+        {
+            final int ind = i;
+            executor.submit(() -> order.add(names[ind]), names[ind], () -> priorities[ind]);
+        }
+        priorities[0] = 0;
+        assertTrue(executor.update("a"));
+        var last = executor.submit(() -> "done", "d", () -> 100);
+        gate.countDown();
+        assertEquals("done", last.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of("a", "b", "c"), order);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {}));
+    }
+    @Test
+    public void DelayedTakeTest() throws InterruptedException
+    {
+        var testQueue = new DynamicPriorityBlockingQueue<String, String>();
+        var taken = new ArrayList<String>();
+        var consumer = new Thread(() -> {
+            try {
+                taken.add(testQueue.take());
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        consumer.start();
+        Thread.sleep(20);
+        // Кроме отложенной вставки, сигналов нет: поток должен проснуться к сроку сам
+        testQueue.offerDelayed("a", "a", () -> 1, TimeUnit.MILLISECONDS.toNanos(50));
+        consumer.join(5000);
+        assertFalse(consumer.isAlive());
+        assertEquals(List.of("a"), taken);
+        testQueue.offerDelayed("b", "b", () -> 1, TimeUnit.MILLISECONDS.toNanos(50));
+        assertNull(testQueue.poll(1, TimeUnit.MILLISECONDS));
+        assertEquals("b", testQueue.poll(5, TimeUnit.SECONDS));
+    }
+    @Test
+    public void ExecutorShutdownRaceTest() throws Exception
+    {
+        for (int round = 0; round < 200; round++)
+        {
+            var executor = new DynamicPriorityExecutor(2);
+            var accepted = new AtomicInteger();
+            var ran = new AtomicInteger();
+            var producer = new Thread(() -> {
+                try {
+                    while (true)
+                    {
+                        executor.execute(ran::incrementAndGet);
+                        accepted.incrementAndGet();
+                    }
+                }
+                catch (RejectedExecutionException ex) {
+                    // Исполнитель остановлен
+                }
+            });
+            producer.start();
+            executor.shutdown();
+            producer.join(5000);
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+            // Каждая принятая задача выполнена, ни одна не осталась в очереди
+            assertEquals(accepted.get(), ran.get());
+        }
+    }
+    @Test
+    public void ExecutorShutdownInterruptTest() throws Exception
+    {
+        var executor = new DynamicPriorityExecutor(1);
+        var gate = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                gate.await();
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        var order = Collections.synchronizedList(new ArrayList<String>());
+        // Задача оставляет поток прерванным, следующий take() получает InterruptedException
+        executor.submit(() -> {
+            order.add("a");
+            Thread.currentThread().interrupt();
+        }, "a", () -> 1);
+        executor.submit(() -> order.add("b"), "b", () -> 2);
+        executor.submit(() -> order.add("c"), "c", () -> 3);
+        // Функция приоритета, бросающая исключение, не выдается за остановку исполнителя
+        assertThrows(IllegalStateException.class, () -> executor.submit(() -> {}, "d", () -> {
+            throw new IllegalStateException("счетчик недоступен");
+        }));
+        executor.shutdown();
+        gate.countDown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(List.of("a", "b", "c"), order);
+    }
+}
@@ -0,0 +1,187 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+import ru.sfedu.ConflictPolicy;
+import ru.sfedu.DynamicPriorityQueue;
+import ru.sfedu.HeapBackend;
+import ru.sfedu.OverflowPolicy;
+import ru.sfedu.PriorityCell;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoundedQueueTests {
+    @Test
+    public void EvictWorstRandomTest()
+    {
+        for (var backend : new HeapBackend[] {HeapBackend.PAIRING, HeapBackend.DARY, HeapBackend.RANK_PAIRING})
+        {
+            var rnd = new Random(11);
+            var priorityArr = new int[5000];
+            var cells = new PriorityCell[priorityArr.length];
+            for (int i = 0; i < priorityArr.length; i++)
+                priorityArr[i] = rnd.nextInt(100) * priorityArr.length + i;
+            var testQueue = new DynamicPriorityQueue<Integer, Integer>(backend);
+            var evicted = new ArrayList<Integer>();
+            testQueue.setCapacity(500, OverflowPolicy.EVICT_WORST, evicted::add);
+            // Приоритеты различны, поэтому наихудший элемент определен однозначно
+            var safeQueue = new TreeSet<Integer>((i1, i2) -> Integer.compare(priorityArr[i1], priorityArr[i2]));
+            for (int i = 0; i < 60000; i++)
+            {
+                int val = rnd.nextInt(priorityArr.length);
+                switch (rnd.nextInt(8))
+                {
+                    case 0:
+                        assertEquals(safeQueue.pollFirst(), testQueue.poll(), backend.name());
+                        break;
+                    case 1:
+                        assertEquals(safeQueue.pollLast(), testQueue.pollLast(), backend.name());
+                        break;
+                    case 2:
+                        if (safeQueue.remove(val))
+                        {
+                            priorityArr[val] = rnd.nextInt(100) * priorityArr.length + val;
+                            safeQueue.add(val);
+                            if (cells[val] != null && cells[val].isAttached())
+                                cells[val].set(priorityArr[val]);
+                            else
+                                assertTrue(testQueue.update(val), backend.name());
+                        }
+                        break;
+                    case 3:
+                        assertEquals(safeQueue.remove(val), testQueue.remove(val), backend.name());
+                        break;
+                    default:
+                        if (safeQueue.contains(val))
+                            break;
+                        evicted.clear();
+                        var expectedAdded = true;
+                        Integer expectedEvicted = null;
+                        if (safeQueue.size() == 500)
+                        {
+                            if (priorityArr[val] < priorityArr[safeQueue.last()])
+                                expectedEvicted = safeQueue.pollLast();
+                            else
+                            {
+                                expectedAdded = false;
+                                expectedEvicted = val;
+                            }
+                        }
+                        if (expectedAdded)
+                            safeQueue.add(val);
+                        boolean added;
+                        if (rnd.nextBoolean())
+                        {
+                            var cell = new PriorityCell(priorityArr[val]);
+                            added = testQueue.offer(val, val, cell);
+                            if (added)
+                                cells[val] = cell;
+                        }
+                        else
+                            added = testQueue.offer(val, val, () -> priorityArr[val]);
+                        assertEquals(expectedAdded, added, backend.name());
+                        assertEquals(expectedEvicted == null ? List.of() : List.of(expectedEvicted), evicted, backend.name());
+                }
+                assertEquals(safeQueue.size(), testQueue.size(), backend.name());
+                assertEquals(safeQueue.isEmpty() ? null : safeQueue.first(), testQueue.peek(), backend.name());
+                assertEquals(safeQueue.isEmpty() ? null : safeQueue.last(), testQueue.peekLast(), backend.name());
+            }
+        }
+    }
+
+    @Test
+    public void RejectTest()
+    {
+        var testQueue = new DynamicPriorityQueue<Integer, Integer>();
+        var rejected = new ArrayList<Integer>();
+        testQueue.setCapacity(3, OverflowPolicy.REJECT, rejected::add);
+        for (int i = 0; i < 5; i++)
+            assertEquals(i < 3, testQueue.offer(i, i, 10 - i));
+        assertEquals(List.of(3, 4), rejected);
+        assertFalse(testQueue.contains(4));
+        // Пакетная вставка добавляет значения, пока есть место
+        testQueue.poll();
+        assertTrue(testQueue.offerAll(List.of(7, 8, 9), v -> v, v -> v));
+        assertEquals(3, testQueue.size());
+        assertTrue(testQueue.contains(7));
+        assertFalse(testQueue.contains(8));
+        assertEquals(List.of(3, 4, 8, 9), rejected);
+        assertEquals(3, testQueue.capacity());
+    }
+
+    @Test
+    public void BatchAndCapacityChangeTest()
+    {
+        var testQueue = new DynamicPriorityQueue<Integer, Integer>();
+        for (int i = 0; i < 100; i++)
+            testQueue.offer(i, i, i);
+        assertThrows(IllegalStateException.class, testQueue::peekLast);
+        var evicted = new ArrayList<Integer>();
+        // Лишние наихудшие вытесняются сразу
+        testQueue.setCapacity(10, OverflowPolicy.EVICT_WORST, evicted::add);
+        assertEquals(10, testQueue.size());
+        assertEquals(90, evicted.size());
+        assertEquals(9, testQueue.peekLast());
+        evicted.clear();
+        var values = new ArrayList<Integer>();
+        for (int i = 1; i <= 10; i++)
+            values.add(-i);
+        // Все новые ключи лучше имеющихся, после вставки партии вытесняются прежние элементы
+        testQueue.addAll(values, v -> v, v -> () -> v);
+        assertEquals(10, testQueue.size());
+        assertEquals(List.of(9, 8, 7, 6, 5, 4, 3, 2, 1, 0), evicted);
+        var res = new ArrayList<Integer>();
+        testQueue.forEach(res::add);
+        var expected = new ArrayList<>(values);
+        expected.sort(null);
+        assertEquals(expected, res);
+    }
+
+    @Test
+    public void BoundedAbsorbTest()
+    {
+        var testQueue = new DynamicPriorityQueue<Integer, Integer>();
+        var other = new DynamicPriorityQueue<Integer, Integer>();
+        for (int i = 0; i < 10; i++)
+        {
+            testQueue.offer(i, i, i * 2);
+            other.offer(100 + i, 100 + i, i * 2 + 1);
+        }
+        testQueue.setCapacity(15, OverflowPolicy.REJECT, null);
+        assertThrows(IllegalStateException.class, () -> testQueue.absorb(other, ConflictPolicy.FAIL));
+        assertEquals(10, testQueue.size());
+        assertEquals(10, other.size());
+        var evicted = new ArrayList<Integer>();
+        testQueue.setCapacity(15, OverflowPolicy.EVICT_WORST, evicted::add);
+        assertEquals(0, testQueue.absorb(other, ConflictPolicy.FAIL));
+        assertEquals(15, testQueue.size());
+        assertEquals(5, evicted.size());
+        // Остаются пятнадцать наименьших ключей 0..14
+        for (int key = 14; key >= 0; key--)
+        {
+            int value = testQueue.pollLast();
+            assertEquals(key, value >= 100 ? (value - 100) * 2 + 1 : value * 2);
+        }
+        assertNull(testQueue.pollLast());
+    }
+
+    @Test
+    public void RejectedOfferTest()
+    {
+        var testQueue = new DynamicPriorityQueue<String, String>();
+        var evicted = new ArrayList<String>();
+        testQueue.setCapacity(2, OverflowPolicy.EVICT_WORST, evicted::add);
+        var cell = new PriorityCell(1);
+        testQueue.offer("a", "a", cell);
+        testQueue.offer("b", "b", 5);
+        // Ячейка уже в очереди: вставка отвергается до вытеснения наихудшего
+        assertThrows(IllegalArgumentException.class, () -> testQueue.offer("x", "x", cell));
+        assertEquals(2, testQueue.size());
+        assertEquals(List.of(), evicted);
+        assertTrue(testQueue.contains("b"));
+        assertFalse(testQueue.contains("x"));
+    }
+}
@@ -0,0 +1,289 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ru.sfedu.ConflictPolicy;
+import ru.sfedu.DynamicPriorityQueue;
+import ru.sfedu.HeapBackend;
+import ru.sfedu.PriorityCell;
+import ru.sfedu.SnapshotCodec;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BucketQueueTests {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void BucketRandomOperationsTest()
+    {
+        var rnd = new Random(31);
+        var priorityArr = new int[3000];
+        var cells = new PriorityCell[priorityArr.length];
+        for (int i = 0; i < priorityArr.length; i++)
+            priorityArr[i] = rnd.nextInt(4096);
+        var testQueue = new DynamicPriorityQueue<Integer, Integer>(0, 4095);
+        // Равные приоритеты упорядочиваются по идентификатору только в эталоне, поэтому сравниваются приоритеты
+        var safeQueue = new PriorityQueue<Integer>((i1, i2) -> Integer.compare(priorityArr[i1], priorityArr[i2]));
+        for (int i = 0; i < 60000; i++)
+        {
+            int val = rnd.nextInt(priorityArr.length);
+            switch (rnd.nextInt(10))
+            {
+                case 0:
+                    var polled = testQueue.poll();
+                    var expected = safeQueue.poll();
+                    if (expected == null)
+                        assertNull(polled);
+                    else
+                    {
+                        assertEquals(priorityArr[expected], priorityArr[polled]);
+                        safeQueue.add(expected);
+                        assertTrue(safeQueue.remove(polled));
+                    }
+                    break;
+                case 1:
+                    assertEquals(safeQueue.remove(val), testQueue.remove(val));
+                    break;
+                case 2:
+                    int id = rnd.nextBoolean() && !safeQueue.isEmpty() ? safeQueue.peek() : val;
+                    if (safeQueue.remove(id))
+                    {
+                        priorityArr[id] = rnd.nextInt(4096);
+                        safeQueue.add(id);
+                        if (cells[id] != null && cells[id].isAttached())
+                            cells[id].set(priorityArr[id]);
+                        else
+                            assertTrue(testQueue.update(id));
+                    }
+                    break;
+                case 3:
+                    var actual = new ArrayList<Integer>();
+                    testQueue.pollN(rnd.nextInt(5), actual::add);
+                    for (var value : actual)
+                    {
+                        assertEquals(priorityArr[safeQueue.peek()], priorityArr[value]);
+                        assertTrue(safeQueue.remove(value));
+                    }
+                    break;
+                case 4:
+                    if (rnd.nextInt(20) == 0)
+                    {
+                        var changed = new ArrayList<Integer>();
+                        for (var queued : safeQueue)
+                            if (rnd.nextInt(3) == 0)
+                                changed.add(queued);
+                        safeQueue.removeAll(changed);
+                        for (var changedId : changed)
+                            priorityArr[changedId] = rnd.nextInt(4096);
+                        safeQueue.addAll(changed);
+                        for (var changedId : changed)
+                            if (cells[changedId] != null && cells[changedId].isAttached())
+                                cells[changedId].set(priorityArr[changedId]);
+                        testQueue.updateAll();
+                    }
+                    else
+                    {
+                        var sorted = new PriorityQueue<>(safeQueue);
+                        var top = testQueue.peekN(5);
+                        assertEquals(Math.min(5, safeQueue.size()), top.size());
+                        for (var value : top)
+                            assertEquals(priorityArr[sorted.poll()], priorityArr[value]);
+                    }
+                    break;
+                default:
+                    if (safeQueue.contains(val))
+                        break;
+                    safeQueue.add(val);
+                    if (rnd.nextBoolean())
+                    {
+                        cells[val] = new PriorityCell(priorityArr[val]);
+                        testQueue.offer(val, val, cells[val]);
+                    }
+                    else
+                        testQueue.offer(val, val, () -> priorityArr[val]);
+            }
+            assertEquals(safeQueue.size(), testQueue.size());
+            if (!safeQueue.isEmpty())
+                assertEquals(priorityArr[safeQueue.peek()], priorityArr[testQueue.peek()]);
+        }
+        var last = -1;
+        for (var value : testQueue)
+        {
+            assertTrue(priorityArr[value] >= last);
+            last = priorityArr[value];
+        }
+        assertEquals(safeQueue.size(), testQueue.size());
+    }
+
+    @Test
+    public void BucketRangeTest()
+    {
+        var priorities = new int[] {10, 20, 30};
+        var testQueue = new DynamicPriorityQueue<Integer, Integer>(10, 30);
+        for (int i = 0; i < priorities.length; i++)
+        {
+            var index = i;
+            testQueue.offer(i, i, () -> priorities[index]);
+        }
+        assertThrows(IllegalArgumentException.class, () -> testQueue.offer(3, 3, 31));
+        assertThrows(IllegalArgumentException.class, () -> testQueue.offer(4, 4, () -> 9));
+        assertEquals(3, testQueue.size());
+        assertFalse(testQueue.contains(3));
+        // Отвергнутое обновление оставляет прежний приоритет
+        priorities[1] = 5;
+        assertThrows(IllegalArgumentException.class, () -> testQueue.update(1));
+        priorities[1] = 20;
+        // Ячейка проверяется при чтении корня, остальные пометки при этом сохраняются
+        var cell = new PriorityCell(25);
+        testQueue.offer(5, 5, cell);
+        cell.set(40);
+        assertThrows(IllegalArgumentException.class, testQueue::peek);
+        cell.set(15);
+        assertEquals(0, testQueue.poll());
+        assertEquals(5, testQueue.poll());
+        assertEquals(1, testQueue.poll());
+        assertEquals(2, testQueue.poll());
+        assertThrows(IllegalArgumentException.class, () -> new DynamicPriorityQueue<Integer, Integer>(5, 4));
+        assertThrows(IllegalArgumentException.class, () -> new DynamicPriorityQueue<Integer, Integer>(HeapBackend.BUCKET));
+    }
+
+    @Test
+    public void BucketAbsorbTest()
+    {
+        var testQueue = new DynamicPriorityQueue<Integer, Integer>(0, 99);
+        var other = new DynamicPriorityQueue<Integer, Integer>(0, 999);
+        for (int i = 0; i < 100; i++)
+        {
+            testQueue.offer(i, i, 99 - i);
+            other.offer(1000 + i, 1000 + i, i);
+        }
+        assertEquals(0, testQueue.absorb(other, ConflictPolicy.FAIL));
+        assertEquals(200, testQueue.size());
+        assertTrue(other.isEmpty());
+        // Ключ вне диапазона отвергает слияние целиком
+        other.offer(-1, -1, 50);
+        other.offer(-2, -2, 500);
+        assertThrows(IllegalArgumentException.class, () -> testQueue.absorb(other, ConflictPolicy.FAIL));
+        assertEquals(200, testQueue.size());
+        assertEquals(2, other.size());
+        var last = -1;
+        while (!testQueue.isEmpty())
+        {
+            int value = testQueue.poll();
+            var priority = value >= 1000 ? value - 1000 : 99 - value;
+            assertTrue(priority >= last);
+            last = priority;
+        }
+    }
+
+    @Test
+    public void RadixMonotoneTest()
+    {
+        // Дейкстра на случайном графе: новые ключи не меньше последнего извлеченного
+        var rnd = new Random(7);
+        var vertices = 2000;
+        var edges = new int[vertices][8];
+        for (var targets : edges)
+            for (int j = 0; j < targets.length; j++)
+                targets[j] = rnd.nextInt(vertices);
+        var weights = new int[vertices];
+        for (int i = 0; i < vertices; i++)
+            weights[i] = 1 + rnd.nextInt(1000);
+        var expected = dijkstra(new DynamicPriorityQueue<Integer, Integer>(HeapBackend.PAIRING), edges, weights);
+        var actual = dijkstra(new DynamicPriorityQueue<Integer, Integer>(HeapBackend.RADIX), edges, weights);
+        assertArrayEquals(expected, actual);
+    }
+
+    private static long[] dijkstra(DynamicPriorityQueue<Integer, Integer> queue, int[][] edges, int[] weights)
+    {
+        var distance = new long[edges.length];
+        Arrays.fill(distance, Long.MAX_VALUE);
+        distance[0] = 0;
+        queue.offer(0, 0, 0);
+        var last = 0L;
+        while (!queue.isEmpty())
+        {
+            int vertex = queue.poll();
+            assertTrue(distance[vertex] >= last);
+            last = distance[vertex];
+            for (var target : edges[vertex])
+            {
+                var candidate = distance[vertex] + weights[target];
+                if (candidate >= distance[target])
+                    continue;
+                var queued = distance[target] != Long.MAX_VALUE && queue.contains(target);
+                distance[target] = candidate;
+                if (queued)
+                    queue.update(target);
+                else
+                    queue.offer(target, target, () -> (int)distance[target]);
+            }
+        }
+        return distance;
+    }
+
+    @Test
+    public void RadixBelowMinimumTest()
+    {
+        var testQueue = new DynamicPriorityQueue<Integer, Integer>(HeapBackend.RADIX);
+        for (int i = 0; i < 100; i++)
+            testQueue.offer(i, i, 1000 - i * 3);
+        assertEquals(99, testQueue.poll());
+        assertThrows(IllegalArgumentException.class, () -> testQueue.offer(-1, -1, 700));
+        assertTrue(testQueue.offer(-1, -1, 703));
+        assertEquals(100, testQueue.size());
+        assertEquals(List.of(-1, 98, 97), testQueue.peekN(3));
+        testQueue.clear();
+        // Пустая после clear() очередь снова принимает любые ключи
+        assertTrue(testQueue.offer(1, 1, -5));
+        assertEquals(1, testQueue.poll());
+    }
+
+    @Test
+    public void BoundedSnapshotTest() throws IOException
+    {
+        for (var radix : new boolean[] {false, true})
+        {
+            var testQueue = radix
+                    ? new DynamicPriorityQueue<String, Integer>(HeapBackend.RADIX)
+                    : new DynamicPriorityQueue<String, Integer>(0, 999);
+            var priorities = new int[2000];
+            var rnd = new Random(3);
+            for (int i = 0; i < priorities.length; i++)
+            {
+                var index = i;
+                priorities[i] = rnd.nextInt(1000);
+                testQueue.offer("value " + i, i, () -> priorities[index]);
+            }
+            for (int i = 0; i < 50; i++)
+                testQueue.poll();
+            var file = directory.resolve(radix + ".snapshot");
+            testQueue.snapshot(file, SnapshotCodec.strings(), SnapshotCodec.integers());
+            var restored = DynamicPriorityQueue.restore(file, SnapshotCodec.strings(), SnapshotCodec.integers(),
+                    id -> () -> priorities[id], false);
+            assertEquals(testQueue.size(), restored.size());
+            restored.peek();
+            if (radix)
+                // Нижняя граница ключей радиксной кучи - ее корень
+                assertThrows(IllegalArgumentException.class, () -> restored.offer("low", -1, -1));
+            else
+            {
+                // Диапазон очереди корзин не сохраняется, снимок восстанавливается на спаривающейся куче
+                assertTrue(restored.offer("low", -1, -1));
+                assertTrue(restored.remove(-1));
+            }
+            while (!testQueue.isEmpty())
+                assertEquals(priorities[Integer.parseInt(testQueue.poll().substring(6))],
+                        priorities[Integer.parseInt(restored.poll().substring(6))]);
+            assertTrue(restored.isEmpty());
+        }
+    }
+}
@@ -0,0 +1,167 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import org.junit.jupiter.api.Test;
+
+import ru.sfedu.ConflictPolicy;
+import ru.sfedu.DynamicPriorityQueue;
+import ru.sfedu.HeapBackend;
+import ru.sfedu.OverflowPolicy;
+import ru.sfedu.PriorityCell;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DelayedQueueTests {
+    @Test
+    public void DelayedBasicTest()
+    {
+        var now = new long[] {1000};
+        var testQueue = new DynamicPriorityQueue<String, Integer>();
+        testQueue.setClock(() -> now[0]);
+        var priorities = new int[] {5, 1, 3, 4};
+        for (int i = 0; i < priorities.length; i++)
+        {
+            var index = i;
+            assertTrue(testQueue.offerDelayed("v" + i, i, () -> priorities[index], 10 * (i + 1)));
+        }
+        assertFalse(testQueue.offerDelayed("dup", 2, () -> 0, 5));
+        assertFalse(testQueue.offer("dup", 2, 0));
+        assertTrue(testQueue.contains(3));
+        assertTrue(testQueue.isEmpty());
+        assertEquals(0, testQueue.size());
+        assertEquals(4, testQueue.delayedSize());
+        assertNull(testQueue.peek());
+        now[0] += 20;
+        assertEquals(2, testQueue.size());
+        // Разбиваемый обход не видит отложенные элементы
+        assertEquals(List.of("v0", "v1"), StreamSupport.stream(testQueue.spliterator(), false).sorted().collect(Collectors.toList()));
+        assertEquals("v1", testQueue.poll());
+        // Изменение приоритета и удаление, пока элемент в колесе
+        priorities[3] = 0;
+        assertTrue(testQueue.update(3));
+        assertTrue(testQueue.remove(2));
+        assertFalse(testQueue.contains(2));
+        assertEquals("v0", testQueue.peek());
+        now[0] += 1000;
+        assertEquals(0, testQueue.delayedSize());
+        assertEquals("v3", testQueue.poll());
+        assertEquals("v0", testQueue.poll());
+        assertNull(testQueue.poll());
+    }
+
+    @Test
+    public void DelayedRandomTest()
+    {
+        var rnd = new Random(19);
+        var now = new long[] {-5_000_000_000L};
+        var testQueue = new DynamicPriorityQueue<Integer, Integer>();
+        testQueue.setClock(() -> now[0]);
+        var priorityArr = new int[4000];
+        var cells = new PriorityCell[priorityArr.length];
+        for (int i = 0; i < priorityArr.length; i++)
+            priorityArr[i] = rnd.nextInt(1000) * priorityArr.length + i;
+        // Сроки отложенных элементов и доступные элементы
+        var due = new HashMap<Integer, Long>();
+        var safeQueue = new PriorityQueue<Integer>((i1, i2) -> Integer.compare(priorityArr[i1], priorityArr[i2]));
+        for (int i = 0; i < 100000; i++)
+        {
+            int val = rnd.nextInt(priorityArr.length);
+            switch (rnd.nextInt(8))
+            {
+                case 0:
+                    // Шаги времени разного масштаба, чтобы вершины опускались с разных уровней
+                    now[0] += rnd.nextInt(4) == 0 ? rnd.nextInt(1 << 20) : rnd.nextInt(64);
+                    for (var it = due.entrySet().iterator(); it.hasNext();)
+                    {
+                        var entry = it.next();
+                        if (entry.getValue() <= now[0])
+                        {
+                            safeQueue.add(entry.getKey());
+                            it.remove();
+                        }
+                    }
+                    break;
+                case 1:
+                    assertEquals(safeQueue.poll(), testQueue.poll());
+                    break;
+                case 2:
+                    var removed = safeQueue.remove(val) || due.remove(val) != null;
+                    assertEquals(removed, testQueue.remove(val));
+                    break;
+                case 3:
+                    var queued = safeQueue.remove(val);
+                    if (queued || due.containsKey(val))
+                    {
+                        priorityArr[val] = rnd.nextInt(1000) * priorityArr.length + val;
+                        if (queued)
+                            safeQueue.add(val);
+                        if (cells[val] != null && cells[val].isAttached())
+                            cells[val].set(priorityArr[val]);
+                        else
+                            assertTrue(testQueue.update(val));
+                    }
+                    break;
+                default:
+                    if (safeQueue.contains(val) || due.containsKey(val))
+                    {
+                        assertFalse(testQueue.offerDelayed(val, val, () -> priorityArr[val], 1));
+                        break;
+                    }
+                    long delay = rnd.nextInt(3) == 0 ? rnd.nextInt(1 << 24) : rnd.nextInt(100);
+                    PriorityCell cell = rnd.nextBoolean() ? new PriorityCell(priorityArr[val]) : null;
+                    cells[val] = cell;
+                    assertTrue(testQueue.offerDelayed(val, val, cell != null ? cell : () -> priorityArr[val], delay));
+                    if (delay <= 0)
+                        safeQueue.add(val);
+                    else
+                        due.put(val, now[0] + delay);
+            }
+            assertEquals(safeQueue.size(), testQueue.size());
+            assertEquals(due.size(), testQueue.delayedSize());
+            assertEquals(safeQueue.peek(), testQueue.peek());
+        }
+        now[0] += 1L << 40;
+        safeQueue.addAll(due.keySet());
+        var expected = new ArrayList<Integer>();
+        while (!safeQueue.isEmpty())
+            expected.add(safeQueue.poll());
+        var actual = new ArrayList<Integer>();
+        testQueue.drainTo(actual);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void DelayedInteractionsTest()
+    {
+        var now = new long[] {0};
+        var testQueue = new DynamicPriorityQueue<Integer, Integer>();
+        testQueue.setClock(() -> now[0]);
+        var rejected = new ArrayList<Integer>();
+        testQueue.setCapacity(2, OverflowPolicy.REJECT, rejected::add);
+        for (int i = 0; i < 3; i++)
+            testQueue.offerDelayed(i, i, () -> 7, 10);
+        // Отложенные элементы не занимают место, пока не наступил срок
+        assertTrue(testQueue.offer(10, 10, 1));
+        assertThrows(IllegalStateException.class, () -> testQueue.setClock(() -> 0));
+        var other = new DynamicPriorityQueue<Integer, Integer>();
+        assertThrows(IllegalStateException.class, () -> testQueue.absorb(other, ConflictPolicy.FAIL));
+        now[0] = 10;
+        assertEquals(2, testQueue.size());
+        assertEquals(2, rejected.size());
+        testQueue.offerDelayed(20, 20, () -> 1, 5);
+        testQueue.clear();
+        assertEquals(0, testQueue.delayedSize());
+        assertFalse(testQueue.contains(20));
+        now[0] = 100;
+        assertTrue(testQueue.isEmpty());
+        var radix = new DynamicPriorityQueue<Integer, Integer>(HeapBackend.RADIX);
+        assertThrows(IllegalStateException.class, () -> radix.offerDelayed(1, 1, () -> 1, 10));
+        assertTrue(radix.offerDelayed(1, 1, () -> 1, 0));
+        assertEquals(List.of(1), radix.peekN(1));
+    }
+}
@@ -0,0 +1,190 @@
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ru.sfedu.ConflictPolicy;
+import ru.sfedu.DynamicPriorityQueue;
+import ru.sfedu.HeapBackend;
+import ru.sfedu.OverflowPolicy;
+import ru.sfedu.QueueHandle;
+import ru.sfedu.SnapshotCodec;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HandleTests {
+    @TempDir
+    Path dir;
+
+    @Test
+    public void HandleRandomTest()
+    {
+        for (var handlesOnly : new boolean[] {false, true})
+            for (var backend : new HeapBackend[] {HeapBackend.PAIRING, HeapBackend.DARY, HeapBackend.RANK_PAIRING})
+            {
+                var name = backend.name() + (handlesOnly ? " без индекса" : "");
+                var rnd = new Random(37);
+                var priorityArr = new int[3000];
+                for (int i = 0; i < priorityArr.length; i++)
+                    priorityArr[i] = rnd.nextInt(1000) * priorityArr.length + i;
+                DynamicPriorityQueue<Integer, Integer> testQueue = handlesOnly
+                        ? DynamicPriorityQueue.handlesOnly(backend)
+                        : new DynamicPriorityQueue<>(backend);
+                // Вершины удаленных элементов переиспользуются, старые дескрипторы должны это заметить
+                testQueue.setPoolCapacity(100);
+                @SuppressWarnings("unchecked")
+                QueueHandle<Integer>[] handles = (QueueHandle<Integer>[])new QueueHandle<?>[priorityArr.length];
+                var stale = new ArrayList<QueueHandle<Integer>>();
+                var safeQueue = new TreeSet<Integer>((i1, i2) -> Integer.compare(priorityArr[i1], priorityArr[i2]));
+                for (int i = 0; i < 60000; i++)
+                {
+                    int val = rnd.nextInt(priorityArr.length);
+                    switch (rnd.nextInt(6))
+                    {
+                        case 0:
+                            var polled = testQueue.poll();
+                            assertEquals(safeQueue.pollFirst(), polled, name);
+                            if (polled != null)
+                            {
+                                stale.add(handles[polled]);
+                                handles[polled] = null;
+                            }
+                            break;
+                        case 1:
+                            if (safeQueue.remove(val))
+                            {
+                                assertTrue(testQueue.remove(handles[val]), name);
+                                stale.add(handles[val]);
+                                handles[val] = null;
+                            }
+                            break;
+                        case 2:
+                            if (safeQueue.remove(val))
+                            {
+                                priorityArr[val] = rnd.nextInt(1000) * priorityArr.length + val;
+                                safeQueue.add(val);
+                                assertTrue(testQueue.update(handles[val]), name);
+                            }
+                            break;
+                        case 3:
+                            if (!stale.isEmpty())
+                            {
+                                var handle = stale.get(rnd.nextInt(stale.size()));
+                                assertFalse(testQueue.isValid(handle), name);
+                                assertFalse(testQueue.update(handle), name);
+                                assertFalse(testQueue.remove(handle), name);
+                            }
+                            break;
+                        default:
+                            if (safeQueue.contains(val))
+                                break;
+                            safeQueue.add(val);
+                            handles[val] = testQueue.offerHandle(val, val, () -> priorityArr[val]);
+                            assertTrue(testQueue.isValid(handles[val]), name);
+                    }
+                    assertEquals(safeQueue.size(), testQueue.size(), name);
+                    assertEquals(safeQueue.isEmpty() ? null : safeQueue.first(), testQueue.peek(), name);
+                }
+                var expected = new ArrayList<>(safeQueue);
+                var actual = new ArrayList<Integer>();
+                testQueue.drainTo(actual);
+                assertEquals(expected, actual, name);
+            }
+    }
+
+    @Test
+    public void HandlesOnlyTest()
+    {
+        var testQueue = DynamicPriorityQueue.<String, Integer>handlesOnly(HeapBackend.PAIRING);
+        // Совпадающие идентификаторы не проверяются
+        var a = testQueue.offerHandle("a", 1, 5);
+        var b = testQueue.offerHandle("b", 1, 3);
+        var prio = new int[] {4};
+        var c = testQueue.offerHandle("c", null, () -> prio[0]);
+        assertTrue(testQueue.offer("d", 2, 7));
+        assertEquals(4, testQueue.size());
+        assertThrows(UnsupportedOperationException.class, () -> testQueue.contains(1));
+        assertThrows(UnsupportedOperationException.class, () -> testQueue.update((Object)1));
+        assertThrows(UnsupportedOperationException.class, () -> testQueue.remove((Object)2));
+        assertThrows(UnsupportedOperationException.class, () -> testQueue.markDirty(1));
+        assertThrows(UnsupportedOperationException.class,
+                () -> testQueue.snapshot(dir.resolve("snapshot"), SnapshotCodec.strings(), SnapshotCodec.integers()));
+        prio[0] = 0;
+        assertTrue(testQueue.update(c));
+        assertEquals("c", testQueue.peek());
+        assertEquals(List.of("a", "b", "c", "d"),
+                StreamSupport.stream(testQueue.spliterator(), false).sorted().collect(Collectors.toList()));
+        assertTrue(testQueue.remove(a));
+        assertFalse(testQueue.isValid(a));
+        // Вытеснение наихудшего и поглощение
+        var evicted = new ArrayList<String>();
+        testQueue.setCapacity(3, OverflowPolicy.EVICT_WORST, evicted::add);
+        var other = DynamicPriorityQueue.<String, Integer>handlesOnly(HeapBackend.DARY);
+        var e = other.offerHandle("e", 1, 1);
+        assertThrows(IllegalArgumentException.class, () -> new DynamicPriorityQueue<String, Integer>().absorb(other, ConflictPolicy.FAIL));
+        assertEquals(0, testQueue.absorb(other, ConflictPolicy.FAIL));
+        assertEquals(List.of("d"), evicted);
+        assertFalse(testQueue.isValid(e));
+        assertFalse(other.isValid(e));
+        assertTrue(testQueue.isValid(b));
+        assertEquals(List.of("c", "e", "b"), testQueue.peekN(3));
+        testQueue.clear();
+        assertFalse(testQueue.isValid(b));
+        assertFalse(testQueue.update(c));
+        assertTrue(testQueue.isEmpty());
+    }
+
+    @Test
+    public void KeyedHandleTest()
+    {
+        var testQueue = new DynamicPriorityQueue<String, String>();
+        var prio = new int[] {5};
+        var a = testQueue.offerHandle("a", "id-a", () -> prio[0]);
+        assertNull(testQueue.offerHandle("dup", "id-a", 1));
+        var b = testQueue.offerHandle("b", "id-b", 3);
+        // Дескриптор и идентификатор указывают на один элемент
+        prio[0] = 1;
+        assertTrue(testQueue.update(a));
+        assertEquals("a", testQueue.peek());
+        assertTrue(testQueue.remove("id-a"));
+        assertFalse(testQueue.isValid(a));
+        assertFalse(new DynamicPriorityQueue<String, String>().isValid(b));
+        testQueue.setCapacity(1, OverflowPolicy.REJECT, null);
+        assertNull(testQueue.offerHandle("c", "id-c", 0));
+        assertTrue(testQueue.remove(b));
+        assertFalse(testQueue.contains("id-b"));
+    }
+
+    @Test
+    public void HandlesOnlyBoundedTest()
+    {
+        var testQueue = DynamicPriorityQueue.<String, Integer>handlesOnly(HeapBackend.PAIRING);
+        var evicted = new ArrayList<String>();
+        testQueue.setCapacity(3, OverflowPolicy.EVICT_WORST, evicted::add);
+        var a = testQueue.offerHandle("a", 1, 1);
+        var b = testQueue.offerHandle("b", 2, 5);
+        var c = testQueue.offerHandle("c", 3, 3);
+        // Наихудший элемент удаляется через вершину, а не по идентификатору
+        assertEquals("b", testQueue.pollLast());
+        assertFalse(testQueue.isValid(b));
+        var d = testQueue.offerHandle("d", 4, 2);
+        var e = testQueue.offerHandle("e", 5, 0);
+        assertEquals(List.of("c"), evicted);
+        assertFalse(testQueue.isValid(c));
+        assertTrue(testQueue.isValid(d));
+        assertNull(testQueue.offerHandle("f", 6, 7));
+        assertEquals(List.of("c", "f"), evicted);
+        testQueue.setCapacity(2, OverflowPolicy.EVICT_WORST, evicted::add);
+        assertEquals(List.of("c", "f", "d"), evicted);
+        assertEquals("a", testQueue.pollLast());
+        assertFalse(testQueue.isValid(a));
+        assertTrue(testQueue.isValid(e));
+        assertEquals(List.of("e"), testQueue.peekN(2));
+    }
+}
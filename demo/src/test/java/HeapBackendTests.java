@@ -0,0 +1,177 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ru.sfedu.ConflictPolicy;
+import ru.sfedu.DynamicPriorityQueue;
+import ru.sfedu.HeapBackend;
+import ru.sfedu.PriorityCell;
+import ru.sfedu.SnapshotCodec;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HeapBackendTests {
+    // Кучи без ограничений на ключи; BUCKET и RADIX проверяются в BucketQueueTests
+    private static final HeapBackend[] BACKENDS = {HeapBackend.PAIRING, HeapBackend.DARY, HeapBackend.RANK_PAIRING};
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void BackendRandomOperationsTest()
+    {
+        for (var backend : BACKENDS)
+        {
+            var rnd = new Random(23);
+            var priorityArr = new int[3000];
+            var cells = new PriorityCell[priorityArr.length];
+            for (int i = 0; i < priorityArr.length; i++)
+                priorityArr[i] = rnd.nextInt(100) * priorityArr.length + i;
+            var testQueue = new DynamicPriorityQueue<Integer, Integer>(backend);
+            testQueue.setPoolCapacity(16);
+            var safeQueue = new PriorityQueue<Integer>((i1, i2) -> Integer.compare(priorityArr[i1], priorityArr[i2]));
+            for (int i = 0; i < 60000; i++)
+            {
+                int val = rnd.nextInt(priorityArr.length);
+                switch (rnd.nextInt(10))
+                {
+                    case 0:
+                        assertEquals(safeQueue.poll(), testQueue.poll(), backend.name());
+                        break;
+                    case 1:
+                        assertEquals(safeQueue.remove(val), testQueue.remove(val), backend.name());
+                        break;
+                    case 2:
+                        // Уменьшение и увеличение ключа, в том числе у корня
+                        int id = rnd.nextBoolean() && !safeQueue.isEmpty() ? safeQueue.peek() : val;
+                        if (safeQueue.remove(id))
+                        {
+                            priorityArr[id] = rnd.nextInt(100) * priorityArr.length + id;
+                            safeQueue.add(id);
+                            if (cells[id] != null && cells[id].isAttached())
+                                cells[id].set(priorityArr[id]);
+                            else
+                                assertTrue(testQueue.update(id), backend.name());
+                        }
+                        break;
+                    case 3:
+                        var expected = new ArrayList<Integer>();
+                        for (int j = rnd.nextInt(5); j > 0 && !safeQueue.isEmpty(); j--)
+                            expected.add(safeQueue.poll());
+                        var actual = new ArrayList<Integer>();
+                        testQueue.pollN(expected.size(), actual::add);
+                        assertEquals(expected, actual, backend.name());
+                        break;
+                    case 4:
+                        if (rnd.nextInt(20) == 0)
+                        {
+                            // Пересчет многих ключей одной партией
+                            var changed = new ArrayList<Integer>();
+                            for (var queued : safeQueue)
+                                if (rnd.nextInt(3) == 0)
+                                    changed.add(queued);
+                            safeQueue.removeAll(changed);
+                            for (var changedId : changed)
+                                priorityArr[changedId] = rnd.nextInt(100) * priorityArr.length + changedId;
+                            safeQueue.addAll(changed);
+                            for (var changedId : changed)
+                                if (cells[changedId] != null && cells[changedId].isAttached())
+                                    cells[changedId].set(priorityArr[changedId]);
+                            testQueue.updateAll();
+                        }
+                        else
+                        {
+                            var sorted = new PriorityQueue<>(safeQueue);
+                            var top = new ArrayList<Integer>();
+                            for (int j = 0; j < 5 && !sorted.isEmpty(); j++)
+                                top.add(sorted.poll());
+                            assertEquals(top, testQueue.peekN(5), backend.name());
+                        }
+                        break;
+                    default:
+                        if (safeQueue.contains(val))
+                            break;
+                        safeQueue.add(val);
+                        if (rnd.nextBoolean())
+                        {
+                            cells[val] = new PriorityCell(priorityArr[val]);
+                            testQueue.offer(val, val, cells[val]);
+                        }
+                        else
+                            testQueue.offer(val, val, () -> priorityArr[val]);
+                }
+                assertEquals(safeQueue.size(), testQueue.size(), backend.name());
+                assertEquals(safeQueue.peek(), testQueue.peek(), backend.name());
+            }
+            var res = new ArrayList<Integer>();
+            testQueue.forEach(res::add);
+            var expected = new ArrayList<Integer>();
+            while (!safeQueue.isEmpty())
+                expected.add(safeQueue.poll());
+            assertEquals(expected, res, backend.name());
+        }
+    }
+
+    @Test
+    public void CrossBackendAbsorbTest()
+    {
+        for (var first : BACKENDS)
+            for (var second : BACKENDS)
+            {
+                var name = first + "<-" + second;
+                var testQueue = new DynamicPriorityQueue<Integer, Integer>(first);
+                var other = new DynamicPriorityQueue<Integer, Integer>(second);
+                for (int i = 0; i < 1000; i++)
+                    (i % 3 == 0 ? other : testQueue).offer(i, i, (i * 7919) % 1000);
+                testQueue.poll();
+                other.poll();
+                assertEquals(0, testQueue.absorb(other, ConflictPolicy.FAIL), name);
+                assertTrue(other.isEmpty(), name);
+                assertEquals(998, testQueue.size(), name);
+                var last = Integer.MIN_VALUE;
+                while (!testQueue.isEmpty())
+                {
+                    int value = testQueue.poll();
+                    assertTrue((value * 7919) % 1000 >= last, name);
+                    last = (value * 7919) % 1000;
+                }
+                other.offer(5, 5, 5);
+                assertEquals(5, other.poll(), name);
+            }
+    }
+
+    @Test
+    public void BackendSnapshotTest() throws IOException
+    {
+        for (var backend : BACKENDS)
+        {
+            var rnd = new Random(5);
+            var priorities = new int[5000];
+            var testQueue = new DynamicPriorityQueue<String, Integer>(backend);
+            for (int i = 0; i < priorities.length; i++)
+            {
+                var index = i;
+                priorities[i] = rnd.nextInt(1000) * priorities.length + i;
+                testQueue.offer("value " + i, i, () -> priorities[index]);
+            }
+            for (int i = 0; i < 100; i++)
+                testQueue.poll();
+            var file = directory.resolve(backend + ".snapshot");
+            testQueue.snapshot(file, SnapshotCodec.strings(), SnapshotCodec.integers());
+            var restored = DynamicPriorityQueue.restore(file, SnapshotCodec.strings(), SnapshotCodec.integers(),
+                    id -> () -> priorities[id], false);
+            assertEquals(testQueue.size(), restored.size(), backend.name());
+            priorities[4000] = -1;
+            testQueue.update(4000);
+            restored.update(4000);
+            while (!testQueue.isEmpty())
+                assertEquals(testQueue.poll(), restored.poll(), backend.name());
+            assertTrue(restored.isEmpty(), backend.name());
+        }
+    }
+}
@@ -0,0 +1,106 @@
+
+
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import ru.sfedu.IntDynamicPriorityQueue;
+import ru.sfedu.MergeStrategy;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IntQueueTests {
+    @Test
+    public void RandomOperationsTest()
+    {
+        for (var strategy : MergeStrategy.values())
+            for (var offHeap : new boolean[] {false, true})
+                randomOperations(strategy, offHeap ? IntDynamicPriorityQueue.offHeap(strategy, 64, 0) : new IntDynamicPriorityQueue<>(strategy));
+    }
+    private void randomOperations(MergeStrategy strategy, IntDynamicPriorityQueue<Integer> testQueue)
+    {
+        var rnd = new Random(2024);
+        // Приоритеты различны: индекс в младших битах
+        var priorityArr = new int[2000];
+        for (int i = 0; i < priorityArr.length; i++)
+            priorityArr[i] = rnd.nextInt(1 << 20) * 2048 + i;
+        var safeQueue = new PriorityQueue<Integer>((i1, i2) -> Integer.compare(priorityArr[i1], priorityArr[i2]));
+        for (int i = 0; i < 50000; i++)
+        {
+            int val = rnd.nextInt(priorityArr.length);
+            switch (rnd.nextInt(6))
+            {
+                case 0:
+                    assertEquals(safeQueue.peek(), testQueue.peek(), strategy.name());
+                    break;
+                case 1:
+                    assertEquals(safeQueue.poll(), testQueue.poll(), strategy.name());
+                    break;
+                case 2:
+                    var exp = !safeQueue.contains(val) && safeQueue.offer(val);
+                    assertEquals(exp, testQueue.offer(val, val, () -> priorityArr[val]), strategy.name());
+                    break;
+                case 3:
+                    var present = safeQueue.remove(val);
+                    priorityArr[val] = rnd.nextInt(1 << 20) * 2048 + val;
+                    if (present)
+                        safeQueue.offer(val);
+                    assertEquals(present, testQueue.update(val), strategy.name());
+                    break;
+                case 4:
+                    assertEquals(safeQueue.remove(val), testQueue.remove(val), strategy.name());
+                    break;
+                case 5:
+                    if (rnd.nextInt(100) != 0)
+                        break;
+                    for (int j = 0; j < 50; j++)
+                    {
+                        int changed = rnd.nextInt(priorityArr.length);
+                        if (safeQueue.remove(changed))
+                        {
+                            priorityArr[changed] = rnd.nextInt(1 << 20) * 2048 + changed;
+                            safeQueue.offer(changed);
+                        }
+                    }
+                    testQueue.updateAll();
+                    break;
+            }
+            assertEquals(safeQueue.size(), testQueue.size(), strategy.name());
+            assertEquals(safeQueue.contains(val), testQueue.contains(val), strategy.name());
+        }
+    }
+    @Test
+    public void NegativeIdentifiersTest()
+    {
+        var testQueue = new IntDynamicPriorityQueue<String>();
+        assertTrue(testQueue.offer("a", -5, 3));
+        assertTrue(testQueue.offer("b", Integer.MIN_VALUE, 1));
+        assertTrue(testQueue.offer("c", 0, 2));
+        assertFalse(testQueue.offer("d", -5, 0));
+        assertEquals("b", testQueue.poll());
+        assertTrue(testQueue.remove(0));
+        assertFalse(testQueue.contains(0));
+        assertEquals("a", testQueue.poll());
+        assertNull(testQueue.poll());
+        assertTrue(testQueue.isEmpty());
+    }
+    @Test
+    public void OffHeapFootprintTest()
+    {
+        var testQueue = IntDynamicPriorityQueue.<Integer>offHeap(MergeStrategy.TWO_PASS, 1000, 0);
+        // Размер блока округляется до 1024 ячеек
+        var chunkBytes = testQueue.offHeapBytes();
+        assertTrue(chunkBytes >= 1024 * 25);
+        for (int i = 0; i < 5000; i++)
+            testQueue.offer(i, i, 5000 - i);
+        assertEquals(5 * chunkBytes, testQueue.offHeapBytes());
+        for (int i = 4999; i >= 0; i--)
+            assertEquals(i, testQueue.poll());
+        assertEquals(0, new IntDynamicPriorityQueue<Integer>().offHeapBytes());
+        // Округленный до 2^27 ячеек блок не помещается в буфер, хотя исходный размер помещается
+        var ex = assertThrows(IllegalArgumentException.class, () -> IntDynamicPriorityQueue.offHeap(MergeStrategy.TWO_PASS, 76_000_000, 0));
+        assertTrue(ex.getMessage().contains("134217728"), ex.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> IntDynamicPriorityQueue.offHeap(MergeStrategy.TWO_PASS, 0, 0));
+    }
+}
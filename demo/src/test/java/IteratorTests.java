@@ -0,0 +1,125 @@
+
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import org.junit.jupiter.api.Test;
+
+import ru.sfedu.DynamicPriorityQueue;
+import ru.sfedu.MergeStrategy;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IteratorTests {
+    @Test
+    public void PriorityOrderTest()
+    {
+        for (var strategy : MergeStrategy.values())
+        {
+            var rnd = new Random(7);
+            var priorityArr = new int[3000];
+            var testQueue = new DynamicPriorityQueue<Integer, Integer>(strategy);
+            for (int i = 0; i < priorityArr.length; i++)
+            {
+                priorityArr[i] = rnd.nextInt(1000) * priorityArr.length + i;
+                final int val = i;
+                testQueue.offer(val, val, () -> priorityArr[val]);
+            }
+            for (int i = 0; i < 500; i++)
+                testQueue.poll();
+            for (int i = 0; i < 300; i++)
+            {
+                int val = rnd.nextInt(priorityArr.length);
+                priorityArr[val] = rnd.nextInt(1000) * priorityArr.length + val;
+                testQueue.markDirty(val);
+            }
+            var expected = new ArrayList<Integer>();
+            testQueue.forEach(expected::add);
+            assertEquals(testQueue.size(), expected.size(), strategy.name());
+            for (int i = 1; i < expected.size(); i++)
+                assertTrue(priorityArr[expected.get(i - 1)] < priorityArr[expected.get(i)], strategy.name());
+            // Обход не меняет очередь
+            assertEquals(expected.subList(0, 10), testQueue.peekN(10), strategy.name());
+            var actual = new ArrayList<Integer>();
+            assertEquals(expected.size(), testQueue.drainTo(actual), strategy.name());
+            assertEquals(expected, actual, strategy.name());
+        }
+    }
+
+    @Test
+    public void FreshQueueTest()
+    {
+        // Только вставки: у корня спаривающейся кучи почти все вершины, обход сливает их один раз
+        var testQueue = new DynamicPriorityQueue<Integer, Integer>();
+        for (int i = 999; i >= 0; i--)
+            testQueue.offer(i, i, i);
+        assertEquals(List.of(0, 1, 2), testQueue.peekN(3));
+        // Вложенный обход не перестраивает кучу повторно и не портит внешний
+        int outer = 0;
+        for (var x : testQueue)
+        {
+            int inner = 0;
+            for (var y : testQueue)
+                assertEquals(inner++, y);
+            assertEquals(1000, inner);
+            assertEquals(outer++, x);
+            if (outer == 3)
+                break;
+        }
+        // Начатый обход остается верным после перестройки кучи другим обходом
+        var fresh = new DynamicPriorityQueue<Integer, Integer>();
+        for (int i = 999; i >= 0; i--)
+            fresh.offer(i, i, i);
+        var it = fresh.iterator();
+        assertEquals(0, it.next());
+        assertEquals(1, it.next());
+        assertEquals(10, fresh.peekN(10).size());
+        for (int i = 2; i < 1000; i++)
+            assertEquals(i, it.next());
+        assertFalse(it.hasNext());
+        for (int i = 0; i < 1000; i++)
+            assertEquals(i, testQueue.poll());
+    }
+
+    @Test
+    public void ConcurrentModificationTest()
+    {
+        var testQueue = new DynamicPriorityQueue<Integer, Integer>();
+        for (int i = 0; i < 10; i++)
+            testQueue.offer(i, i, i);
+        var it = testQueue.iterator();
+        assertEquals(0, it.next());
+        testQueue.update(5);
+        // Неизмененный приоритет не является изменением очереди
+        assertEquals(1, it.next());
+        testQueue.offer(10, 10, 10);
+        assertThrows(ConcurrentModificationException.class, it::next);
+        it = testQueue.iterator();
+        for (int i = 0; i <= 10; i++)
+            assertEquals(i, it.next());
+        assertFalse(it.hasNext());
+        assertThrows(NoSuchElementException.class, it::next);
+        assertFalse(new DynamicPriorityQueue<Integer, Integer>().iterator().hasNext());
+    }
+
+    @Test
+    public void ParallelSpliteratorTest()
+    {
+        var testQueue = new DynamicPriorityQueue<Integer, Integer>();
+        for (int i = 0; i < 100000; i++)
+            testQueue.offer(i, i, (i * 7919) % 100003);
+        var spliterator = testQueue.spliterator();
+        assertEquals(100000, spliterator.estimateSize());
+        assertNotNull(spliterator.trySplit());
+        var values = StreamSupport.stream(testQueue.spliterator(), true).collect(Collectors.toCollection(HashSet::new));
+        assertEquals(100000, values.size());
+        assertEquals(4999950000L, StreamSupport.stream(testQueue.spliterator(), true).mapToLong(v -> v).sum());
+        assertEquals(100000, testQueue.size());
+    }
+}
@@ -0,0 +1,214 @@
+
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ru.sfedu.DynamicPriorityQueue;
+import ru.sfedu.PriorityCell;
+import ru.sfedu.QueueJournal;
+import ru.sfedu.SnapshotCodec;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JournalTests {
+    @TempDir
+    Path directory;
+
+    private final int[] priorities = new int[2000];
+
+    private QueueJournal<String, Integer> journal(long segmentBytes)
+    {
+        return new QueueJournal<>(directory.resolve("journal"), SnapshotCodec.strings(), SnapshotCodec.integers(), segmentBytes, 1 << 12, 1_000_000L);
+    }
+
+    /**
+     *  Случайные операции, меняющие очередь через все виды записей журнала
+     */
+    private void randomOperations(DynamicPriorityQueue<String, Integer> testQueue, Random rnd, int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            int val = rnd.nextInt(priorities.length);
+            switch (rnd.nextInt(7))
+            {
+                case 0:
+                    testQueue.poll();
+                    break;
+                case 1:
+                    testQueue.remove(val);
+                    break;
+                case 2:
+                    priorities[val] = rnd.nextInt(1 << 20);
+                    testQueue.update(val);
+                    break;
+                case 3:
+                    for (int j = 0; j < 10; j++)
+                        priorities[rnd.nextInt(priorities.length)] = rnd.nextInt(1 << 20);
+                    testQueue.updateAll();
+                    break;
+                case 4:
+                    testQueue.offer("static " + val, val, rnd.nextInt(1 << 20));
+                    break;
+                default:
+                    testQueue.offer("value " + val, val, () -> priorities[val]);
+            }
+        }
+    }
+
+    private void assertSameOrder(DynamicPriorityQueue<String, Integer> expected, DynamicPriorityQueue<String, Integer> actual)
+    {
+        assertEquals(expected.size(), actual.size());
+        while (!expected.isEmpty())
+            assertEquals(expected.poll(), actual.poll());
+        assertTrue(actual.isEmpty());
+    }
+
+    @Test
+    public void ReplayTest() throws IOException
+    {
+        var rnd = new Random(11);
+        var testQueue = new DynamicPriorityQueue<String, Integer>();
+        // Маленькие сегменты, чтобы журнал несколько раз сменил файл
+        var journal = journal(1 << 14);
+        assertEquals(0, journal.recover(testQueue, id -> () -> priorities[id]));
+        randomOperations(testQueue, rnd, 20000);
+        journal.close();
+        assertTrue(Files.list(directory.resolve("journal")).count() > 1);
+
+        var recovered = new DynamicPriorityQueue<String, Integer>();
+        var replayed = journal(1 << 14).recover(recovered, id -> () -> priorities[id]);
+        assertEquals(journal.sequence(), replayed);
+        assertSameOrder(testQueue, recovered);
+    }
+
+    @Test
+    public void SnapshotThenReplayTest() throws IOException
+    {
+        var rnd = new Random(12);
+        var testQueue = new DynamicPriorityQueue<String, Integer>();
+        var journal = journal(1 << 14);
+        journal.recover(testQueue, id -> () -> priorities[id]);
+        randomOperations(testQueue, rnd, 10000);
+        var snapshot = directory.resolve("queue.snapshot");
+        testQueue.snapshot(snapshot, SnapshotCodec.strings(), SnapshotCodec.integers());
+        var snapshotSequence = journal.sequence();
+        journal.discard(snapshotSequence);
+        randomOperations(testQueue, rnd, 10000);
+        journal.close();
+
+        var recovered = DynamicPriorityQueue.restore(snapshot, SnapshotCodec.strings(), SnapshotCodec.integers(), id -> () -> priorities[id], false);
+        var replayed = journal(1 << 14).recover(recovered, id -> () -> priorities[id]);
+        assertEquals(journal.sequence() - snapshotSequence, replayed);
+        assertSameOrder(testQueue, recovered);
+    }
+
+    @Test
+    public void TornTailTest() throws IOException
+    {
+        var testQueue = new DynamicPriorityQueue<String, Integer>();
+        var journal = journal(1 << 20);
+        journal.recover(testQueue, id -> null);
+        for (int i = 0; i < 100; i++)
+            testQueue.offer("value " + i, i, i);
+        journal.close();
+        // Оборванная запись в конце последнего сегмента
+        Path segment;
+        try (var files = Files.list(directory.resolve("journal"))) {
+            segment = files.sorted().reduce((first, second) -> second).orElseThrow();
+        }
+        var size = Files.size(segment);
+        Files.write(segment, new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        var recovered = new DynamicPriorityQueue<String, Integer>();
+        var second = journal(1 << 20);
+        assertEquals(100, second.recover(recovered, id -> null));
+        assertEquals(size, Files.size(segment));
+        // Журнал продолжается после восстановления
+        recovered.poll();
+        second.close();
+        var again = new DynamicPriorityQueue<String, Integer>();
+        assertEquals(101, journal(1 << 20).recover(again, id -> null));
+        assertEquals("value 1", again.peek());
+    }
+
+    @Test
+    public void RejectedOperationTest() throws IOException
+    {
+        var testQueue = new DynamicPriorityQueue<String, Integer>();
+        var journal = journal(1 << 20);
+        journal.recover(testQueue, id -> null);
+        var cell = new PriorityCell(5);
+        testQueue.offer("a", 1, cell);
+        testQueue.offer("b", 2, 3);
+        // Отвергнутая вставка не попадает в журнал
+        assertThrows(IllegalArgumentException.class, () -> testQueue.offer("x", 3, cell));
+        assertEquals(2, testQueue.size());
+        journal.close();
+
+        var recovered = new DynamicPriorityQueue<String, Integer>();
+        journal(1 << 20).recover(recovered, id -> null);
+        assertEquals(2, recovered.size());
+        assertFalse(recovered.contains(3));
+        assertEquals("b", recovered.poll());
+        assertEquals("a", recovered.poll());
+    }
+
+    @Test
+    public void FailedAppendTest() throws IOException
+    {
+        // Представление значений, которое не может записать одно из них
+        var strings = SnapshotCodec.strings();
+        var failing = new SnapshotCodec<String>() {
+            public int size(String value)
+            {
+                return strings.size(value);
+            }
+
+            public void write(String value, ByteBuffer buffer)
+            {
+                if (value.equals("boom"))
+                    throw new UncheckedIOException(new IOException("нет места"));
+                strings.write(value, buffer);
+            }
+
+            public String read(ByteBuffer buffer)
+            {
+                return strings.read(buffer);
+            }
+        };
+        var testQueue = new DynamicPriorityQueue<String, Integer>();
+        var journal = new QueueJournal<>(directory.resolve("journal"), failing, SnapshotCodec.integers(), 1 << 20, 1 << 12, 1_000_000L);
+        journal.recover(testQueue, id -> null);
+        testQueue.offer("a", 1, 5);
+        testQueue.offer("b", 2, 3);
+        // Очередь уже изменилась, но в журнале этой вставки нет: журнал останавливается
+        assertThrows(UncheckedIOException.class, () -> testQueue.offer("boom", 3, 1));
+        assertEquals(3, testQueue.size());
+        assertThrows(UncheckedIOException.class, () -> testQueue.offer("c", 4, 0));
+        assertThrows(UncheckedIOException.class, testQueue::poll);
+        assertThrows(UncheckedIOException.class, () -> testQueue.remove(1));
+        assertEquals(3, testQueue.size());
+        assertFalse(testQueue.contains(4));
+        assertThrows(IOException.class, journal::commit);
+        assertThrows(IOException.class, journal::close);
+
+        // На диске - записи до сбоя
+        var recovered = new DynamicPriorityQueue<String, Integer>();
+        assertEquals(2, journal.recover(recovered, id -> null));
+        assertEquals(2, recovered.size());
+        assertFalse(recovered.contains(3));
+        recovered.offer("c", 4, 0);
+        journal.close();
+        var again = new DynamicPriorityQueue<String, Integer>();
+        assertEquals(3, journal(1 << 20).recover(again, id -> null));
+        assertEquals("c", again.peek());
+    }
+}
@@ -0,0 +1,126 @@
+
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import ru.sfedu.DoubleDynamicPriorityQueue;
+import ru.sfedu.LongDynamicPriorityQueue;
+import ru.sfedu.MergeStrategy;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeyTypesTests {
+    @Test
+    public void LongRandomOperationsTest()
+    {
+        for (var strategy : MergeStrategy.values())
+        {
+            var rnd = new Random(2025);
+            // Приоритеты различны и занимают весь диапазон long, включая его границы
+            var priorityArr = new long[2000];
+            for (int i = 0; i < priorityArr.length; i++)
+                priorityArr[i] = (rnd.nextLong() & ~2047L) + i;
+            priorityArr[0] = Long.MIN_VALUE;
+            priorityArr[1] = Long.MAX_VALUE;
+            var testQueue = new LongDynamicPriorityQueue<Integer, Integer>(strategy);
+            var safeQueue = new PriorityQueue<Integer>((i1, i2) -> Long.compare(priorityArr[i1], priorityArr[i2]));
+            for (int i = 0; i < 50000; i++)
+            {
+                int val = rnd.nextInt(priorityArr.length);
+                switch (rnd.nextInt(6))
+                {
+                    case 0:
+                        assertEquals(safeQueue.peek(), testQueue.peek(), strategy.name());
+                        break;
+                    case 1:
+                        assertEquals(safeQueue.poll(), testQueue.poll(), strategy.name());
+                        break;
+                    case 2:
+                        assertEquals(safeQueue.remove(val), testQueue.remove(val), strategy.name());
+                        break;
+                    case 3:
+                        if (safeQueue.contains(val))
+                        {
+                            safeQueue.remove(val);
+                            priorityArr[val] = (rnd.nextLong() & ~2047L) + val;
+                            safeQueue.add(val);
+                            assertTrue(testQueue.update(val));
+                        }
+                        break;
+                    default:
+                        if (!safeQueue.contains(val))
+                            safeQueue.add(val);
+                        testQueue.offer(val, val, () -> priorityArr[val]);
+                }
+                assertEquals(safeQueue.size(), testQueue.size(), strategy.name());
+            }
+        }
+    }
+
+    @Test
+    public void LongMinimalKeyRemoveTest()
+    {
+        // Удаление не должно зависеть от того, есть ли в очереди ключи Long.MIN_VALUE
+        var testQueue = new LongDynamicPriorityQueue<String, String>();
+        testQueue.offer("a", "a", Long.MIN_VALUE);
+        testQueue.offer("b", "b", Long.MIN_VALUE);
+        testQueue.offer("c", "c", Long.MIN_VALUE);
+        var removed = testQueue.peek().equals("b") ? "c" : "b";
+        assertTrue(testQueue.remove(removed));
+        assertEquals(2, testQueue.size());
+        assertFalse(testQueue.contains(removed));
+        assertEquals(Long.MIN_VALUE, testQueue.peekPriority());
+        var first = testQueue.poll();
+        var second = testQueue.poll();
+        assertNotEquals(removed, first);
+        assertNotEquals(removed, second);
+        assertNull(testQueue.poll());
+    }
+
+    @Test
+    public void DoubleOrderTest()
+    {
+        double[] priorities = {3.5, -0.0, 0.0, Double.NaN, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+                -1e-300, 1e-300, -Double.MAX_VALUE, Double.MIN_VALUE, -2.25, 1e300};
+        for (var strategy : MergeStrategy.values())
+        {
+            var testQueue = new DoubleDynamicPriorityQueue<Double, Integer>(strategy);
+            for (int i = 0; i < priorities.length; i++)
+            {
+                var priority = priorities[i];
+                testQueue.offer(priority, i, () -> priority);
+            }
+            var expected = priorities.clone();
+            Arrays.sort(expected);
+            for (var priority : expected)
+            {
+                assertEquals(0, Double.compare(priority, testQueue.peekPriority()), strategy.name());
+                assertEquals(0, Double.compare(priority, testQueue.poll()), strategy.name());
+            }
+            assertTrue(testQueue.isEmpty());
+        }
+    }
+
+    @Test
+    public void DoubleUpdateTest()
+    {
+        var scores = new double[100];
+        var testQueue = new DoubleDynamicPriorityQueue<Integer, Integer>();
+        for (int i = 0; i < scores.length; i++)
+        {
+            var id = i;
+            scores[i] = i * 0.5;
+            testQueue.offer(i, i, () -> scores[id]);
+        }
+        // Отрицательные оценки обгоняют все положительные
+        scores[70] = -0.25;
+        scores[30] = -0.75;
+        testQueue.updateAll();
+        assertEquals(30, testQueue.poll());
+        assertEquals(70, testQueue.poll());
+        assertEquals(0.0, testQueue.peekPriority());
+    }
+}
@@ -0,0 +1,92 @@
+
+
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import ru.sfedu.KineticPriorityQueue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KineticQueueTests {
+    @Test
+    public void RandomOperationsTest()
+    {
+        var rnd = new Random(2026);
+        // Целые base, rate и время: приоритеты вычисляются без округления
+        var bases = new HashMap<Integer, Double>();
+        var rates = new HashMap<Integer, Double>();
+        var testQueue = new KineticPriorityQueue<Integer, Integer>();
+        var time = 0.0;
+        for (int i = 0; i < 50000; i++)
+        {
+            int val = rnd.nextInt(1000);
+            switch (rnd.nextInt(6))
+            {
+                case 0:
+                    time += rnd.nextInt(20);
+                    testQueue.advanceTo(time);
+                    break;
+                case 1:
+                    if (bases.isEmpty())
+                        assertNull(testQueue.poll());
+                    else
+                    {
+                        var min = Double.POSITIVE_INFINITY;
+                        for (var id : bases.keySet())
+                            min = Math.min(min, bases.get(id) - rates.get(id) * time);
+                        assertEquals(min, testQueue.peekPriority());
+                        var polled = testQueue.poll();
+                        assertEquals(min, bases.remove(polled) - rates.remove(polled) * time);
+                    }
+                    break;
+                case 2:
+                    assertEquals(bases.remove(val) != null, testQueue.remove(val));
+                    rates.remove(val);
+                    break;
+                case 3:
+                    if (bases.containsKey(val))
+                    {
+                        bases.put(val, (double)rnd.nextInt(100000));
+                        rates.put(val, (double)rnd.nextInt(50));
+                        assertTrue(testQueue.update(val, bases.get(val), rates.get(val)));
+                    }
+                    break;
+                default:
+                    double base = rnd.nextInt(100000);
+                    double rate = rnd.nextInt(50);
+                    assertEquals(!bases.containsKey(val), testQueue.offer(val, val, base, rate));
+                    bases.putIfAbsent(val, base);
+                    rates.putIfAbsent(val, rate);
+            }
+            assertEquals(bases.size(), testQueue.size());
+        }
+    }
+
+    @Test
+    public void EqualRatesNeedNoRepairsTest()
+    {
+        var testQueue = new KineticPriorityQueue<Integer, Integer>();
+        for (int i = 0; i < 10000; i++)
+            testQueue.offer(i, i, 10000 - i, 3);
+        for (int t = 1; t <= 1000; t++)
+            testQueue.advanceTo(t);
+        assertEquals(0, testQueue.repairs());
+        assertEquals(9999, testQueue.peek());
+        // Один быстро стареющий элемент обгоняет всех
+        testQueue.update(0, 1010000, 1000);
+        testQueue.advanceTo(2000);
+        assertEquals(0, testQueue.peek());
+        assertTrue(testQueue.repairs() > 0);
+    }
+
+    @Test
+    public void TimeGoesForwardTest()
+    {
+        var testQueue = new KineticPriorityQueue<Integer, Integer>(10);
+        assertThrows(IllegalArgumentException.class, () -> testQueue.advanceTo(5));
+        assertThrows(IllegalArgumentException.class, () -> testQueue.offer(1, 1, Double.NaN, 1));
+        assertEquals(10, testQueue.now());
+    }
+}
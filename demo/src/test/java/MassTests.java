@@ -1,5 +1,6 @@
 
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.PriorityQueue;
 import java.util.Random;
@@ -7,6 +8,8 @@ import java.util.Random;
 import org.junit.jupiter.api.Test;
 
 import ru.sfedu.DynamicPriorityQueue;
+import ru.sfedu.MergeStrategy;
+import ru.sfedu.PriorityCell;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -142,4 +145,182 @@ public class MassTests {
             }
         }
     }
+    @Test
+    public void MergeStrategiesStressTest()
+    {
+        for (var strategy : MergeStrategy.values())
+        {
+            var rnd = new Random(777);
+            var priorityArr = randomPriorityArray(1000, rnd);
+            var safeQueue = new PriorityQueue<Integer>(1000, (i1, i2) -> priorityArr[i1].compareTo(priorityArr[i2]));
+            var testQueue = new DynamicPriorityQueue<Integer, Integer>(strategy);
+            for (int i = 0; i < 20000; i++)
+            {
+                Integer val = rnd.nextInt(1000);
+                switch (rnd.nextInt(5))
+                {
+                    case 0:
+                        assertEquals(safeQueue.peek(), testQueue.peek(), strategy.name());
+                        break;
+                    case 1:
+                        assertEquals(safeQueue.poll(), testQueue.poll(), strategy.name());
+                        break;
+                    case 2:
+                        var exp = !safeQueue.contains(val) && safeQueue.offer(val);
+                        assertEquals(exp, testQueue.offer(val, val, () -> priorityArr[val]), strategy.name());
+                        break;
+                    case 3:
+                        var present = safeQueue.remove(val);
+                        priorityArr[val] = rnd.nextInt();
+                        if (present)
+                            safeQueue.offer(val);
+                        assertEquals(present, testQueue.update(val), strategy.name());
+                        break;
+                    case 4:
+                        assertEquals(safeQueue.remove(val), testQueue.remove(val), strategy.name());
+                        break;
+                }
+                assertEquals(safeQueue.size(), testQueue.size(), strategy.name());
+            }
+        }
+    }
+    @Test
+    public void WideRootDrainTest()
+    {
+        // Все элементы, кроме первого, становятся детьми корня; рекурсивное слияние переполнило бы стек
+        for (var strategy : MergeStrategy.values())
+        {
+            var testQueue = new DynamicPriorityQueue<Integer, Integer>(strategy);
+            for (int i = 0; i < 1000000; i++)
+                testQueue.offer(i, i, i);
+            for (int i = 0; i < 1000000; i++)
+                assertEquals(i, testQueue.poll(), strategy.name());
+            assertNull(testQueue.poll());
+        }
+    }
+    @Test
+    public void PartialUpdateAllTest()
+    {
+        var rnd = new Random(4321);
+        var priorityArr = randomPriorityArray(5000, rnd);
+        var testQueue = new DynamicPriorityQueue<Integer, Integer>();
+        for (int i = 0; i < 5000; i++)
+        {
+            final int ind = i;
+            testQueue.offer(i, i, () -> priorityArr[ind]);
+        }
+        for (int round = 0; round < 50; round++)
+        {
+            // Часть приоритетов меняется, часть корней извлекается, чтобы куча была разной формы
+            for (int i = 0; i < 1 + round * 10; i++)
+                priorityArr[rnd.nextInt(5000)] = rnd.nextInt();
+            testQueue.updateAll();
+            for (int i = 0; i < 10; i++)
+            {
+                Integer polled = testQueue.poll();
+                testQueue.offer(polled, polled, () -> priorityArr[polled]);
+            }
+        }
+        var safeQueue = new PriorityQueue<Integer>((i1, i2) -> priorityArr[i1].compareTo(priorityArr[i2]));
+        for (int i = 0; i < 5000; i++)
+            safeQueue.offer(i);
+        for (int i = 0; i < 5001; i++)
+            assertEquals(safeQueue.poll(), testQueue.poll());
+    }
+    @Test
+    public void BulkConstructionTest()
+    {
+        var rnd = new Random(99);
+        var priorityArr = randomPriorityArray(10000, rnd);
+        var values = new ArrayList<Integer>();
+        for (int i = 0; i < 10000; i++)
+            values.add(i);
+        values.add(5); // Повтор идентификатора пропускается
+        var testQueue = new DynamicPriorityQueue<Integer, Integer>(values, v -> v, v -> () -> priorityArr[v]);
+        assertEquals(10000, testQueue.size());
+        assertFalse(testQueue.addAll(values.subList(0, 100), v -> v, v -> () -> priorityArr[v]));
+        var safeQueue = new PriorityQueue<Integer>((i1, i2) -> priorityArr[i1].compareTo(priorityArr[i2]));
+        safeQueue.addAll(values.subList(0, 10000));
+        for (int i = 0; i < 10001; i++)
+            assertEquals(safeQueue.poll(), testQueue.poll());
+    }
+    @Test
+    public void MarkDirtyTest()
+    {
+        var rnd = new Random(5150);
+        var priorityArr = randomPriorityArray(3000, rnd);
+        var testQueue = new DynamicPriorityQueue<Integer, Integer>();
+        for (int i = 0; i < 3000; i++)
+        {
+            final int ind = i;
+            testQueue.offer(i, i, () -> priorityArr[ind]);
+        }
+        var marks = 0;
+        for (int round = 0; round < 200; round++)
+        {
+            // Один и тот же элемент меняется и помечается несколько раз между чтениями корня
+            for (int i = 0; i < 30; i++)
+            {
+                var val = rnd.nextInt(3000);
+                priorityArr[val] = rnd.nextInt();
+                assertEquals(testQueue.contains(val), testQueue.markDirty(val));
+                if (testQueue.contains(val))
+                    marks++;
+                if (rnd.nextInt(10) == 0)
+                    testQueue.markDirty(rnd.nextInt(3000));
+            }
+            if (round % 2 == 0)
+                testQueue.flush();
+            var polled = testQueue.poll();
+            if (polled != null)
+            {
+                var safeQueue = new PriorityQueue<Integer>((i1, i2) -> priorityArr[i1].compareTo(priorityArr[i2]));
+                for (int i = 0; i < 3000; i++)
+                    if (testQueue.contains(i))
+                        safeQueue.offer(i);
+                safeQueue.offer(polled);
+                assertEquals(safeQueue.poll(), polled);
+            }
+        }
+        assertTrue(testQueue.coalescedUpdates() > 0);
+        assertTrue(testQueue.coalescedUpdates() <= marks);
+    }
+    @Test
+    public void PriorityCellTest() throws InterruptedException
+    {
+        var rnd = new Random(8080);
+        var cells = new PriorityCell[2000];
+        var testQueue = new DynamicPriorityQueue<Integer, Integer>();
+        for (int i = 0; i < cells.length; i++)
+        {
+            cells[i] = new PriorityCell(rnd.nextInt());
+            testQueue.offer(i, i, cells[i]);
+        }
+        assertThrows(IllegalArgumentException.class, () -> testQueue.offer(-1, -1, cells[0]));
+        // Изменения из другого потока доходят через ящик без вызова update
+        var writer = new Thread(() -> {
+            var writerRnd = new Random(1);
+            for (int i = 0; i < 5000; i++)
+                cells[writerRnd.nextInt(cells.length)].set(writerRnd.nextInt());
+        });
+        writer.start();
+        writer.join();
+        for (int i = 0; i < 1000; i++)
+        {
+            if (i % 10 == 0)
+            {
+                var changed = rnd.nextInt(cells.length);
+                cells[changed].set(rnd.nextInt());
+            }
+            var polled = testQueue.poll();
+            assertFalse(cells[polled].isAttached());
+            var min = Integer.MAX_VALUE;
+            for (int j = 0; j < cells.length; j++)
+                if (testQueue.contains(j))
+                    min = Math.min(min, cells[j].get());
+            assertTrue(cells[polled].get() <= min);
+        }
+        testQueue.clear();
+        assertFalse(cells[0].isAttached() || cells[1999].isAttached());
+    }
 }
@@ -0,0 +1,99 @@
+
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ru.sfedu.DynamicPriorityQueue;
+import ru.sfedu.QueueMetrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsTests {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void CountersTest()
+    {
+        // Метрики включаются свойством ru.sfedu.metrics в конфигурации surefire
+        assertTrue(QueueMetrics.isEnabled());
+        var priorities = new int[] {5, 6, 7, 8};
+        var testQueue = new DynamicPriorityQueue<Integer, Integer>();
+        for (int i = 0; i < priorities.length; i++)
+        {
+            var index = i;
+            testQueue.offer(i, i, () -> priorities[index]);
+        }
+        var metrics = testQueue.metrics();
+        assertEquals(3, metrics.melds());
+
+        priorities[3] = 1;
+        testQueue.update(3);
+        priorities[3] = 10;
+        testQueue.update(3);
+        testQueue.update(2);
+        assertEquals(1, metrics.decreases());
+        assertEquals(1, metrics.increases());
+        assertEquals(1, metrics.unchangedUpdates());
+        // Ключ корня увеличен, корень вставлен заново
+        assertEquals(1, metrics.rootReinserts());
+
+        priorities[1] = 0;
+        testQueue.updateAll();
+        assertEquals(1, metrics.sweeps());
+        assertEquals(2, metrics.decreases());
+
+        metrics.reset();
+        assertEquals(1, testQueue.poll());
+        assertEquals(1, metrics.polls());
+        assertEquals(metrics.consolidatedChildren(), metrics.maxConsolidatedChildren());
+        assertEquals(0, metrics.decreases());
+    }
+
+    @Test
+    public void FlightRecorderEventsTest() throws IOException
+    {
+        var file = directory.resolve("queue.jfr");
+        try (var recording = new Recording()) {
+            recording.enable("ru.sfedu.Poll").withThreshold(Duration.ZERO);
+            recording.enable("ru.sfedu.Sweep").withThreshold(Duration.ZERO);
+            recording.start();
+            var testQueue = new DynamicPriorityQueue<Integer, Integer>();
+            for (int i = 0; i < 100; i++)
+            {
+                var priority = i;
+                testQueue.offer(i, i, () -> priority);
+            }
+            testQueue.updateAll();
+            for (int i = 0; i < 10; i++)
+                testQueue.poll();
+            recording.stop();
+            recording.dump(file);
+        }
+        var polls = 0;
+        var sweeps = 0;
+        for (var event : RecordingFile.readAllEvents(file))
+        {
+            var name = event.getEventType().getName();
+            if (name.equals("ru.sfedu.Poll"))
+            {
+                polls++;
+                assertEquals("TWO_PASS", event.getString("strategy"));
+            }
+            else if (name.equals("ru.sfedu.Sweep"))
+            {
+                sweeps++;
+                assertEquals(100, event.getInt("size"));
+            }
+        }
+        assertEquals(10, polls);
+        assertEquals(1, sweeps);
+    }
+}
@@ -0,0 +1,116 @@
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.jupiter.api.Test;
+
+import ru.sfedu.DynamicPriorityQueue;
+import ru.sfedu.HeapBackend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelUpdateTests {
+    @Test
+    public void ParallelUpdateAllTest()
+    {
+        var pool = new ForkJoinPool(4);
+        try {
+            for (var backend : new HeapBackend[] {HeapBackend.PAIRING, HeapBackend.DARY, HeapBackend.RANK_PAIRING})
+            {
+                var rnd = new Random(31);
+                var priorityArr = new int[20000];
+                for (int i = 0; i < priorityArr.length; i++)
+                    priorityArr[i] = rnd.nextInt(1000) * priorityArr.length + i;
+                var calls = new AtomicIntegerArray(priorityArr.length);
+                var workerCalls = new int[1];
+                var testQueue = new DynamicPriorityQueue<Integer, Integer>(backend);
+                var serialQueue = new DynamicPriorityQueue<Integer, Integer>(backend);
+                testQueue.setParallelThreshold(1000, pool);
+                for (int i = 0; i < priorityArr.length; i++)
+                {
+                    var index = i;
+                    testQueue.offer(i, i, () -> {
+                        calls.incrementAndGet(index);
+                        if (Thread.currentThread() instanceof ForkJoinWorkerThread)
+                            synchronized (workerCalls) {
+                                workerCalls[0]++;
+                            }
+                        return priorityArr[index];
+                    });
+                    serialQueue.offer(i, i, () -> priorityArr[index]);
+                }
+                for (int round = 0; round < 20; round++)
+                {
+                    for (int i = 0; i < 2000; i++)
+                    {
+                        var index = rnd.nextInt(priorityArr.length);
+                        priorityArr[index] = rnd.nextInt(1000) * priorityArr.length + index;
+                    }
+                    for (int i = 0; i < 500; i++)
+                    {
+                        var value = testQueue.poll();
+                        assertEquals(serialQueue.poll(), value, backend.name());
+                        testQueue.offer(value, value, priorityArr[value]);
+                        serialQueue.offer(value, value, priorityArr[value]);
+                    }
+                    for (int i = 0; i < priorityArr.length; i++)
+                        calls.set(i, 0);
+                    testQueue.updateAll();
+                    serialQueue.updateAll();
+                    // Каждая функция приоритета вызывается один раз за пересчет
+                    for (int i = 0; i < priorityArr.length; i++)
+                        assertTrue(calls.get(i) <= 1, backend.name());
+                    assertEquals(serialQueue.peek(), testQueue.peek(), backend.name());
+                }
+                assertTrue(workerCalls[0] > 0, backend.name());
+                var expected = new ArrayList<Integer>();
+                var actual = new ArrayList<Integer>();
+                serialQueue.drainTo(expected);
+                testQueue.drainTo(actual);
+                assertEquals(expected, actual, backend.name());
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void ParallelUpdateFailureTest()
+    {
+        var priorityArr = new int[5000];
+        for (int i = 0; i < priorityArr.length; i++)
+            priorityArr[i] = i;
+        var testQueue = new DynamicPriorityQueue<Integer, Integer>(0, priorityArr.length);
+        assertThrows(IllegalArgumentException.class, () -> testQueue.setParallelThreshold(-1, null));
+        testQueue.setParallelThreshold(100, null);
+        for (int i = 0; i < priorityArr.length; i++)
+        {
+            var index = i;
+            testQueue.offer(i, i, () -> {
+                if (priorityArr[index] < 0)
+                    throw new IllegalStateException("счетчик недоступен");
+                return priorityArr[index];
+            });
+        }
+        // Ключи меняются в обратную сторону, но один из них вне диапазона очереди корзин
+        for (int i = 0; i < priorityArr.length; i++)
+            priorityArr[i] = priorityArr.length - 1 - i;
+        priorityArr[1234] = priorityArr.length + 1;
+        assertThrows(IllegalArgumentException.class, testQueue::updateAll);
+        assertEquals(0, testQueue.peek());
+        priorityArr[1234] = -1;
+        assertThrows(IllegalStateException.class, testQueue::updateAll);
+        assertEquals(0, testQueue.peek());
+        priorityArr[1234] = priorityArr.length - 1 - 1234;
+        testQueue.updateAll();
+        assertEquals(priorityArr.length - 1, testQueue.poll());
+        // Выключенный режим
+        testQueue.setParallelThreshold(0, null);
+        priorityArr[0] = 0;
+        testQueue.updateAll();
+        assertEquals(0, testQueue.poll());
+    }
+}
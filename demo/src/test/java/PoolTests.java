@@ -0,0 +1,116 @@
+
+
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import ru.sfedu.DynamicPriorityQueue;
+import ru.sfedu.MergeStrategy;
+import ru.sfedu.PriorityCell;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PoolTests {
+    @Test
+    public void PooledRandomOperationsTest()
+    {
+        for (var strategy : MergeStrategy.values())
+        {
+            var rnd = new Random(99);
+            var priorityArr = new int[2000];
+            var cells = new PriorityCell[priorityArr.length];
+            for (int i = 0; i < priorityArr.length; i++)
+                priorityArr[i] = rnd.nextInt(100) * priorityArr.length + i;
+            var testQueue = new DynamicPriorityQueue<Integer, Integer>(strategy);
+            testQueue.setPoolCapacity(64);
+            var safeQueue = new PriorityQueue<Integer>((i1, i2) -> Integer.compare(priorityArr[i1], priorityArr[i2]));
+            for (int i = 0; i < 50000; i++)
+            {
+                int val = rnd.nextInt(priorityArr.length);
+                switch (rnd.nextInt(7))
+                {
+                    case 0:
+                        assertEquals(safeQueue.poll(), testQueue.poll(), strategy.name());
+                        break;
+                    case 1:
+                        assertEquals(safeQueue.remove(val), testQueue.remove(val), strategy.name());
+                        break;
+                    case 2:
+                        // Увеличение ключа корня переиспользует его вершину
+                        if (!safeQueue.isEmpty())
+                        {
+                            int head = safeQueue.poll();
+                            priorityArr[head] += rnd.nextInt(100) * priorityArr.length;
+                            safeQueue.add(head);
+                            if (cells[head] != null && cells[head].isAttached())
+                                cells[head].set(priorityArr[head]);
+                            else
+                                assertTrue(testQueue.update(head), strategy.name());
+                        }
+                        break;
+                    case 3:
+                        var expected = new ArrayList<Integer>();
+                        for (int j = rnd.nextInt(5); j > 0 && !safeQueue.isEmpty(); j--)
+                            expected.add(safeQueue.poll());
+                        var actual = new ArrayList<Integer>();
+                        testQueue.pollN(expected.size(), actual::add);
+                        assertEquals(expected, actual, strategy.name());
+                        break;
+                    default:
+                        if (safeQueue.contains(val))
+                            break;
+                        safeQueue.add(val);
+                        if (rnd.nextBoolean())
+                        {
+                            cells[val] = new PriorityCell(priorityArr[val]);
+                            testQueue.offer(val, val, cells[val]);
+                        }
+                        else
+                            testQueue.offer(val, val, () -> priorityArr[val]);
+                }
+                assertEquals(safeQueue.size(), testQueue.size(), strategy.name());
+                assertEquals(safeQueue.peek(), testQueue.peek(), strategy.name());
+            }
+        }
+    }
+
+    @Test
+    public void RootIncreaseTest()
+    {
+        var cell = new PriorityCell(1);
+        var priority = new int[] { 20 };
+        var testQueue = new DynamicPriorityQueue<String, Integer>();
+        testQueue.offer("z", 0, 0);
+        testQueue.offer("a", 1, cell);
+        testQueue.offer("c", 2, () -> priority[0]);
+        for (int i = 3; i < 10; i++)
+            testQueue.offer("v" + i, i, i * 10);
+        assertEquals("z", testQueue.poll());
+        testQueue.offer("b", 100, 15);
+        cell.set(1000);
+        assertEquals("b", testQueue.peek());
+        // Ячейка корня остается привязанной к той же вершине
+        assertTrue(cell.isAttached());
+        cell.set(0);
+        assertEquals("a", testQueue.peek());
+        priority[0] = 5;
+        assertTrue(testQueue.update(2));
+        cell.set(10);
+        assertEquals("c", testQueue.peek());
+        // Увеличение ключа корня через update()
+        priority[0] = 50;
+        assertTrue(testQueue.update(2));
+        assertEquals("a", testQueue.peek());
+        if (testQueue.metrics() != null)
+            assertEquals(1, testQueue.metrics().rootReinserts());
+        assertEquals("a", testQueue.poll());
+        assertEquals("b", testQueue.poll());
+        assertEquals("v3", testQueue.poll());
+        assertEquals("v4", testQueue.poll());
+        assertEquals("c", testQueue.poll());
+        testQueue.setPoolCapacity(0);
+        assertThrows(IllegalArgumentException.class, () -> testQueue.setPoolCapacity(-1));
+    }
+}
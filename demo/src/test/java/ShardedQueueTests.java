@@ -0,0 +1,112 @@
+
+
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+import ru.sfedu.PollMode;
+import ru.sfedu.ShardedDynamicPriorityQueue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardedQueueTests {
+    @Test
+    public void ExactModeOrderTest()
+    {
+        var rnd = new Random(31);
+        var priorityArr = new int[5000];
+        for (int i = 0; i < priorityArr.length; i++)
+            priorityArr[i] = rnd.nextInt(1 << 20) * 8192 + i;
+        var safeQueue = new PriorityQueue<Integer>((i1, i2) -> Integer.compare(priorityArr[i1], priorityArr[i2]));
+        var testQueue = new ShardedDynamicPriorityQueue<Integer, Integer>(8, PollMode.EXACT);
+        for (int i = 0; i < priorityArr.length; i++)
+        {
+            final int ind = i;
+            safeQueue.offer(i);
+            testQueue.offer(i, i, () -> priorityArr[ind]);
+        }
+        for (int i = 0; i < 1000; i++)
+        {
+            int val = rnd.nextInt(priorityArr.length);
+            var present = safeQueue.remove(val);
+            priorityArr[val] = rnd.nextInt(1 << 20) * 8192 + val;
+            if (present)
+                safeQueue.offer(val);
+            assertEquals(present, testQueue.update(val));
+            if (i % 3 == 0)
+                assertEquals(safeQueue.poll(), testQueue.poll());
+        }
+        assertEquals(safeQueue.size(), testQueue.size());
+        while (!safeQueue.isEmpty())
+            assertEquals(safeQueue.poll(), testQueue.poll());
+        assertNull(testQueue.poll());
+        assertTrue(testQueue.isEmpty());
+    }
+    @Test
+    public void RelaxedModeRankErrorTest()
+    {
+        var testQueue = new ShardedDynamicPriorityQueue<Integer, Integer>(16);
+        for (int i = 0; i < 20000; i++)
+            testQueue.offer(i, i, i);
+        // Элемент с рангом больше 16 log 16 среди оставшихся извлекается крайне редко
+        var remaining = new TreeSet<Integer>();
+        for (int i = 0; i < 20000; i++)
+            remaining.add(i);
+        var badRanks = 0;
+        for (int i = 0; i < 20000; i++)
+        {
+            var polled = testQueue.poll();
+            if (remaining.headSet(polled).size() > 64)
+                badRanks++;
+            assertTrue(remaining.remove(polled));
+        }
+        assertTrue(badRanks < 200, "Слишком много извлечений с большим рангом: " + badRanks);
+        assertNull(testQueue.poll());
+    }
+    @Test
+    public void ConcurrentProducersConsumersTest() throws InterruptedException
+    {
+        var testQueue = new ShardedDynamicPriorityQueue<Integer, Integer>(8);
+        var polled = ConcurrentHashMap.<Integer>newKeySet();
+        var threads = new ArrayList<Thread>();
+        var start = new CountDownLatch(1);
+        for (int t = 0; t < 4; t++)
+        {
+            final int base = t * 10000;
+            threads.add(new Thread(() -> {
+                var rnd = new Random(base);
+                try {
+                    start.await();
+                }
+                catch (InterruptedException ex) {
+                    return;
+                }
+                for (int i = 0; i < 10000; i++)
+                {
+                    assertTrue(testQueue.offer(base + i, base + i, rnd.nextInt()));
+                    if (i % 2 == 1)
+                    {
+                        var value = testQueue.poll();
+                        if (value != null)
+                            assertTrue(polled.add(value));
+                    }
+                }
+            }));
+        }
+        for (var thread : threads)
+            thread.start();
+        start.countDown();
+        for (var thread : threads)
+            thread.join();
+        Integer value;
+        while ((value = testQueue.poll()) != null)
+            assertTrue(polled.add(value));
+        assertEquals(40000, polled.size());
+        assertEquals(0, testQueue.size());
+    }
+}
@@ -0,0 +1,170 @@
+
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ru.sfedu.DynamicPriorityQueue;
+import ru.sfedu.MergeStrategy;
+import ru.sfedu.PriorityCell;
+import ru.sfedu.PriorityUpdater;
+import ru.sfedu.SnapshotCodec;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnapshotTests {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void RoundTripTest() throws IOException
+    {
+        for (var strategy : MergeStrategy.values())
+            for (var lazy : new boolean[] {false, true})
+            {
+                var rnd = new Random(7);
+                var priorities = new int[50000];
+                var testQueue = new DynamicPriorityQueue<String, Integer>(strategy);
+                for (int i = 0; i < priorities.length; i++)
+                {
+                    var index = i;
+                    priorities[i] = rnd.nextInt(1 << 20);
+                    // Половина элементов со статическим приоритетом
+                    if (i % 2 == 0)
+                        testQueue.offer("value " + i, i, () -> priorities[index]);
+                    else
+                        testQueue.offer("value " + i, i, priorities[i]);
+                }
+                // Куча с непустыми поддеревьями, а не только список корней
+                for (int i = 0; i < 1000; i++)
+                    testQueue.poll();
+                var file = directory.resolve(strategy + "-" + lazy + ".snapshot");
+                testQueue.snapshot(file, SnapshotCodec.strings(), SnapshotCodec.integers());
+                var restored = DynamicPriorityQueue.restore(file, SnapshotCodec.strings(), SnapshotCodec.integers(),
+                        id -> () -> priorities[id], lazy);
+                assertEquals(testQueue.size(), restored.size());
+                // Восстановленные функции приоритета работают
+                priorities[10] = -1;
+                testQueue.update(10);
+                restored.update(10);
+                while (!testQueue.isEmpty())
+                    assertEquals(testQueue.poll(), restored.poll(), strategy.name());
+                assertTrue(restored.isEmpty());
+            }
+    }
+
+    @Test
+    public void LazyResnapshotTest() throws IOException
+    {
+        var testQueue = new DynamicPriorityQueue<String, String>();
+        for (int i = 0; i < 1000; i++)
+            testQueue.offer("value " + i, "id " + i, 1000 - i);
+        var first = directory.resolve("first.snapshot");
+        var second = directory.resolve("second.snapshot");
+        testQueue.snapshot(first, SnapshotCodec.strings(), SnapshotCodec.strings());
+        PriorityUpdater missing = null;
+        var restored = DynamicPriorityQueue.restore(first, SnapshotCodec.strings(), SnapshotCodec.strings(), id -> missing, true);
+        // Неразобранные значения переписываются в новый снимок как есть
+        restored.snapshot(second, SnapshotCodec.strings(), SnapshotCodec.strings());
+        assertArrayEquals(Files.readAllBytes(first), Files.readAllBytes(second));
+        var again = DynamicPriorityQueue.restore(second, SnapshotCodec.strings(), SnapshotCodec.strings(), id -> missing, false);
+        for (int i = 999; i >= 0; i--)
+            assertEquals("value " + i, again.poll());
+    }
+
+    @Test
+    public void PriorityCellRestoreTest() throws IOException
+    {
+        var cells = new HashMap<Integer, PriorityCell>();
+        var testQueue = new DynamicPriorityQueue<Integer, Integer>();
+        for (int i = 0; i < 100; i++)
+        {
+            cells.put(i, new PriorityCell(i));
+            testQueue.offer(i, i, cells.get(i));
+        }
+        var file = directory.resolve("cells.snapshot");
+        testQueue.snapshot(file, SnapshotCodec.integers(), SnapshotCodec.integers());
+        testQueue.clear();
+        var restoredCells = new HashMap<Integer, PriorityCell>();
+        var restored = DynamicPriorityQueue.restore(file, SnapshotCodec.integers(), SnapshotCodec.integers(),
+                id -> restoredCells.computeIfAbsent(id, key -> new PriorityCell(cells.get(key).get())), false);
+        restoredCells.get(50).set(-5);
+        assertEquals(50, restored.peek());
+    }
+
+    @Test
+    public void CorruptedSnapshotTest() throws IOException
+    {
+        var testQueue = new DynamicPriorityQueue<Integer, Integer>();
+        for (int i = 0; i < 100; i++)
+            testQueue.offer(i, i, i);
+        var file = directory.resolve("corrupted.snapshot");
+        testQueue.snapshot(file, SnapshotCodec.integers(), SnapshotCodec.integers());
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {42}), Files.size(file) - 1);
+        }
+        assertThrows(IOException.class, () -> DynamicPriorityQueue.restore(file, SnapshotCodec.integers(), SnapshotCodec.integers(), id -> null, false));
+    }
+
+    @Test
+    public void EmptySnapshotTest() throws IOException
+    {
+        var file = directory.resolve("empty.snapshot");
+        new DynamicPriorityQueue<Integer, Integer>().snapshot(file, SnapshotCodec.integers(), SnapshotCodec.integers());
+        var restored = DynamicPriorityQueue.restore(file, SnapshotCodec.integers(), SnapshotCodec.integers(), id -> null, true);
+        assertTrue(restored.isEmpty());
+        assertNull(restored.poll());
+    }
+
+    @Test
+    public void InterruptedSnapshotTest() throws IOException
+    {
+        var testQueue = new DynamicPriorityQueue<Integer, Integer>();
+        for (int i = 0; i < 100; i++)
+            testQueue.offer(i, i, i);
+        var file = directory.resolve("queue.snapshot");
+        testQueue.snapshot(file, SnapshotCodec.integers(), SnapshotCodec.integers());
+        testQueue.poll();
+        // Представление значений отказывает посреди записи нового снимка
+        var integers = SnapshotCodec.integers();
+        var failing = new SnapshotCodec<Integer>() {
+            public int size(Integer value)
+            {
+                return integers.size(value);
+            }
+
+            public void write(Integer value, ByteBuffer buffer)
+            {
+                if (value == 50)
+                    throw new UncheckedIOException(new IOException("нет места"));
+                integers.write(value, buffer);
+            }
+
+            public Integer read(ByteBuffer buffer)
+            {
+                return integers.read(buffer);
+            }
+        };
+        assertThrows(UncheckedIOException.class, () -> testQueue.snapshot(file, failing, SnapshotCodec.integers()));
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+        // Прежний снимок цел
+        var restored = DynamicPriorityQueue.restore(file, SnapshotCodec.integers(), SnapshotCodec.integers(), id -> null, false);
+        assertEquals(100, restored.size());
+        assertEquals(0, restored.peek());
+        testQueue.snapshot(file, SnapshotCodec.integers(), SnapshotCodec.integers());
+        restored = DynamicPriorityQueue.restore(file, SnapshotCodec.integers(), SnapshotCodec.integers(), id -> null, false);
+        assertEquals(99, restored.size());
+        assertEquals(1, restored.peek());
+    }
+}
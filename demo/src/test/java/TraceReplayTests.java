@@ -0,0 +1,149 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ru.sfedu.DynamicPriorityQueue;
+import ru.sfedu.HeapBackend;
+import ru.sfedu.LatencyHistogram;
+import ru.sfedu.TraceReplay;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TraceReplayTests {
+    @TempDir
+    Path dir;
+
+    @Test
+    public void TextTraceTest() throws IOException
+    {
+        var trace = dir.resolve("trace.txt");
+        Files.write(trace, List.of(
+                "# идентификаторы нумеруются в порядке появления: a=0, b=1, c=2, d=3",
+                "insert x a 5",
+                "insert y  b 3",
+                "insert z c 4",
+                "insert w a 0",
+                "",
+                "peek",
+                "update a 1",
+                "poll",
+                "manual off",
+                "insert d 2",
+                "remove c",
+                "help",
+                "exit",
+                "insert e 0"));
+        var queue = new DynamicPriorityQueue<Integer, Integer>();
+        var report = TraceReplay.replay(trace, queue, 0);
+        assertEquals(9, report.operations());
+        assertEquals(5, report.latency(TraceReplay.Operation.INSERT).count());
+        assertEquals(1, report.latency(TraceReplay.Operation.POLL).count());
+        assertEquals(1, report.latency(TraceReplay.Operation.REMOVE).count());
+        // Повторная вставка a не меняет ее приоритет
+        var rest = new ArrayList<Integer>();
+        queue.drainTo(rest);
+        assertEquals(List.of(3, 1), rest);
+        Files.write(trace, List.of("insert x a 5", "update a"));
+        var ex = assertThrows(IOException.class, () -> TraceReplay.replay(trace, new DynamicPriorityQueue<>(), 0));
+        assertTrue(ex.getMessage().startsWith("Строка 2"));
+    }
+
+    @Test
+    public void BinaryTraceTest() throws IOException
+    {
+        var rnd = new Random(29);
+        var lines = new ArrayList<String>();
+        for (int i = 0; i < 50000; i++)
+        {
+            var index = rnd.nextInt(3000);
+            var id = "id" + index;
+            // Приоритеты различны, отрицательные и большие проверяют кодировку переменной длины
+            var priority = (rnd.nextInt(1 << 16) - (1 << 15)) * 3000 + index;
+            switch (rnd.nextInt(6))
+            {
+                case 0:
+                    lines.add("poll");
+                    break;
+                case 1:
+                    lines.add("peek");
+                    break;
+                case 2:
+                    lines.add("update " + id + " " + priority);
+                    break;
+                case 3:
+                    lines.add("remove " + id);
+                    break;
+                default:
+                    lines.add("insert v " + id + " " + priority);
+            }
+        }
+        var text = dir.resolve("trace.txt");
+        var binary = dir.resolve("trace.bin");
+        Files.write(text, lines);
+        TraceReplay.convert(text, binary);
+        assertTrue(Files.size(binary) < Files.size(text) / 2);
+        var fromText = new DynamicPriorityQueue<Integer, Integer>();
+        var fromBinary = new DynamicPriorityQueue<Integer, Integer>(HeapBackend.DARY);
+        var textReport = TraceReplay.replay(text, fromText, 0);
+        var binaryReport = TraceReplay.replay(binary, fromBinary, 0);
+        assertEquals(lines.size(), binaryReport.operations());
+        for (var operation : TraceReplay.Operation.values())
+            assertEquals(textReport.latency(operation).count(), binaryReport.latency(operation).count());
+        var textRest = new ArrayList<Integer>();
+        var binaryRest = new ArrayList<Integer>();
+        fromText.drainTo(textRest);
+        fromBinary.drainTo(binaryRest);
+        assertFalse(textRest.isEmpty());
+        assertEquals(textRest, binaryRest);
+        // Обрезанная трасса
+        Files.write(binary, Arrays.copyOf(Files.readAllBytes(binary), 100));
+        assertThrows(IOException.class, () -> TraceReplay.replay(binary, new DynamicPriorityQueue<>(), 0));
+    }
+
+    @Test
+    public void RateTest() throws IOException
+    {
+        var lines = new ArrayList<String>();
+        for (int i = 0; i < 1000; i++)
+            lines.add(i % 2 == 0 ? "insert v " + i + " " + i : "poll");
+        var trace = dir.resolve("trace.txt");
+        Files.write(trace, lines);
+        var report = TraceReplay.replay(trace, new DynamicPriorityQueue<>(), 20000);
+        // Последняя операция назначена на 999 / 20000 секунды от начала
+        assertTrue(report.nanos() >= 49_000_000L, report.toString());
+        assertTrue(report.throughput() <= 20500, report.toString());
+    }
+
+    @Test
+    public void LatencyHistogramTest()
+    {
+        var histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentile(99));
+        for (int i = 0; i < 128; i++)
+            histogram.record(i);
+        // Малые значения хранятся точно
+        assertEquals(63, histogram.percentile(50));
+        assertEquals(127, histogram.percentile(100));
+        var large = new LatencyHistogram();
+        for (int i = 1; i <= 1_000_000; i++)
+            large.record(i);
+        large.record(-5);
+        assertEquals(1_000_001, large.count());
+        assertEquals(1_000_000, large.max());
+        for (var percentile : new double[] {50, 99, 99.9})
+        {
+            var expected = percentile / 100 * 1_000_000;
+            assertEquals(expected, large.percentile(percentile), expected / 64);
+        }
+        large.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, large.percentile(100));
+        assertThrows(IllegalArgumentException.class, () -> large.percentile(101));
+    }
+}